@@ -0,0 +1,46 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.ApiError;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning an exception into an ApiError, paid on every rejected request. The exceptions are created
+ * once so that only the constructor is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiErrorBenchmark {
+    private Exception duplicateUser;
+    private Exception invalidUser;
+    private Exception illegalArgument;
+
+    @Setup
+    public void setUp() {
+        this.duplicateUser = new DuplicateUserException("Fred");
+        this.invalidUser = new InvalidUserException("Fred");
+        this.illegalArgument = new IllegalArgumentException("Size must be greater than 0");
+    }
+
+    @Benchmark
+    public ApiError duplicateUser() {
+        return new ApiError(this.duplicateUser);
+    }
+
+    @Benchmark
+    public ApiError invalidUser() {
+        return new ApiError(this.invalidUser);
+    }
+
+    @Benchmark
+    public ApiError illegalArgument() {
+        return new ApiError(this.illegalArgument);
+    }
+}
@@ -0,0 +1,127 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import projects.dnetsova.taskmanager.utils.TimeOrderedUuids;
+import projects.dnetsova.taskmanager.utils.UuidBytes;
+
+import java.sql.*;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares random (version 4) and time-ordered (version 7) UUID primary keys on a MySQL server: insert
+ * throughput, and the size of the clustered index, of a secondary index and of a join table keyed by the id.
+ * <p>
+ * Each scheme gets a table shaped like tasks (BINARY(16) id, title, deadline with a secondary index on
+ * (deadline, id)) and a join table shaped like tasks_users, dropped and recreated for the trial. Every
+ * invocation inserts {@value #ROWS_PER_STATEMENT} tasks and their assignments with two multi-row statements
+ * and commits, the score is in rows. The tables keep growing over the iterations, so the slowdown of random
+ * keys once the index outgrows the buffer pool shows in the iteration scores; make the measurement long
+ * enough for that, e.g. -r 60s. The index sizes are printed at the end of the trial, from
+ * mysql.innodb_index_stats after ANALYZE TABLE.
+ * <p>
+ * Runs against a scratch database given with -p url=... -p user=... -p password=..., never a real one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 10, time = 30)
+@Fork(1)
+public class IdInsertBenchmark {
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    @Param("jdbc:mysql://localhost:3306/task_manager_benchmark?createDatabaseIfNotExist=true")
+    private String url;
+
+    @Param("root")
+    private String user;
+
+    @Param("")
+    private String password;
+
+    @Param({"random", "time_ordered"})
+    private String scheme;
+
+    private Supplier<UUID> ids;
+    private Connection connection;
+    private PreparedStatement tasks;
+    private PreparedStatement assignments;
+    private byte[][] userIds;
+    private long inserted;
+
+    @Setup(Level.Trial)
+    public void createTables() throws SQLException {
+        this.ids = "random".equals(this.scheme) ? UUID::randomUUID : TimeOrderedUuids::next;
+        this.connection = DriverManager.getConnection(this.url, this.user, this.password);
+        String table = "bench_tasks_" + this.scheme;
+        String joinTable = "bench_tasks_users_" + this.scheme;
+
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + joinTable + ", " + table);
+            statement.execute("CREATE TABLE " + table + " (id BINARY(16) NOT NULL PRIMARY KEY, " +
+                    "title VARCHAR(255) NOT NULL, deadline DATE, INDEX idx_deadline_id (deadline, id)) ENGINE = InnoDB");
+            statement.execute("CREATE TABLE " + joinTable + " (task_id BINARY(16) NOT NULL, " +
+                    "user_id BINARY(16) NOT NULL, PRIMARY KEY (task_id, user_id), " +
+                    "INDEX idx_user_task (user_id, task_id)) ENGINE = InnoDB");
+        }
+
+        // A fixed pool of assignees, like a user base much smaller than the number of tasks
+        this.userIds = new byte[10_000][];
+        for (int i = 0; i < this.userIds.length; i++) this.userIds[i] = UuidBytes.toBytes(this.ids.get());
+
+        this.connection.setAutoCommit(false);
+        this.tasks = this.connection.prepareStatement("INSERT INTO " + table + " (id, title, deadline) VALUES " +
+                String.join(", ", Collections.nCopies(ROWS_PER_STATEMENT, "(?, ?, ?)")));
+        this.assignments = this.connection.prepareStatement("INSERT INTO " + joinTable +
+                " (task_id, user_id) VALUES " + String.join(", ", Collections.nCopies(ROWS_PER_STATEMENT, "(?, ?)")));
+    }
+
+    @TearDown(Level.Trial)
+    public void printSizes() throws SQLException {
+        this.tasks.close();
+        this.assignments.close();
+        this.connection.setAutoCommit(true);
+
+        System.out.printf("%n%-12s %,d rows inserted%n", this.scheme, this.inserted);
+        printSizes("bench_tasks_" + this.scheme);
+        printSizes("bench_tasks_users_" + this.scheme);
+        this.connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_STATEMENT)
+    public void insertRows() throws SQLException {
+        Date deadline = Date.valueOf("2024-07-01");
+        for (int i = 0; i < ROWS_PER_STATEMENT; i++) {
+            byte[] id = UuidBytes.toBytes(this.ids.get());
+            this.tasks.setBytes(3 * i + 1, id);
+            this.tasks.setString(3 * i + 2, "Task " + (this.inserted + i));
+            this.tasks.setDate(3 * i + 3, deadline);
+            this.assignments.setBytes(2 * i + 1, id);
+            this.assignments.setBytes(2 * i + 2, this.userIds[(int) ((this.inserted + i) % this.userIds.length)]);
+        }
+        this.tasks.executeUpdate();
+        this.assignments.executeUpdate();
+        this.connection.commit();
+        this.inserted += ROWS_PER_STATEMENT;
+    }
+
+    private void printSizes(String table) throws SQLException {
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + table);
+
+            try (ResultSet sizes = statement.executeQuery("SELECT index_name, " +
+                    "SUM(stat_value) * @@innodb_page_size AS bytes FROM mysql.innodb_index_stats " +
+                    "WHERE database_name = DATABASE() AND table_name = '" + table + "' AND stat_name = 'size' " +
+                    "GROUP BY index_name ORDER BY index_name")) {
+                while (sizes.next()) {
+                    System.out.printf("  %-28s %-18s %,10.1f MiB%n", table, sizes.getString(1),
+                            sizes.getLong(2) / (1024.0 * 1024.0));
+                }
+            }
+        }
+    }
+}
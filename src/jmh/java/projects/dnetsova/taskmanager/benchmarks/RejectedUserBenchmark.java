@@ -0,0 +1,70 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cost of rejecting a duplicate user name, before and after the conflict-aware write path. The
+ * database round trip itself is not part of the measurement, see {@link UserServiceBenchmark#addTakenUser}.
+ * <p>
+ * Before: the failed insert surfaces as a driver exception wrapped into a DataIntegrityViolationException,
+ * both with stack traces, which is caught and rethrown as a DuplicateUserException with a stack trace.
+ * After: the insert reports no inserted row and a stackless DuplicateUserException is thrown.
+ * <p>
+ * The rejections are thrown from a stack about as deep as a request handled by Spring MVC and Spring Data,
+ * since filling in a stack trace costs in proportion to its depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectedUserBenchmark {
+    @Param("120")
+    private int stackDepth;
+
+    private int insertedRows;
+
+    @Benchmark
+    public Exception rejectBefore() {
+        return atDepth(this.stackDepth, true);
+    }
+
+    @Benchmark
+    public Exception rejectAfter() {
+        return atDepth(this.stackDepth, false);
+    }
+
+    private Exception atDepth(int depth, boolean before) {
+        if (depth > 0) return atDepth(depth - 1, before);
+
+        try {
+            if (before) {
+                try {
+                    throw new DataIntegrityViolationException("Duplicate entry",
+                            new SQLIntegrityConstraintViolationException("Duplicate entry 'Fred' for key 'users.name'"));
+                } catch (DataIntegrityViolationException e) {
+                    throw new StackfulDuplicateUserException("Fred");
+                }
+            }
+            if (this.insertedRows == 0) throw new DuplicateUserException("Fred");
+            return null;
+        } catch (StackfulDuplicateUserException | DuplicateUserException e) {
+            return e;
+        }
+    }
+
+    /**
+     * DuplicateUserException as it was before it became stackless.
+     */
+    private static class StackfulDuplicateUserException extends Exception {
+        StackfulDuplicateUserException(String name) {
+            super("User '" + name + "' is taken.");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+import projects.dnetsova.taskmanager.models.CursorPage;
+import projects.dnetsova.taskmanager.models.CustomPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the response envelopes, with the object mapper configured the way Spring Boot
+ * configures the one used by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<CustomPage<String>> customPage;
+    private ApiResponse<CursorPage<String>> cursorPage;
+    private ApiResponse<?> error;
+
+    @Setup
+    public void setUp() {
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<String> names = new ArrayList<>(this.pageSize);
+        for (int i = 0; i < this.pageSize; i++) {
+            names.add("user-" + i);
+        }
+
+        this.customPage = new ApiResponse<>(new CustomPage<>(names, 500, 500L * this.pageSize));
+        this.cursorPage = new ApiResponse<>(new CursorPage<>(names, "dXNlci05OQ", 500L * this.pageSize));
+        this.error = new ApiResponse<>(null, new ApiError("DuplicateUser", "User 'Fred' is taken."));
+    }
+
+    @Benchmark
+    public byte[] customPage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.customPage);
+    }
+
+    @Benchmark
+    public byte[] cursorPage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.cursorPage);
+    }
+
+    @Benchmark
+    public byte[] error() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.error);
+    }
+}
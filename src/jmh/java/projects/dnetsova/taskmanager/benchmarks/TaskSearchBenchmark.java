@@ -0,0 +1,84 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.TaskInvertedIndex;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of task searches on an index of synthetic tasks, whose words follow a Zipf-like distribution so that
+ * the queries mix very common and rare terms. Every invocation searches the next of a fixed set of two-term
+ * queries, without and with a filter on priority, deadline and assignee. Use -prof gc or the sample time mode
+ * (-bm sample) for the tail of the distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TaskSearchBenchmark {
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int QUERIES = 4096;
+    private static final String[] USERS = {"Fred", "George", "Ginny", "Percy", "Ron"};
+    private static final TaskInvertedIndex.Filter FILTER = new TaskInvertedIndex.Filter(
+            Set.of(Priority.P0, Priority.P1), LocalDate.of(2024, 3, 1), LocalDate.of(2024, 9, 1), "Fred");
+
+    @Param("2000000")
+    private int tasks;
+
+    @Param("20")
+    private int limit;
+
+    private TaskInvertedIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void createIndex() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) vocabulary[i] = "w" + Integer.toString(i, 36);
+
+        this.index = new TaskInvertedIndex();
+        for (int i = 0; i < this.tasks; i++) {
+            this.index.put(UUID.randomUUID(), words(vocabulary, random, 5), words(vocabulary, random, 30),
+                    Priority.values()[random.nextInt(5)], LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365)),
+                    List.of(USERS[random.nextInt(USERS.length)]));
+        }
+
+        this.queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) this.queries[i] = words(vocabulary, random, 2);
+    }
+
+    @Benchmark
+    public List<TaskInvertedIndex.Hit> twoTerms() {
+        return this.index.search(nextQuery(), TaskInvertedIndex.Filter.NONE, this.limit);
+    }
+
+    @Benchmark
+    public List<TaskInvertedIndex.Hit> twoTermsFiltered() {
+        return this.index.search(nextQuery(), FILTER, this.limit);
+    }
+
+    private String nextQuery() {
+        String query = this.queries[this.next];
+        this.next = (this.next + 1) & (QUERIES - 1);
+        return query;
+    }
+
+    /**
+     * Picks words with a probability roughly inversely proportional to their rank.
+     */
+    private static String words(String[] vocabulary, Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int rank = (int) Math.floor(Math.pow(vocabulary.length, random.nextDouble())) - 1;
+            text.append(vocabulary[rank]).append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package projects.dnetsova.taskmanager.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import projects.dnetsova.taskmanager.TaskManagerApplication;
+import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.CursorPage;
+import projects.dnetsova.taskmanager.models.CustomPage;
+import projects.dnetsova.taskmanager.services.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * UserService calls through the whole Spring stack (transactions, repositories, Hibernate, Hikari) against an
+ * in-memory H2 database in MySQL mode, seeded with {@link #USERS} users. H2 is not MySQL, so the numbers
+ * track the application's own overhead between commits rather than production latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int USERS = 10_000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private String middleCursor;
+    private String renamedUser = "user-00007";
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.open-in-view=false",
+                        "tasks.deadline-alerts.enabled=false",
+                        "tasks.recurrence.enabled=false",
+                        "tasks.search.enabled=false",
+                        "users.directory.enabled=true",
+                        "metrics.enabled=false")
+                .run();
+        this.userService = this.context.getBean(UserService.class);
+
+        this.userService.addUsers(IntStream.range(0, USERS).mapToObj(i -> String.format("user-%05d", i)).iterator());
+        this.middleCursor = this.userService.getUsersAfter("", USERS / 2, false).nextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public long addUser() throws DuplicateUserException {
+        long id = this.sequence.incrementAndGet();
+        this.userService.addUser("added-" + id);
+        return id;
+    }
+
+    @Benchmark
+    public Exception addTakenUser() {
+        try {
+            this.userService.addUser("user-00042");
+            throw new IllegalStateException("user-00042 was not taken");
+        } catch (DuplicateUserException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public String renameUser() throws InvalidUserException, DuplicateUserException {
+        String newName = "renamed-" + this.sequence.incrementAndGet();
+        this.userService.updateUser(this.renamedUser, newName);
+        this.renamedUser = newName;
+        return newName;
+    }
+
+    @Benchmark
+    public String addAndRemoveUser() throws DuplicateUserException, InvalidUserException {
+        String name = "removed-" + this.sequence.incrementAndGet();
+        this.userService.addUser(name);
+        this.userService.removeUser(name);
+        return name;
+    }
+
+    @Benchmark
+    public CustomPage<String> getAllUsersDeepPage() {
+        return this.userService.getAllUsers(USERS / 20 / 2, 20);
+    }
+
+    @Benchmark
+    public CursorPage<String> getUsersAfterDeepCursor() {
+        return this.userService.getUsersAfter(this.middleCursor, 20, false);
+    }
+
+    @Benchmark
+    public List<String> searchUsers() {
+        return this.userService.searchUsers("user-04", 10);
+    }
+}
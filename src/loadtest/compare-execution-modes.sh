@@ -0,0 +1,14 @@
+#!/bin/sh
+# Runs the same load test against the thread-per-request and the virtual-thread execution modes, one after the
+# other, each on a fresh embedded database. Needs Java 21. The arguments are passed on to the load test, e.g.
+#
+#   src/loadtest/compare-execution-modes.sh --rate=3000 --duration=120 --max-in-flight=20000 --max-p99=100
+#
+# Set a rate the platform thread pool cannot keep up with, and compare the req/s and the p99/p99.9 columns.
+cd "$(dirname "$0")/../.." || exit 1
+
+for virtual in false true; do
+  echo "=== spring.threads.virtual.enabled=$virtual"
+  ./mvnw -q -B -Pjava21,loadtest test-compile exec:exec \
+    -Dloadtest.args="$* --spring.threads.virtual.enabled=$virtual"
+done
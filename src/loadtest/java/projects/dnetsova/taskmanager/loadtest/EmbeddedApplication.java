@@ -0,0 +1,123 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import projects.dnetsova.taskmanager.TaskManagerApplication;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application started on a random port with the loadtest profile, against an embedded MariaDB server
+ * which is created empty for the run and deleted afterwards. The server keeps its files in java.io.tmpdir,
+ * point it at a tmpfs (e.g. -Djava.io.tmpdir=/dev/shm) to keep the database in memory. A datasource given
+ * with --spring.datasource.url is used instead of the embedded server.
+ * <p>
+ * With --replica=true, a second embedded server replicates the first one and takes the reads of the
+ * application, see datasource_connections_routed_total at /actuator/prometheus for the split.
+ */
+class EmbeddedApplication implements AutoCloseable {
+    private static final String DATABASE = "task_manager_loadtest";
+
+    private final List<DB> databases;
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedApplication(List<DB> databases, ConfigurableApplicationContext context) {
+        this.databases = databases;
+        this.context = context;
+    }
+
+    static EmbeddedApplication start(LoadTestOptions options) throws ManagedProcessException, SQLException {
+        List<String> arguments = new ArrayList<>(options.applicationArguments);
+        arguments.add("--server.port=0");
+
+        List<DB> databases = new ArrayList<>();
+        try {
+            if (arguments.stream().noneMatch(argument -> argument.startsWith("--spring.datasource.url="))) {
+                DBConfiguration primary = configuration(1);
+                databases.add(start(primary));
+
+                if (options.replica) {
+                    DBConfiguration replica = configuration(2);
+                    databases.add(start(replica));
+                    // Started before the database is created, the replica replays the primary from the beginning
+                    replicate(replica.getPort(), primary.getPort());
+                    arguments.add("--datasource.replica.enabled=true");
+                    arguments.add("--datasource.replica.urls=" + url(replica.getPort()));
+                    arguments.add("--datasource.replica.lag-query=SHOW SLAVE STATUS");
+                }
+
+                databases.get(0).createDB(DATABASE);
+                arguments.add("--spring.datasource.url=" + url(primary.getPort()));
+            }
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(TaskManagerApplication.class)
+                    .profiles("loadtest")
+                    .run(arguments.toArray(String[]::new));
+            return new EmbeddedApplication(databases, context);
+        } catch (ManagedProcessException | SQLException | RuntimeException e) {
+            stop(databases);
+            throw e;
+        }
+    }
+
+    URI baseUri() {
+        int port = ((WebServerApplicationContext) this.context).getWebServer().getPort();
+        return URI.create("http://localhost:" + port);
+    }
+
+    /**
+     * The datasource of the application, which connects to the primary outside of read-only transactions.
+     */
+    DataSource dataSource() {
+        return this.context.getBean(DataSource.class);
+    }
+
+    @Override
+    public void close() throws ManagedProcessException {
+        this.context.close();
+        stop(this.databases);
+    }
+
+    private static DBConfiguration configuration(int serverId) {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder().setPort(0);
+        builder.addArg("--server-id=" + serverId);
+        if (serverId == 1) builder.addArg("--log-bin");
+        return builder.build();
+    }
+
+    private static DB start(DBConfiguration configuration) throws ManagedProcessException {
+        DB database = DB.newEmbeddedDB(configuration);
+        database.start();
+        return database;
+    }
+
+    private static void replicate(int replicaPort, int primaryPort) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:mysql://localhost:" + replicaPort + "/?useSSL=false&allowPublicKeyRetrieval=true", "root", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CHANGE MASTER TO MASTER_HOST='127.0.0.1', MASTER_PORT=" + primaryPort
+                    + ", MASTER_USER='root', MASTER_PASSWORD='', MASTER_USE_GTID=no");
+            statement.execute("START SLAVE");
+        }
+    }
+
+    private static String url(int port) {
+        return "jdbc:mysql://localhost:" + port + "/" + DATABASE + "?useSSL=false&allowPublicKeyRetrieval=true";
+    }
+
+    private static void stop(List<DB> databases) throws ManagedProcessException {
+        for (int i = databases.size() - 1; i >= 0; i--) databases.get(i).stop();
+    }
+}
@@ -0,0 +1,79 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every latency of the measured window, so the percentiles are exact. A run at a few thousand requests
+ * per second for minutes holds some million longs, which is small enough. Thread safe.
+ */
+class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long dropped;
+
+    synchronized void success(long nanos) {
+        if (this.count == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, this.latencies.length * 2);
+        }
+        this.latencies[this.count++] = nanos;
+    }
+
+    synchronized void error(long nanos) {
+        success(nanos);
+        this.errors++;
+    }
+
+    /**
+     * Counts a request which was not sent because too many were in flight.
+     */
+    synchronized void dropped() {
+        this.dropped++;
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(this.latencies, this.count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, this.errors, this.dropped);
+    }
+
+    static Snapshot merge(Iterable<Snapshot> snapshots) {
+        long[] all = new long[0];
+        long errors = 0;
+        long dropped = 0;
+
+        for (Snapshot snapshot : snapshots) {
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + snapshot.sorted.length);
+            System.arraycopy(snapshot.sorted, 0, all, offset, snapshot.sorted.length);
+            errors += snapshot.errors;
+            dropped += snapshot.dropped;
+        }
+
+        Arrays.sort(all);
+        return new Snapshot(all, errors, dropped);
+    }
+
+    record Snapshot(long[] sorted, long errors, long dropped) {
+        long requests() {
+            return this.sorted.length + this.dropped;
+        }
+
+        /**
+         * @return the share of the requests which failed or were dropped.
+         */
+        double errorRate() {
+            return requests() == 0 ? 0 : (this.errors + this.dropped) / (double) requests();
+        }
+
+        double percentileMillis(double percentile) {
+            if (this.sorted.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * this.sorted.length) - 1;
+            return this.sorted[Math.max(index, 0)] / 1e6;
+        }
+
+        double maxMillis() {
+            return this.sorted.length == 0 ? 0 : this.sorted[this.sorted.length - 1] / 1e6;
+        }
+    }
+}
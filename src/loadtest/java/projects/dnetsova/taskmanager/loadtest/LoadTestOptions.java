@@ -0,0 +1,99 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as --name=value. Options starting with --spring. are passed
+ * on to the embedded application.
+ */
+class LoadTestOptions {
+    /**
+     * Base URL of a running application, null to start the application on an embedded database.
+     */
+    String target;
+    int rate = 200;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    Map<Operation, Integer> mix = parseMix("create=25,rename=15,remove=10,page=25,cursor=25");
+    int seedUsers = 10_000;
+    int pageSize = 20;
+    int maxInFlight = 1_000;
+    Duration timeout = Duration.ofSeconds(10);
+    Double maxP50;
+    Double maxP99;
+    Double maxP999;
+    double maxErrorRate = 0.01;
+    /**
+     * Whether the embedded database gets a replica, which the application reads from.
+     */
+    boolean replica;
+    final List<String> applicationArguments = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+
+        for (String arg : args) {
+            if (arg.startsWith("--spring.")) {
+                options.applicationArguments.add(arg);
+                continue;
+            }
+
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Options are expected as --name=value, got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+
+            switch (arg.substring(2, separator)) {
+                case "target" -> options.target = value;
+                case "rate" -> options.rate = Integer.parseInt(value);
+                case "warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                case "mix" -> options.mix = parseMix(value);
+                case "seed-users" -> options.seedUsers = Integer.parseInt(value);
+                case "page-size" -> options.pageSize = Integer.parseInt(value);
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "timeout" -> options.timeout = Duration.ofSeconds(Long.parseLong(value));
+                case "max-p50" -> options.maxP50 = Double.parseDouble(value);
+                case "max-p99" -> options.maxP99 = Double.parseDouble(value);
+                case "max-p999" -> options.maxP999 = Double.parseDouble(value);
+                case "max-error-rate" -> options.maxErrorRate = Double.parseDouble(value);
+                case "replica" -> options.replica = Boolean.parseBoolean(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        if (options.rate <= 0) throw new IllegalArgumentException("Rate must be greater than 0");
+        if (options.seedUsers < options.pageSize) {
+            throw new IllegalArgumentException("At least one page of users must be seeded");
+        }
+        return options;
+    }
+
+    /**
+     * @param mix weights of the operations, e.g. create=3,page=7. Operations left out are not run.
+     */
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid mix entry " + entry);
+
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Invalid mix weight " + entry);
+            if (weight > 0) weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+
+        if (weights.isEmpty()) throw new IllegalArgumentException("The mix has no operation");
+        return weights;
+    }
+
+    enum Operation {
+        CREATE, RENAME, REMOVE, PAGE, CURSOR
+    }
+}
@@ -0,0 +1,242 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request of the packaged application, from the start of its JVM to the first successful
+ * response of GET /users/get, for the startup variants below. Every run starts a new JVM against the same
+ * database, the variants take turns so that a slower machine affects them alike, and a first run of every
+ * variant is not measured. The median, min and max of each variant are reported, the median also relative to
+ * the first variant.
+ * <ul>
+ *     <li>update: the schema compared to the entities by ddl-auto = update, without Flyway.</li>
+ *     <li>fast-startup: the fast-startup Spring profile, see application-fast-startup.properties.</li>
+ *     <li>lazy: the fast-startup profile with lazy bean initialization.</li>
+ *     <li>aot: the fast-startup profile with the bean definitions generated at build time.</li>
+ *     <li>aot-cds: aot, started from the extracted jar with its Class Data Sharing archive.</li>
+ * </ul>
+ * Build the application with {@code mvn -Pfast-startup package} first, then run with
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.main=projects.dnetsova.taskmanager.loadtest.StartupBenchmark
+ * -Dloadtest.args="--runs=10"}. Options:
+ * <ul>
+ *     <li>--jar: the packaged application, target/task-manager-0.0.1-SNAPSHOT.jar by default. The aot-cds
+ *     variant runs the jar of the same name extracted to the application directory next to it.</li>
+ *     <li>--variants: the variants to compare, all of them by default.</li>
+ *     <li>--runs: measured runs of every variant, 5 by default.</li>
+ *     <li>--timeout: in seconds, after which a run fails, 120 by default.</li>
+ *     <li>--spring.*: passed on to the application. By default it runs on an embedded MariaDB server,
+ *     created empty for the benchmark, unless --spring.datasource.url is given.</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+    private static final String DATABASE = "task_manager_startup";
+    private static final Map<String, Variant> VARIANTS = new LinkedHashMap<>();
+
+    static {
+        List<String> fastStartup = List.of("--spring.profiles.active=fast-startup");
+        List<String> aot = List.of("-Dspring.aot.enabled=true");
+
+        VARIANTS.put("update", new Variant(List.of(),
+                List.of("--spring.jpa.hibernate.ddl-auto=update", "--spring.flyway.enabled=false"), false));
+        VARIANTS.put("fast-startup", new Variant(List.of(), fastStartup, false));
+        VARIANTS.put("lazy", new Variant(List.of(),
+                List.of("--spring.profiles.active=fast-startup", "--spring.main.lazy-initialization=true"), false));
+        VARIANTS.put("aot", new Variant(aot, fastStartup, false));
+        VARIANTS.put("aot-cds", new Variant(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=application.jsa"),
+                fastStartup, true));
+    }
+
+    private final Path jar;
+    private final List<String> variants;
+    private final int runs;
+    private final Duration timeout;
+    private final List<String> applicationArguments;
+    private final Path logDirectory;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    StartupBenchmark(Path jar, List<String> variants, int runs, Duration timeout, List<String> applicationArguments) {
+        this.jar = jar;
+        this.variants = variants;
+        this.runs = runs;
+        this.timeout = timeout;
+        this.applicationArguments = applicationArguments;
+        this.logDirectory = jar.toAbsolutePath().getParent().resolve("startup-benchmark");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of("target", "task-manager-0.0.1-SNAPSHOT.jar");
+        List<String> variants = new ArrayList<>(VARIANTS.keySet());
+        int runs = 5;
+        Duration timeout = Duration.ofSeconds(120);
+        List<String> applicationArguments = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--spring.")) {
+                applicationArguments.add(arg);
+                continue;
+            }
+
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Options are expected as --name=value, got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+
+            switch (arg.substring(2, separator)) {
+                case "jar" -> jar = Path.of(value);
+                case "variants" -> variants = Arrays.stream(value.split(",")).map(String::trim).toList();
+                case "runs" -> runs = Integer.parseInt(value);
+                case "timeout" -> timeout = Duration.ofSeconds(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        for (String variant : variants) {
+            if (!VARIANTS.containsKey(variant)) throw new IllegalArgumentException("Unknown variant " + variant);
+        }
+        if (runs <= 0) throw new IllegalArgumentException("Runs must be greater than 0");
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException(jar + " not found, build it with mvn -Pfast-startup package");
+        }
+
+        DB database = null;
+        if (applicationArguments.stream().noneMatch(argument -> argument.startsWith("--spring.datasource.url="))) {
+            DBConfiguration configuration = DBConfigurationBuilder.newBuilder().setPort(0).build();
+            database = DB.newEmbeddedDB(configuration);
+            database.start();
+            database.createDB(DATABASE);
+            applicationArguments.add("--spring.datasource.url=jdbc:mysql://localhost:" + configuration.getPort()
+                    + "/" + DATABASE + "?useSSL=false&allowPublicKeyRetrieval=true");
+            applicationArguments.add("--spring.datasource.username=root");
+            applicationArguments.add("--spring.datasource.password=");
+            applicationArguments.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MariaDBDialect");
+        }
+
+        try {
+            new StartupBenchmark(jar, variants, runs, timeout, applicationArguments).run();
+        } finally {
+            if (database != null) database.stop();
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        Files.createDirectories(this.logDirectory);
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        for (String variant : this.variants) results.put(variant, new ArrayList<>());
+
+        // The first round is not measured, it creates the schema and warms up the file cache
+        for (int round = 0; round <= this.runs; round++) {
+            for (String variant : this.variants) {
+                long millis = start(variant, round);
+                System.out.printf("%-12s run %2d: %6d ms%s%n", variant, round, millis, round == 0 ? " (warm-up)" : "");
+                if (round > 0) results.get(variant).add(millis);
+            }
+        }
+
+        report(results);
+    }
+
+    /**
+     * Starts the application and stops it once it served its first request.
+     * @return the milliseconds from the start of the JVM to the first successful response.
+     */
+    private long start(String name, int round) throws IOException, InterruptedException {
+        Variant variant = VARIANTS.get(name);
+        int port = freePort();
+
+        Path directory = this.jar.toAbsolutePath().getParent();
+        if (variant.extracted()) directory = directory.resolve("application");
+        Path jar = directory.resolve(this.jar.getFileName());
+        if (!Files.isRegularFile(jar)) throw new IllegalStateException(jar + " not found for the variant " + name);
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmArguments());
+        command.add("-jar");
+        command.add(jar.getFileName().toString());
+        command.add("--server.port=" + port);
+        command.addAll(variant.applicationArguments());
+        command.addAll(this.applicationArguments);
+
+        File log = this.logDirectory.resolve(name + "-" + round + ".log").toFile();
+        URI uri = URI.create("http://localhost:" + port + "/users/get?page=1&size=1");
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            long deadline = start + this.timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+                }
+
+                try {
+                    HttpResponse<Void> response = this.client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(name + " served no request within " + this.timeout.toSeconds()
+                    + " s, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static void report(Map<String, List<Long>> results) {
+        System.out.printf("%n%-12s %6s %10s %10s %10s %10s%n", "variant", "runs", "median ms", "min ms", "max ms",
+                "vs first");
+
+        Double baseline = null;
+        for (Map.Entry<String, List<Long>> entry : results.entrySet()) {
+            long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            double median = sorted.length % 2 == 1
+                    ? sorted[sorted.length / 2]
+                    : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2.0;
+            if (baseline == null) baseline = median;
+
+            System.out.printf("%-12s %6d %10.0f %10d %10d %+9.1f%%%n", entry.getKey(), sorted.length, median,
+                    sorted[0], sorted[sorted.length - 1], (median - baseline) * 100 / baseline);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @param extracted whether the variant runs the jar extracted next to its CDS archive.
+     */
+    private record Variant(List<String> jvmArguments, List<String> applicationArguments, boolean extracted) {
+    }
+}
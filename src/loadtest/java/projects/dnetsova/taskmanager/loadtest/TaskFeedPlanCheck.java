@@ -0,0 +1,215 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import projects.dnetsova.taskmanager.utils.UuidBytes;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a page of a user's task feed (GET /users/{name}/tasks) is read from the
+ * idx_tasks_users_user_feed index in order, without sorting all tasks of the user. A user with many tasks is
+ * seeded next to other users sharing them, the plan of both phases of the feed query is checked with EXPLAIN,
+ * then the whole feed is read page by page, checking its order and reporting the time per page.
+ * <p>
+ * Run with {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.main=projects.dnetsova.taskmanager.loadtest.TaskFeedPlanCheck}.
+ * Exits with code 1 when a plan or the order is wrong. Options:
+ * <ul>
+ *     <li>--page-size: 20 by default.</li>
+ *     <li>--spring.*: passed on to the embedded application, see {@link EmbeddedApplication}.</li>
+ * </ul>
+ */
+public class TaskFeedPlanCheck {
+    private static final int TASKS = 20_000;
+    private static final int OTHER_USERS = 100;
+    private static final int IMPORT_BATCH_SIZE = 5_000;
+    private static final String FEED_INDEX = "idx_tasks_users_user_feed";
+
+    // The native form of the feed queries of TaskRepository
+    private static final String WITH_DEADLINE = "SELECT t.id, t.title, a.deadline, a.priority FROM tasks_users a " +
+            "JOIN tasks t ON t.id = a.task_id WHERE a.user_id = ? AND a.deadline IS NOT NULL " +
+            "ORDER BY a.deadline, a.priority, a.task_id LIMIT ?";
+    private static final String WITHOUT_DEADLINE = "SELECT t.id, t.title, a.deadline, a.priority FROM tasks_users a " +
+            "JOIN tasks t ON t.id = a.task_id WHERE a.user_id = ? AND a.deadline IS NULL " +
+            "AND a.priority IS NOT NULL ORDER BY a.priority, a.task_id LIMIT ?";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI baseUri;
+    private final DataSource dataSource;
+    private final int pageSize;
+
+    TaskFeedPlanCheck(URI baseUri, DataSource dataSource, int pageSize) {
+        this.baseUri = baseUri;
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed;
+
+        try (EmbeddedApplication application = EmbeddedApplication.start(options)) {
+            passed = new TaskFeedPlanCheck(application.baseUri(), application.dataSource(), options.pageSize).run();
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run() throws IOException, InterruptedException, SQLException {
+        String user = "feed-" + Long.toString(System.currentTimeMillis(), 36);
+        seed(user);
+
+        byte[] userId = userId(user);
+        boolean passed = checkPlan("with deadline", WITH_DEADLINE, userId);
+        passed &= checkPlan("without deadline", WITHOUT_DEADLINE, userId);
+        passed &= readFeed(user);
+
+        System.out.println(passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+
+    /**
+     * Creates the user and the other users, then imports tasks assigned to the user and to one of the others,
+     * a tenth of them without a deadline.
+     */
+    private void seed(String user) throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>(OTHER_USERS + 1);
+        names.add(user);
+        for (int i = 0; i < OTHER_USERS; i++) names.add(user + "-other-" + i);
+        send(HttpRequest.newBuilder(this.baseUri.resolve("/users/bulk"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(this.objectMapper.writeValueAsString(names))));
+
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < TASKS; from += IMPORT_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder();
+            for (int i = from; i < Math.min(from + IMPORT_BATCH_SIZE, TASKS); i++) {
+                String deadline = i % 10 == 0 ? "null" : "\"" + today.plusDays(i % 365) + "\"";
+                body.append("{\"title\":\"Task ").append(i).append("\",\"deadline\":").append(deadline)
+                        .append(",\"priority\":\"P").append(i % 5).append("\",\"assignees\":[\"").append(user)
+                        .append("\",\"").append(names.get(1 + i % OTHER_USERS)).append("\"]}\n");
+            }
+
+            JsonNode report = send(HttpRequest.newBuilder(this.baseUri.resolve("/tasks/import?format=NDJSON"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString())));
+            if (report.path("content").path("rowsFailed").asLong() > 0) {
+                throw new IllegalStateException("Seeding tasks failed: " + report);
+            }
+        }
+    }
+
+    private byte[] userId(String name) throws SQLException {
+        try (Connection connection = this.dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT id FROM users WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) throw new IllegalStateException("User " + name + " was not seeded");
+                return result.getBytes(1);
+            }
+        }
+    }
+
+    /**
+     * Passes when the query reads the feed index and needs neither a filesort nor a temporary table.
+     */
+    private boolean checkPlan(String phase, String query, byte[] userId) throws SQLException {
+        try (Connection connection = this.dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query)) {
+            statement.setBytes(1, userId);
+            statement.setInt(2, this.pageSize + 1);
+
+            try (ResultSet result = statement.executeQuery()) {
+                boolean passed = false;
+                while (result.next()) {
+                    String table = result.getString("table");
+                    String key = result.getString("key");
+                    String extra = result.getString("Extra");
+                    System.out.printf("%-17s %-2s %-28s rows=%-6s %s%n", phase, table, key,
+                            result.getString("rows"), extra);
+
+                    if ("a".equals(table)) {
+                        passed = FEED_INDEX.equals(key)
+                                && (extra == null || !extra.contains("filesort") && !extra.contains("temporary"));
+                    }
+                }
+                return passed;
+            }
+        }
+    }
+
+    /**
+     * Reads the whole feed of the user, checking that every task comes once and in (deadline, priority, id)
+     * order with the tasks without a deadline last.
+     */
+    private boolean readFeed(String user) throws IOException, InterruptedException {
+        String cursor = "";
+        String previous = null;
+        int tasks = 0;
+        int pages = 0;
+        long start = System.nanoTime();
+        boolean ordered = true;
+
+        do {
+            JsonNode page = send(HttpRequest.newBuilder(this.baseUri.resolve("/users/"
+                    + URLEncoder.encode(user, StandardCharsets.UTF_8) + "/tasks?size=" + this.pageSize
+                    + "&after=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8)))).path("content");
+
+            for (JsonNode task : page.path("elements")) {
+                String key = sortKey(task);
+                if (previous != null && previous.compareTo(key) >= 0) ordered = false;
+                previous = key;
+                tasks++;
+            }
+            pages++;
+            cursor = page.path("nextCursor").isTextual() ? page.path("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        System.out.printf("Read %d tasks in %d pages of %d, %d us per page%n", tasks, pages, this.pageSize,
+                elapsedMicros / pages);
+
+        if (!ordered) System.out.println("The feed is not in (deadline, priority, id) order");
+        if (tasks != TASKS) System.out.println("The feed has " + tasks + " tasks, expected " + TASKS);
+        return ordered && tasks == TASKS;
+    }
+
+    private static String sortKey(JsonNode task) {
+        // ISO dates and the priorities compare as strings, "~" sorts after every date
+        String deadline = task.path("deadline").isNull() ? "~" : task.path("deadline").asText();
+        UUID id = UUID.fromString(task.path("id").asText());
+        return deadline + " " + task.path("priority").asText() + " " + toHex(UuidBytes.toBytes(id));
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private JsonNode send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = this.client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.build().uri() + " failed with " + response.statusCode() + ": "
+                    + response.body());
+        }
+        return this.objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,263 @@
+package projects.dnetsova.taskmanager.loadtest;
+
+import projects.dnetsova.taskmanager.loadtest.LoadTestOptions.Operation;
+import projects.dnetsova.taskmanager.utils.Cursors;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of the /users endpoints. Requests are sent at a fixed arrival rate whatever the response
+ * times, a mix of creations, renames, removals, offset pages and cursor pages, and each latency is measured
+ * from the time the request was due rather than sent, so a stalled server is not hidden by the load test
+ * slowing down with it (coordinated omission). Requests due while too many are in flight are counted as
+ * dropped.
+ * <p>
+ * Before the run, users are seeded in bulk. The renames and removals take users from a pool of the seeded and
+ * created users, so they always target an existing user and never conflict with each other. After a warm-up
+ * which is not measured, throughput and latency percentiles are reported per operation, and the run fails,
+ * with exit code 1, when the thresholds given for all operations together are crossed.
+ * <p>
+ * Run with {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rate=500 --max-p99=50"}. Options:
+ * <ul>
+ *     <li>--target: base URL of a running application. By default the application is started in-process
+ *     on an embedded MariaDB server, see {@link EmbeddedApplication}.</li>
+ *     <li>--rate: requests per second, 200 by default.</li>
+ *     <li>--warmup, --duration: in seconds, 10 and 60 by default.</li>
+ *     <li>--mix: weights of create, rename, remove, page and cursor, by default
+ *     create=25,rename=15,remove=10,page=25,cursor=25.</li>
+ *     <li>--seed-users, --page-size: 10000 and 20 by default.</li>
+ *     <li>--max-in-flight, --timeout: 1000 requests and 10 seconds by default.</li>
+ *     <li>--max-p50, --max-p99, --max-p999: latency thresholds in milliseconds, not checked by default.</li>
+ *     <li>--max-error-rate: share of failed or dropped requests, 0.01 by default.</li>
+ *     <li>--replica: true to read from an embedded replica of the embedded database, false by default.</li>
+ *     <li>--spring.*: passed on to the embedded application.</li>
+ * </ul>
+ */
+public class UserLoadTest {
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final LoadTestOptions options;
+    private final URI baseUri;
+    private final HttpClient client;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong nameSequence = new AtomicLong();
+    private final Queue<String> existingUsers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    UserLoadTest(LoadTestOptions options, URI baseUri) {
+        this.options = options;
+        this.baseUri = baseUri;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout)
+                .build();
+
+        this.operations = options.mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[this.operations.length];
+        int total = 0;
+        for (int i = 0; i < this.operations.length; i++) {
+            total += options.mix.get(this.operations[i]);
+            this.cumulativeWeights[i] = total;
+            this.recorders.put(this.operations[i], new LatencyRecorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed;
+
+        if (options.target != null) {
+            passed = new UserLoadTest(options, URI.create(options.target)).run();
+        } else {
+            try (EmbeddedApplication application = EmbeddedApplication.start(options)) {
+                passed = new UserLoadTest(options, application.baseUri()).run();
+            }
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run() throws IOException, InterruptedException {
+        seed();
+
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / this.options.rate;
+        long start = System.nanoTime();
+        long measuredFrom = start + this.options.warmup.toNanos();
+        long end = measuredFrom + this.options.duration.toNanos();
+        System.out.printf("Running %d requests/s for %d s after %d s of warm-up against %s%n",
+                this.options.rate, this.options.duration.toSeconds(), this.options.warmup.toSeconds(), this.baseUri);
+
+        for (long due = start; due < end; due += periodNanos) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Operation operation = pickOperation();
+            LatencyRecorder recorder = due >= measuredFrom ? this.recorders.get(operation) : null;
+
+            if (this.inFlight.get() >= this.options.maxInFlight) {
+                if (recorder != null) recorder.dropped();
+                continue;
+            }
+            send(operation, due, recorder);
+        }
+
+        long drainDeadline = System.nanoTime() + this.options.timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (this.inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        return report();
+    }
+
+    /**
+     * Creates the users read by the page requests and renamed or removed by the others.
+     */
+    private void seed() throws IOException, InterruptedException {
+        for (int from = 0; from < this.options.seedUsers; from += SEED_BATCH_SIZE) {
+            List<String> names = new ArrayList<>();
+            for (int i = from; i < Math.min(from + SEED_BATCH_SIZE, this.options.seedUsers); i++) {
+                names.add(seedName(i));
+            }
+
+            HttpRequest request = HttpRequest.newBuilder(this.baseUri.resolve("/users/bulk"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("[\"" + String.join("\",\"", names) + "\"]"))
+                    .build();
+            HttpResponse<String> response = this.client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding users failed with " + response.statusCode() + ": "
+                        + response.body());
+            }
+            this.existingUsers.addAll(names);
+        }
+    }
+
+    private Operation pickOperation() {
+        int value = ThreadLocalRandom.current().nextInt(this.cumulativeWeights[this.cumulativeWeights.length - 1]);
+        for (int i = 0; ; i++) {
+            if (value < this.cumulativeWeights[i]) return this.operations[i];
+        }
+    }
+
+    private void send(Operation operation, long due, LatencyRecorder recorder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String existingUser = operation == Operation.RENAME || operation == Operation.REMOVE
+                ? this.existingUsers.poll()
+                : null;
+        // Every user has been taken by the renames and removals in flight, create one instead
+        if (existingUser == null && (operation == Operation.RENAME || operation == Operation.REMOVE)) {
+            operation = Operation.CREATE;
+        }
+
+        String newName = "user-" + this.runId + "-" + this.nameSequence.incrementAndGet();
+        HttpRequest.Builder request = switch (operation) {
+            case CREATE -> HttpRequest.newBuilder(uri("/users/create?name=" + encode(newName)))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+            case RENAME -> HttpRequest.newBuilder(uri("/users/update?originalName=" + encode(existingUser)
+                            + "&newName=" + encode(newName)))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody());
+            case REMOVE -> HttpRequest.newBuilder(uri("/users/remove?name=" + encode(existingUser))).DELETE();
+            case PAGE -> HttpRequest.newBuilder(uri("/users/get?page="
+                    + (1 + random.nextInt(this.options.seedUsers / this.options.pageSize))
+                    + "&size=" + this.options.pageSize));
+            case CURSOR -> HttpRequest.newBuilder(uri("/users/get?after="
+                    + encode(Cursors.encode(seedName(random.nextInt(this.options.seedUsers))))
+                    + "&size=" + this.options.pageSize));
+        };
+
+        Operation sent = operation;
+        this.inFlight.incrementAndGet();
+        this.client.sendAsync(request.timeout(this.options.timeout).build(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - due;
+                    boolean succeeded = failure == null && response.statusCode() / 100 == 2;
+
+                    // Hand the user on to the next rename or removal
+                    if (sent == Operation.CREATE && succeeded) this.existingUsers.add(newName);
+                    if (sent == Operation.RENAME) this.existingUsers.add(succeeded ? newName : existingUser);
+                    if (sent == Operation.REMOVE && !succeeded) this.existingUsers.add(existingUser);
+
+                    if (recorder != null) {
+                        if (succeeded) {
+                            recorder.success(latency);
+                        } else {
+                            recorder.error(latency);
+                        }
+                    }
+                    this.inFlight.decrementAndGet();
+                });
+    }
+
+    private boolean report() {
+        System.out.printf("%n%-10s %10s %8s %8s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "dropped", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        List<LatencyRecorder.Snapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<Operation, LatencyRecorder> entry : this.recorders.entrySet()) {
+            LatencyRecorder.Snapshot snapshot = entry.getValue().snapshot();
+            snapshots.add(snapshot);
+            printRow(entry.getKey().name().toLowerCase(), snapshot);
+        }
+
+        LatencyRecorder.Snapshot total = LatencyRecorder.merge(snapshots);
+        printRow("all", total);
+
+        List<String> failures = new ArrayList<>();
+        checkThreshold(failures, "p50", total.percentileMillis(50), this.options.maxP50);
+        checkThreshold(failures, "p99", total.percentileMillis(99), this.options.maxP99);
+        checkThreshold(failures, "p99.9", total.percentileMillis(99.9), this.options.maxP999);
+        if (total.errorRate() > this.options.maxErrorRate) {
+            failures.add(String.format("error rate %.4f > %.4f", total.errorRate(), this.options.maxErrorRate));
+        }
+
+        System.out.println();
+        if (failures.isEmpty()) {
+            System.out.println("PASSED");
+            return true;
+        }
+
+        System.out.println("FAILED: " + String.join(", ", failures));
+        return false;
+    }
+
+    private void printRow(String name, LatencyRecorder.Snapshot snapshot) {
+        System.out.printf("%-10s %10d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, snapshot.requests(),
+                snapshot.errors(), snapshot.dropped(), snapshot.sorted().length / (double) this.options.duration.toSeconds(),
+                snapshot.percentileMillis(50), snapshot.percentileMillis(99), snapshot.percentileMillis(99.9),
+                snapshot.maxMillis());
+    }
+
+    private static void checkThreshold(List<String> failures, String name, double valueMillis, Double maxMillis) {
+        if (maxMillis != null && valueMillis > maxMillis) {
+            failures.add(String.format("%s %.2f ms > %.2f ms", name, valueMillis, maxMillis));
+        }
+    }
+
+    private String seedName(int index) {
+        return String.format("seed-%s-%06d", this.runId, index);
+    }
+
+    private URI uri(String pathAndQuery) {
+        return this.baseUri.resolve(pathAndQuery);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
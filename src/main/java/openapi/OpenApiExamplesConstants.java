@@ -107,4 +107,450 @@ public class OpenApiExamplesConstants {
                 ]
             }
             """;
-}
\ No newline at end of file
+
+    public static final String GET_USERS_AFTER_SUCCESS = """
+            {
+                "content": {
+                    "elements": [
+                        "Ina",
+                        "Ivaylo",
+                        "Ivo"
+                    ],
+                    "nextCursor": "AQADSXZv",
+                    "totalElementsCount": null
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String INVALID_CURSOR = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "IllegalArgument",
+                        "description": "Invalid cursor"
+                    }
+                ]
+            }
+            """;
+
+    public static final String BULK_CREATE_USERS_RESULT = """
+            {
+                "content": [
+                    {
+                        "name": "Fred",
+                        "error": null
+                    },
+                    {
+                        "name": "Bob",
+                        "error": {
+                            "name": "DuplicateUser",
+                            "description": "User 'Bob' is taken."
+                        }
+                    }
+                ],
+                "errors": []
+            }
+            """;
+
+    public static final String BULK_REMOVE_USERS_RESULT = """
+            {
+                "content": [
+                    {
+                        "name": "Fred",
+                        "error": null
+                    },
+                    {
+                        "name": "Bob",
+                        "error": {
+                            "name": "InvalidUser",
+                            "description": "User 'Bob' does not exist"
+                        }
+                    }
+                ],
+                "errors": []
+            }
+            """;
+
+    public static final String INVALID_BULK_REQUEST_BODY = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "InvalidRequestBody",
+                        "description": "Request body must be a JSON array of user names."
+                    }
+                ]
+            }
+            """;
+
+    public static final String SEARCH_USERS_SUCCESS = """
+            {
+                "content": [
+                    "Ina",
+                    "Ivaylo",
+                    "Ivo"
+                ],
+                "errors": []
+            }
+            """;
+
+    public static final String LIMIT_LESS_THAN_1 = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "IllegalArgument",
+                        "description": "Limit must be greater than 0"
+                    }
+                ]
+            }
+            """;
+
+    public static final String GET_TASK_SUCCESS = """
+            {
+                "content": {
+                    "id": "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e",
+                    "title": "Prepare release notes",
+                    "description": "Collect the changes of the sprint.",
+                    "startDate": "2024-07-01",
+                    "deadline": "2024-07-05",
+                    "repeatDate": null,
+                    "priority": "P1",
+                    "assignees": [
+                        "Fred",
+                        "Ina"
+                    ]
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String GET_ALL_TASKS_SUCCESS = """
+            {
+                "content": {
+                    "elements": [
+                        {
+                            "id": "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e",
+                            "title": "Prepare release notes",
+                            "description": "Collect the changes of the sprint.",
+                            "startDate": "2024-07-01",
+                            "deadline": "2024-07-05",
+                            "repeatDate": null,
+                            "priority": "P1",
+                            "assignees": [
+                                "Fred",
+                                "Ina"
+                            ]
+                        }
+                    ],
+                    "totalPageCount": 1,
+                    "totalElementsCount": 1
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String INVALID_TASK_ERROR = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "InvalidTask",
+                        "description": "Task '0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e' does not exist"
+                    }
+                ]
+            }
+            """;
+
+    public static final String TASK_TITLE_EMPTY = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "IllegalArgument",
+                        "description": "Title cannot be empty."
+                    }
+                ]
+            }
+            """;
+
+    public static final String GET_USER_TASKS_SUCCESS = """
+            {
+                "content": {
+                    "elements": [
+                        {
+                            "id": "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e",
+                            "title": "Prepare release notes",
+                            "deadline": "2024-07-05",
+                            "priority": "P1"
+                        }
+                    ],
+                    "nextCursor": null,
+                    "totalElementsCount": null
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String EXPORT_TASKS_NDJSON = """
+            {"id":"0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e","title":"Prepare release notes","description":null,\
+            "startDate":"2024-07-01","deadline":"2024-07-05","repeatDate":null,"priority":"P1","assignees":["Fred"]}
+            {"id":"0190a6f3-0a4d-7b52-9e61-5c8f2b7d1a03","title":"Archive logs","description":null,\
+            "startDate":null,"deadline":null,"repeatDate":null,"priority":"P4","assignees":[]}
+            """;
+
+    public static final String EXPORT_USERS_NDJSON = """
+            {"name":"Fred"}
+            {"name":"George"}
+            """;
+
+    public static final String INVALID_EXPORT_FORMAT = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "InvalidRequestParameter",
+                        "description": "Invalid value for parameter 'format'."
+                    }
+                ]
+            }
+            """;
+
+    public static final String IMPORT_TASKS_REPORT = """
+            {
+                "content": {
+                    "id": "4f1c2a7e-93b5-4d0e-8a61-2b7f9c3d5e10",
+                    "finished": true,
+                    "rowsRead": 25000,
+                    "tasksImported": 24998,
+                    "rowsFailed": 2,
+                    "elapsedMillis": 3120,
+                    "rowsPerSecond": 8012.8,
+                    "errors": [
+                        {
+                            "row": 1042,
+                            "error": {
+                                "name": "InvalidRow",
+                                "description": "Title cannot be empty."
+                            }
+                        },
+                        {
+                            "row": 20311,
+                            "error": {
+                                "name": "InvalidUser",
+                                "description": "User 'Fredd' does not exist"
+                            }
+                        }
+                    ],
+                    "errorsTruncated": false
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String SEARCH_TASKS_SUCCESS = """
+            {
+                "content": [
+                    {
+                        "task": {
+                            "id": "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e",
+                            "title": "Prepare release notes",
+                            "description": "Collect the merged changes of the sprint.",
+                            "startDate": "2024-07-01",
+                            "deadline": "2024-07-05",
+                            "repeatDate": null,
+                            "priority": "P1",
+                            "assignees": ["Fred"]
+                        },
+                        "score": 4.73
+                    }
+                ],
+                "errors": []
+            }
+            """;
+
+    public static final String SEARCH_QUERY_EMPTY = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "IllegalArgument",
+                        "description": "Query cannot be empty."
+                    }
+                ]
+            }
+            """;
+
+    public static final String SEARCH_UNAVAILABLE = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "SearchUnavailable",
+                        "description": "Task search index is not built yet."
+                    }
+                ]
+            }
+            """;
+
+    public static final String EDIT_JOURNAL_UNAVAILABLE = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "EditJournalUnavailable",
+                        "description": "The edit could not be journaled, retry later."
+                    }
+                ]
+            }
+            """;
+
+    public static final String EXPORTS_BUSY = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "ExportsBusy",
+                        "description": "Too many exports running, retry later."
+                    }
+                ]
+            }
+            """;
+
+    public static final String METRICS_PROMETHEUS = """
+            # HELP http_server_requests_seconds Duration of the HTTP requests.
+            # TYPE http_server_requests_seconds histogram
+            http_server_requests_seconds_bucket{method="GET",uri="/users/{id}",status="200",le="0.0005"} 0
+            http_server_requests_seconds_bucket{method="GET",uri="/users/{id}",status="200",le="0.001"} 12
+            http_server_requests_seconds_bucket{method="GET",uri="/users/{id}",status="200",le="+Inf"} 15
+            http_server_requests_seconds_sum{method="GET",uri="/users/{id}",status="200"} 0.0183
+            http_server_requests_seconds_count{method="GET",uri="/users/{id}",status="200"} 15
+            # HELP service_exceptions_total Exceptions thrown by the service methods.
+            # TYPE service_exceptions_total counter
+            service_exceptions_total{class="UserService",method="addUser",exception="DuplicateUserException"} 2
+            """;
+
+    public static final String METRICS_FORBIDDEN = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "Forbidden",
+                        "description": "Metrics are only served to local clients."
+                    }
+                ]
+            }
+            """;
+
+    public static final String CHANGE_EVENTS = """
+            id:lz3k2f9a-1532
+            event:user-renamed
+            data:{"name":"Fred","newName":"Frederick"}
+
+            id:lz3k2f9a-1533
+            event:task-updated
+            data:{"id":"0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e","title":"Release notes","description":null,"startDate":"2024-07-01","deadline":"2024-07-05","repeatDate":null,"priority":"P1","assignees":["Frederick"]}
+
+            id:lz3k2f9a-1534
+            event:resync
+            data:{}
+            """;
+
+    public static final String EVENTS_UNAVAILABLE = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "EventsUnavailable",
+                        "description": "The event feed has too many subscribers, retry later."
+                    }
+                ]
+            }
+            """;
+
+    public static final String TASK_STATS = """
+            {
+                "content": {
+                    "total": 42,
+                    "byPriority": {
+                        "P0": 3,
+                        "P1": 10,
+                        "P2": 17,
+                        "P3": 8,
+                        "P4": 4
+                    },
+                    "byAssignee": {
+                        "Fred": 12,
+                        "Maria": 7
+                    }
+                },
+                "errors": []
+            }
+            """;
+
+    public static final String STATS_UNAVAILABLE = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "StatsUnavailable",
+                        "description": "Task statistics are not loaded yet."
+                    }
+                ]
+            }
+            """;
+
+    public static final String SERVER_OVERLOADED = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "ServerOverloaded",
+                        "description": "Too many concurrent reads, retry later."
+                    }
+                ]
+            }
+            """;
+
+    public static final String TASK_ASSIGNMENTS_REQUEST = """
+            {
+                "assign": [
+                    {
+                        "taskIds": ["0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e", "0190a6f2-7d3a-7e52-9a41-5b8c2d7e1f30"],
+                        "users": ["Fred", "Alice"]
+                    }
+                ],
+                "unassign": [
+                    {
+                        "taskIds": ["0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e"],
+                        "users": ["Bob"]
+                    }
+                ]
+            }
+            """;
+
+    public static final String TASK_ASSIGNMENTS_SUCCESS = """
+            {
+                "content": {
+                    "assigned": 4,
+                    "unassigned": 1,
+                    "tasksChanged": 2
+                },
+                "errors": null
+            }
+            """;
+
+    public static final String CONFLICTING_ASSIGNMENTS_ERROR = """
+            {
+                "content": null,
+                "errors": [
+                    {
+                        "name": "IllegalArgument",
+                        "description": "User 'Fred' cannot be both assigned to and unassigned from task '0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e'."
+                    }
+                ]
+            }
+            """;
+}
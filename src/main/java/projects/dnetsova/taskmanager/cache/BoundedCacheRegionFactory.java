@@ -0,0 +1,93 @@
+package projects.dnetsova.taskmanager.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level and query cache kept in the memory of this instance, see {@link BoundedCacheStorage}.
+ * Selected with hibernate.cache.region.factory_class and configured with:
+ * <ul>
+ *     <li>hibernate.cache.bounded.max_entries: entries per region, 10000 by default.</li>
+ *     <li>hibernate.cache.bounded.ttl_seconds: time to live of an entry, 600 by default.</li>
+ *     <li>hibernate.cache.bounded.[region].max_entries, hibernate.cache.bounded.[region].ttl_seconds:
+ *     the same for one region.</li>
+ * </ul>
+ * The update timestamps region is never bounded: a dropped timestamp would make Hibernate take the query results
+ * cached before the last write to a table for up to date. It holds one entry per table.
+ * <p>
+ * Writes made by other instances are not seen, an entry written by another instance stays stale until it
+ * expires. Only enable the cache with a single instance or with data which may be stale for the time to live.
+ */
+public class BoundedCacheRegionFactory extends RegionFactoryTemplate {
+    private static final String PREFIX = "hibernate.cache.bounded.";
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private final Map<String, BoundedCacheStorage> storages = new ConcurrentHashMap<>();
+    private Map<String, Object> configValues = Map.of();
+
+    /**
+     * @return the storage of every region, keyed by region name.
+     */
+    public Map<String, BoundedCacheStorage> getStorages() {
+        return Collections.unmodifiableMap(this.storages);
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        this.configValues = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        this.storages.values().forEach(BoundedCacheStorage::release);
+        this.storages.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return createStorage(regionConfig.getRegionName(), true);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, true);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, false);
+    }
+
+    private BoundedCacheStorage createStorage(String regionName, boolean bounded) {
+        int maxEntries = bounded ? (int) setting(regionName, "max_entries", DEFAULT_MAX_ENTRIES) : 0;
+        long ttlNanos = bounded
+                ? TimeUnit.SECONDS.toNanos(setting(regionName, "ttl_seconds", DEFAULT_TTL_SECONDS))
+                : 0;
+
+        BoundedCacheStorage storage = new BoundedCacheStorage(maxEntries, ttlNanos, System::nanoTime);
+        this.storages.put(regionName, storage);
+        return storage;
+    }
+
+    private long setting(String regionName, String name, long defaultValue) {
+        Object value = this.configValues.get(PREFIX + regionName + "." + name);
+        if (value == null) value = this.configValues.get(PREFIX + name);
+        if (value == null) return defaultValue;
+
+        return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString().trim());
+    }
+}
@@ -0,0 +1,120 @@
+package projects.dnetsova.taskmanager.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory storage of a cache region, bounded by size and by age. When full, the least recently read entry is
+ * evicted, and an entry older than the time to live is dropped when it is read. A maximum of 0 entries or a
+ * time to live of 0 disable the corresponding bound. Thread safe.
+ */
+public class BoundedCacheStorage implements DomainDataStorageAccess {
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Object, Entry> entries;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public BoundedCacheStorage(int maxEntries, long ttlNanos, LongSupplier nanoClock) {
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (maxEntries <= 0 || size() <= maxEntries) return false;
+
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) return null;
+
+            if (isExpired(entry)) {
+                this.entries.remove(key);
+                this.expirations.increment();
+                return null;
+            }
+
+            return entry.value();
+        }
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        Entry entry = new Entry(value, this.nanoClock.getAsLong());
+        synchronized (this.entries) {
+            this.entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+        evictData(key);
+    }
+
+    @Override
+    public void clearCache(SharedSessionContractImplementor session) {
+        evictData();
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return getFromCache(key, null) != null;
+    }
+
+    @Override
+    public void evictData() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    @Override
+    public void evictData(Object key) {
+        synchronized (this.entries) {
+            this.entries.remove(key);
+        }
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return the number of entries evicted to stay within the maximum number of entries.
+     */
+    public long evictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because they outlived the time to live.
+     */
+    public long expirationCount() {
+        return this.expirations.sum();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return this.ttlNanos > 0 && this.nanoClock.getAsLong() - entry.storedAt() > this.ttlNanos;
+    }
+
+    private record Entry(Object value, long storedAt) {}
+}
@@ -0,0 +1,100 @@
+package projects.dnetsova.taskmanager.cache;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+
+/**
+ * Keeps Hibernate's second-level and query caches in line with the writes made with plain JDBC, which Hibernate
+ * does not see. The writes made through Hibernate, including the JPQL bulk statements and the native statements
+ * declaring the tables they write, are taken care of by Hibernate itself.
+ * <p>
+ * Inside a transaction the cached entries are dropped at once and again when the transaction completes, so the
+ * entries cached by readers in between do not survive, and the query results are invalidated after the commit.
+ * Does nothing when neither cache is enabled.
+ */
+@Component
+public class CacheInvalidator {
+    private final SessionFactoryImplementor sessionFactory;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean secondLevelCacheEnabled;
+    private final boolean queryCacheEnabled;
+
+    @Autowired
+    public CacheInvalidator(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+        SessionFactoryOptions options = this.sessionFactory.getSessionFactoryOptions();
+        this.secondLevelCacheEnabled = options.isSecondLevelCacheEnabled();
+        this.queryCacheEnabled = options.isQueryCacheEnabled();
+    }
+
+    /**
+     * To be called after rows of the tables were updated or deleted. Drops the cached entities and
+     * collections stored in these tables and the cached query results reading them.
+     */
+    public void rowsChanged(String... tables) {
+        if (!this.secondLevelCacheEnabled && !this.queryCacheEnabled) return;
+
+        SessionImplementor session = transactionalSession();
+        if (session != null) {
+            // Drops the entries now, drops them again and invalidates the tables after completion
+            BulkOperationCleanupAction.schedule(session, Set.of(tables));
+            return;
+        }
+
+        try (StatelessSession statelessSession = this.sessionFactory.openStatelessSession()) {
+            SharedSessionContractImplementor stateless = (SharedSessionContractImplementor) statelessSession;
+            BulkOperationCleanupAction.schedule(stateless, Set.of(tables));
+            invalidateQueries(tables, stateless);
+        }
+    }
+
+    /**
+     * To be called after rows were inserted in the tables. The cached entities and collections are still valid,
+     * only the cached query results reading these tables are dropped.
+     */
+    public void rowsInserted(String... tables) {
+        if (!this.queryCacheEnabled) return;
+
+        SessionImplementor session = transactionalSession();
+        if (session != null) {
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+                if (success) invalidateQueries(tables, completed);
+            });
+            return;
+        }
+
+        try (StatelessSession statelessSession = this.sessionFactory.openStatelessSession()) {
+            invalidateQueries(tables, (SharedSessionContractImplementor) statelessSession);
+        }
+    }
+
+    private void invalidateQueries(String[] tables, SharedSessionContractImplementor session) {
+        if (this.queryCacheEnabled) this.sessionFactory.getCache().getTimestampsCache().invalidate(tables, session);
+    }
+
+    /**
+     * @return the session of the current transaction, which the JDBC statements share the connection with,
+     * or null outside a transaction.
+     */
+    private SessionImplementor transactionalSession() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) return null;
+
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(this.entityManagerFactory);
+        return entityManager != null ? entityManager.unwrap(SessionImplementor.class) : null;
+    }
+}
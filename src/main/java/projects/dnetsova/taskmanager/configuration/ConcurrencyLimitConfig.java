@@ -0,0 +1,122 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.models.examples.Example;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import openapi.OpenApiExamplesConstants;
+import org.springdoc.core.customizers.OpenApiCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import projects.dnetsova.taskmanager.limits.AdaptiveConcurrencyLimit;
+import projects.dnetsova.taskmanager.limits.ConcurrencyLimitFilter;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * With limits.enabled, the requests to the controllers go through the {@link ConcurrencyLimitFilter}, with
+ * separate adaptive limits for the reads and the writes, given as limits.reads.* and limits.writes.*.
+ * limits.path-costs gives the places taken by the requests to some paths, as path=cost entries.
+ */
+@Configuration
+@ConditionalOnProperty(name = "limits.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+    @Value("${limits.path-prefixes:/users/,/tasks/}")
+    private List<String> pathPrefixes;
+
+    @Value("${limits.rejection-status:503}")
+    private int rejectionStatus;
+
+    @Bean
+    public AdaptiveConcurrencyLimit readConcurrencyLimit(@Value("${limits.reads.initial-limit:20}") int initialLimit,
+                                                         @Value("${limits.reads.min-limit:4}") int minLimit,
+                                                         @Value("${limits.reads.max-limit:200}") int maxLimit,
+                                                         @Value("${limits.window-size:50}") int windowSize,
+                                                         @Value("${limits.tolerance:1.5}") double tolerance) {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, windowSize, tolerance);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimit writeConcurrencyLimit(@Value("${limits.writes.initial-limit:10}") int initialLimit,
+                                                          @Value("${limits.writes.min-limit:2}") int minLimit,
+                                                          @Value("${limits.writes.max-limit:100}") int maxLimit,
+                                                          @Value("${limits.window-size:50}") int windowSize,
+                                                          @Value("${limits.tolerance:1.5}") double tolerance) {
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, windowSize, tolerance);
+    }
+
+    /**
+     * Runs before the other filters, so that a rejected request costs as little as possible.
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            AdaptiveConcurrencyLimit readConcurrencyLimit, AdaptiveConcurrencyLimit writeConcurrencyLimit,
+            ObjectMapper objectMapper, ObjectProvider<MetricsRegistry> registry,
+            @Value("${limits.excluded-paths:}") List<String> excludedPaths,
+            @Value("${limits.path-costs:}") List<String> pathCosts) {
+        registry.ifAvailable(metrics -> {
+            registerMetrics(metrics, ConcurrencyLimitFilter.READS, readConcurrencyLimit);
+            registerMetrics(metrics, ConcurrencyLimitFilter.WRITES, writeConcurrencyLimit);
+        });
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(readConcurrencyLimit, writeConcurrencyLimit, this.pathPrefixes,
+                        new HashSet<>(excludedPaths), parsePathCosts(pathCosts), this.rejectionStatus,
+                        objectMapper));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    /**
+     * Documents the rejection on every limited operation.
+     */
+    @Bean
+    public OpenApiCustomizer concurrencyLimitOpenApiCustomizer() {
+        return openApi -> {
+            if (openApi.getPaths() == null) return;
+
+            openApi.getPaths().forEach((path, item) -> {
+                if (this.pathPrefixes.stream().noneMatch(path::startsWith)) return;
+
+                item.readOperations().forEach(operation -> operation.getResponses().putIfAbsent(
+                        Integer.toString(this.rejectionStatus), new ApiResponse()
+                                .description("Too many concurrent requests, retry later.")
+                                .content(new Content().addMediaType("application/json", new MediaType()
+                                        .addExamples("Server overloaded",
+                                                new Example().value(OpenApiExamplesConstants.SERVER_OVERLOADED))))));
+            });
+        };
+    }
+
+    private static Map<String, Integer> parsePathCosts(List<String> entries) {
+        Map<String, Integer> costs = new HashMap<>();
+        for (String entry : entries) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) throw new IllegalArgumentException("Invalid path cost, expected path=cost: " + entry);
+
+            int cost = Integer.parseInt(entry.substring(separator + 1).trim());
+            if (cost <= 0) throw new IllegalArgumentException("Path cost must be greater than 0: " + entry);
+            costs.put(entry.substring(0, separator).trim(), cost);
+        }
+        return costs;
+    }
+
+    private static void registerMetrics(MetricsRegistry registry, String budget, AdaptiveConcurrencyLimit limit) {
+        registry.gauge("http_concurrency_limit", "Current adaptive limit of the requests in flight.",
+                limit::getLimit, "budget", budget);
+        registry.gauge("http_requests_in_flight", "Requests in flight under the concurrency limit.",
+                limit::getInFlight, "budget", budget);
+        registry.functionCounter("http_requests_rejected_total", "Requests rejected over the concurrency limit.",
+                limit::getRejectedCount, "budget", budget);
+    }
+}
@@ -0,0 +1,90 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import projects.dnetsova.taskmanager.metrics.*;
+
+import javax.sql.DataSource;
+
+/**
+ * Instruments the controllers, services, repositories, connection pool and Hibernate. The meters are served
+ * in the Prometheus format by the MetricsController.
+ */
+@Configuration
+@ConditionalOnProperty(name = "metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig implements WebMvcConfigurer {
+    private final ObjectProvider<MetricsRegistry> registry;
+
+    public MetricsConfig(ObjectProvider<MetricsRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Bean
+    public static MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(this.registry.getObject()));
+    }
+
+    @Bean
+    public ServiceMetricsAspect serviceMetricsAspect(MetricsRegistry registry) {
+        return new ServiceMetricsAspect(registry);
+    }
+
+    @Bean
+    public HibernateStatisticsMetrics hibernateStatisticsMetrics(MetricsRegistry registry,
+                                                                 EntityManagerFactory entityManagerFactory) {
+        return new HibernateStatisticsMetrics(registry, entityManagerFactory);
+    }
+
+    /**
+     * Adds the timing listener to the repositories before their factories create them.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addInvocationListener(new RepositoryMetricsListener(registry.getObject())));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Sets the metrics tracker of the pool, which Hikari accepts until the first connection is requested.
+     * The pool may be wrapped, e.g. by the GatedDataSource.
+     */
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor(ObjectProvider<MetricsRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource)) return bean;
+
+                HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class,
+                        HikariDataSource.class);
+                if (hikari != null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(registry.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.*;
+
+/**
+ * Runs the method in a read-only transaction, which the {@link ReadWriteRoutingDataSource} sends to a replica
+ * when replicas are configured. Called within a read-write transaction, the method joins it and reads from the
+ * primary.
+ * <p>
+ * Spring Data only runs the methods it implements itself in a transaction, the query methods declared in the
+ * repositories run in none and would otherwise always read from the primary.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
@@ -0,0 +1,154 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+import projects.dnetsova.taskmanager.metrics.HikariMetricsTrackerFactory;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * With datasource.replica.enabled, the reads of read-only transactions go to the replicas listed in
+ * datasource.replica.urls, see {@link ReadWriteRoutingDataSource}. The primary keeps the spring.datasource
+ * settings, every replica gets a pool of its own with the same credentials unless configured otherwise.
+ * <p>
+ * The reads served by a replica may miss the writes of the last datasource.replica.max-lag-seconds.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        // The entity manager of the request would keep the connection of its first transaction for the next ones
+        if (openInView) {
+            throw new IllegalStateException("Read replicas require spring.jpa.open-in-view = false.");
+        }
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaPools replicaPools(DataSourceProperties properties,
+                                     ObjectProvider<MetricsRegistry> registry,
+                                     @Value("${datasource.replica.urls}") List<String> urls,
+                                     @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                     @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+                                     @Value("${datasource.replica.maximum-pool-size:20}") int maximumPoolSize,
+                                     @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        List<ReadWriteRoutingDataSource.Replica> replicas = new ArrayList<>();
+        List<HikariDataSource> pools = new ArrayList<>();
+
+        for (String url : urls) {
+            String name = "replica-" + (replicas.size() + 1);
+
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url.trim());
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setMaximumPoolSize(maximumPoolSize);
+            pool.setConnectionTimeout(connectionTimeout);
+            pool.setReadOnly(true);
+            // The pools are not beans, they do not go through the post processors of the primary pool
+            registry.ifAvailable(metrics -> pool.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(metrics)));
+            pools.add(pool);
+
+            DataSource dataSource = virtualThreads
+                    ? new GatedDataSource(pool, maximumPoolSize, connectionTimeout)
+                    : pool;
+            replicas.add(new ReadWriteRoutingDataSource.Replica(name, dataSource));
+        }
+
+        return new ReplicaPools(replicas, pools);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                                 ReplicaPools replicaPools,
+                                                                 ObjectProvider<MetricsRegistry> registry,
+                                                                 @Value("${datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                                                 @Value("${datasource.replica.max-lag-seconds:5}") double maxLagSeconds) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary,
+                replicaPools.replicas(), lagQuery, maxLagSeconds);
+        registry.ifAvailable(metrics -> registerMetrics(metrics, routing));
+        return routing;
+    }
+
+    /**
+     * The data source of the application. A connection is only obtained from the routing data source at the
+     * first statement, once the transaction is known to be read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaHealthCheck replicaHealthCheck(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new ReplicaHealthCheck(readWriteRoutingDataSource);
+    }
+
+    private static void registerMetrics(MetricsRegistry registry, ReadWriteRoutingDataSource routing) {
+        String routed = "datasource_connections_routed_total";
+        String help = "Connections obtained, by the database they were taken from and the reason.";
+
+        registry.functionCounter(routed, help, routing::getWriteCount,
+                "target", ReadWriteRoutingDataSource.PRIMARY, "reason", "write");
+        registry.functionCounter(routed, help, routing::getFallbackReadCount,
+                "target", ReadWriteRoutingDataSource.PRIMARY, "reason", "fallback");
+
+        for (ReadWriteRoutingDataSource.Replica replica : routing.getReplicas()) {
+            registry.functionCounter(routed, help, replica::getReadCount,
+                    "target", replica.getName(), "reason", "read");
+            registry.gauge("datasource_replica_healthy", "Whether the replica takes reads.",
+                    () -> replica.isHealthy() ? 1 : 0, "replica", replica.getName());
+            registry.gauge("datasource_replica_lag_seconds", "Lag of the replica found by its last health check.",
+                    replica::getLagSeconds, "replica", replica.getName());
+        }
+    }
+
+    /**
+     * The replicas with the pools they own, closed with the application context.
+     */
+    public record ReplicaPools(List<ReadWriteRoutingDataSource.Replica> replicas,
+                               List<HikariDataSource> pools) implements Closeable {
+        @Override
+        public void close() {
+            this.pools.forEach(HikariDataSource::close);
+        }
+    }
+
+    /**
+     * Checks the replicas every datasource.replica.health-check-interval-ms.
+     */
+    public static class ReplicaHealthCheck {
+        private final ReadWriteRoutingDataSource routing;
+
+        public ReplicaHealthCheck(ReadWriteRoutingDataSource routing) {
+            this.routing = routing;
+        }
+
+        @Scheduled(fixedDelayString = "${datasource.replica.health-check-interval-ms:5000}")
+        public void check() {
+            this.routing.checkReplicas();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the connections of read-only transactions to the replicas, in turn, and all other connections to the
+ * primary. The reads meant for the replicas are marked with {@link ReadOnlyTransactional}.
+ * <p>
+ * A replica only takes reads while its last health check succeeded and found it at most maxLagSeconds behind
+ * the primary. With no such replica, the reads fall back to the primary. A replica which is not replicating
+ * (the lag query returns no row) counts as up to date, so that a plain copy of the database can stand in for
+ * a replica.
+ * <p>
+ * The routing is decided when the connection is obtained, so the transaction manager must see this data source
+ * behind a LazyConnectionDataSourceProxy, which obtains the connection once the transaction is set up.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    private static final List<String> LAG_COLUMNS = List.of("Seconds_Behind_Source", "Seconds_Behind_Master");
+
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<Replica> replicas, String lagQuery,
+                                      double maxLagSeconds) {
+        this.replicas = List.copyOf(replicas);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : this.replicas) targets.put(replica.getName(), replica.getDataSource());
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public List<Replica> getReplicas() {
+        return this.replicas;
+    }
+
+    /**
+     * @return the number of connections of read-write transactions, or taken outside a transaction.
+     */
+    public long getWriteCount() {
+        return this.writes.sum();
+    }
+
+    /**
+     * @return the number of connections of read-only transactions sent to the primary for want of a replica.
+     */
+    public long getFallbackReadCount() {
+        return this.fallbackReads.sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            this.writes.increment();
+            return PRIMARY;
+        }
+
+        int size = this.replicas.size();
+        int first = Math.floorMod(this.nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = this.replicas.get((first + i) % size);
+            if (replica.isHealthy()) {
+                replica.reads.increment();
+                return replica.getName();
+            }
+        }
+
+        this.fallbackReads.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Checks the health and the lag of every replica.
+     */
+    public void checkReplicas() {
+        for (Replica replica : this.replicas) {
+            try {
+                double lag = queryLag(replica.getDataSource());
+                replica.update(lag <= this.maxLagSeconds, lag);
+            } catch (SQLException | RuntimeException e) {
+                replica.update(false, Double.NaN);
+                LOGGER.debug("Health check of the replica {} failed", replica.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the seconds the replica is behind the primary, infinite when it stopped replicating.
+     */
+    private double queryLag(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+
+            try (ResultSet resultSet = statement.executeQuery(this.lagQuery)) {
+                if (!resultSet.next()) return 0;
+
+                long lag = resultSet.getLong(lagColumn(resultSet.getMetaData()));
+                return resultSet.wasNull() ? Double.POSITIVE_INFINITY : lag;
+            }
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            if (LAG_COLUMNS.contains(metaData.getColumnLabel(column))) return column;
+        }
+        return 1;
+    }
+
+    /**
+     * A replica with the outcome of its last health check. Unhealthy until it is checked.
+     */
+    public static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final LongAdder reads = new LongAdder();
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return the lag found by the last health check, NaN if it failed.
+         */
+        public double getLagSeconds() {
+            return lagSeconds;
+        }
+
+        /**
+         * @return the number of connections of read-only transactions sent to this replica.
+         */
+        public long getReadCount() {
+            return reads.sum();
+        }
+
+        private void update(boolean healthy, double lagSeconds) {
+            if (healthy != this.healthy) {
+                LOGGER.info("Replica {} is {} (lag {} s)", this.name, healthy ? "up" : "down", lagSeconds);
+            }
+            this.healthy = healthy;
+            this.lagSeconds = lagSeconds;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Enables the @Scheduled background jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * With spring.main.lazy-initialization, the jobs of a bean are only scheduled once the bean is created, so the
+     * beans with jobs are created at startup regardless.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> hasScheduledMethods(beanType);
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        if (beanType == null
+                || !AnnotationUtils.isCandidateClass(beanType, List.of(Scheduled.class, Schedules.class))) {
+            return false;
+        }
+
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Set<Scheduled>>)
+                method -> {
+                    Set<Scheduled> scheduled = AnnotatedElementUtils.getMergedRepeatableAnnotations(method,
+                            Scheduled.class, Schedules.class);
+                    return scheduled.isEmpty() ? null : scheduled;
+                }).isEmpty();
+    }
+}
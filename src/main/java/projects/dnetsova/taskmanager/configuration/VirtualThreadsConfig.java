@@ -0,0 +1,31 @@
+package projects.dnetsova.taskmanager.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With spring.threads.virtual.enabled, Spring Boot runs every request on its own virtual thread rather than
+ * on Tomcat's pool of platform threads, on Java 21 and later. The number of concurrent requests is then no
+ * longer capped by the thread pool, so the connection pool is put behind a fair gate.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public static BeanPostProcessor gatedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    return new GatedDataSource(dataSource, dataSource.getMaximumPoolSize(),
+                            dataSource.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import openapi.OpenApiExamplesConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+import projects.dnetsova.taskmanager.models.ChangeEvent;
+import projects.dnetsova.taskmanager.services.ChangeFeedService;
+
+import java.io.IOException;
+
+@RestController
+public class EventController {
+    private final ChangeFeedService changeFeedService;
+    private final long timeoutMillis;
+
+    @Autowired
+    public EventController(ChangeFeedService changeFeedService,
+                           @Value("${events.timeout-ms:1800000}") long timeoutMillis) {
+        this.changeFeedService = changeFeedService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Operation(summary = "Change feed",
+            description = "Streams the user and task changes as Server-Sent Events of the types user-created, user-renamed, user-removed, task-created, task-updated, task-removed and tasks-imported, the latter once per imported batch with the number of tasks, upon which the client should reload the tasks it keeps. A client reconnecting with Last-Event-ID is sent the changes it missed. A client too far behind is sent a resync event in place of the missed changes, upon which it should reload the users and tasks it keeps.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Changes streamed until the client disconnects or the stream times out.",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Change events",
+                            value = OpenApiExamplesConstants.CHANGE_EVENTS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Feed disabled/Too many subscribers.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Feed unavailable",
+                            summary = "Feed unavailable",
+                            description = "Too many subscribers response",
+                            value = OpenApiExamplesConstants.EVENTS_UNAVAILABLE)
+                    )
+            )
+    })
+    @GetMapping("/events")
+    public SseEmitter getEvents(@Parameter(description = "The id of the last event received before reconnecting",
+            example = "lz3k2f9a-1532") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(this.timeoutMillis);
+        ChangeFeedService.Subscription subscription = this.changeFeedService.subscribe(lastEventId, new SseSink(emitter));
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    private ResponseEntity<ApiResponse<?>> handleFeedUnavailable(IllegalStateException ex) {
+        // The client asked for an event stream, the error is sent as JSON all the same
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+                .body(new ApiResponse<>(null, new ApiError("EventsUnavailable", ex.getMessage())));
+    }
+
+    private record SseSink(SseEmitter emitter) implements ChangeFeedService.Sink {
+        @Override
+        public void send(ChangeEvent event) throws IOException {
+            // The data is JSON already, it is written as is
+            this.emitter.send(SseEmitter.event().id(event.id()).name(event.type()).data(event.data()));
+        }
+
+        @Override
+        public void sendHeartbeat() throws IOException {
+            this.emitter.send(SseEmitter.event().comment(""));
+        }
+
+        @Override
+        public void close() {
+            this.emitter.complete();
+        }
+    }
+}
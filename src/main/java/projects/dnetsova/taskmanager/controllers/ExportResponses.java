@@ -0,0 +1,85 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+import projects.dnetsova.taskmanager.services.ExportService;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the streamed responses of the export endpoints. The body is written after the controller method
+ * returns, on an async request thread, directly to the response stream - gzip compressed when the client
+ * accepts it. When the maximum of concurrent exports is reached, the response is a 503 ExportsBusy error.
+ */
+final class ExportResponses {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private ExportResponses() {}
+
+    @FunctionalInterface
+    interface Exporter {
+        long export(ExportFormat format, OutputStream out) throws IOException;
+    }
+
+    static ResponseEntity<?> of(String fileName, ExportFormat format, String acceptEncoding,
+                                ExportService exportService, Exporter exporter) {
+        if (!exportService.tryStartExport()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.RETRY_AFTER, "10")
+                    .body(new ApiResponse<>(null, new ApiError("ExportsBusy", "Too many exports running, retry later.")));
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName + "." + format.getFileExtension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        StreamingResponseBody body = out -> {
+            try {
+                if (!gzip) {
+                    exporter.export(format, out);
+                    return;
+                }
+
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                exporter.export(format, gzipOut);
+                gzipOut.finish();
+            } finally {
+                exportService.endExport();
+            }
+        };
+        return response.body(body);
+    }
+
+    /**
+     * @return whether the Accept-Encoding header lists gzip without rejecting it by a zero quality value.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().matches("q=0(\\.0*)?")) return false;
+            }
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import openapi.OpenApiExamplesConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+
+@RestController
+@ConditionalOnProperty(name = "metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsController {
+    private final MetricsRegistry metricsRegistry;
+    private final boolean localOnly;
+
+    @Autowired
+    public MetricsController(MetricsRegistry metricsRegistry,
+                             @Value("${metrics.endpoint.local-only:true}") boolean localOnly) {
+        this.metricsRegistry = metricsRegistry;
+        this.localOnly = localOnly;
+    }
+
+    @Operation(summary = "Metrics",
+            description = "Request, service, repository, connection pool and Hibernate metrics in the Prometheus text format. Only served to local clients unless configured otherwise.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Metrics returned successfully.",
+                    content = @Content(mediaType = "text/plain", examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Prometheus metrics",
+                            value = OpenApiExamplesConstants.METRICS_PROMETHEUS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "403", description = "Remote client.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Remote client",
+                            summary = "Remote client",
+                            description = "Metrics requested by a remote client response",
+                            value = OpenApiExamplesConstants.METRICS_FORBIDDEN)
+                    )
+            )
+    })
+    @GetMapping("/actuator/prometheus")
+    public ResponseEntity<?> getMetrics(HttpServletRequest request) throws IOException {
+        // The remote address is an IP literal, no name is looked up
+        if (this.localOnly && !InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ApiResponse<>(null,
+                    new ApiError("Forbidden", "Metrics are only served to local clients.")));
+        }
+
+        StringWriter writer = new StringWriter(64 * 1024);
+        this.metricsRegistry.writePrometheus(writer);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, MetricsRegistry.CONTENT_TYPE)
+                .body(writer.toString());
+    }
+}
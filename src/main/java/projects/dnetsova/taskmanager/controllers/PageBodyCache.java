@@ -0,0 +1,50 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of serialized page bodies, keyed by the version of the data and the request parameters.
+ * A write moves the data to a new version, the bodies of the previous versions are then never asked for and
+ * are evicted as the new ones come in. A capacity of 0 disables the cache. Safe for concurrent use; two
+ * requests missing the same key at once both serialize the page.
+ */
+final class PageBodyCache {
+    private final int capacity;
+    private final Map<Key, byte[]> bodies;
+
+    PageBodyCache(int capacity) {
+        this.capacity = capacity;
+        this.bodies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the cached body, or the one computed by the loader, which is cached unless it is null.
+     */
+    byte[] get(Key key, Supplier<byte[]> loader) {
+        if (this.capacity <= 0) return loader.get();
+
+        synchronized (this.bodies) {
+            byte[] body = this.bodies.get(key);
+            if (body != null) return body;
+        }
+
+        // Loaded outside of the lock, the repository calls must not serialize the other requests
+        byte[] body = loader.get();
+        if (body != null) {
+            synchronized (this.bodies) {
+                this.bodies.put(key, body);
+            }
+        }
+
+        return body;
+    }
+
+    record Key(String version, int page, int size, String after, boolean withTotal) {}
+}
@@ -0,0 +1,58 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import openapi.OpenApiExamplesConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+import projects.dnetsova.taskmanager.models.TaskStats;
+import projects.dnetsova.taskmanager.services.TaskStatsService;
+
+@RestController
+public class StatsController {
+    private final TaskStatsService taskStatsService;
+
+    @Autowired
+    public StatsController(TaskStatsService taskStatsService) {
+        this.taskStatsService = taskStatsService;
+    }
+
+    @Operation(summary = "Task statistics",
+            description = "The number of tasks in total, per priority and per assignee, served from counters kept in memory.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Statistics returned successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Task statistics",
+                            value = OpenApiExamplesConstants.TASK_STATS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Statistics disabled/not loaded yet.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Statistics unavailable",
+                            summary = "Statistics unavailable",
+                            description = "Statistics not loaded yet response",
+                            value = OpenApiExamplesConstants.STATS_UNAVAILABLE)
+                    )
+            )
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<TaskStats>> getStats() {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskStatsService.getStats()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse<>(null,
+                    new ApiError("StatsUnavailable", e.getMessage())));
+        }
+    }
+}
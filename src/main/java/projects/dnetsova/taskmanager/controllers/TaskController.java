@@ -0,0 +1,542 @@
+package projects.dnetsova.taskmanager.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import openapi.OpenApiExamplesConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import projects.dnetsova.taskmanager.exceptions.InvalidTaskException;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.*;
+import projects.dnetsova.taskmanager.services.ExportService;
+import projects.dnetsova.taskmanager.services.TaskImportService;
+import projects.dnetsova.taskmanager.services.TaskSearchService;
+import projects.dnetsova.taskmanager.services.TaskService;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.TaskInvertedIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+
+@RestController
+@RequestMapping("/tasks")
+public class TaskController {
+    private final TaskService taskService;
+    private final ExportService exportService;
+    private final TaskImportService taskImportService;
+    private final TaskSearchService taskSearchService;
+
+    @Autowired
+    public TaskController(TaskService taskService, ExportService exportService,
+                          TaskImportService taskImportService, TaskSearchService taskSearchService) {
+        this.taskService = taskService;
+        this.exportService = exportService;
+        this.taskImportService = taskImportService;
+        this.taskSearchService = taskSearchService;
+    }
+
+    @Operation(summary = "Create task", description = "A task with the given attributes is created and saved.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201",
+                    description = "Task created successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Task created",
+                            summary = "Task created",
+                            description = "Successful task creation response",
+                            value = OpenApiExamplesConstants.GET_TASK_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Title empty/Priority empty/Invalid dates/User does not exist.",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Title empty",
+                                            summary = "Title empty",
+                                            description = "Title empty response",
+                                            value = OpenApiExamplesConstants.TASK_TITLE_EMPTY
+                                    ),
+                                    @ExampleObject(
+                                            name = "User does not exist",
+                                            summary = "User does not exist",
+                                            description = "Assignee does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_USER_ERROR
+                                    )
+                            }
+                    )
+            )
+    })
+    @PostMapping("/create")
+    public ResponseEntity<ApiResponse<TaskDetails>> createTask(@RequestBody TaskRequest task) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponse<>(taskService.addTask(task)));
+        } catch (IllegalArgumentException | InvalidUserException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Get task", description = "Retrieves the task with the given id.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Task retrieved successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful task retrieval response",
+                            value = OpenApiExamplesConstants.GET_TASK_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Task does not exist.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Task does not exist",
+                            summary = "Task does not exist",
+                            description = "Task does not exist response",
+                            value = OpenApiExamplesConstants.INVALID_TASK_ERROR)
+                    )
+            )
+    })
+    @GetMapping("/details")
+    public ResponseEntity<ApiResponse<TaskDetails>> getTask(@Parameter(description = "The id of the task",
+            example = "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e") @RequestParam UUID id) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.getTask(id)));
+        } catch (InvalidTaskException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Update task", description = "All attributes of the task with the given id are replaced.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Task updated successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful task update response",
+                            value = OpenApiExamplesConstants.GET_TASK_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Task does not exist/Title empty/Priority empty/Invalid dates/User does not exist.",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Task does not exist",
+                                            summary = "Task does not exist",
+                                            description = "Task does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_TASK_ERROR
+                                    ),
+                                    @ExampleObject(
+                                            name = "Title empty",
+                                            summary = "Title empty",
+                                            description = "Title empty response",
+                                            value = OpenApiExamplesConstants.TASK_TITLE_EMPTY
+                                    )
+                            }
+                    )
+            )
+    })
+    @PutMapping("/update")
+    public ResponseEntity<ApiResponse<TaskDetails>> updateTask(@Parameter(description = "The id of the task",
+            example = "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e") @RequestParam UUID id,
+                                                               @RequestBody TaskRequest task) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.updateTask(id, task)));
+        } catch (InvalidTaskException | IllegalArgumentException | InvalidUserException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Edit task", description = "Only the given priority and deadline of the task are " +
+            "changed, and the given users are added to or removed from its assignees.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Task edited successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful task edit response",
+                            value = OpenApiExamplesConstants.GET_TASK_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Task does not exist/Nothing to change/Invalid deadline/User does not exist.",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Task does not exist",
+                                            summary = "Task does not exist",
+                                            description = "Task does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_TASK_ERROR
+                                    ),
+                                    @ExampleObject(
+                                            name = "User does not exist",
+                                            summary = "User does not exist",
+                                            description = "User does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_USER_ERROR
+                                    )
+                            }
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Edit journal cannot be written, the edit may or may " +
+                    "not be applied.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Edit journal unavailable",
+                            summary = "Edit journal unavailable",
+                            description = "Edit journal cannot be written response",
+                            value = OpenApiExamplesConstants.EDIT_JOURNAL_UNAVAILABLE)
+                    )
+            )
+    })
+    @PatchMapping("/edit")
+    public ResponseEntity<ApiResponse<TaskDetails>> editTask(@Parameter(description = "The id of the task",
+            example = "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e") @RequestParam UUID id,
+                                                             @RequestBody TaskEdit edit) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.editTask(id, edit)));
+        } catch (InvalidTaskException | IllegalArgumentException | InvalidUserException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        } catch (UncheckedIOException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse<>(null,
+                    new ApiError("EditJournalUnavailable", "The edit could not be journaled, retry later.")));
+        }
+    }
+
+    @Operation(summary = "Change task assignments",
+            description = "Assigns and unassigns many users to and from many tasks in one go. Every user of a " +
+                    "group is paired with every task of the group. Pairs which are assigned, respectively " +
+                    "unassigned, already are left as they are, either all changes are made or none.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Assignments changed successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful assignments change response",
+                            value = OpenApiExamplesConstants.TASK_ASSIGNMENTS_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Task does not exist/User does not exist/Pair both assigned and unassigned/" +
+                            "No or too many pairs.",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Task does not exist",
+                                            summary = "Task does not exist",
+                                            description = "Task does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_TASK_ERROR
+                                    ),
+                                    @ExampleObject(
+                                            name = "User does not exist",
+                                            summary = "User does not exist",
+                                            description = "User does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_USER_ERROR
+                                    ),
+                                    @ExampleObject(
+                                            name = "Pair both assigned and unassigned",
+                                            summary = "Pair both assigned and unassigned",
+                                            description = "Conflicting assignments response",
+                                            value = OpenApiExamplesConstants.CONFLICTING_ASSIGNMENTS_ERROR
+                                    )
+                            }
+                    )
+            )
+    })
+    @PostMapping("/assignments")
+    public ResponseEntity<ApiResponse<AssignmentReport>> changeAssignments(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The (task, user) pairs to be " +
+                    "assigned and unassigned, in groups of tasks and users",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Assign a team",
+                            value = OpenApiExamplesConstants.TASK_ASSIGNMENTS_REQUEST)))
+            @RequestBody TaskAssignments assignments) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.changeAssignments(assignments)));
+        } catch (InvalidTaskException | IllegalArgumentException | InvalidUserException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Remove task", description = "The task with the given id is removed.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Task removed successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful task deletion response")
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Task does not exist.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Task does not exist",
+                            summary = "Task does not exist",
+                            description = "Task does not exist response",
+                            value = OpenApiExamplesConstants.INVALID_TASK_ERROR)
+                    )
+            )
+    })
+    @DeleteMapping("/remove")
+    public ResponseEntity<ApiResponse<Void>> removeTask(@Parameter(description = "The id of the task",
+            example = "0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e") @RequestParam UUID id) {
+        try {
+            taskService.removeTask(id);
+        } catch (InvalidTaskException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).build();
+    }
+
+    @Operation(summary = "Get a page of tasks", description = "Retrieves the desired page of tasks")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Page of tasks retrieved successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful page of tasks retrieval response",
+                            value = OpenApiExamplesConstants.GET_ALL_TASKS_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Invalid Page/Size",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Invalid page",
+                                            summary = "Invalid page",
+                                            description = "Invalid page response",
+                                            value = OpenApiExamplesConstants.PAGE_LESS_THAN_1
+                                    ),
+                                    @ExampleObject(
+                                            name = "Invalid size",
+                                            summary = "Invalid size",
+                                            description = "Invalid size response",
+                                            value = OpenApiExamplesConstants.SIZE_LESS_THAN_1
+                                    )
+                            }
+                    )
+            )
+    })
+    @GetMapping("/get")
+    public ResponseEntity<ApiResponse<CustomPage<TaskDetails>>> getTasksPage(
+            @Parameter(description = "Page number", example = "1")
+            @RequestParam(required = false, defaultValue = "1") int page,
+            @Parameter(description = "Page size", example = "10")
+            @RequestParam(required = false, defaultValue = "10") int size) {
+
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.getAllTasks(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Search tasks",
+            description = "Retrieves the tasks containing all words of the query in their title or description, " +
+                    "ignoring case and accents, best match first. Title matches weigh more than description matches.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Matching tasks retrieved successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful task search response",
+                            value = OpenApiExamplesConstants.SEARCH_TASKS_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Query empty/Invalid limit",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "Query empty",
+                                            summary = "Query empty",
+                                            description = "Query empty response",
+                                            value = OpenApiExamplesConstants.SEARCH_QUERY_EMPTY
+                                    ),
+                                    @ExampleObject(
+                                            name = "Invalid limit",
+                                            summary = "Invalid limit",
+                                            description = "Invalid limit response",
+                                            value = OpenApiExamplesConstants.LIMIT_LESS_THAN_1
+                                    )
+                            }
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Search index is not built yet.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Search unavailable",
+                            summary = "Search unavailable",
+                            description = "Search index not built yet response",
+                            value = OpenApiExamplesConstants.SEARCH_UNAVAILABLE)
+                    )
+            )
+    })
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<TaskSearchHit>>> searchTasks(
+            @Parameter(description = "The words to search for", example = "release notes")
+            @RequestParam String q,
+            @Parameter(description = "Accepted priorities, all when absent", example = "P0,P1")
+            @RequestParam(required = false) Set<Priority> priority,
+            @Parameter(description = "Earliest deadline, inclusive", example = "2024-07-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deadlineFrom,
+            @Parameter(description = "Latest deadline, inclusive", example = "2024-07-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate deadlineTo,
+            @Parameter(description = "Name of a user the tasks are assigned to", example = "Fred")
+            @RequestParam(required = false) String assignee,
+            @Parameter(description = "Maximum number of results, at most " + TaskSearchService.MAX_LIMIT, example = "20")
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        TaskInvertedIndex.Filter filter = new TaskInvertedIndex.Filter(priority, deadlineFrom, deadlineTo, assignee);
+
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskSearchService.search(q, filter, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse<>(null,
+                    new ApiError("SearchUnavailable", e.getMessage())));
+        }
+    }
+
+    @Operation(summary = "Export all tasks",
+            description = "Streams all tasks with their assignees as NDJSON or CSV. The response is gzip compressed when the client accepts it.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Tasks streamed successfully.",
+                    content = @Content(mediaType = "application/x-ndjson", examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "NDJSON tasks export",
+                            value = OpenApiExamplesConstants.EXPORT_TASKS_NDJSON)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Invalid format.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid format",
+                            summary = "Invalid format",
+                            description = "Invalid format response",
+                            value = OpenApiExamplesConstants.INVALID_EXPORT_FORMAT)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Too many exports running.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Exports busy",
+                            summary = "Exports busy",
+                            description = "Too many exports running response",
+                            value = OpenApiExamplesConstants.EXPORTS_BUSY)
+                    )
+            )
+    })
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTasks(
+            @Parameter(description = "Format of the export: NDJSON or CSV", example = "NDJSON")
+            @RequestParam(required = false, defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        return ExportResponses.of("tasks", format, acceptEncoding, exportService, exportService::exportTasks);
+    }
+
+    @Operation(summary = "Import tasks",
+            description = "Imports the tasks of an NDJSON or CSV body with the columns of an export. The body is " +
+                    "read as a stream and written in batches, each in its own transaction, so rows which fail " +
+                    "are reported and skipped without affecting the others. A gzip compressed body is accepted " +
+                    "with Content-Encoding: gzip.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Import finished. Rows which were not imported have an error.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Task import report",
+                            value = OpenApiExamplesConstants.IMPORT_TASKS_REPORT)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Invalid format.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid format",
+                            summary = "Invalid format",
+                            description = "Invalid format response",
+                            value = OpenApiExamplesConstants.INVALID_EXPORT_FORMAT)
+                    )
+            )
+    })
+    @PostMapping("/import")
+    public ResponseEntity<ApiResponse<ImportReport>> importTasks(
+            @Parameter(description = "Format of the body: NDJSON or CSV", example = "NDJSON")
+            @RequestParam(required = false, defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false)
+            String contentEncoding,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The tasks to be imported, " +
+                    "one per line") InputStream body) throws IOException {
+        InputStream in = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskImportService.importTasks(format, in)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiResponse<>(null,
+                    new ApiError("ImportInterrupted", "The import was interrupted.")));
+        }
+    }
+
+    @Operation(summary = "Get the progress of running imports",
+            description = "Retrieves the number of rows read, imported and failed so far and the throughput " +
+                    "of every running import.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Progress retrieved successfully.")
+    })
+    @GetMapping("/import/progress")
+    public ResponseEntity<ApiResponse<List<ImportReport>>> getImportProgress() {
+        return ResponseEntity.ok(new ApiResponse<>(taskImportService.getRunningImports()));
+    }
+
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    private ResponseEntity<ApiResponse<?>> handleMissingRequestParameter(MissingServletRequestParameterException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse<>(null,
+                new ApiError("MissingRequestParameter", ex.getMessage())));
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    private ResponseEntity<ApiResponse<?>> handleInvalidRequestParameter(MethodArgumentTypeMismatchException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse<>(null,
+                new ApiError("InvalidRequestParameter", "Invalid value for parameter '" + ex.getName() + "'.")));
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    private ResponseEntity<ApiResponse<?>> handleInvalidRequestBody(HttpMessageNotReadableException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse<>(null,
+                new ApiError("InvalidRequestBody", "Request body is missing or malformed.")));
+    }
+}
@@ -1,32 +1,72 @@
 package projects.dnetsova.taskmanager.controllers;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import openapi.OpenApiExamplesConstants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
 import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
 import projects.dnetsova.taskmanager.models.ApiError;
 import projects.dnetsova.taskmanager.models.ApiResponse;
+import projects.dnetsova.taskmanager.models.BulkUserResult;
+import projects.dnetsova.taskmanager.models.CursorPage;
 import projects.dnetsova.taskmanager.models.CustomPage;
+import projects.dnetsova.taskmanager.models.TaskFeedEntry;
+import projects.dnetsova.taskmanager.services.ExportService;
+import projects.dnetsova.taskmanager.services.TaskService;
 import projects.dnetsova.taskmanager.services.UserService;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final TaskService taskService;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final PageBodyCache pageBodyCache;
+    // The version only counts the writes of this instance. It is moved once the primary commits, a page read
+    // from a lagging replica would be older than it
+    private final boolean versionedPages;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TaskService taskService, ExportService exportService,
+                          ObjectMapper objectMapper, @Value("${users.page-cache.size:256}") int pageCacheSize,
+                          @Value("${users.etag.enabled:false}") boolean eTagEnabled,
+                          @Value("${datasource.replica.enabled:false}") boolean replicasEnabled) {
         this.userService = userService;
+        this.taskService = taskService;
+        this.exportService = exportService;
+        this.objectMapper = objectMapper;
+        this.pageBodyCache = new PageBodyCache(pageCacheSize);
+        this.versionedPages = eTagEnabled && !replicasEnabled;
     }
 
     @Operation(summary = "Create user", description = "A user with the given name is created and saved.")
@@ -198,19 +238,33 @@ public class UserController {
     }
 
     @Operation(summary = "Get a page of users",
-               description = "Retrieves the desired page of users")
+               description = "Retrieves the desired page of users. When the 'after' parameter is present the " +
+                       "page is retrieved by cursor instead of by page number, which keeps deep pages fast. The response " +
+                       "carries an ETag which changes with every write to the users; a request sending it back " +
+                       "in If-None-Match gets a 304 while the users are unchanged. The ETag is only sent with " +
+                       "users.etag.enabled and without read replicas.")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
                     description = "Page of users retrieved successfully.",
-                    content = @Content(examples = @ExampleObject(
-                            name = "Response content",
-                            summary = "Response content",
-                            description = "Successful page of users retrieval response",
-                            value = OpenApiExamplesConstants.GET_ALL_USERS_SUCCESS)
-                    )
+                    content = @Content(examples = {
+                            @ExampleObject(
+                                    name = "Response content",
+                                    summary = "Response content",
+                                    description = "Successful page of users retrieval response",
+                                    value = OpenApiExamplesConstants.GET_ALL_USERS_SUCCESS),
+                            @ExampleObject(
+                                    name = "Cursor response content",
+                                    summary = "Cursor response content",
+                                    description = "Successful page of users retrieval by cursor response",
+                                    value = OpenApiExamplesConstants.GET_USERS_AFTER_SUCCESS)
+                    })
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304",
+                    description = "Users unchanged since the page with the ETag given in If-None-Match.",
+                    content = @Content
             ),
             @io.swagger.v3.oas.annotations.responses.ApiResponse(
-                    responseCode = "400", description = "Invalid Page/Size",
+                    responseCode = "400", description = "Invalid Page/Size/Cursor",
                     content = @Content(
                             examples = {
                                     @ExampleObject(
@@ -224,6 +278,12 @@ public class UserController {
                                             summary = "Invalid size",
                                             description = "Invalid size response",
                                             value = OpenApiExamplesConstants.SIZE_LESS_THAN_1
+                                    ),
+                                    @ExampleObject(
+                                            name = "Invalid cursor",
+                                            summary = "Invalid cursor",
+                                            description = "Invalid cursor response",
+                                            value = OpenApiExamplesConstants.INVALID_CURSOR
                                     )
                             }
                     )
@@ -231,26 +291,327 @@ public class UserController {
     })
 
     @GetMapping("/get")
-    public ResponseEntity<ApiResponse<CustomPage<String>>> getUsersPage(
+    public ResponseEntity<?> getUsersPage(
             @Parameter(description = "Page number", example = "1")
             @RequestParam(required = false, defaultValue = "1") int page,
             @Parameter(description = "Page size", example = "10")
-            @RequestParam(required = false, defaultValue = "10") int size) {
+            @RequestParam(required = false, defaultValue = "10") int size,
+            @Parameter(description = "Cursor returned with the previous page. Pass an empty value to get the " +
+                    "first page by cursor. When present the page number is ignored.", example = "AQAERnJlZA")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Whether the total number of users is included in a page retrieved by cursor",
+                    example = "false")
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal,
+            WebRequest webRequest) {
+
+       Supplier<byte[]> loader = () -> {
+           if (after != null) {
+               CursorPage<String> users = userService.getUsersAfter(after, size, withTotal);
+               return toJson(new ApiResponse<>(users));
+           }
 
-       try {
            CustomPage<String> allUsers = userService.getAllUsers(page, size);
-           return ResponseEntity.status(HttpStatus.OK).body(new ApiResponse<>(allUsers));
+           return toJson(new ApiResponse<>(allUsers));
+       };
+
+       try {
+           if (!versionedPages) {
+               return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_JSON).body(loader.get());
+           }
+
+           // Read before the page, a write committed in between then only makes the page newer than its version
+           String version = userService.getChangeVersion();
+           String eTag = "\"" + version + "\"";
+           if (webRequest.checkNotModified(eTag)) return null;
+
+           // The page number is ignored by cursor and the total is only included by cursor
+           PageBodyCache.Key key = after != null
+                   ? new PageBodyCache.Key(version, 0, size, after, withTotal)
+                   : new PageBodyCache.Key(version, page, size, null, false);
+
+           byte[] body = pageBodyCache.get(key, loader);
+           return ResponseEntity.status(HttpStatus.OK).eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(body);
        } catch (IllegalArgumentException e) {
            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
        }
     }
 
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Operation(summary = "Get a page of the tasks of a user",
+            description = "Retrieves the tasks assigned to the user, ordered by deadline and priority. " +
+                    "Tasks without a deadline come last.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Page of tasks retrieved successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful page of user tasks retrieval response",
+                            value = OpenApiExamplesConstants.GET_USER_TASKS_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "User does not exist/Invalid Size/Cursor",
+                    content = @Content(
+                            examples = {
+                                    @ExampleObject(
+                                            name = "User does not exist",
+                                            summary = "User does not exist",
+                                            description = "User does not exist response",
+                                            value = OpenApiExamplesConstants.INVALID_USER_ERROR
+                                    ),
+                                    @ExampleObject(
+                                            name = "Invalid size",
+                                            summary = "Invalid size",
+                                            description = "Invalid size response",
+                                            value = OpenApiExamplesConstants.SIZE_LESS_THAN_1
+                                    ),
+                                    @ExampleObject(
+                                            name = "Invalid cursor",
+                                            summary = "Invalid cursor",
+                                            description = "Invalid cursor response",
+                                            value = OpenApiExamplesConstants.INVALID_CURSOR
+                                    )
+                            }
+                    )
+            )
+    })
+    @GetMapping("/{name}/tasks")
+    public ResponseEntity<ApiResponse<CursorPage<TaskFeedEntry>>> getUserTasks(
+            @Parameter(description = "The name of the user", example = "Fred") @PathVariable String name,
+            @Parameter(description = "Cursor returned with the previous page, empty for the first page")
+            @RequestParam(required = false, defaultValue = "") String after,
+            @Parameter(description = "Page size", example = "10")
+            @RequestParam(required = false, defaultValue = "10") int size) {
+
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(taskService.getUserTasks(name, after, size)));
+        } catch (InvalidUserException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Search users by name prefix",
+            description = "Retrieves the names starting with the given prefix, ignoring case and accents.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Matching user names retrieved successfully.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Successful user search response",
+                            value = OpenApiExamplesConstants.SEARCH_USERS_SUCCESS)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Invalid limit",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid limit",
+                            summary = "Invalid limit",
+                            description = "Invalid limit response",
+                            value = OpenApiExamplesConstants.LIMIT_LESS_THAN_1)
+                    )
+            )
+    })
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<String>>> searchUsers(
+            @Parameter(description = "The beginning of the user names", example = "I")
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @Parameter(description = "Maximum number of names", example = "10")
+            @RequestParam(required = false, defaultValue = "10") int limit) {
+
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(userService.searchUsers(prefix, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(null, new ApiError(e)));
+        }
+    }
+
+    @Operation(summary = "Create users in bulk",
+            description = "A user is created for every name of the given JSON array. The array is read as a stream " +
+                    "and written in batches, the outcome is reported per name.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "All names processed. Names which could not be created have an error.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Bulk user creation response",
+                            value = OpenApiExamplesConstants.BULK_CREATE_USERS_RESULT)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Request body is not a JSON array of names.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid request body",
+                            summary = "Invalid request body",
+                            description = "Invalid request body response",
+                            value = OpenApiExamplesConstants.INVALID_BULK_REQUEST_BODY)
+                    )
+            )
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<List<BulkUserResult>>> createUsers(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The names of the users to be created",
+                    content = @Content(array = @ArraySchema(schema = @Schema(type = "string", example = "Fred"))))
+            InputStream names) {
+        return processNames(names, userService::addUsers);
+    }
+
+    @Operation(summary = "Remove users in bulk",
+            description = "The users with the names of the given JSON array are removed. The array is read as a " +
+                    "stream and processed in batches, the outcome is reported per name.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "All names processed. Names which could not be removed have an error.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "Bulk user deletion response",
+                            value = OpenApiExamplesConstants.BULK_REMOVE_USERS_RESULT)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Request body is not a JSON array of names.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid request body",
+                            summary = "Invalid request body",
+                            description = "Invalid request body response",
+                            value = OpenApiExamplesConstants.INVALID_BULK_REQUEST_BODY)
+                    )
+            )
+    })
+    @DeleteMapping("/bulk")
+    public ResponseEntity<ApiResponse<List<BulkUserResult>>> removeUsers(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The names of the users to be removed",
+                    content = @Content(array = @ArraySchema(schema = @Schema(type = "string", example = "Fred"))))
+            InputStream names) {
+        return processNames(names, userService::removeUsers);
+    }
+
+    @Operation(summary = "Export all users",
+            description = "Streams the names of all users in alphabetical order as NDJSON or CSV. The response is gzip compressed when the client accepts it.")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200",
+                    description = "Users streamed successfully.",
+                    content = @Content(mediaType = "application/x-ndjson", examples = @ExampleObject(
+                            name = "Response content",
+                            summary = "Response content",
+                            description = "NDJSON users export",
+                            value = OpenApiExamplesConstants.EXPORT_USERS_NDJSON)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400", description = "Invalid format.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Invalid format",
+                            summary = "Invalid format",
+                            description = "Invalid format response",
+                            value = OpenApiExamplesConstants.INVALID_EXPORT_FORMAT)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "503", description = "Too many exports running.",
+                    content = @Content(examples = @ExampleObject(
+                            name = "Exports busy",
+                            summary = "Exports busy",
+                            description = "Too many exports running response",
+                            value = OpenApiExamplesConstants.EXPORTS_BUSY)
+                    )
+            )
+    })
+    @GetMapping("/export")
+    public ResponseEntity<?> exportUsers(
+            @Parameter(description = "Format of the export: NDJSON or CSV", example = "NDJSON")
+            @RequestParam(required = false, defaultValue = "NDJSON") ExportFormat format,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        return ExportResponses.of("users", format, acceptEncoding, exportService, exportService::exportUsers);
+    }
+
+    /**
+     * Feeds the names of a JSON array to the given bulk operation one by one, without reading the whole body
+     * in memory. Batches processed before a malformed element is reached stay applied.
+     */
+    private ResponseEntity<ApiResponse<List<BulkUserResult>>> processNames(
+            InputStream body, Function<Iterator<String>, List<BulkUserResult>> bulkOperation) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return invalidBulkRequestBody();
+            }
+
+            return ResponseEntity.ok(new ApiResponse<>(bulkOperation.apply(new JsonStringArrayIterator(parser))));
+        } catch (IOException | UncheckedIOException e) {
+            return invalidBulkRequestBody();
+        }
+    }
+
+    private ResponseEntity<ApiResponse<List<BulkUserResult>>> invalidBulkRequestBody() {
+        return ResponseEntity.badRequest().body(new ApiResponse<>(null,
+                new ApiError("InvalidRequestBody", "Request body must be a JSON array of user names.")));
+    }
+
+    /**
+     * Iterates over the elements of a JSON array of strings, reading the next element only when it is asked for.
+     */
+    private static class JsonStringArrayIterator implements Iterator<String> {
+        private final JsonParser parser;
+        private JsonToken current;
+
+        private JsonStringArrayIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (current == null) {
+                try {
+                    current = parser.nextToken();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                if (current != JsonToken.VALUE_STRING && current != JsonToken.VALUE_NULL
+                        && current != JsonToken.END_ARRAY) {
+                    throw new UncheckedIOException(new IOException("Unexpected token " + current));
+                }
+            }
+
+            return current != JsonToken.END_ARRAY;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            current = null;
+            try {
+                return parser.getValueAsString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     @ExceptionHandler(MissingServletRequestParameterException.class)
     private ResponseEntity<ApiResponse<?>> handleMissingRequestParameter(MissingServletRequestParameterException ex) {
         return ResponseEntity.badRequest().body(new ApiResponse<>(null,
                 new ApiError("MissingRequestParameter", ex.getMessage())));
     }
 
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    private ResponseEntity<ApiResponse<?>> handleInvalidRequestParameter(MethodArgumentTypeMismatchException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse<>(null,
+                new ApiError("InvalidRequestParameter", "Invalid value for parameter '" + ex.getName() + "'.")));
+    }
+
     private boolean     nameIsNotValid(String name) {
         return name == null || name.isBlank();
     }
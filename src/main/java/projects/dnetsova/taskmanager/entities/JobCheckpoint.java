@@ -0,0 +1,54 @@
+package projects.dnetsova.taskmanager.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Position of a background job in its keyset ordered scan, so an interrupted run resumes where it stopped.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint {
+    @Id
+    private String name;
+
+    @Column(name = "last_date")
+    private LocalDate lastDate;
+
+    @Column(name = "last_id")
+    private UUID lastId;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public JobCheckpoint() {}
+
+    public JobCheckpoint(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public UUID getLastId() {
+        return lastId;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void moveTo(LocalDate lastDate, UUID lastId, Instant updatedAt) {
+        this.lastDate = lastDate;
+        this.lastId = lastId;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,6 +1,8 @@
 package projects.dnetsova.taskmanager.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import projects.dnetsova.taskmanager.utils.Priority;
 
 import java.time.LocalDate;
@@ -8,10 +10,19 @@ import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        // Finds the tasks due on a day for the deadline alerts and covers their columns
+        @Index(name = "idx_tasks_deadline_priority_id_title", columnList = "deadline, priority, id, title"),
+        // Range scan for due recurrences
+        @Index(name = "idx_tasks_repeat_date_id", columnList = "repeat_date, id")
+})
+// Only used with the second-level cache enabled, see BoundedCacheRegionFactory
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tasks")
 public class Task {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
+    @Column(columnDefinition = "BINARY(16)")
     private UUID id;
 
     @Column(nullable = false)
@@ -32,10 +43,76 @@ public class Task {
     @ManyToMany
     @JoinTable(name = "tasks_users",
             joinColumns = @JoinColumn(name = "task_id", referencedColumnName = "id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"))
+            inverseJoinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
+            // The primary key is (task_id, user_id), this index finds the tasks of a user. The columns the task
+            // feed is sorted by are mapped by TaskAssignment
+            indexes = @Index(name = "idx_tasks_users_user_task", columnList = "user_id, task_id"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "task-assignees")
     private Set<User> assignees;
 
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private Priority priority;
+
+    public Task() {}
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(LocalDate deadline) {
+        this.deadline = deadline;
+    }
+
+    public LocalDate getRepeatDate() {
+        return repeatDate;
+    }
+
+    public void setRepeatDate(LocalDate repeatDate) {
+        this.repeatDate = repeatDate;
+    }
+
+    public Set<User> getAssignees() {
+        return assignees;
+    }
+
+    public void setAssignees(Set<User> assignees) {
+        this.assignees = assignees;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,79 @@
+package projects.dnetsova.taskmanager.entities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Row of the tasks_users join table, which also holds a copy of the deadline and the priority of its task.
+ * With them, a page of a user's task feed is a range of the (user_id, deadline, priority, task_id) index read
+ * in order, rather than all tasks of the user sorted on every page.
+ * <p>
+ * The assignments are written through {@link Task#getAssignees()} or with plain JDBC, which leave the copied
+ * columns to {@link projects.dnetsova.taskmanager.repositories.TaskBulkOperations#refreshFeedKeys}, this
+ * mapping is only read.
+ */
+@Entity
+@Immutable
+@IdClass(TaskAssignment.Key.class)
+@Table(name = "tasks_users", indexes = @Index(name = "idx_tasks_users_user_feed",
+        columnList = "user_id, deadline, priority, task_id"))
+public class TaskAssignment {
+    @Id
+    @Column(name = "task_id", columnDefinition = "BINARY(16)")
+    private UUID taskId;
+
+    @Id
+    @Column(name = "user_id", columnDefinition = "BINARY(16)")
+    private UUID userId;
+
+    // Null until copied from the task, in the same transaction as the assignment is written
+    @Basic
+    private LocalDate deadline;
+
+    @Enumerated(EnumType.STRING)
+    private Priority priority;
+
+    public TaskAssignment() {}
+
+    public UUID getTaskId() {
+        return taskId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public LocalDate getDeadline() {
+        return deadline;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public static class Key implements Serializable {
+        private UUID taskId;
+        private UUID userId;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(taskId, key.taskId) && Objects.equals(userId, key.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(taskId, userId);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package projects.dnetsova.taskmanager.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Stored task count of a priority or an assignee, from which the counters of TaskStatsService are loaded
+ * at startup instead of counting all tasks.
+ */
+@Entity
+@Table(name = "task_count_summary")
+public class TaskCountSummary {
+    // priority:P0 or assignee: followed by the normalized user name
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private String label;
+
+    @Column(name = "task_count", nullable = false)
+    private long taskCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public TaskCountSummary() {}
+
+    public TaskCountSummary(String name, String label, long taskCount, Instant updatedAt) {
+        this.name = name;
+        this.label = label;
+        this.taskCount = taskCount;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getTaskCount() {
+        return taskCount;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,19 @@
+package projects.dnetsova.taskmanager.entities;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates the annotated UUID id with {@link projects.dnetsova.taskmanager.utils.TimeOrderedUuids}, so rows
+ * are inserted in primary key order.
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface TimeOrderedUuid {
+}
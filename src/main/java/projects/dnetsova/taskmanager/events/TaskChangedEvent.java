@@ -0,0 +1,17 @@
+package projects.dnetsova.taskmanager.events;
+
+import projects.dnetsova.taskmanager.models.TaskDetails;
+
+import java.util.UUID;
+
+/**
+ * Published after a task is created, updated or deleted.
+ * @param before the task before the change, null if it was created.
+ * @param after the task after the change, null if it was deleted.
+ */
+public record TaskChangedEvent(TaskDetails before, TaskDetails after) {
+
+    public UUID taskId() {
+        return after != null ? after.id() : before.id();
+    }
+}
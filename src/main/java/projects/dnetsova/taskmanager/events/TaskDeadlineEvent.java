@@ -0,0 +1,14 @@
+package projects.dnetsova.taskmanager.events;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Published when the deadline of a task is reached.
+ * @param latenessMillis how long after the scheduled time the event was fired.
+ */
+public record TaskDeadlineEvent(UUID taskId, LocalDate deadline, Priority priority, long latenessMillis) {
+
+}
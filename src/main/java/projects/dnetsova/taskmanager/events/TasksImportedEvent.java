@@ -0,0 +1,13 @@
+package projects.dnetsova.taskmanager.events;
+
+import projects.dnetsova.taskmanager.models.TaskDetails;
+
+import java.util.List;
+
+/**
+ * Published after a batch of imported tasks is committed, in place of a {@link TaskChangedEvent} per task.
+ * @param tasks the tasks created by the batch.
+ */
+public record TasksImportedEvent(List<TaskDetails> tasks) {
+
+}
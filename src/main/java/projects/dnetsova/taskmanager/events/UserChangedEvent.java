@@ -0,0 +1,10 @@
+package projects.dnetsova.taskmanager.events;
+
+/**
+ * Published after a user is created, renamed or removed.
+ * @param before the name before the change, null if the user was created.
+ * @param after the name after the change, null if the user was removed.
+ */
+public record UserChangedEvent(String before, String after) {
+
+}
@@ -2,6 +2,6 @@ package projects.dnetsova.taskmanager.exceptions;
 
 public class DuplicateUserException extends Exception{
     public DuplicateUserException(String name) {
-        super("User '" + name + "' is taken.");
+        super("User '" + name + "' is taken.", null, false, false);
     }
 }
@@ -0,0 +1,9 @@
+package projects.dnetsova.taskmanager.exceptions;
+
+import java.util.UUID;
+
+public class InvalidTaskException extends Exception {
+    public InvalidTaskException(UUID id) {
+        super("Task '" + id + "' does not exist", null, false, false);
+    }
+}
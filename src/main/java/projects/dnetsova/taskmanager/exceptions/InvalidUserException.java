@@ -2,6 +2,6 @@ package projects.dnetsova.taskmanager.exceptions;
 
 public class InvalidUserException extends Exception {
     public InvalidUserException(String user) {
-        super("User '" + user + "' does not exist");
+        super("User '" + user + "' does not exist", null, false, false);
     }
 }
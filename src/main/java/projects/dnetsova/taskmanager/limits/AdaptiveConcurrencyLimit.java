@@ -0,0 +1,155 @@
+package projects.dnetsova.taskmanager.limits;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A limit on the requests in flight, adapted to their latency with a gradient. Thread safe.
+ * <p>
+ * The latencies are averaged over windows of windowSize requests. A long-term average of the windows is the
+ * baseline latency, when the database is not saturated. After every window, the limit is multiplied by the
+ * gradient baseline * tolerance / window latency, kept between 0.5 and 1, and raised by its square root so
+ * that it keeps probing for more concurrency. A latency up to tolerance times the baseline therefore grows the
+ * limit, a higher one shrinks it in proportion, smoothed with the previous limit. A window with a failed
+ * request (5xx) shrinks the limit by a tenth at once instead.
+ * <p>
+ * A window in which fewer than half of the limit were in flight says nothing of the limit, the limit is left
+ * as is. Under a lasting higher latency, the baseline follows slowly, so the limit recovers.
+ * <p>
+ * A heavier request may take several places at once, its cost. It counts for a single latency sample, of its
+ * latency divided by its cost, so that it does not pass for a slowdown of the database. A request costing more
+ * than the whole limit is let through only when nothing else is in flight.
+ */
+public class AdaptiveConcurrencyLimit {
+    // Windows over which the baseline latency is averaged
+    private static final int BASELINE_WINDOWS = 100;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double baselineNanos;
+    private long windowNanos;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int windowSize, double tolerance) {
+        if (minLimit <= 0 || minLimit > maxLimit) throw new IllegalArgumentException("Invalid limit bounds");
+        if (windowSize <= 0) throw new IllegalArgumentException("Window size must be greater than 0");
+        if (tolerance < 1) throw new IllegalArgumentException("Tolerance must be at least 1");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    /**
+     * Takes a place for a request, to be given back with {@link #release}.
+     * @return false, without taking a place, when the limit is reached.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Takes cost places for a request, to be given back with {@link #release(long, boolean, int)}.
+     * @return false, without taking any place, when they would go over the limit.
+     */
+    public boolean tryAcquire(int cost) {
+        if (cost <= 0) throw new IllegalArgumentException("Cost must be greater than 0");
+
+        while (true) {
+            int current = this.inFlight.get();
+            if (current > 0 && current + cost > this.limit) {
+                this.rejected.increment();
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + cost)) return true;
+        }
+    }
+
+    /**
+     * Gives back the place of a completed request.
+     * @param latencyNanos the time the request took.
+     * @param dropped whether the request failed in a way which suggests overload.
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        release(latencyNanos, dropped, 1);
+    }
+
+    /**
+     * Gives back the cost places of a completed request.
+     * @param latencyNanos the time the request took.
+     * @param dropped whether the request failed in a way which suggests overload.
+     * @param cost the places taken with {@link #tryAcquire(int)}.
+     */
+    public void release(long latencyNanos, boolean dropped, int cost) {
+        int current = this.inFlight.getAndAdd(-cost);
+        sample(latencyNanos / cost, current, dropped);
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlight, boolean dropped) {
+        this.windowNanos += latencyNanos;
+        this.windowMaxInFlight = Math.max(this.windowMaxInFlight, inFlight);
+        this.windowDropped |= dropped;
+        if (++this.windowCount < this.windowSize) return;
+
+        double latency = (double) this.windowNanos / this.windowCount;
+        int maxInFlight = this.windowMaxInFlight;
+        boolean anyDropped = this.windowDropped;
+        this.windowNanos = 0;
+        this.windowCount = 0;
+        this.windowMaxInFlight = 0;
+        this.windowDropped = false;
+
+        update(latency, maxInFlight, anyDropped);
+    }
+
+    private void update(double latencyNanos, int maxInFlight, boolean dropped) {
+        if (this.baselineNanos == 0) {
+            this.baselineNanos = latencyNanos;
+        } else {
+            this.baselineNanos += (latencyNanos - this.baselineNanos) / BASELINE_WINDOWS;
+            // After a slow period, the baseline comes back down faster than it went up
+            if (this.baselineNanos > 2 * latencyNanos) this.baselineNanos *= 0.95;
+        }
+
+        double newLimit;
+        if (dropped) {
+            newLimit = this.estimatedLimit * DROP_BACKOFF;
+        } else if (maxInFlight < this.estimatedLimit / 2) {
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.baselineNanos / latencyNanos));
+            newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+            newLimit = this.estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        }
+
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+}
@@ -0,0 +1,135 @@
+package projects.dnetsova.taskmanager.limits;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ApiResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds the requests over the concurrency limit before they reach a controller, so that when the database
+ * slows down the requests admitted keep a bounded latency and the others fail at once, rather than all of them
+ * waiting on the Tomcat threads and the pool until they time out together.
+ * <p>
+ * Reads (GET, HEAD) and writes have separate {@link AdaptiveConcurrencyLimit}s, so that a burst of one does not
+ * starve the other. A request over the limit gets the rejection status, 503 by default, with a Retry-After
+ * header and a ServerOverloaded error. Only the paths starting with one of the path prefixes are limited, less
+ * the excluded paths, meant for the long-running exports and imports whose latency says nothing of the load.
+ * The paths given a cost, meant for the requests which write many rows at once, take that many places of
+ * their limit rather than one.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    public static final String READS = "reads";
+    public static final String WRITES = "writes";
+
+    private final AdaptiveConcurrencyLimit reads;
+    private final AdaptiveConcurrencyLimit writes;
+    private final List<String> pathPrefixes;
+    private final Set<String> excludedPaths;
+    private final Map<String, Integer> pathCosts;
+    private final int rejectionStatus;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit reads, AdaptiveConcurrencyLimit writes,
+                                  List<String> pathPrefixes, Set<String> excludedPaths,
+                                  Map<String, Integer> pathCosts, int rejectionStatus, ObjectMapper objectMapper) {
+        this.reads = reads;
+        this.writes = writes;
+        this.pathPrefixes = List.copyOf(pathPrefixes);
+        this.excludedPaths = Set.copyOf(excludedPaths);
+        this.pathCosts = Map.copyOf(pathCosts);
+        this.rejectionStatus = rejectionStatus;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        if (this.excludedPaths.contains(path)) return true;
+
+        for (String prefix : this.pathPrefixes) {
+            if (path.startsWith(prefix)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = request.getMethod().equals("GET") || request.getMethod().equals("HEAD");
+        AdaptiveConcurrencyLimit limit = read ? this.reads : this.writes;
+        int cost = this.pathCosts.getOrDefault(path(request), 1);
+
+        if (!limit.tryAcquire(cost)) {
+            reject(response, read ? READS : WRITES);
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(limit, cost, start, released, true);
+            throw e;
+        }
+
+        if (!request.isAsyncStarted()) {
+            release(limit, cost, start, released, response.getStatus() >= 500);
+            return;
+        }
+
+        // Held until the asynchronous request completes
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                release(limit, cost, start, released, response.getStatus() >= 500);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                release(limit, cost, start, released, true);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                release(limit, cost, start, released, true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void release(AdaptiveConcurrencyLimit limit, int cost, long start, AtomicBoolean released,
+                                boolean dropped) {
+        if (released.compareAndSet(false, true)) limit.release(System.nanoTime() - start, dropped, cost);
+    }
+
+    private void reject(HttpServletResponse response, String budget) throws IOException {
+        response.setStatus(this.rejectionStatus);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        this.objectMapper.writeValue(response.getOutputStream(), new ApiResponse<>(null,
+                new ApiError("ServerOverloaded", "Too many concurrent " + budget + ", retry later.")));
+    }
+}
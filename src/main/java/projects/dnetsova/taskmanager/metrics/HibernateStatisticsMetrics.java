@@ -0,0 +1,102 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.DomainDataRegion;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import projects.dnetsova.taskmanager.cache.BoundedCacheRegionFactory;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes Hibernate's statistics, read when the metrics are scraped. Hibernate only collects them with
+ * hibernate.generate_statistics enabled, nothing is registered otherwise. The hits and misses of the
+ * second-level and query caches give their hit rate, and the size of the regions of the
+ * {@link BoundedCacheRegionFactory} shows whether the entries are evicted before being read again.
+ */
+public class HibernateStatisticsMetrics {
+
+    public HibernateStatisticsMetrics(MetricsRegistry registry, EntityManagerFactory entityManagerFactory) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) return;
+
+        counter(registry, statistics, "hibernate_sessions_opened_total", "Sessions opened.",
+                Statistics::getSessionOpenCount);
+        counter(registry, statistics, "hibernate_transactions_total", "Transactions completed.",
+                Statistics::getTransactionCount);
+        counter(registry, statistics, "hibernate_flushes_total", "Session flushes.",
+                Statistics::getFlushCount);
+        counter(registry, statistics, "hibernate_statements_prepared_total", "JDBC statements prepared.",
+                Statistics::getPrepareStatementCount);
+        counter(registry, statistics, "hibernate_queries_executed_total", "HQL and native queries executed.",
+                Statistics::getQueryExecutionCount);
+        counter(registry, statistics, "hibernate_entities_loaded_total", "Entities loaded.",
+                Statistics::getEntityLoadCount);
+        counter(registry, statistics, "hibernate_entities_fetched_total",
+                "Entities fetched by a separate statement, a high count hints at N+1 selects.",
+                Statistics::getEntityFetchCount);
+        counter(registry, statistics, "hibernate_entities_inserted_total", "Entities inserted.",
+                Statistics::getEntityInsertCount);
+        counter(registry, statistics, "hibernate_entities_updated_total", "Entities updated.",
+                Statistics::getEntityUpdateCount);
+        counter(registry, statistics, "hibernate_entities_deleted_total", "Entities deleted.",
+                Statistics::getEntityDeleteCount);
+        counter(registry, statistics, "hibernate_collections_fetched_total",
+                "Collections fetched by a separate statement.", Statistics::getCollectionFetchCount);
+        counter(registry, statistics, "hibernate_optimistic_failures_total", "Optimistic lock failures.",
+                Statistics::getOptimisticFailureCount);
+
+        registry.gauge("hibernate_query_executions_max_seconds", "Duration of the slowest query executed.",
+                () -> statistics.getQueryExecutionMaxTime() / 1000.0);
+
+        if (sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            registerCacheMetrics(registry, statistics, sessionFactory.getCache());
+        }
+    }
+
+    private static void registerCacheMetrics(MetricsRegistry registry, Statistics statistics, CacheImplementor cache) {
+        for (String region : cache.getCacheRegionNames()) {
+            if (!(cache.getRegion(region) instanceof DomainDataRegion)) continue;
+
+            registry.functionCounter("hibernate_second_level_cache_requests_total",
+                    "Second-level cache lookups, by region and result.",
+                    () -> statistics.getDomainDataRegionStatistics(region).getHitCount(),
+                    "region", region, "result", "hit");
+            registry.functionCounter("hibernate_second_level_cache_requests_total",
+                    "Second-level cache lookups, by region and result.",
+                    () -> statistics.getDomainDataRegionStatistics(region).getMissCount(),
+                    "region", region, "result", "miss");
+            registry.functionCounter("hibernate_second_level_cache_puts_total", "Second-level cache puts.",
+                    () -> statistics.getDomainDataRegionStatistics(region).getPutCount(), "region", region);
+        }
+
+        if (cache.getSessionFactory().getSessionFactoryOptions().isQueryCacheEnabled()) {
+            registry.functionCounter("hibernate_query_cache_requests_total", "Query cache lookups, by result.",
+                    statistics::getQueryCacheHitCount, "result", "hit");
+            registry.functionCounter("hibernate_query_cache_requests_total", "Query cache lookups, by result.",
+                    statistics::getQueryCacheMissCount, "result", "miss");
+            counter(registry, statistics, "hibernate_query_cache_puts_total", "Query cache puts.",
+                    Statistics::getQueryCachePutCount);
+        }
+
+        if (cache.getRegionFactory() instanceof BoundedCacheRegionFactory regionFactory) {
+            regionFactory.getStorages().forEach((region, storage) -> {
+                registry.gauge("hibernate_cache_region_entries", "Entries held by the cache region.",
+                        storage::size, "region", region);
+                registry.functionCounter("hibernate_cache_region_evictions_total",
+                        "Entries dropped by the cache region, to stay within its size or when expired.",
+                        storage::evictionCount, "region", region, "cause", "size");
+                registry.functionCounter("hibernate_cache_region_evictions_total",
+                        "Entries dropped by the cache region, to stay within its size or when expired.",
+                        storage::expirationCount, "region", region, "cause", "expired");
+            });
+        }
+    }
+
+    private static void counter(MetricsRegistry registry, Statistics statistics, String name, String help,
+                                ToLongFunction<Statistics> value) {
+        registry.functionCounter(name, help, () -> value.applyAsLong(statistics));
+    }
+}
@@ -0,0 +1,65 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports the connection pool: how long the callers waited for a connection, how long they kept it, the
+ * timeouts, and the number of connections in each state.
+ */
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+    private final MetricsRegistry registry;
+
+    public HikariMetricsTrackerFactory(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.registry.gauge("hikaricp_connections_active", "Connections in use.",
+                poolStats::getActiveConnections, "pool", poolName);
+        this.registry.gauge("hikaricp_connections_idle", "Idle connections.",
+                poolStats::getIdleConnections, "pool", poolName);
+        this.registry.gauge("hikaricp_connections_pending", "Threads waiting for a connection.",
+                poolStats::getPendingThreads, "pool", poolName);
+        this.registry.gauge("hikaricp_connections", "Connections in the pool.",
+                poolStats::getTotalConnections, "pool", poolName);
+        this.registry.gauge("hikaricp_connections_max", "Maximum size of the pool.",
+                poolStats::getMaxConnections, "pool", poolName);
+
+        LatencyHistogram acquire = this.registry.timer("hikaricp_connections_acquire_seconds",
+                "Time waited for a connection.", "pool", poolName);
+        LatencyHistogram usage = this.registry.timer("hikaricp_connections_usage_seconds",
+                "Time a connection was held before it was returned.", "pool", poolName);
+        LatencyHistogram creation = this.registry.timer("hikaricp_connections_creation_seconds",
+                "Time taken to open a connection.", "pool", poolName);
+        LongAdder timeouts = this.registry.counter("hikaricp_connections_timeout_total",
+                "Requests for a connection which timed out.", "pool", poolName);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.record(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
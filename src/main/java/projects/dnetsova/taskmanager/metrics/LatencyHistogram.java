@@ -0,0 +1,78 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets. Recording a value is a binary search over the bucket bounds and two
+ * uncontended additions, so it costs tens of nanoseconds and never allocates. The counts of the buckets are
+ * kept apart and made cumulative when read, as the Prometheus histogram expects.
+ * <p>
+ * Thread safe. A read running concurrently with recordings may see a count and a sum that differ by the
+ * recordings in flight.
+ */
+public class LatencyHistogram {
+    /**
+     * Bucket upper bounds in seconds, from half a millisecond up to half a minute.
+     */
+    public static final double[] DEFAULT_BOUNDS_SECONDS =
+            {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private final long[] boundsNanos;
+    private final LongAdder[] counts;
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS_SECONDS);
+    }
+
+    /**
+     * @param boundsSeconds the ascending upper bounds of the buckets. Values above the last bound are
+     * counted in an extra, unbounded bucket.
+     */
+    public LatencyHistogram(double[] boundsSeconds) {
+        this.boundsNanos = new long[boundsSeconds.length];
+        for (int i = 0; i < boundsSeconds.length; i++) {
+            this.boundsNanos[i] = Math.round(boundsSeconds[i] * 1e9);
+        }
+
+        this.counts = new LongAdder[boundsSeconds.length + 1];
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+
+        int bucket = Arrays.binarySearch(this.boundsNanos, nanos);
+        // A value equal to a bound belongs to that bound's bucket, the insertion point otherwise
+        this.counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        this.sumNanos.add(nanos);
+    }
+
+    public double[] boundsSeconds() {
+        double[] bounds = new double[this.boundsNanos.length];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = this.boundsNanos[i] / 1e9;
+        }
+        return bounds;
+    }
+
+    /**
+     * @return for every bound, followed by the unbounded bucket, the number of values up to it.
+     */
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[this.counts.length];
+        long total = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            total += this.counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    public double sumSeconds() {
+        return this.sumNanos.sum() / 1e9;
+    }
+}
@@ -0,0 +1,156 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Holds the application's meters and writes them in the Prometheus text exposition format.
+ * <p>
+ * A meter is identified by its family name and its labels, given as alternating names and values. Asking for
+ * a meter which exists returns it, so callers on hot paths should keep the meter rather than look it up on
+ * every recording. Gauges and function counters are read when the meters are written, which is where the
+ * values owned by other libraries (connection pool, Hibernate) are taken from. Thread safe.
+ */
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public LatencyHistogram timer(String name, String help, String... labels) {
+        return family(name, help, Type.HISTOGRAM).meter(labels, key -> new LatencyHistogram());
+    }
+
+    /**
+     * A timer with its own bucket bounds, for durations far from the request latencies.
+     */
+    public LatencyHistogram timer(String name, String help, double[] boundsSeconds, String... labels) {
+        return family(name, help, Type.HISTOGRAM).meter(labels, key -> new LatencyHistogram(boundsSeconds));
+    }
+
+    public LongAdder counter(String name, String help, String... labels) {
+        return family(name, help, Type.COUNTER).meter(labels, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a counter whose value is kept elsewhere. Replaces the previous supplier with the same labels.
+     */
+    public void functionCounter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).meters.put(List.of(labels), value);
+    }
+
+    /**
+     * Registers a gauge read from the supplier. Replaces the previous supplier with the same labels.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).meters.put(List.of(labels), value);
+    }
+
+    public void writePrometheus(Writer writer) throws IOException {
+        for (Family family : this.families.values()) {
+            writer.write("# HELP " + family.name + " " + family.help + "\n");
+            writer.write("# TYPE " + family.name + " " + family.type.name().toLowerCase() + "\n");
+
+            for (Map.Entry<List<String>, Object> entry : family.meters.entrySet()) {
+                String labels = formatLabels(entry.getKey());
+
+                if (entry.getValue() instanceof LatencyHistogram histogram) {
+                    writeHistogram(writer, family.name, labels, histogram);
+                } else if (entry.getValue() instanceof LongAdder counter) {
+                    writeSample(writer, family.name, labels, formatValue(counter.sum()));
+                } else {
+                    writeSample(writer, family.name, labels,
+                            formatValue(((DoubleSupplier) entry.getValue()).getAsDouble()));
+                }
+            }
+        }
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = this.families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static void writeHistogram(Writer writer, String name, String labels, LatencyHistogram histogram)
+            throws IOException {
+        double[] bounds = histogram.boundsSeconds();
+        long[] counts = histogram.cumulativeCounts();
+        String separator = labels.isEmpty() ? "" : labels + ",";
+
+        for (int i = 0; i < bounds.length; i++) {
+            String le = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+            writer.write(name + "_bucket{" + separator + "le=\"" + le + "\"} " + counts[i] + "\n");
+        }
+        writer.write(name + "_bucket{" + separator + "le=\"+Inf\"} " + counts[bounds.length] + "\n");
+        writeSample(writer, name + "_sum", labels, formatValue(histogram.sumSeconds()));
+        writeSample(writer, name + "_count", labels, Long.toString(counts[bounds.length]));
+    }
+
+    private static void writeSample(Writer writer, String name, String labels, String value) throws IOException {
+        writer.write(labels.isEmpty() ? name : name + "{" + labels + "}");
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String formatLabels(List<String> labels) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i + 1 < labels.size(); i += 2) {
+            if (i > 0) result.append(',');
+            result.append(labels.get(i)).append("=\"");
+
+            String value = labels.get(i + 1);
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                switch (ch) {
+                    case '\\' -> result.append("\\\\");
+                    case '"' -> result.append("\\\"");
+                    case '\n' -> result.append("\\n");
+                    default -> result.append(ch);
+                }
+            }
+            result.append('"');
+        }
+        return result.toString();
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final ConcurrentMap<List<String>, Object> meters = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T meter(String[] labels, Function<List<String>, T> factory) {
+            return (T) this.meters.computeIfAbsent(List.of(labels), factory);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the repository method calls, the derived queries as well as the custom bulk operations, labelled with
+ * the repository, the method and the outcome state. Methods returning a stream are timed until the stream is
+ * returned, the rows read from it afterwards are not included.
+ */
+public class RepositoryMetricsListener implements RepositoryMethodInvocationListener {
+    private static final String TIMER = "repository_method_seconds";
+    private static final String TIMER_HELP = "Duration of the repository method calls.";
+
+    private final MetricsRegistry registry;
+    private final Map<Method, LatencyHistogram> successTimers = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsListener(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        long nanos = invocation.getDuration(TimeUnit.NANOSECONDS);
+        RepositoryMethodInvocationResult.State state = invocation.getResult() != null
+                ? invocation.getResult().getState()
+                : RepositoryMethodInvocationResult.State.SUCCESS;
+
+        if (state == RepositoryMethodInvocationResult.State.SUCCESS) {
+            this.successTimers.computeIfAbsent(invocation.getMethod(), method -> timer(invocation, state))
+                    .record(nanos);
+        } else {
+            timer(invocation, state).record(nanos);
+        }
+    }
+
+    private LatencyHistogram timer(RepositoryMethodInvocation invocation,
+                                   RepositoryMethodInvocationResult.State state) {
+        return this.registry.timer(TIMER, TIMER_HELP,
+                "repository", invocation.getRepositoryInterface().getSimpleName(),
+                "method", invocation.getMethod().getName(),
+                "state", state.name());
+    }
+}
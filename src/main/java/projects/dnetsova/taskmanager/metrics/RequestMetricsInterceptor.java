@@ -0,0 +1,48 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times every request handled by a controller, labelled with the method, the mapped path pattern and the
+ * response status. The pattern is used rather than the path so that path variables do not create a meter
+ * per id. Asynchronous requests such as the streamed exports are timed until their response completes.
+ * The error page rendered after an exception is part of the failed request and is not timed on its own.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry registry;
+
+    public RequestMetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Kept across the dispatches of an asynchronous request
+        if (request.getDispatcherType() != DispatcherType.ERROR && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) return;
+        request.removeAttribute(START_ATTRIBUTE);
+
+        // The container turns an exception escaping the handler into a 500 after this point
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        this.registry.timer("http_server_requests_seconds", "Duration of the HTTP requests.",
+                "method", request.getMethod(),
+                "uri", pattern != null ? pattern.toString() : "UNKNOWN",
+                "status", Integer.toString(status))
+                .record(System.nanoTime() - start);
+    }
+}
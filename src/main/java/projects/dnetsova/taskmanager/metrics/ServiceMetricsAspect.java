@@ -0,0 +1,55 @@
+package projects.dnetsova.taskmanager.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the public methods of the services, labelled with the class, the method and the exception thrown,
+ * "none" when the call succeeded. Exceptions are also counted on their own, which is where the rejected
+ * users (DuplicateUserException, InvalidUserException) and tasks show up.
+ */
+@Aspect
+public class ServiceMetricsAspect {
+    private static final String TIMER = "service_method_seconds";
+    private static final String TIMER_HELP = "Duration of the service method calls.";
+
+    private final MetricsRegistry registry;
+    // The successful outcome is by far the most frequent, its meter is kept so the call does not look it up
+    private final Map<Method, LatencyHistogram> successTimers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("within(@org.springframework.stereotype.Service *) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+
+        try {
+            Object result = joinPoint.proceed();
+            this.successTimers.computeIfAbsent(method, key -> this.registry.timer(TIMER, TIMER_HELP,
+                            "class", key.getDeclaringClass().getSimpleName(), "method", key.getName(),
+                            "exception", "none"))
+                    .record(System.nanoTime() - start);
+            return result;
+        } catch (Throwable e) {
+            String className = method.getDeclaringClass().getSimpleName();
+            String exception = e.getClass().getSimpleName();
+
+            this.registry.timer(TIMER, TIMER_HELP,
+                            "class", className, "method", method.getName(), "exception", exception)
+                    .record(System.nanoTime() - start);
+            this.registry.counter("service_exceptions_total", "Exceptions thrown by the service methods.",
+                            "class", className, "method", method.getName(), "exception", exception)
+                    .increment();
+            throw e;
+        }
+    }
+}
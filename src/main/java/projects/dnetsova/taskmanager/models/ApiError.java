@@ -1,9 +1,16 @@
 package projects.dnetsova.taskmanager.models;
 
 public record ApiError(String name, String description) {
+    // The "Exception" part is removed in order to make it consistent with the cases where we do not use exception to
+    // create the ApiError. The name is derived once per exception class rather than on every error.
+    private static final ClassValue<String> NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName().replace("Exception", "");
+        }
+    };
+
     public ApiError(Exception e) {
-        // The "Exception" part is removed in order to make it consistent with the cases where we do not use exception to
-        // create the ApiError
-        this(e.getClass().getSimpleName().replace("Exception", ""), e.getMessage());
+        this(NAMES.get(e.getClass()), e.getMessage());
     }
 }
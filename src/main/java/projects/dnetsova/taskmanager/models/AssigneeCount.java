@@ -0,0 +1,8 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Number of tasks assigned to a user.
+ */
+public record AssigneeCount(String name, Long count) {
+
+}
@@ -0,0 +1,15 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Every one of the users paired with every one of the tasks, so that a team assigned to many tasks takes
+ * a single group. A single (task, user) pair is a group of one task and one user.
+ * @param taskIds the ids of the tasks.
+ * @param users the names of the users.
+ */
+public record AssignmentGroup(Set<UUID> taskIds,
+                              Set<String> users) {
+
+}
@@ -0,0 +1,13 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Outcome of a change of assignments. Pairs which were assigned, respectively unassigned, already are not counted.
+ * @param assigned the number of (task, user) pairs which were assigned.
+ * @param unassigned the number of (task, user) pairs which were unassigned.
+ * @param tasksChanged the number of tasks whose assignees changed.
+ */
+public record AssignmentReport(int assigned,
+                               int unassigned,
+                               int tasksChanged) {
+
+}
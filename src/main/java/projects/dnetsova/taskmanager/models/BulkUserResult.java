@@ -0,0 +1,13 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Outcome of a single name of a bulk user operation.
+ * @param name the user name as it was sent.
+ * @param error the reason the operation failed for this name, null when it succeeded.
+ */
+public record BulkUserResult(String name, ApiError error) {
+
+    public static BulkUserResult success(String name) {
+        return new BulkUserResult(name, null);
+    }
+}
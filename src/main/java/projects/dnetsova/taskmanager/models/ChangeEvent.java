@@ -0,0 +1,11 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Entry of the change feed, sent as a Server-Sent Event.
+ * @param id the id a reconnecting client passes back as Last-Event-ID.
+ * @param type the kind of change, for instance user-renamed or task-updated.
+ * @param data the changed user or task as JSON.
+ */
+public record ChangeEvent(String id, String type, String data) {
+
+}
@@ -0,0 +1,16 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.List;
+
+/**
+ * Page of a keyset (seek) paginated listing.
+ * @param elements the elements of the page.
+ * @param nextCursor opaque token to be passed back to retrieve the next page, null when this is the last page.
+ * @param totalElementsCount total number of elements, null when it was not requested. The value may be served
+ *                           from a cache and therefore be slightly out of date.
+ */
+public record CursorPage<T>(List<T> elements,
+                            String nextCursor,
+                            Long totalElementsCount) {
+
+}
@@ -0,0 +1,21 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Progress of a running task import, or the outcome of a finished one.
+ * @param errors the rows which were not stored. At most a configured number of errors is kept,
+ *               errorsTruncated tells whether there were more.
+ */
+public record ImportReport(UUID id,
+                           boolean finished,
+                           long rowsRead,
+                           long tasksImported,
+                           long rowsFailed,
+                           long elapsedMillis,
+                           double rowsPerSecond,
+                           List<ImportRowError> errors,
+                           boolean errorsTruncated) {
+
+}
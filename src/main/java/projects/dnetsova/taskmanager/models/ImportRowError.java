@@ -0,0 +1,9 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Reason a row of an import was not stored.
+ * @param row the 1-based number of the record in the imported file, not counting a CSV header.
+ */
+public record ImportRowError(long row, ApiError error) {
+
+}
@@ -0,0 +1,11 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Task to be inserted with plain JDBC, with its id generated and its assignees resolved to user ids.
+ */
+public record NewTask(UUID id, TaskRequest attributes, Collection<UUID> assigneeIds) {
+
+}
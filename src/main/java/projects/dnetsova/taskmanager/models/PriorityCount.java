@@ -0,0 +1,10 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+/**
+ * Number of tasks of a priority.
+ */
+public record PriorityCount(Priority priority, Long count) {
+
+}
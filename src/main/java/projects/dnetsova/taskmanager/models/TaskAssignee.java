@@ -0,0 +1,10 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.UUID;
+
+/**
+ * Projection of a row of the tasks_users join table, with the user name resolved.
+ */
+public record TaskAssignee(UUID taskId, String name) {
+
+}
@@ -0,0 +1,13 @@
+package projects.dnetsova.taskmanager.models;
+
+import java.util.List;
+
+/**
+ * Assignments of many users to many tasks, changed together.
+ * @param assign the (task, user) pairs to be assigned.
+ * @param unassign the (task, user) pairs to be unassigned.
+ */
+public record TaskAssignments(List<AssignmentGroup> assign,
+                              List<AssignmentGroup> unassign) {
+
+}
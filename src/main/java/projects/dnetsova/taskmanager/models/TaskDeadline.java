@@ -0,0 +1,13 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projection of the columns needed to schedule deadline alerts.
+ */
+public record TaskDeadline(UUID id, LocalDate deadline, Priority priority) {
+
+}
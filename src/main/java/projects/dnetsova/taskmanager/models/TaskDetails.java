@@ -0,0 +1,35 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A task as returned by the API.
+ * @param assignees the names of the users who can complete the task, in name order.
+ */
+public record TaskDetails(UUID id,
+                          String title,
+                          String description,
+                          LocalDate startDate,
+                          LocalDate deadline,
+                          LocalDate repeatDate,
+                          Priority priority,
+                          List<String> assignees) {
+
+    public static TaskDetails of(Task task) {
+        List<String> assignees = task.getAssignees().stream().map(User::getName).sorted().toList();
+
+        return new TaskDetails(task.getId(), task.getTitle(), task.getDescription(), task.getStartDate(),
+                task.getDeadline(), task.getRepeatDate(), task.getPriority(), assignees);
+    }
+
+    public TaskDetails(TaskSummary summary, List<String> assignees) {
+        this(summary.id(), summary.title(), summary.description(), summary.startDate(), summary.deadline(),
+                summary.repeatDate(), summary.priority(), assignees);
+    }
+}
@@ -0,0 +1,18 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Partial change of a task. Null attributes are left unchanged.
+ * @param addAssignees the names of the users to be assigned to the task.
+ * @param removeAssignees the names of the users to be unassigned from the task.
+ */
+public record TaskEdit(Priority priority,
+                       LocalDate deadline,
+                       Set<String> addAssignees,
+                       Set<String> removeAssignees) {
+
+}
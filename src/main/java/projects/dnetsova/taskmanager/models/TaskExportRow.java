@@ -0,0 +1,58 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Row of the task export query: the task columns joined with the name of one assignee.
+ * A task has one row per assignee, or a single row with a null assignee when it has none.
+ */
+public record TaskExportRow(UUID id,
+                            String title,
+                            String description,
+                            LocalDate startDate,
+                            LocalDate deadline,
+                            LocalDate repeatDate,
+                            Priority priority,
+                            String assignee) {
+
+    /**
+     * Merges the adjacent rows of each task into one task, with its assignees in name order.
+     * @param rows the rows ordered by task id.
+     */
+    public static Iterator<TaskDetails> groupByTask(Iterator<TaskExportRow> rows) {
+        return new Iterator<>() {
+            private TaskExportRow pending = rows.hasNext() ? rows.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return this.pending != null;
+            }
+
+            @Override
+            public TaskDetails next() {
+                if (this.pending == null) throw new NoSuchElementException();
+
+                TaskExportRow task = this.pending;
+                List<String> assignees = new ArrayList<>();
+                if (task.assignee() != null) assignees.add(task.assignee());
+
+                this.pending = null;
+                while (rows.hasNext()) {
+                    TaskExportRow row = rows.next();
+                    if (!row.id().equals(task.id())) {
+                        this.pending = row;
+                        break;
+                    }
+                    if (row.assignee() != null) assignees.add(row.assignee());
+                }
+
+                assignees.sort(null);
+                return new TaskDetails(task.id(), task.title(), task.description(), task.startDate(),
+                        task.deadline(), task.repeatDate(), task.priority(), assignees);
+            }
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Entry of a user's task feed. The deadline and the priority are read from the assignment index the feed is
+ * sorted by, only the title from the task.
+ */
+public record TaskFeedEntry(UUID id,
+                            String title,
+                            LocalDate deadline,
+                            Priority priority) {
+
+}
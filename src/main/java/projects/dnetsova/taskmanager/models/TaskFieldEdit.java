@@ -0,0 +1,46 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Partial change of a task with its assignees resolved, as written with plain JDBC. Successive edits of a
+ * task are merged into one.
+ * @param priority the new priority, null if unchanged.
+ * @param deadline the new deadline, null if unchanged.
+ * @param addedAssignees the names of the users to be assigned, keyed by user id.
+ * @param removedAssignees the names of the users to be unassigned, keyed by user id.
+ */
+public record TaskFieldEdit(UUID taskId,
+                            Priority priority,
+                            LocalDate deadline,
+                            Map<UUID, String> addedAssignees,
+                            Map<UUID, String> removedAssignees) {
+
+    /**
+     * @return this edit followed by the given later edit of the same task.
+     */
+    public TaskFieldEdit then(TaskFieldEdit next) {
+        Map<UUID, String> added = new LinkedHashMap<>(this.addedAssignees);
+        Map<UUID, String> removed = new LinkedHashMap<>(this.removedAssignees);
+
+        // The last toggle of a user wins
+        next.addedAssignees.forEach((userId, name) -> {
+            removed.remove(userId);
+            added.put(userId, name);
+        });
+        next.removedAssignees.forEach((userId, name) -> {
+            added.remove(userId);
+            removed.put(userId, name);
+        });
+
+        return new TaskFieldEdit(this.taskId,
+                next.priority != null ? next.priority : this.priority,
+                next.deadline != null ? next.deadline : this.deadline,
+                added, removed);
+    }
+}
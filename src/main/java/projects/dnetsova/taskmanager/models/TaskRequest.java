@@ -0,0 +1,20 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Task attributes sent to create or replace a task.
+ * @param assignees the names of the users who can complete the task. If empty anyone can complete it.
+ */
+public record TaskRequest(String title,
+                          String description,
+                          LocalDate startDate,
+                          LocalDate deadline,
+                          LocalDate repeatDate,
+                          Priority priority,
+                          Set<String> assignees) {
+
+}
@@ -0,0 +1,8 @@
+package projects.dnetsova.taskmanager.models;
+
+/**
+ * Task matching a search, with the relevance score it was ranked by.
+ */
+public record TaskSearchHit(TaskDetails task, float score) {
+
+}
@@ -0,0 +1,15 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.util.Map;
+
+/**
+ * Task counts of the dashboard.
+ * @param total the number of tasks.
+ * @param byPriority the number of tasks of every priority.
+ * @param byAssignee the number of tasks assigned to every user with tasks, in name order.
+ */
+public record TaskStats(long total, Map<Priority, Long> byPriority, Map<String, Long> byAssignee) {
+
+}
@@ -0,0 +1,19 @@
+package projects.dnetsova.taskmanager.models;
+
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projection of the task columns, read without loading the Task entity and its assignees.
+ */
+public record TaskSummary(UUID id,
+                          String title,
+                          String description,
+                          LocalDate startDate,
+                          LocalDate deadline,
+                          LocalDate repeatDate,
+                          Priority priority) {
+
+}
@@ -0,0 +1,9 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import projects.dnetsova.taskmanager.entities.JobCheckpoint;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
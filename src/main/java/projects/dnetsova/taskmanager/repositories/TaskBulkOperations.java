@@ -0,0 +1,39 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import projects.dnetsova.taskmanager.models.NewTask;
+import projects.dnetsova.taskmanager.models.TaskFieldEdit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Task writes executed with plain JDBC, on tables which are not mapped as entities.
+ */
+public interface TaskBulkOperations {
+
+    /**
+     * Removes all assignees of the task from the tasks_users join table.
+     * @return the number of removed assignments.
+     */
+    int deleteAssignments(UUID taskId);
+
+    /**
+     * Inserts the tasks and their assignments with multi-row inserts, in the current transaction if any.
+     */
+    void insertTasks(List<NewTask> tasks);
+
+    /**
+     * Applies the edits of many tasks with a few multi-row statements, in a transaction. At most one edit per
+     * task. Edits of tasks or users which no longer exist are skipped.
+     */
+    void applyEdits(Collection<TaskFieldEdit> edits);
+
+    /**
+     * Copies the deadline and the priority of the tasks to their rows of the tasks_users join table, which the
+     * task feed is sorted by. Needed after the tasks or their assignees were written through the entities,
+     * the statements of this interface keep the copies up to date on their own. Pending entity changes must
+     * have been flushed.
+     */
+    void refreshFeedKeys(Collection<UUID> taskIds);
+}
@@ -0,0 +1,185 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import projects.dnetsova.taskmanager.cache.CacheInvalidator;
+import projects.dnetsova.taskmanager.models.NewTask;
+import projects.dnetsova.taskmanager.models.TaskFieldEdit;
+import projects.dnetsova.taskmanager.models.TaskRequest;
+import projects.dnetsova.taskmanager.utils.UuidBytes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link TaskBulkOperations}, picked up by Spring Data as a fragment of {@link TaskRepository}.
+ */
+public class TaskBulkOperationsImpl implements TaskBulkOperations {
+    // Keeps the number of placeholders of a statement well below the limit of the protocol
+    private static final int ROWS_PER_STATEMENT = 1000;
+    // Copies the columns the task feed is sorted by from the tasks to their assignments
+    private static final String FEED_KEYS_UPDATE = "UPDATE tasks_users SET " +
+            "deadline = (SELECT t.deadline FROM tasks t WHERE t.id = tasks_users.task_id), " +
+            "priority = (SELECT t.priority FROM tasks t WHERE t.id = tasks_users.task_id) ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidator cacheInvalidator;
+
+    @Autowired
+    public TaskBulkOperationsImpl(JdbcTemplate jdbcTemplate, CacheInvalidator cacheInvalidator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    @Override
+    public int deleteAssignments(UUID taskId) {
+        int deletedRows = this.jdbcTemplate.update("DELETE FROM tasks_users WHERE task_id = ?",
+                (Object) UuidBytes.toBytes(taskId));
+
+        if (deletedRows > 0) this.cacheInvalidator.rowsChanged("tasks_users");
+        return deletedRows;
+    }
+
+    @Override
+    public void insertTasks(List<NewTask> tasks) {
+        for (int from = 0; from < tasks.size(); from += ROWS_PER_STATEMENT) {
+            List<NewTask> chunk = tasks.subList(from, Math.min(from + ROWS_PER_STATEMENT, tasks.size()));
+            List<Object> taskArguments = new ArrayList<>(chunk.size() * 7);
+            List<Object> assignmentArguments = new ArrayList<>();
+
+            for (NewTask task : chunk) {
+                byte[] id = UuidBytes.toBytes(task.id());
+                TaskRequest attributes = task.attributes();
+                Collections.addAll(taskArguments, id, attributes.title(), attributes.description(),
+                        attributes.startDate(), attributes.deadline(), attributes.repeatDate(),
+                        attributes.priority().name());
+
+                for (UUID userId : task.assigneeIds()) {
+                    Collections.addAll(assignmentArguments, id, UuidBytes.toBytes(userId), attributes.deadline(),
+                            attributes.priority().name());
+                }
+            }
+
+            this.jdbcTemplate.update("INSERT INTO tasks (id, title, description, start_date, deadline, repeat_date, " +
+                    "priority) VALUES " + placeholders(chunk.size(), "(?, ?, ?, ?, ?, ?, ?)"), taskArguments.toArray());
+
+            // Inserted in chunks of their own, a chunk of tasks may have any number of assignees
+            for (int i = 0; i < assignmentArguments.size(); i += 4 * ROWS_PER_STATEMENT) {
+                List<Object> arguments = assignmentArguments.subList(i,
+                        Math.min(i + 4 * ROWS_PER_STATEMENT, assignmentArguments.size()));
+                this.jdbcTemplate.update("INSERT INTO tasks_users (task_id, user_id, deadline, priority) VALUES " +
+                        placeholders(arguments.size() / 4, "(?, ?, ?, ?)"), arguments.toArray());
+            }
+        }
+
+        // New tasks have nothing cached yet, only the query results may miss them
+        if (!tasks.isEmpty()) this.cacheInvalidator.rowsInserted("tasks", "tasks_users");
+    }
+
+    @Override
+    @Transactional
+    public void applyEdits(Collection<TaskFieldEdit> edits) {
+        List<TaskFieldEdit> fieldEdits = new ArrayList<>();
+        List<Object> removedAssignments = new ArrayList<>();
+        List<Object> addedAssignments = new ArrayList<>();
+        List<UUID> feedChanges = new ArrayList<>();
+
+        for (TaskFieldEdit edit : edits) {
+            if (edit.priority() != null || edit.deadline() != null) fieldEdits.add(edit);
+            if (edit.priority() != null || edit.deadline() != null || !edit.addedAssignees().isEmpty()) {
+                feedChanges.add(edit.taskId());
+            }
+
+            byte[] taskId = UuidBytes.toBytes(edit.taskId());
+            for (UUID userId : edit.removedAssignees().keySet()) {
+                Collections.addAll(removedAssignments, taskId, UuidBytes.toBytes(userId));
+            }
+            for (UUID userId : edit.addedAssignees().keySet()) {
+                Collections.addAll(addedAssignments, taskId, UuidBytes.toBytes(userId));
+            }
+        }
+
+        for (int from = 0; from < fieldEdits.size(); from += ROWS_PER_STATEMENT) {
+            updateFields(fieldEdits.subList(from, Math.min(from + ROWS_PER_STATEMENT, fieldEdits.size())));
+        }
+
+        for (int i = 0; i < removedAssignments.size(); i += 2 * ROWS_PER_STATEMENT) {
+            List<Object> arguments = removedAssignments.subList(i,
+                    Math.min(i + 2 * ROWS_PER_STATEMENT, removedAssignments.size()));
+            this.jdbcTemplate.update("DELETE FROM tasks_users WHERE (task_id, user_id) IN (" +
+                    placeholders(arguments.size() / 2, "(?, ?)") + ")", arguments.toArray());
+        }
+
+        // Ignored when the task or the user was deleted in the meantime, or the user is assigned already
+        for (int i = 0; i < addedAssignments.size(); i += 2 * ROWS_PER_STATEMENT) {
+            List<Object> arguments = addedAssignments.subList(i,
+                    Math.min(i + 2 * ROWS_PER_STATEMENT, addedAssignments.size()));
+            this.jdbcTemplate.update("INSERT IGNORE INTO tasks_users (task_id, user_id) VALUES " +
+                    placeholders(arguments.size() / 2, "(?, ?)"), arguments.toArray());
+        }
+
+        refreshFeedKeys(feedChanges);
+
+        if (!edits.isEmpty()) this.cacheInvalidator.rowsChanged("tasks", "tasks_users");
+    }
+
+    @Override
+    public void refreshFeedKeys(Collection<UUID> taskIds) {
+        List<Object> ids = new ArrayList<>(taskIds.size());
+        for (UUID taskId : taskIds) ids.add(UuidBytes.toBytes(taskId));
+
+        int updatedRows = 0;
+        for (int from = 0; from < ids.size(); from += ROWS_PER_STATEMENT) {
+            List<Object> chunk = ids.subList(from, Math.min(from + ROWS_PER_STATEMENT, ids.size()));
+            updatedRows += this.jdbcTemplate.update(FEED_KEYS_UPDATE + "WHERE task_id IN (" +
+                    placeholders(chunk.size(), "?") + ")", chunk.toArray());
+        }
+
+        if (updatedRows > 0) this.cacheInvalidator.rowsChanged("tasks_users");
+    }
+
+    /**
+     * Updates the priority and the deadline of many tasks with a single statement, keeping the current value
+     * of the attributes an edit leaves unchanged.
+     */
+    private void updateFields(List<TaskFieldEdit> edits) {
+        StringBuilder priorityCases = new StringBuilder();
+        StringBuilder deadlineCases = new StringBuilder();
+        List<Object> priorityArguments = new ArrayList<>();
+        List<Object> deadlineArguments = new ArrayList<>();
+        List<Object> idArguments = new ArrayList<>(edits.size());
+
+        for (TaskFieldEdit edit : edits) {
+            byte[] id = UuidBytes.toBytes(edit.taskId());
+            idArguments.add(id);
+
+            if (edit.priority() != null) {
+                priorityCases.append(" WHEN ? THEN ?");
+                Collections.addAll(priorityArguments, id, edit.priority().name());
+            }
+            if (edit.deadline() != null) {
+                deadlineCases.append(" WHEN ? THEN ?");
+                Collections.addAll(deadlineArguments, id, edit.deadline());
+            }
+        }
+
+        List<String> assignments = new ArrayList<>(2);
+        if (!priorityArguments.isEmpty()) assignments.add("priority = CASE id" + priorityCases + " ELSE priority END");
+        if (!deadlineArguments.isEmpty()) assignments.add("deadline = CASE id" + deadlineCases + " ELSE deadline END");
+
+        List<Object> arguments = new ArrayList<>(priorityArguments);
+        arguments.addAll(deadlineArguments);
+        arguments.addAll(idArguments);
+
+        this.jdbcTemplate.update("UPDATE tasks SET " + String.join(", ", assignments) + " WHERE id IN (" +
+                placeholders(idArguments.size(), "?") + ")", arguments.toArray());
+    }
+
+    private static String placeholders(int count, String placeholder) {
+        return String.join(", ", Collections.nCopies(count, placeholder));
+    }
+}
@@ -0,0 +1,9 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import projects.dnetsova.taskmanager.entities.TaskCountSummary;
+
+@Repository
+public interface TaskCountSummaryRepository extends JpaRepository<TaskCountSummary, String> {
+}
@@ -1,11 +1,142 @@
 package projects.dnetsova.taskmanager.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.models.AssigneeCount;
+import projects.dnetsova.taskmanager.models.PriorityCount;
+import projects.dnetsova.taskmanager.models.TaskAssignee;
+import projects.dnetsova.taskmanager.models.TaskDeadline;
+import projects.dnetsova.taskmanager.models.TaskExportRow;
+import projects.dnetsova.taskmanager.models.TaskFeedEntry;
+import projects.dnetsova.taskmanager.models.TaskSummary;
+import projects.dnetsova.taskmanager.utils.Priority;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface TaskRepository extends JpaRepository<Task, UUID> {
+public interface TaskRepository extends JpaRepository<Task, UUID>, TaskBulkOperations {
+    String FEED_SELECT = "SELECT new projects.dnetsova.taskmanager.models.TaskFeedEntry(t.id, t.title, a.deadline, " +
+            "a.priority) FROM TaskAssignment a JOIN Task t ON t.id = a.taskId WHERE a.userId = :userId ";
+
+    @Query(value = "SELECT new projects.dnetsova.taskmanager.models.TaskSummary(t.id, t.title, t.description, " +
+            "t.startDate, t.deadline, t.repeatDate, t.priority) FROM Task t",
+            countQuery = "SELECT COUNT(t) FROM Task t")
+    Page<TaskSummary> findAllSummaries(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new projects.dnetsova.taskmanager.models.TaskSummary(t.id, t.title, t.description, " +
+            "t.startDate, t.deadline, t.repeatDate, t.priority) FROM Task t WHERE t.id = :id")
+    Optional<TaskSummary> findSummaryById(UUID id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new projects.dnetsova.taskmanager.models.TaskSummary(t.id, t.title, t.description, " +
+            "t.startDate, t.deadline, t.repeatDate, t.priority) FROM Task t WHERE t.id IN :ids")
+    List<TaskSummary> findSummariesByIdIn(Collection<UUID> ids);
+
+    /**
+     * Resolves the assignee names of many tasks at once, so a page of tasks costs one query
+     * for its assignees instead of one per task.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new projects.dnetsova.taskmanager.models.TaskAssignee(t.id, u.name) " +
+            "FROM Task t JOIN t.assignees u WHERE t.id IN :taskIds ORDER BY u.name")
+    List<TaskAssignee> findAssigneeNames(Collection<UUID> taskIds);
+
+    /*
+     * Full counts, only run to build and to verify the counters of TaskStatsService.
+     */
+
+    @Query("SELECT new projects.dnetsova.taskmanager.models.PriorityCount(t.priority, COUNT(t)) " +
+            "FROM Task t GROUP BY t.priority")
+    List<PriorityCount> countByPriority();
+
+    @Query("SELECT new projects.dnetsova.taskmanager.models.AssigneeCount(u.name, COUNT(t)) " +
+            "FROM Task t JOIN t.assignees u GROUP BY u.id, u.name")
+    List<AssigneeCount> countByAssignee();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Task t WHERE t.id = :id")
+    int delete(UUID id);
+
+    @Query("SELECT new projects.dnetsova.taskmanager.models.TaskDeadline(t.id, t.deadline, t.priority) " +
+            "FROM Task t WHERE t.deadline = :deadline")
+    List<TaskDeadline> findDeadlinesOn(LocalDate deadline);
+
+    @Query("SELECT t.id FROM Task t WHERE t.repeatDate <= :today ORDER BY t.repeatDate, t.id")
+    List<UUID> findDueRecurrences(LocalDate today, Limit limit);
+
+    @Query("SELECT t.id FROM Task t WHERE t.repeatDate <= :today AND (t.repeatDate > :afterDate " +
+            "OR (t.repeatDate = :afterDate AND t.id > :afterId)) ORDER BY t.repeatDate, t.id")
+    List<UUID> findDueRecurrencesAfter(LocalDate today, LocalDate afterDate, UUID afterId, Limit limit);
+
+    @Query("SELECT t.id FROM Task t ORDER BY t.id")
+    List<UUID> findIds(Limit limit);
+
+    @Query("SELECT t.id FROM Task t WHERE t.id > :afterId ORDER BY t.id")
+    List<UUID> findIdsAfter(UUID afterId, Limit limit);
+
+    /**
+     * Loads the tasks and locks them, so that a task is never materialized twice by concurrent runs. Only the
+     * tasks rows are locked: joined with the assignees, the lock would also take the tasks_users and users rows,
+     * in the opposite order to the removal of users. Their assignees are loaded by {@link #fetchAssignees}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Task t WHERE t.id IN :ids ORDER BY t.repeatDate, t.id")
+    List<Task> findAllForUpdate(Collection<UUID> ids);
+
+    /**
+     * Loads the assignees of the tasks in one query without locking them, into the tasks of the persistence
+     * context when they are loaded already.
+     */
+    @Query("SELECT DISTINCT t FROM Task t LEFT JOIN FETCH t.assignees WHERE t.id IN :ids")
+    List<Task> fetchAssignees(Collection<UUID> ids);
+
+    /**
+     * Streams all tasks joined with their assignees in primary key order, so the rows of a task are adjacent.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = UserRepository.STREAMING_FETCH_SIZE))
+    @Query("SELECT new projects.dnetsova.taskmanager.models.TaskExportRow(t.id, t.title, t.description, " +
+            "t.startDate, t.deadline, t.repeatDate, t.priority, a.name) " +
+            "FROM Task t LEFT JOIN t.assignees a ORDER BY t.id")
+    Stream<TaskExportRow> streamAllForExport();
+
+    /*
+     * The task feed of a user is paginated by keyset on (deadline, priority, id): tasks with a deadline
+     * come first, then the ones without. Each phase is a range of the (user_id, deadline, priority, task_id)
+     * index of the assignments, the page's tasks are then looked up by primary key.
+     */
+
+    @Query(FEED_SELECT + "AND a.deadline IS NOT NULL ORDER BY a.deadline, a.priority, a.taskId")
+    List<TaskFeedEntry> findFeedWithDeadline(UUID userId, Limit limit);
+
+    @Query(FEED_SELECT + "AND (a.deadline > :deadline OR (a.deadline = :deadline AND (a.priority > :priority " +
+            "OR (a.priority = :priority AND a.taskId > :id)))) ORDER BY a.deadline, a.priority, a.taskId")
+    List<TaskFeedEntry> findFeedWithDeadlineAfter(UUID userId, LocalDate deadline, Priority priority, UUID id,
+                                                  Limit limit);
+
+    @Query(FEED_SELECT + "AND a.deadline IS NULL AND a.priority IS NOT NULL ORDER BY a.priority, a.taskId")
+    List<TaskFeedEntry> findFeedWithoutDeadline(UUID userId, Limit limit);
+
+    @Query(FEED_SELECT + "AND a.deadline IS NULL AND (a.priority > :priority " +
+            "OR (a.priority = :priority AND a.taskId > :id)) ORDER BY a.priority, a.taskId")
+    List<TaskFeedEntry> findFeedWithoutDeadlineAfter(UUID userId, Priority priority, UUID id, Limit limit);
 }
@@ -0,0 +1,34 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set based user writes executed with plain JDBC. One call results in a constant number of statements,
+ * regardless of how many names are passed.
+ */
+public interface UserBulkOperations {
+
+    /**
+     * Inserts the user unless the name is already taken, followed by a primary key lookup of the inserted row.
+     * A taken name is not an error for the database, so no failed statement and no exception is involved in
+     * rejecting it, any other error still fails the insert.
+     * @return 1 if the user was inserted, 0 if the name is taken.
+     */
+    int insertUserIfAbsent(String name);
+
+    /**
+     * Inserts all users with a single multi-row statement, followed by a lookup of the inserted rows. Names that
+     * are already taken are skipped instead of failing the whole statement, any other error fails it.
+     * @param names distinct user names.
+     * @return the names which were inserted.
+     */
+    Set<String> insertUsersIfAbsent(List<String> names);
+
+    /**
+     * Deletes all users with the given names.
+     * @param names distinct user names.
+     * @return the names which existed and were deleted, as they were stored in the database.
+     */
+    Set<String> deleteUsersByName(List<String> names);
+}
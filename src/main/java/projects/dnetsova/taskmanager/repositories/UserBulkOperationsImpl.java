@@ -0,0 +1,89 @@
+package projects.dnetsova.taskmanager.repositories;
+
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import projects.dnetsova.taskmanager.cache.CacheInvalidator;
+import projects.dnetsova.taskmanager.utils.TimeOrderedUuids;
+import projects.dnetsova.taskmanager.utils.UuidBytes;
+
+import java.util.*;
+
+/**
+ * JDBC implementation of {@link UserBulkOperations}, picked up by Spring Data as a fragment of {@link UserRepository}.
+ */
+public class UserBulkOperationsImpl implements UserBulkOperations {
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidator cacheInvalidator;
+
+    @Autowired
+    public UserBulkOperationsImpl(JdbcTemplate jdbcTemplate, CacheInvalidator cacheInvalidator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    @Override
+    public int insertUserIfAbsent(String name) {
+        byte[] id = UuidBytes.toBytes(TimeOrderedUuids.next());
+        this.jdbcTemplate.update("INSERT INTO users (id, name) VALUES (?, ?) ON DUPLICATE KEY UPDATE id = id",
+                id, name);
+
+        // The driver counts a taken name as a matched row, the generated id tells whether the row is ours
+        int insertedRows = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?",
+                Integer.class, id);
+        if (insertedRows > 0) this.cacheInvalidator.rowsInserted("users");
+        return insertedRows;
+    }
+
+    @Override
+    public Set<String> insertUsersIfAbsent(List<String> names) {
+        if (names.isEmpty()) return Set.of();
+
+        List<byte[]> ids = new ArrayList<>(names.size());
+        Object[] arguments = new Object[names.size() * 2];
+
+        for (int i = 0; i < names.size(); i++) {
+            byte[] id = UuidBytes.toBytes(TimeOrderedUuids.next());
+            ids.add(id);
+            arguments[2 * i] = id;
+            arguments[2 * i + 1] = names.get(i);
+        }
+
+        // Not INSERT IGNORE, which would also turn a name too long or any other failure into a skipped row
+        this.jdbcTemplate.update("INSERT INTO users (id, name) VALUES " + placeholders(names.size(), "(?, ?)") +
+                " ON DUPLICATE KEY UPDATE id = id", arguments);
+
+        // The driver counts a taken name as a matched row, so only the ids we generated tell which rows made it
+        Set<String> insertedNames = new HashSet<>(this.jdbcTemplate.queryForList(
+                "SELECT name FROM users WHERE id IN (" + placeholders(ids.size(), "?") + ")",
+                String.class, ids.toArray()));
+        if (!insertedNames.isEmpty()) this.cacheInvalidator.rowsInserted("users");
+        return insertedNames;
+    }
+
+    @Override
+    @Transactional
+    public Set<String> deleteUsersByName(List<String> names) {
+        if (names.isEmpty()) return Set.of();
+
+        List<String> existingNames = this.jdbcTemplate.queryForList(
+                "SELECT name FROM users WHERE name IN (" + placeholders(names.size(), "?") + ") FOR UPDATE",
+                String.class, names.toArray());
+
+        if (!existingNames.isEmpty()) {
+            this.jdbcTemplate.update("DELETE FROM tasks_users WHERE user_id IN (SELECT id FROM users " +
+                            "WHERE name IN (" + placeholders(existingNames.size(), "?") + "))",
+                    existingNames.toArray());
+            this.jdbcTemplate.update(
+                    "DELETE FROM users WHERE name IN (" + placeholders(existingNames.size(), "?") + ")",
+                    existingNames.toArray());
+            this.cacheInvalidator.rowsChanged("users", "tasks_users");
+        }
+
+        return new HashSet<>(existingNames);
+    }
+
+    private static String placeholders(int count, String placeholder) {
+        return String.join(", ", Collections.nCopies(count, placeholder));
+    }
+}
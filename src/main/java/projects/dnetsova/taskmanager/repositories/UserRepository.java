@@ -1,29 +1,84 @@
 package projects.dnetsova.taskmanager.repositories;
 
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import projects.dnetsova.taskmanager.entities.User;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserBulkOperations {
+    /**
+     * Fetch size which makes MySQL Connector/J stream the result set row by row instead of reading it
+     * in memory as a whole.
+     */
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
 
+    /**
+     * Renames the user. A new name taken by another user fails the update with a constraint violation.
+     * @return the number of updated rows, 0 if the user doesn't exist.
+     */
     @Modifying
     @Transactional
     @Query("UPDATE User u SET u.name = :newName WHERE u.name = :name")
     int updateUserName(String name, String newName);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    boolean existsByName(String name);
+
+    List<User> findByNameStartingWithOrderByNameAsc(String prefix, Limit limit);
+
     @Query("SELECT u.name FROM User u")
     Page<String> findAllUserNames(Pageable pageable);
 
+    /**
+     * Keyset (seek) pagination over the unique name index - no OFFSET and no COUNT query.
+     * @param after the last name of the previous page, empty string for the first page.
+     */
+    @Query("SELECT u.name FROM User u WHERE u.name > :after ORDER BY u.name")
+    List<String> findUserNamesAfter(String after, Limit limit);
+
+    /**
+     * Streams all user names in the order of the unique name index. Must be consumed inside a transaction
+     * and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query("SELECT u.name FROM User u ORDER BY u.name")
+    Stream<String> streamAllUserNames();
+
     @Modifying
     @Transactional
     @Query("DELETE FROM User u WHERE u.name = :name")
     int delete(String name);
+
+    /**
+     * Unassigns the user from all tasks, which has to be done before the user can be deleted.
+     */
+    @Modifying
+    @Transactional
+    // Declares the table written, Hibernate then only drops the cached assignees instead of every cached entity
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tasks_users"))
+    @Query(value = "DELETE FROM tasks_users WHERE user_id IN (SELECT id FROM users WHERE name = :name)",
+            nativeQuery = true)
+    int deleteAssignments(String name);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<User> findByNameIn(Collection<String> names);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT u.id FROM User u WHERE u.name = :name")
+    Optional<UUID> findIdByName(String name);
 }
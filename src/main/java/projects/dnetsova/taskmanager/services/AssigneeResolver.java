@@ -0,0 +1,61 @@
+package projects.dnetsova.taskmanager.services;
+
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.util.*;
+
+/**
+ * Resolves assignee names to users during an import. Found users are kept in a bounded LRU cache, so a name
+ * repeated across the rows is looked up once, and the names missing from the cache are fetched with a single
+ * query per batch. Safe for use by concurrent writers.
+ */
+class AssigneeResolver {
+    private final UserRepository userRepository;
+    private final Map<String, User> cache;
+
+    AssigneeResolver(UserRepository userRepository, int capacity) {
+        this.userRepository = userRepository;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return the existing users among the given names, keyed by normalized name.
+     */
+    Map<String, User> resolve(Collection<String> names) {
+        Map<String, User> users = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+
+        synchronized (this.cache) {
+            for (String name : names) {
+                String key = UserNames.normalize(name);
+                User user = this.cache.get(key);
+
+                if (user != null) {
+                    users.put(key, user);
+                } else {
+                    missing.add(name);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) return users;
+
+        List<User> found = this.userRepository.findByNameIn(missing);
+        synchronized (this.cache) {
+            for (User user : found) {
+                String key = UserNames.normalize(user.getName());
+                users.put(key, user);
+                this.cache.put(key, user);
+            }
+        }
+
+        return users;
+    }
+}
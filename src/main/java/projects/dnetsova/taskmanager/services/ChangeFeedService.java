@@ -0,0 +1,416 @@
+package projects.dnetsova.taskmanager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
+import projects.dnetsova.taskmanager.models.ChangeEvent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feed of the user and task changes made by this instance, streamed to the subscribers of GET /events.
+ * <p>
+ * Every change is serialized once and stored in a ring buffer holding the last events.replay-capacity
+ * events. The ring is the replay log of reconnecting clients and the queue of every subscriber at the same
+ * time: a subscriber only keeps the sequence number of the next event it is to be sent, and a pool of
+ * events.sender-threads threads sends the events it has not seen yet. Publishing a change therefore does not
+ * depend on the number of subscribers or on how fast they read.
+ * <p>
+ * A subscriber more than events.max-lag events behind, or resuming from an event no longer in the ring or
+ * from an event of another run, skips the events it missed and is sent a {@link #RESYNC} event instead,
+ * after which it is to reload the users and tasks it keeps. Event ids are prefixed with the start time of
+ * the instance, so the ids of a previous run are never taken for ids of this one.
+ * <p>
+ * An imported batch of tasks is a single {@link #TASKS_IMPORTED} event holding the number of tasks, rather than
+ * an event per task which would push every subscriber out of the ring. Like a resync, it asks the client to
+ * reload the tasks it keeps.
+ * <p>
+ * A send to a client which stopped reading blocks once the socket buffers are full. A subscriber whose send
+ * has been in progress for over events.send-timeout-ms is dropped, its sender thread interrupted, and the pool
+ * is given a spare thread until that send returns, so that a few stuck clients never hold every sender thread.
+ * The dropped client reconnects with its last event id and resyncs if it fell out of the ring meanwhile.
+ */
+@Service
+public class ChangeFeedService {
+    public static final String RESYNC = "resync";
+    public static final String TASKS_IMPORTED = "tasks-imported";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedService.class);
+    // Events copied out of the ring per lock acquisition
+    private static final int SEND_BATCH_SIZE = 64;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxLag;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    private final ExecutorService sender;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Guarded by ring, read without it only to find out whether a subscriber is behind
+    private final ChangeEvent[] ring;
+    private volatile long lastSequence;
+
+    @Autowired
+    public ChangeFeedService(ObjectMapper objectMapper,
+                             @Value("${events.enabled:true}") boolean enabled,
+                             @Value("${events.replay-capacity:10000}") int replayCapacity,
+                             @Value("${events.max-lag:1000}") int maxLag,
+                             @Value("${events.max-subscribers:5000}") int maxSubscribers,
+                             @Value("${events.sender-threads:4}") int senderThreads,
+                             @Value("${events.send-timeout-ms:5000}") long sendTimeoutMillis) {
+        this(objectMapper, enabled, replayCapacity, maxLag, maxSubscribers, sendTimeoutMillis,
+                newSender(senderThreads));
+    }
+
+    /**
+     * @param sender the pool sending the events. A {@link ThreadPoolExecutor} is given spare threads while
+     *               sends to dropped subscribers are stuck.
+     */
+    public ChangeFeedService(ObjectMapper objectMapper, boolean enabled, int replayCapacity, int maxLag,
+                             int maxSubscribers, long sendTimeoutMillis, ExecutorService sender) {
+        if (replayCapacity <= 0) throw new IllegalArgumentException("Replay capacity must be greater than 0");
+
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ring = new ChangeEvent[replayCapacity];
+        this.maxLag = Math.min(maxLag, replayCapacity);
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.sender = sender;
+    }
+
+    /**
+     * Receives the events of a subscriber. Events and heartbeats are never sent to a sink concurrently.
+     */
+    public interface Sink {
+        void send(ChangeEvent event) throws IOException;
+
+        /**
+         * Sends something the client ignores, so that a connection closed by the client is noticed and
+         * proxies do not close an idle one.
+         */
+        void sendHeartbeat() throws IOException;
+
+        /**
+         * Ends the response, called when the sink failed or the feed shuts down.
+         */
+        void close();
+    }
+
+    /**
+     * Starts sending the changes to the sink.
+     * @param lastEventId the id of the last event the client received before reconnecting, null or blank for
+     *                    a new client, which is only sent the changes made from now on.
+     * @return the subscription, to be cancelled when the client is gone.
+     * @throws IllegalStateException when the feed is disabled or has too many subscribers.
+     */
+    public Subscription subscribe(String lastEventId, Sink sink) throws IllegalStateException {
+        if (!this.enabled) throw new IllegalStateException("The event feed is disabled.");
+        if (this.subscriptions.size() >= this.maxSubscribers) {
+            throw new IllegalStateException("The event feed has too many subscribers, retry later.");
+        }
+
+        long nextSequence;
+        synchronized (this.ring) {
+            if (lastEventId == null || lastEventId.isBlank()) {
+                nextSequence = this.lastSequence + 1;
+            } else {
+                // An unknown event makes the subscriber resync, as one which fell out of the ring
+                long lastSeen = parseSequence(lastEventId);
+                nextSequence = lastSeen >= 0 && lastSeen <= this.lastSequence ? lastSeen + 1 : 0;
+            }
+        }
+
+        Subscription subscription = new Subscription(sink, nextSequence);
+        this.subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return this.subscriptions.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!this.enabled) return;
+
+        if (event.before() == null) {
+            publish("task-created", event.after());
+        } else if (event.after() == null) {
+            publish("task-removed", Map.of("id", event.before().id()));
+        } else {
+            publish("task-updated", event.after());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTasksImported(TasksImportedEvent event) {
+        if (!this.enabled) return;
+
+        publish(TASKS_IMPORTED, Map.of("count", event.tasks().size()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!this.enabled) return;
+
+        if (event.before() == null) {
+            publish("user-created", Map.of("name", event.after()));
+        } else if (event.after() == null) {
+            publish("user-removed", Map.of("name", event.before()));
+        } else {
+            Map<String, String> rename = new LinkedHashMap<>();
+            rename.put("name", event.before());
+            rename.put("newName", event.after());
+            publish("user-renamed", rename);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${events.heartbeat-ms:15000}", initialDelayString = "${events.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscription subscription : this.subscriptions) {
+            subscription.heartbeatDue = true;
+            subscription.schedule();
+        }
+    }
+
+    /**
+     * Drops the subscribers whose send is stuck for over the send timeout.
+     */
+    @Scheduled(fixedDelay = 1000, initialDelay = 1000)
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscription subscription : this.subscriptions) subscription.dropIfStalled(now);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscription subscription : this.subscriptions) subscription.close();
+        this.sender.shutdown();
+    }
+
+    private void publish(String type, Object payload) {
+        String data;
+        try {
+            data = this.objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Could not serialize the {} event, it is not sent", type, e);
+            return;
+        }
+
+        synchronized (this.ring) {
+            long sequence = this.lastSequence + 1;
+            this.ring[slot(sequence)] = new ChangeEvent(eventId(sequence), type, data);
+            this.lastSequence = sequence;
+        }
+
+        for (Subscription subscription : this.subscriptions) subscription.schedule();
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % this.ring.length);
+    }
+
+    private String eventId(long sequence) {
+        return this.epoch + "-" + sequence;
+    }
+
+    /**
+     * @return the sequence number of an event id of this run, -1 for any other id.
+     */
+    private long parseSequence(String eventId) {
+        String prefix = this.epoch + "-";
+        if (!eventId.startsWith(prefix)) return -1;
+
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void resizeSender(int delta) {
+        if (!(this.sender instanceof ThreadPoolExecutor pool)) return;
+
+        synchronized (pool) {
+            // The maximum size must not go below the core size
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private static ExecutorService newSender(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A subscriber of the feed. At most one sender thread works for it at a time.
+     */
+    public final class Subscription {
+        private final Sink sink;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile boolean heartbeatDue;
+        // Only used by the thread holding scheduled
+        private long nextSequence;
+        // Guarded by this, set while a send is in progress
+        private Thread sendingThread;
+        private long sendStartedNanos;
+        private boolean stalled;
+
+        private Subscription(Sink sink, long nextSequence) {
+            this.sink = sink;
+            this.nextSequence = nextSequence;
+        }
+
+        /**
+         * Stops sending events, for instance once the client disconnected.
+         */
+        public void cancel() {
+            this.cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void close() {
+            cancel();
+            this.sink.close();
+        }
+
+        private void schedule() {
+            if (this.cancelled || !this.scheduled.compareAndSet(false, true)) return;
+
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                close();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                try {
+                    if (!this.cancelled) sendPending();
+                    if (!this.cancelled && this.heartbeatDue) {
+                        this.heartbeatDue = false;
+                        send(null);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.debug("Dropping a change feed subscriber", e);
+                    close();
+                }
+
+                this.scheduled.set(false);
+                // Events published after the last batch was copied would otherwise wait for the next publish
+                boolean moreWork = this.nextSequence <= lastSequence || this.heartbeatDue;
+                if (this.cancelled || !moreWork || !this.scheduled.compareAndSet(false, true)) return;
+            }
+        }
+
+        private void sendPending() throws IOException {
+            List<ChangeEvent> batch = new ArrayList<>(SEND_BATCH_SIZE);
+
+            while (!this.cancelled) {
+                ChangeEvent resync = null;
+
+                synchronized (ring) {
+                    long last = lastSequence;
+                    long oldest = Math.max(1, last - ring.length + 1);
+
+                    if (this.nextSequence < oldest || last - this.nextSequence + 1 > maxLag) {
+                        // Too far behind, the missed events are dropped
+                        resync = new ChangeEvent(eventId(last), RESYNC, "{}");
+                        this.nextSequence = last + 1;
+                    } else {
+                        while (this.nextSequence <= last && batch.size() < SEND_BATCH_SIZE) {
+                            batch.add(ring[slot(this.nextSequence++)]);
+                        }
+                    }
+                }
+
+                if (resync != null) {
+                    send(resync);
+                    continue;
+                }
+                if (batch.isEmpty()) return;
+
+                for (ChangeEvent event : batch) send(event);
+                batch.clear();
+            }
+        }
+
+        /**
+         * Sends the event, or a heartbeat for null, where {@link #dropIfStalled} can see how long it takes.
+         */
+        private void send(ChangeEvent event) throws IOException {
+            synchronized (this) {
+                this.sendingThread = Thread.currentThread();
+                this.sendStartedNanos = System.nanoTime();
+            }
+
+            boolean dropped;
+            try {
+                if (event == null) {
+                    this.sink.sendHeartbeat();
+                } else {
+                    this.sink.send(event);
+                }
+            } finally {
+                synchronized (this) {
+                    this.sendingThread = null;
+                    dropped = this.stalled;
+                }
+                if (dropped) {
+                    // The interrupt was meant for this send only, the thread goes back to the pool
+                    Thread.interrupted();
+                    resizeSender(-1);
+                }
+            }
+            if (dropped) throw new InterruptedIOException("Send to a stalled change feed subscriber timed out");
+        }
+
+        private void dropIfStalled(long nowNanos) {
+            synchronized (this) {
+                if (this.sendingThread == null || this.stalled
+                        || nowNanos - this.sendStartedNanos < sendTimeoutNanos) return;
+
+                this.stalled = true;
+                // Until the stuck send returns, if it ever does. Before the send can see stalled and shrink it.
+                resizeSender(1);
+                this.sendingThread.interrupt();
+            }
+
+            LOGGER.info("Dropping a change feed subscriber whose send is stuck for over {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package projects.dnetsova.taskmanager.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.TaskDeadlineEvent;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.metrics.LatencyHistogram;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+import projects.dnetsova.taskmanager.models.TaskDeadline;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.utils.HierarchicalTimingWheel;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires a {@link TaskDeadlineEvent} when a task reaches its deadline, which is at the start of the deadline day.
+ * <p>
+ * Only the deadlines of the next few days (tasks.deadline-alerts.horizon-days) are held in memory, in a
+ * {@link HierarchicalTimingWheel}. They are loaded at startup one day at a time and one more day is loaded
+ * whenever a day passes, by the ticker thread alone. Deadlines of today are fired again after a restart. Task
+ * changes are applied to the wheel incrementally. Events due on the same tick are fired in priority order, P0
+ * first. The lateness of every fired event is recorded in the deadline_alert_lateness_seconds histogram.
+ */
+@Service
+public class DeadlineAlertService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadlineAlertService.class);
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    // From a tick late up to a deadline of today fired again after a restart
+    private static final double[] LATENESS_BOUNDS_SECONDS = {0.1, 0.5, 1, 1.5, 2, 5, 10, 30, 60, 300, 3600, 86400};
+
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int horizonDays;
+
+    private final HierarchicalTimingWheel<TaskDeadline> wheel;
+    private final Map<UUID, HierarchicalTimingWheel.Timer<TaskDeadline>> timers = new HashMap<>();
+    private LocalDate loadedUntil;
+    // Held while deadlines are loaded, so that no day is loaded twice
+    private final Object loadLock = new Object();
+    private ScheduledExecutorService ticker;
+
+    private final LatencyHistogram lateness;
+
+    @Autowired
+    public DeadlineAlertService(TaskRepository taskRepository, ApplicationEventPublisher eventPublisher, Clock clock,
+                                ObjectProvider<MetricsRegistry> metricsRegistry,
+                                @Value("${tasks.deadline-alerts.enabled:true}") boolean enabled,
+                                @Value("${tasks.deadline-alerts.horizon-days:7}") int horizonDays) {
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.horizonDays = horizonDays;
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, clock.millis());
+
+        MetricsRegistry registry = metricsRegistry.getIfAvailable();
+        this.lateness = registry == null
+                ? new LatencyHistogram(LATENESS_BOUNDS_SECONDS)
+                : registry.timer("deadline_alert_lateness_seconds", "Time from a task deadline to its alert.",
+                        LATENESS_BOUNDS_SECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!this.enabled) return;
+
+        loadUpcomingDeadlines();
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deadline-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.ticker != null) this.ticker.shutdownNow();
+    }
+
+    /**
+     * Loads the deadlines from the day after the last loaded one up to the end of the horizon,
+     * one day per query. The first call loads today as well. Concurrent calls load each day once.
+     */
+    public void loadUpcomingDeadlines() {
+        synchronized (this.loadLock) {
+            LocalDate today = LocalDate.now(this.clock);
+            LocalDate horizon = today.plusDays(this.horizonDays);
+            LocalDate day;
+
+            synchronized (this) {
+                day = this.loadedUntil == null ? today : this.loadedUntil.plusDays(1);
+            }
+
+            for (; !day.isAfter(horizon); day = day.plusDays(1)) {
+                List<TaskDeadline> deadlines = this.taskRepository.findDeadlinesOn(day);
+
+                synchronized (this) {
+                    deadlines.forEach(this::schedule);
+                    this.loadedUntil = day;
+                }
+
+                LOGGER.debug("Loaded {} deadlines of {}", deadlines.size(), day);
+            }
+        }
+
+        fireExpired();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!this.enabled) return;
+
+        synchronized (this) {
+            HierarchicalTimingWheel.Timer<TaskDeadline> timer = this.timers.remove(event.taskId());
+            if (timer != null) this.wheel.cancel(timer);
+
+            if (event.after() != null) scheduleIfLoaded(event.after(), LocalDate.now(this.clock));
+        }
+        fireExpired();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTasksImported(TasksImportedEvent event) {
+        if (!this.enabled) return;
+
+        synchronized (this) {
+            LocalDate today = LocalDate.now(this.clock);
+            for (TaskDetails task : event.tasks()) scheduleIfLoaded(task, today);
+        }
+        fireExpired();
+    }
+
+    /**
+     * Schedules the deadline of a task when its day is loaded already, the later days load it themselves.
+     */
+    private void scheduleIfLoaded(TaskDetails task, LocalDate today) {
+        if (task.deadline() != null && this.loadedUntil != null && !task.deadline().isAfter(this.loadedUntil)
+                && !task.deadline().isBefore(today)) {
+            schedule(new TaskDeadline(task.id(), task.deadline(), task.priority()));
+        }
+    }
+
+    /**
+     * @return the lateness of the fired deadline events.
+     */
+    public LatencyHistogram getLateness() {
+        return this.lateness;
+    }
+
+    /**
+     * @return the number of deadlines waiting to be fired.
+     */
+    public synchronized int pendingCount() {
+        return this.wheel.size();
+    }
+
+    /**
+     * Fires the deadlines which are due and loads the days which entered the horizon. Called every second by
+     * the ticker thread, which a failure must not stop: the load is retried by the next tick.
+     */
+    public void tick() {
+        try {
+            fireExpired();
+
+            LocalDate loaded;
+            synchronized (this) {
+                loaded = this.loadedUntil;
+            }
+            if (loaded != null && LocalDate.now(this.clock).plusDays(this.horizonDays).isAfter(loaded)) {
+                loadUpcomingDeadlines();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not fire or load the task deadlines", e);
+        }
+    }
+
+    private void fireExpired() {
+        long now = this.clock.millis();
+        List<HierarchicalTimingWheel.Timer<TaskDeadline>> expired = new ArrayList<>();
+
+        synchronized (this) {
+            this.wheel.advance(now, expired::add);
+            for (HierarchicalTimingWheel.Timer<TaskDeadline> timer : expired) this.timers.remove(timer.value().id());
+        }
+
+        if (!expired.isEmpty()) {
+            expired.sort(Comparator.comparing((HierarchicalTimingWheel.Timer<TaskDeadline> timer) -> timer.value().deadline())
+                    .thenComparing(timer -> timer.value().priority()));
+            expired.forEach(timer -> fire(timer.value(), now));
+        }
+    }
+
+    private void schedule(TaskDeadline deadline) {
+        // A task changed while its day was loaded is met twice
+        HierarchicalTimingWheel.Timer<TaskDeadline> previous = this.timers.remove(deadline.id());
+        if (previous != null) this.wheel.cancel(previous);
+
+        HierarchicalTimingWheel.Timer<TaskDeadline> timer = this.wheel.add(dueMillis(deadline), deadline);
+
+        if (timer == null) {
+            // Already due, e.g. a deadline of today loaded at startup - fired by the next tick
+            timer = this.wheel.add(this.clock.millis() + TICK_MILLIS, deadline);
+        }
+
+        this.timers.put(deadline.id(), timer);
+    }
+
+    private long dueMillis(TaskDeadline deadline) {
+        return deadline.deadline().atStartOfDay(this.clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private void fire(TaskDeadline deadline, long nowMillis) {
+        long latenessMillis = Math.max(0, nowMillis - dueMillis(deadline));
+
+        this.lateness.record(TimeUnit.MILLISECONDS.toNanos(latenessMillis));
+
+        LOGGER.info("Deadline of task {} ({}) reached, fired {} ms late", deadline.id(), deadline.priority(),
+                latenessMillis);
+        this.eventPublisher.publishEvent(new TaskDeadlineEvent(deadline.id(), deadline.deadline(),
+                deadline.priority(), latenessMillis));
+    }
+}
@@ -0,0 +1,192 @@
+package projects.dnetsova.taskmanager.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import projects.dnetsova.taskmanager.configuration.ReadOnlyTransactional;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.models.TaskExportRow;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.CsvLists;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Writes all users or all tasks to an output stream, row by row as they are read from a streamed query.
+ * Nothing but the row being written is held in memory, whatever the number of exported rows.
+ * <p>
+ * An export holds a pooled connection until the client has downloaded it all, so at most
+ * exports.max-concurrent exports run at a time, leaving the rest of the pool to the other requests.
+ */
+@Service
+public class ExportService {
+    private static final String[] USER_COLUMNS = {"name"};
+    private static final String[] TASK_COLUMNS =
+            {"id", "title", "description", "startDate", "deadline", "repeatDate", "priority", "assignees"};
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportPermits;
+
+    @Autowired
+    public ExportService(TaskRepository taskRepository, UserRepository userRepository, ObjectMapper objectMapper,
+                         @Value("${exports.max-concurrent:2}") int maxConcurrentExports) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Takes the place of an export, to be given back with {@link #endExport()} once it is written.
+     * @return false when exports.max-concurrent exports are running already.
+     */
+    public boolean tryStartExport() {
+        return this.exportPermits.tryAcquire();
+    }
+
+    public void endExport() {
+        this.exportPermits.release();
+    }
+
+    /**
+     * Writes the names of all users in alphabetical order.
+     */
+    @ReadOnlyTransactional
+    public long exportUsers(ExportFormat format, OutputStream out) throws IOException {
+        long count = 0;
+
+        try (Stream<String> names = this.userRepository.streamAllUserNames();
+             RowWriter writer = createWriter(format, out, USER_COLUMNS)) {
+            Iterator<String> iterator = names.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes all tasks with their assignees. The export query returns one row per assignee, the rows of
+     * a task are adjacent and merged into a single record.
+     */
+    @ReadOnlyTransactional
+    public long exportTasks(ExportFormat format, OutputStream out) throws IOException {
+        long count = 0;
+
+        try (Stream<TaskExportRow> rows = this.taskRepository.streamAllForExport();
+             RowWriter writer = createWriter(format, out, TASK_COLUMNS)) {
+            Iterator<TaskDetails> tasks = TaskExportRow.groupByTask(rows.iterator());
+            while (tasks.hasNext()) {
+                TaskDetails task = tasks.next();
+                writer.write(task.id(), task.title(), task.description(), task.startDate(), task.deadline(),
+                        task.repeatDate(), task.priority(), task.assignees());
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private RowWriter createWriter(ExportFormat format, OutputStream out, String[] columns) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(this.objectMapper, out, columns);
+            case CSV -> new CsvWriter(out, columns);
+        };
+    }
+
+    /**
+     * Writes rows with the values of the given columns. Closing the writer flushes it without closing
+     * the underlying stream.
+     */
+    private interface RowWriter extends Closeable {
+        void write(Object... values) throws IOException;
+    }
+
+    /**
+     * One JSON object per line.
+     */
+    private static class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final String[] columns;
+
+        NdjsonWriter(ObjectMapper objectMapper, OutputStream out, String[] columns) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setPrettyPrinter(new MinimalPrettyPrinter(""));
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            this.generator.writeStartObject();
+            for (int i = 0; i < this.columns.length; i++) {
+                this.generator.writeFieldName(this.columns[i]);
+                this.generator.writeObject(values[i]);
+            }
+            this.generator.writeEndObject();
+            this.generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.generator.close();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header line. Lists are joined by {@link CsvLists}.
+     */
+    private static class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out, String[] columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+            write((Object[]) columns);
+        }
+
+        @Override
+        public void write(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) this.writer.write(',');
+                writeValue(values[i]);
+            }
+            this.writer.write("\r\n");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) return;
+
+            String text = value instanceof List<?> list
+                    ? CsvLists.join(list)
+                    : value.toString();
+
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                this.writer.write(text);
+                return;
+            }
+
+            this.writer.write('"');
+            this.writer.write(text.replace("\"", "\"\""));
+            this.writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.writer.flush();
+        }
+    }
+}
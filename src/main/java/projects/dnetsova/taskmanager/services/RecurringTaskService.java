@@ -0,0 +1,173 @@
+package projects.dnetsova.taskmanager.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.JobCheckpoint;
+import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.repositories.JobCheckpointRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rolls recurring tasks forward. A task whose repeat date has come is cloned into its next occurrence:
+ * the dates are moved by the interval between the task's start date (or deadline) and its repeat date, and
+ * the recurrence passes from the task to the clone.
+ * <p>
+ * Due tasks are found by a range scan on (repeat_date, id) and processed in chunks, each in its own
+ * transaction together with the job checkpoint. Creating the clone and clearing the repeat date of the
+ * original are committed together, so no occurrence is ever created twice, and a restarted run resumes
+ * after the last committed chunk.
+ */
+@Service
+public class RecurringTaskService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecurringTaskService.class);
+    static final String CHECKPOINT_NAME = "recurring-tasks";
+
+    private final TaskRepository taskRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    @Autowired
+    public RecurringTaskService(TaskRepository taskRepository, JobCheckpointRepository checkpointRepository,
+                                TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                                Clock clock,
+                                @Value("${tasks.recurrence.enabled:true}") boolean enabled,
+                                @Value("${tasks.recurrence.chunk-size:500}") int chunkSize) {
+        this.taskRepository = taskRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.recurrence.interval-ms:60000}",
+            initialDelayString = "${tasks.recurrence.interval-ms:60000}")
+    public void scheduledRun() {
+        if (this.enabled) materializeDueRecurrences();
+    }
+
+    /**
+     * Materializes the next occurrence of every task whose repeat date is today or earlier.
+     * @return the number of created occurrences.
+     */
+    public int materializeDueRecurrences() {
+        LocalDate today = LocalDate.now(this.clock);
+        int total = 0;
+        int processed;
+
+        do {
+            Integer chunkResult = this.transactionTemplate.execute(status -> processChunk(today));
+            processed = chunkResult == null ? 0 : chunkResult;
+            total += processed;
+        } while (processed == this.chunkSize);
+
+        // The scan is complete - the next run starts from the beginning of the range
+        this.transactionTemplate.executeWithoutResult(status -> this.checkpointRepository.findById(CHECKPOINT_NAME)
+                .ifPresent(checkpoint -> checkpoint.moveTo(null, null, this.clock.instant())));
+
+        if (total > 0) LOGGER.info("Materialized {} recurring task occurrences", total);
+        return total;
+    }
+
+    /**
+     * @return the number of tasks the chunk contained.
+     */
+    private int processChunk(LocalDate today) {
+        JobCheckpoint checkpoint = this.checkpointRepository.findById(CHECKPOINT_NAME)
+                .orElseGet(() -> new JobCheckpoint(CHECKPOINT_NAME));
+
+        List<UUID> ids = checkpoint.getLastDate() == null
+                ? this.taskRepository.findDueRecurrences(today, Limit.of(this.chunkSize))
+                : this.taskRepository.findDueRecurrencesAfter(today, checkpoint.getLastDate(), checkpoint.getLastId(),
+                        Limit.of(this.chunkSize));
+        if (ids.isEmpty()) return 0;
+
+        List<Task> occurrences = new ArrayList<>(ids.size());
+        List<TaskChangedEvent> events = new ArrayList<>(ids.size() * 2);
+        LocalDate lastDate = null;
+        UUID lastId = null;
+
+        List<Task> tasks = this.taskRepository.findAllForUpdate(ids);
+        this.taskRepository.fetchAssignees(ids);
+
+        for (Task task : tasks) {
+            lastDate = task.getRepeatDate() != null ? task.getRepeatDate() : lastDate;
+            lastId = task.getId();
+
+            // Re-checked under the lock, a concurrent run may have processed the task already
+            if (task.getRepeatDate() == null || task.getRepeatDate().isAfter(today)) continue;
+
+            TaskDetails before = TaskDetails.of(task);
+            Task occurrence = nextOccurrence(task);
+            task.setRepeatDate(null);
+
+            occurrences.add(occurrence);
+            events.add(new TaskChangedEvent(before, TaskDetails.of(task)));
+        }
+
+        // Inserted in JDBC batches (hibernate.jdbc.batch_size)
+        List<UUID> occurrenceIds = new ArrayList<>(occurrences.size());
+        for (Task occurrence : this.taskRepository.saveAll(occurrences)) {
+            occurrenceIds.add(occurrence.getId());
+            events.add(new TaskChangedEvent(null, TaskDetails.of(occurrence)));
+        }
+        this.taskRepository.flush();
+        this.taskRepository.refreshFeedKeys(occurrenceIds);
+
+        if (lastDate != null) {
+            checkpoint.moveTo(lastDate, lastId, this.clock.instant());
+            this.checkpointRepository.save(checkpoint);
+        }
+
+        // Delivered to transactional listeners once the chunk is committed
+        events.forEach(this.eventPublisher::publishEvent);
+
+        return ids.size();
+    }
+
+    private static Task nextOccurrence(Task task) {
+        LocalDate anchor = task.getStartDate() != null ? task.getStartDate() : task.getDeadline();
+        long interval = anchor == null ? 0 : ChronoUnit.DAYS.between(anchor, task.getRepeatDate());
+
+        Task occurrence = new Task();
+        occurrence.setTitle(task.getTitle());
+        occurrence.setDescription(task.getDescription());
+        occurrence.setPriority(task.getPriority());
+        occurrence.setAssignees(new HashSet<>(task.getAssignees()));
+
+        if (interval > 0) {
+            occurrence.setStartDate(task.getStartDate() == null ? null : task.getStartDate().plusDays(interval));
+            occurrence.setDeadline(task.getDeadline() == null ? null : task.getDeadline().plusDays(interval));
+            occurrence.setRepeatDate(task.getRepeatDate().plusDays(interval));
+        } else {
+            // Without a usable interval the task repeats once, starting on its repeat date
+            occurrence.setStartDate(task.getRepeatDate());
+            occurrence.setDeadline(task.getDeadline() == null || task.getDeadline().isBefore(task.getRepeatDate())
+                    ? null : task.getDeadline());
+        }
+
+        return occurrence;
+    }
+}
@@ -0,0 +1,266 @@
+package projects.dnetsova.taskmanager.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import projects.dnetsova.taskmanager.models.TaskFieldEdit;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the task edits held in memory by the {@link TaskWriteBehindBuffer}, so that they
+ * survive a crash. The journal is a directory of numbered segment files: edits are appended to the last one,
+ * and a flush of the buffer starts a new segment and deletes the previous ones once the edits are committed.
+ * <p>
+ * Every record carries its length and checksum. A record torn by a crash in the middle of a write ends the
+ * segment when it is read back, the edit it held was never acknowledged. Appends are made durable by
+ * {@link #sync(long)}, which covers every record appended before it, so concurrent writers share the cost of
+ * a single fsync. Thread safe.
+ */
+public class TaskEditJournal implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskEditJournal.class);
+    private static final String SEGMENT_PREFIX = "edits-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+    // Far above any edit, a larger length can only be read from a torn record
+    private static final int MAX_RECORD_BYTES = 1 << 24;
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    private final Path directory;
+    private final boolean fsync;
+    private final List<Path> recoveredSegments;
+    private final Object syncLock = new Object();
+
+    private long nextSegment;
+    private Path segment;
+    private FileChannel channel;
+    // Bytes appended and bytes known to be on disk, counted across segments
+    private long appended;
+    private long synced;
+
+    /**
+     * Opens the journal in the given directory, creating it if needed. The segments found there are left for
+     * {@link #recover()}, the new edits go to a new segment.
+     * @param fsync whether {@link #sync(long)} forces the appended records to disk. Without it, the edits
+     *              survive a crash of the application but not of the machine.
+     */
+    public TaskEditJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.fsync = fsync;
+        this.recoveredSegments = listSegments();
+        this.nextSegment = this.recoveredSegments.isEmpty()
+                ? 0
+                : segmentNumber(this.recoveredSegments.get(this.recoveredSegments.size() - 1)) + 1;
+        openNextSegment();
+    }
+
+    /**
+     * @return the edits of the segments found when the journal was opened, in the order they were appended.
+     */
+    public List<TaskFieldEdit> recover() throws IOException {
+        List<TaskFieldEdit> edits = new ArrayList<>();
+        for (Path recovered : this.recoveredSegments) readSegment(recovered, edits);
+        return edits;
+    }
+
+    /**
+     * @return the segments found when the journal was opened, to be deleted once their edits are flushed.
+     */
+    public List<Path> recoveredSegments() {
+        return List.copyOf(this.recoveredSegments);
+    }
+
+    /**
+     * Appends the edit to the current segment. The edit is durable once {@link #sync(long)} returns.
+     * @return the position to be passed to {@link #sync(long)}.
+     */
+    public synchronized long append(TaskFieldEdit edit) throws IOException {
+        byte[] payload = serialize(edit);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+        while (record.hasRemaining()) this.channel.write(record);
+
+        this.appended += record.limit();
+        return this.appended;
+    }
+
+    /**
+     * Waits until the records appended up to the given position are on disk.
+     */
+    public void sync(long position) throws IOException {
+        if (!this.fsync) return;
+
+        synchronized (this.syncLock) {
+            if (this.synced >= position) return;
+
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = this.appended;
+                current = this.channel;
+            }
+
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // Rotated meanwhile, the segment was forced before it was closed
+            }
+            this.synced = Math.max(this.synced, target);
+        }
+    }
+
+    /**
+     * Closes the current segment, after forcing it to disk, and starts a new one.
+     * @return the closed segment.
+     */
+    public synchronized Path rotate() throws IOException {
+        Path closed = this.segment;
+        this.channel.force(false);
+        this.channel.close();
+        openNextSegment();
+        return closed;
+    }
+
+    /**
+     * Deletes segments whose edits have all been flushed.
+     */
+    public void delete(Collection<Path> segments) throws IOException {
+        for (Path flushed : segments) Files.deleteIfExists(flushed);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.force(false);
+        this.channel.close();
+    }
+
+    private void openNextSegment() throws IOException {
+        this.segment = this.directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, this.nextSegment++,
+                SEGMENT_SUFFIX));
+        this.channel = FileChannel.open(this.segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // The entry of the new segment must be on disk too, or a crash could lose the segment with its edits
+        if (this.fsync) syncDirectory();
+    }
+
+    private void syncDirectory() throws IOException {
+        // Directories cannot be opened, nor need to be forced, on Windows
+        if (WINDOWS) return;
+
+        try (FileChannel directoryChannel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(TaskEditJournal::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void readSegment(Path segment, List<TaskFieldEdit> edits) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+
+                byte[] payload = null;
+                int checksum = 0;
+                if (length >= 0 && length <= MAX_RECORD_BYTES) {
+                    try {
+                        checksum = in.readInt();
+                        payload = in.readNBytes(length);
+                    } catch (EOFException e) {
+                        payload = null;
+                    }
+                }
+
+                if (payload == null || payload.length < length || checksum(payload) != checksum) {
+                    LOGGER.warn("Ignoring the torn end of the task edit journal segment {}", segment);
+                    return;
+                }
+                edits.add(deserialize(payload));
+            }
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] serialize(TaskFieldEdit edit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeUuid(out, edit.taskId());
+        out.writeUTF(edit.priority() == null ? "" : edit.priority().name());
+        out.writeLong(edit.deadline() == null ? NO_DEADLINE : edit.deadline().toEpochDay());
+        writeAssignees(out, edit.addedAssignees());
+        writeAssignees(out, edit.removedAssignees());
+
+        return bytes.toByteArray();
+    }
+
+    private static TaskFieldEdit deserialize(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        UUID taskId = readUuid(in);
+        String priority = in.readUTF();
+        long deadline = in.readLong();
+
+        return new TaskFieldEdit(taskId,
+                priority.isEmpty() ? null : Priority.valueOf(priority),
+                deadline == NO_DEADLINE ? null : LocalDate.ofEpochDay(deadline),
+                readAssignees(in), readAssignees(in));
+    }
+
+    private static void writeAssignees(DataOutputStream out, Map<UUID, String> assignees) throws IOException {
+        out.writeInt(assignees.size());
+        for (Map.Entry<UUID, String> assignee : assignees.entrySet()) {
+            writeUuid(out, assignee.getKey());
+            out.writeUTF(assignee.getValue());
+        }
+    }
+
+    private static Map<UUID, String> readAssignees(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<UUID, String> assignees = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) assignees.put(readUuid(in), in.readUTF());
+        return assignees;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,103 @@
+package projects.dnetsova.taskmanager.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.JobCheckpoint;
+import projects.dnetsova.taskmanager.repositories.JobCheckpointRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Copies the deadline and the priority of the tasks to the assignments written before the task feed was sorted
+ * by them, the tasks of which are missing from the feed until then. Runs once per database.
+ * <p>
+ * The tasks are scanned in id order, in chunks of tasks.feed-backfill.chunk-size, each copied in its own
+ * transaction together with the job checkpoint, so that no transaction locks more than the assignments of a
+ * chunk and an interrupted run resumes after the last committed chunk. The checkpoint gets the date the scan
+ * completed as its last date, the later starts only read the checkpoint.
+ */
+@Service
+public class TaskFeedBackfillService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskFeedBackfillService.class);
+    static final String CHECKPOINT_NAME = "task-feed-backfill";
+
+    private final TaskRepository taskRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int chunkSize;
+
+    @Autowired
+    public TaskFeedBackfillService(TaskRepository taskRepository, JobCheckpointRepository checkpointRepository,
+                                   TransactionTemplate transactionTemplate, Clock clock,
+                                   @Value("${tasks.feed-backfill.chunk-size:1000}") int chunkSize) {
+        this.taskRepository = taskRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            backfill();
+        } catch (DataAccessException | TransactionException e) {
+            LOGGER.warn("Copying the feed keys of the task assignments failed, resumed on the next start", e);
+        }
+    }
+
+    /**
+     * Copies the feed keys of the tasks after the checkpoint, unless the scan completed already.
+     * @return the number of tasks whose assignments were updated.
+     */
+    public long backfill() {
+        long total = 0;
+        int processed;
+
+        do {
+            Integer chunkResult = this.transactionTemplate.execute(status -> processChunk());
+            processed = chunkResult == null ? 0 : chunkResult;
+            total += processed;
+        } while (processed == this.chunkSize);
+
+        if (total > 0) LOGGER.info("Copied the feed keys of the assignments of {} tasks", total);
+        return total;
+    }
+
+    /**
+     * @return the number of tasks the chunk contained.
+     */
+    private int processChunk() {
+        JobCheckpoint checkpoint = this.checkpointRepository.findById(CHECKPOINT_NAME)
+                .orElseGet(() -> new JobCheckpoint(CHECKPOINT_NAME));
+        if (checkpoint.getLastDate() != null) return 0;
+
+        List<UUID> ids = checkpoint.getLastId() == null
+                ? this.taskRepository.findIds(Limit.of(this.chunkSize))
+                : this.taskRepository.findIdsAfter(checkpoint.getLastId(), Limit.of(this.chunkSize));
+
+        if (!ids.isEmpty()) this.taskRepository.refreshFeedKeys(ids);
+
+        UUID lastId = ids.isEmpty() ? checkpoint.getLastId() : ids.get(ids.size() - 1);
+        // A short chunk is the last one
+        LocalDate completed = ids.size() < this.chunkSize ? LocalDate.now(this.clock) : null;
+        checkpoint.moveTo(completed, lastId, this.clock.instant());
+        this.checkpointRepository.save(checkpoint);
+
+        return ids.size();
+    }
+}
@@ -0,0 +1,410 @@
+package projects.dnetsova.taskmanager.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.*;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.CsvLists;
+import projects.dnetsova.taskmanager.utils.CsvRecordReader;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.TimeOrderedUuids;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports tasks in bulk, bypassing the entity layer.
+ * <p>
+ * The input is parsed as a stream on the calling thread and handed in batches, through a bounded queue, to a
+ * pool of writer threads. When the writers fall behind the queue fills up and parsing blocks, so memory stays
+ * bounded whatever the size of the input. Every batch is written with multi-row inserts in a transaction of
+ * its own: a failing batch is retried row by row to isolate the bad rows, and never affects the batches
+ * committed before or after it. Every written batch is announced with a single {@link TasksImportedEvent}, so
+ * that the listeners update once per batch rather than once per row.
+ * <p>
+ * The input has the same columns as an export (see {@link ExportService}), an id column is ignored.
+ */
+@Service
+public class TaskImportService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskImportService.class);
+    private static final List<ImportRow> END_OF_INPUT = List.of();
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Map<UUID, ImportProgress> runningImports = new ConcurrentHashMap<>();
+
+    @Value("${tasks.import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${tasks.import.writer-threads:4}")
+    private int writerThreads = 4;
+
+    @Value("${tasks.import.queue-capacity:8}")
+    private int queueCapacity = 8;
+
+    @Value("${tasks.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    @Value("${tasks.import.assignee-cache-size:100000}")
+    private int assigneeCacheSize = 100_000;
+
+    @Autowired
+    public TaskImportService(TaskRepository taskRepository, UserRepository userRepository,
+                             TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Imports all tasks of the input. Rows which cannot be parsed, are invalid, have unknown assignees or
+     * cannot be stored are reported and skipped. When the input itself becomes unreadable the import stops,
+     * the rows read until then stay imported.
+     * @return the outcome of the import.
+     * @throws InterruptedException when the calling thread is interrupted while waiting for the writers.
+     */
+    public ImportReport importTasks(ExportFormat format, InputStream in) throws InterruptedException {
+        ImportProgress progress = new ImportProgress(this.maxReportedErrors);
+        AssigneeResolver resolver = new AssigneeResolver(this.userRepository, this.assigneeCacheSize);
+        BlockingQueue<List<ImportRow>> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        ExecutorService writers = Executors.newFixedThreadPool(this.writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "task-import-" + progress.id);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.runningImports.put(progress.id, progress);
+        try {
+            List<Future<?>> writerResults = new ArrayList<>(this.writerThreads);
+            for (int i = 0; i < this.writerThreads; i++) {
+                writerResults.add(writers.submit(() -> consume(queue, resolver, progress)));
+            }
+
+            produce(format, in, queue, progress);
+
+            for (int i = 0; i < this.writerThreads; i++) queue.put(END_OF_INPUT);
+            for (Future<?> writerResult : writerResults) writerResult.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import writer failed", e.getCause());
+        } finally {
+            writers.shutdownNow();
+            this.runningImports.remove(progress.id);
+        }
+
+        ImportReport report = progress.report(true);
+        LOGGER.info("Import {} finished: {} tasks imported, {} rows failed, {} rows/s", report.id(),
+                report.tasksImported(), report.rowsFailed(), Math.round(report.rowsPerSecond()));
+        return report;
+    }
+
+    /**
+     * @return the progress of the imports which are currently running.
+     */
+    public List<ImportReport> getRunningImports() {
+        return this.runningImports.values().stream().map(progress -> progress.report(false)).toList();
+    }
+
+    private void produce(ExportFormat format, InputStream in, BlockingQueue<List<ImportRow>> queue,
+                         ImportProgress progress) throws InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        RowParser parser = format == ExportFormat.CSV ? new CsvRowParser(reader) : new NdjsonRowParser(reader);
+        List<ImportRow> batch = new ArrayList<>(this.batchSize);
+
+        try {
+            TaskRequest task;
+            while (true) {
+                long rowNumber = progress.rowsRead.get() + 1;
+                try {
+                    task = parser.next();
+                    if (task == null) break;
+                    TaskService.validate(task);
+                } catch (InvalidRowException | IllegalArgumentException e) {
+                    progress.rowsRead.incrementAndGet();
+                    progress.fail(rowNumber, new ApiError("InvalidRow", e.getMessage()));
+                    continue;
+                }
+
+                progress.rowsRead.incrementAndGet();
+                batch.add(new ImportRow(rowNumber, task));
+
+                if (batch.size() == this.batchSize) {
+                    // Blocks while the writers are behind
+                    queue.put(batch);
+                    batch = new ArrayList<>(this.batchSize);
+                }
+            }
+        } catch (IOException e) {
+            progress.fail(progress.rowsRead.get() + 1, new ApiError("InvalidRequestBody",
+                    "Input could not be read further: " + e.getMessage()));
+        }
+
+        if (!batch.isEmpty()) queue.put(batch);
+    }
+
+    private Void consume(BlockingQueue<List<ImportRow>> queue, AssigneeResolver resolver, ImportProgress progress)
+            throws InterruptedException {
+        List<ImportRow> batch;
+        while ((batch = queue.take()) != END_OF_INPUT) {
+            try {
+                writeBatch(batch, resolver, progress);
+            } catch (RuntimeException e) {
+                // A writer must keep consuming, otherwise the producer would block on a full queue
+                LOGGER.error("Import {} failed to write a batch", progress.id, e);
+                batch.forEach(row -> progress.fail(row.number(), new ApiError("ImportFailed", e.getMessage())));
+            }
+        }
+        return null;
+    }
+
+    private void writeBatch(List<ImportRow> batch, AssigneeResolver resolver, ImportProgress progress) {
+        Set<String> names = new HashSet<>();
+        for (ImportRow row : batch) {
+            if (row.task().assignees() != null) names.addAll(row.task().assignees());
+        }
+        names.remove(null);
+
+        Map<String, User> users;
+        try {
+            users = resolver.resolve(names);
+        } catch (DataAccessException e) {
+            batch.forEach(row -> progress.fail(row.number(), storageError(e)));
+            return;
+        }
+
+        List<ImportRow> rows = new ArrayList<>(batch.size());
+        List<NewTask> tasks = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            NewTask task = resolveAssignees(row, users, progress);
+            if (task != null) {
+                rows.add(row);
+                tasks.add(task);
+            }
+        }
+
+        if (tasks.isEmpty()) return;
+        if (insert(tasks, progress) == null) {
+            publishImported(tasks, users);
+            return;
+        }
+
+        // Isolates the rows which make the batch fail, each in a transaction of its own
+        List<NewTask> inserted = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            DataAccessException error = insert(List.of(tasks.get(i)), progress);
+            if (error == null) {
+                inserted.add(tasks.get(i));
+            } else {
+                progress.fail(rows.get(i).number(), storageError(error));
+            }
+        }
+        if (!inserted.isEmpty()) publishImported(inserted, users);
+    }
+
+    private static NewTask resolveAssignees(ImportRow row, Map<String, User> users, ImportProgress progress) {
+        Set<String> assignees = row.task().assignees() == null ? Set.of() : row.task().assignees();
+        Set<UUID> userIds = new LinkedHashSet<>();
+
+        for (String name : assignees) {
+            User user = name == null ? null : users.get(UserNames.normalize(name));
+            if (user == null) {
+                progress.fail(row.number(), new ApiError(new InvalidUserException(name)));
+                return null;
+            }
+            userIds.add(user.getId());
+        }
+
+        return new NewTask(TimeOrderedUuids.next(), row.task(), userIds);
+    }
+
+    /**
+     * @return null when the tasks were stored, the cause otherwise.
+     */
+    private DataAccessException insert(List<NewTask> tasks, ImportProgress progress) {
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> this.taskRepository.insertTasks(tasks));
+        } catch (DataAccessException e) {
+            return e;
+        }
+
+        progress.tasksImported.addAndGet(tasks.size());
+        return null;
+    }
+
+    private void publishImported(List<NewTask> tasks, Map<String, User> users) {
+        List<TaskDetails> details = new ArrayList<>(tasks.size());
+        for (NewTask task : tasks) details.add(toDetails(task, users));
+        this.eventPublisher.publishEvent(new TasksImportedEvent(details));
+    }
+
+    private static TaskDetails toDetails(NewTask task, Map<String, User> users) {
+        TaskRequest attributes = task.attributes();
+        List<String> assignees = attributes.assignees() == null ? List.of() : attributes.assignees().stream()
+                .map(name -> users.get(UserNames.normalize(name)).getName()).distinct().sorted().toList();
+
+        return new TaskDetails(task.id(), attributes.title(), attributes.description(), attributes.startDate(),
+                attributes.deadline(), attributes.repeatDate(), attributes.priority(), assignees);
+    }
+
+    private static ApiError storageError(DataAccessException e) {
+        return new ApiError("StorageError", e.getMostSpecificCause().getMessage());
+    }
+
+    private record ImportRow(long number, TaskRequest task) {}
+
+    /**
+     * Parses the records of the input one at a time.
+     */
+    private interface RowParser {
+        /**
+         * @return the next task, null at the end of the input.
+         * @throws InvalidRowException when the record cannot be parsed. The following records can still be read.
+         * @throws IOException when the input cannot be read further.
+         */
+        TaskRequest next() throws IOException, InvalidRowException;
+    }
+
+    private class NdjsonRowParser implements RowParser {
+        private final BufferedReader reader;
+
+        NdjsonRowParser(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public TaskRequest next() throws IOException, InvalidRowException {
+            String line;
+            do {
+                line = this.reader.readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+
+            try {
+                return objectMapper.readValue(line, TaskRequest.class);
+            } catch (JsonProcessingException e) {
+                throw new InvalidRowException(e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the columns by the names of the header record. Assignees are split by {@link CsvLists}.
+     */
+    private static class CsvRowParser implements RowParser {
+        private final CsvRecordReader reader;
+        private Map<String, Integer> columns;
+
+        CsvRowParser(BufferedReader reader) {
+            this.reader = new CsvRecordReader(reader);
+        }
+
+        @Override
+        public TaskRequest next() throws IOException, InvalidRowException {
+            if (this.columns == null) {
+                List<String> header = this.reader.next();
+                if (header == null) return null;
+
+                this.columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) this.columns.put(header.get(i).trim(), i);
+            }
+
+            List<String> fields;
+            do {
+                fields = this.reader.next();
+                if (fields == null) return null;
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            try {
+                String priority = field(fields, "priority");
+                String assignees = field(fields, "assignees");
+
+                return new TaskRequest(field(fields, "title"), field(fields, "description"),
+                        date(fields, "startDate"), date(fields, "deadline"), date(fields, "repeatDate"),
+                        priority == null ? null : Priority.valueOf(priority),
+                        assignees == null ? Set.of() : new LinkedHashSet<>(CsvLists.split(assignees)));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new InvalidRowException(e.getMessage());
+            }
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = this.columns.get(column);
+            if (index == null || index >= fields.size() || fields.get(index).isEmpty()) return null;
+            return fields.get(index);
+        }
+
+        private LocalDate date(List<String> fields, String column) {
+            String value = field(fields, column);
+            return value == null ? null : LocalDate.parse(value);
+        }
+    }
+
+    private static class InvalidRowException extends Exception {
+        InvalidRowException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class ImportProgress {
+        private final UUID id = UUID.randomUUID();
+        private final long startNanos = System.nanoTime();
+        private final int maxReportedErrors;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong tasksImported = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final List<ImportRowError> errors = new ArrayList<>();
+
+        ImportProgress(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        void fail(long row, ApiError error) {
+            this.rowsFailed.incrementAndGet();
+            synchronized (this.errors) {
+                if (this.errors.size() < this.maxReportedErrors) this.errors.add(new ImportRowError(row, error));
+            }
+        }
+
+        ImportReport report(boolean finished) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startNanos);
+            long rows = this.rowsRead.get();
+            long failed = this.rowsFailed.get();
+            List<ImportRowError> reportedErrors;
+            synchronized (this.errors) {
+                reportedErrors = new ArrayList<>(this.errors);
+            }
+            reportedErrors.sort(Comparator.comparingLong(ImportRowError::row));
+
+            return new ImportReport(this.id, finished, rows, this.tasksImported.get(), failed, elapsedMillis,
+                    elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis, reportedErrors,
+                    failed > reportedErrors.size());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package projects.dnetsova.taskmanager.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.models.TaskExportRow;
+import projects.dnetsova.taskmanager.models.TaskSearchHit;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.utils.TaskInvertedIndex;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over the title and description of tasks, answered by an in-process
+ * {@link TaskInvertedIndex} instead of LIKE scans.
+ * <p>
+ * The index is built in the background at startup by streaming all tasks, and kept up to date from
+ * {@link TaskChangedEvent}s and {@link TasksImportedEvent}s, and from {@link UserChangedEvent}s for the assignees
+ * of renamed and removed users. Changes made while it is being built are replayed on top of it. Searches share a
+ * read lock, changes take the write lock for the short time it takes to index one task, or one imported batch.
+ * <p>
+ * Like the user name directory, the index only sees the changes made by this instance, so it is disabled
+ * unless tasks.search.enabled=true, which is only safe when a single instance writes tasks and users.
+ */
+@Service
+public class TaskSearchService {
+    // The hits are loaded with their assignees, like a page of tasks
+    public static final int MAX_LIMIT = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskSearchService.class);
+
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TaskInvertedIndex index = new TaskInvertedIndex();
+    private volatile boolean ready;
+
+    // Task and user changes received while the index is being built, null when no build is running
+    private List<Object> changesDuringLoad;
+
+    @Autowired
+    public TaskSearchService(TaskRepository taskRepository, TaskService taskService,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${tasks.search.enabled:false}") boolean enabled) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Builds the index in the background. Until the build completes, searches are rejected.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!this.enabled) return;
+
+        Thread loader = new Thread(this::load, "task-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Builds a new index from all tasks and replaces the current one.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            this.changesDuringLoad = new ArrayList<>();
+        }
+
+        TaskInvertedIndex loaded = new TaskInvertedIndex();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<TaskExportRow> rows = this.taskRepository.streamAllForExport()) {
+                Iterator<TaskDetails> tasks = TaskExportRow.groupByTask(rows.iterator());
+                while (tasks.hasNext()) put(loaded, tasks.next());
+            }
+        });
+
+        this.lock.writeLock().lock();
+        try {
+            synchronized (this) {
+                for (Object change : this.changesDuringLoad) apply(loaded, change);
+                this.changesDuringLoad = null;
+            }
+            this.index = loaded;
+            this.ready = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        LOGGER.info("Indexed {} tasks for search in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        onChange(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTasksImported(TasksImportedEvent event) {
+        onChange(event);
+    }
+
+    /**
+     * Removing a user unassigns it from its tasks, and renaming changes the name the tasks are filtered by,
+     * without a TaskChangedEvent for the tasks.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.before() != null) onChange(event);
+    }
+
+    private void onChange(Object event) {
+        if (!this.enabled) return;
+
+        synchronized (this) {
+            if (this.changesDuringLoad != null) this.changesDuringLoad.add(event);
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            apply(this.index, event);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tasks containing all words of the query in their title or description, ignoring case and accents.
+     * @param query the words to search for.
+     * @param filter conditions the tasks have to meet besides matching the query.
+     * @param limit the maximum number of results.
+     * @return the matching tasks, best match first. Title matches weigh more than description matches.
+     * @throws IllegalArgumentException when the query is blank or the limit is not between 1 and
+     * {@value #MAX_LIMIT}.
+     * @throws IllegalStateException when the search is disabled or the index is not built yet.
+     */
+    public List<TaskSearchHit> search(String query, TaskInvertedIndex.Filter filter, int limit)
+            throws IllegalArgumentException, IllegalStateException {
+        if (query == null || query.isBlank()) throw new IllegalArgumentException("Query cannot be empty.");
+        if (limit < 1) throw new IllegalArgumentException("Limit must be greater than 0");
+        if (limit > MAX_LIMIT) throw new IllegalArgumentException("Limit cannot be greater than " + MAX_LIMIT);
+        if (!this.enabled) throw new IllegalStateException("Task search is disabled.");
+        if (!this.ready) throw new IllegalStateException("Task search index is not built yet.");
+
+        List<TaskInvertedIndex.Hit> hits;
+        this.lock.readLock().lock();
+        try {
+            hits = this.index.search(query, filter, limit);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        Map<UUID, Float> scores = new HashMap<>();
+        for (TaskInvertedIndex.Hit hit : hits) scores.put(hit.taskId(), hit.score());
+
+        return this.taskService.getTasks(hits.stream().map(TaskInvertedIndex.Hit::taskId).toList()).stream()
+                .map(task -> new TaskSearchHit(task, scores.get(task.id())))
+                .toList();
+    }
+
+    private static void apply(TaskInvertedIndex index, Object change) {
+        if (change instanceof UserChangedEvent user) {
+            if (user.after() == null) {
+                index.removeAssignee(user.before());
+            } else {
+                index.renameAssignee(user.before(), user.after());
+            }
+        } else if (change instanceof TaskChangedEvent task) {
+            if (task.after() == null) {
+                index.remove(task.taskId());
+            } else {
+                put(index, task.after());
+            }
+        } else if (change instanceof TasksImportedEvent imported) {
+            for (TaskDetails task : imported.tasks()) put(index, task);
+        }
+    }
+
+    private static void put(TaskInvertedIndex index, TaskDetails task) {
+        index.put(task.id(), task.title(), task.description(), task.priority(), task.deadline(), task.assignees());
+    }
+}
@@ -0,0 +1,484 @@
+package projects.dnetsova.taskmanager.services;
+
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import projects.dnetsova.taskmanager.configuration.ReadOnlyTransactional;
+import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.exceptions.InvalidTaskException;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.*;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.Cursors;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Every change of a task done through this service is announced with a {@link TaskChangedEvent}.
+ * The partial edits may be buffered by the {@link TaskWriteBehindBuffer}, the task reads of this service
+ * include them.
+ */
+@Service
+public class TaskService {
+    // A team of 500 assigned to 1000 tasks, twice over
+    private static final long MAX_ASSIGNMENT_PAIRS = 1_000_000;
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    public TaskService(TaskRepository taskRepository, UserRepository userRepository,
+                       ApplicationEventPublisher eventPublisher, TaskWriteBehindBuffer writeBehindBuffer) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeBehindBuffer = writeBehindBuffer;
+    }
+
+    /**
+     * Retrieves the tasks with the given ids, in the same order. Ids of tasks which do not exist are skipped.
+     */
+    @ReadOnlyTransactional
+    public List<TaskDetails> getTasks(List<UUID> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<UUID, TaskSummary> summaries = new HashMap<>();
+        for (TaskSummary summary : this.taskRepository.findSummariesByIdIn(ids)) summaries.put(summary.id(), summary);
+
+        return withPendingEdits(withAssignees(ids.stream().map(summaries::get).filter(Objects::nonNull).toList()));
+    }
+
+    /**
+     * Validates the given attributes, resolves the assignees by name and saves a new task.
+     * @param request the attributes of the new task.
+     * @return the created task.
+     * @throws IllegalArgumentException when a required attribute is missing or the dates are inconsistent.
+     * @throws InvalidUserException when one of the assignees doesn't exist.
+     */
+    @Transactional
+    public TaskDetails addTask(TaskRequest request) throws IllegalArgumentException, InvalidUserException {
+        validate(request);
+
+        Task task = new Task();
+        apply(request, task);
+        task = this.taskRepository.saveAndFlush(task);
+        this.taskRepository.refreshFeedKeys(List.of(task.getId()));
+
+        TaskDetails created = TaskDetails.of(task);
+        this.eventPublisher.publishEvent(new TaskChangedEvent(null, created));
+        return created;
+    }
+
+    /**
+     * Retrieves a task together with its assignee names, without loading the Task entity.
+     * @param id the id of the task.
+     * @throws InvalidTaskException in case a task with such an id doesn't exist.
+     */
+    @ReadOnlyTransactional
+    public TaskDetails getTask(UUID id) throws InvalidTaskException {
+        TaskSummary summary = this.taskRepository.findSummaryById(id)
+                .orElseThrow(() -> new InvalidTaskException(id));
+
+        return withPendingEdits(withAssignees(List.of(summary))).get(0);
+    }
+
+    /**
+     * Replaces all attributes of the task with the given ones, including its assignees.
+     * @param id the id of the task to be updated.
+     * @param request the new attributes of the task.
+     * @return the updated task.
+     * @throws InvalidTaskException in case a task with such an id doesn't exist.
+     * @throws IllegalArgumentException when a required attribute is missing or the dates are inconsistent.
+     * @throws InvalidUserException when one of the assignees doesn't exist.
+     */
+    @Transactional
+    public TaskDetails updateTask(UUID id, TaskRequest request)
+            throws InvalidTaskException, IllegalArgumentException, InvalidUserException {
+        validate(request);
+        this.writeBehindBuffer.flushIfPending(id);
+
+        Task task = this.taskRepository.findById(id).orElseThrow(() -> new InvalidTaskException(id));
+        TaskDetails before = TaskDetails.of(task);
+        apply(request, task);
+        this.taskRepository.flush();
+        this.taskRepository.refreshFeedKeys(List.of(id));
+
+        TaskDetails updated = TaskDetails.of(task);
+        this.eventPublisher.publishEvent(new TaskChangedEvent(before, updated));
+        return updated;
+    }
+
+    /**
+     * Deletes the task and its assignments.
+     * @param id the id of the task to be deleted.
+     * @throws InvalidTaskException in case a task with such an id doesn't exist.
+     */
+    @Transactional
+    public void removeTask(UUID id) throws InvalidTaskException {
+        this.writeBehindBuffer.flushIfPending(id);
+        TaskDetails before = getTask(id);
+
+        this.taskRepository.deleteAssignments(id);
+        int deletedRows = this.taskRepository.delete(id);
+
+        if (deletedRows == 0) throw new InvalidTaskException(id);
+
+        this.eventPublisher.publishEvent(new TaskChangedEvent(before, null));
+    }
+
+    /**
+     * Changes some attributes of the task, leaving the others as they are. With write-behind enabled, the
+     * edit is buffered and written later together with the edits of other tasks, otherwise it is written
+     * right away.
+     * @param id the id of the task to be edited.
+     * @param edit the attributes to be changed and the assignees to be added or removed.
+     * @return the edited task.
+     * @throws InvalidTaskException in case a task with such an id doesn't exist.
+     * @throws IllegalArgumentException when the edit changes nothing, the new deadline is before the start date
+     * or a user is both added and removed.
+     * @throws InvalidUserException when one of the added or removed users doesn't exist.
+     */
+    public TaskDetails editTask(UUID id, TaskEdit edit)
+            throws InvalidTaskException, IllegalArgumentException, InvalidUserException {
+        boolean changesAssignees = !isEmpty(edit.addAssignees()) || !isEmpty(edit.removeAssignees());
+        if (edit.priority() == null && edit.deadline() == null && !changesAssignees) {
+            throw new IllegalArgumentException("The edit does not change anything.");
+        }
+
+        TaskDetails before = getTask(id);
+        if (edit.deadline() != null && before.startDate() != null && before.startDate().isAfter(edit.deadline())) {
+            throw new IllegalArgumentException("Start date cannot be after the deadline.");
+        }
+
+        Map<UUID, String> added = assigneeNamesById(edit.addAssignees());
+        Map<UUID, String> removed = assigneeNamesById(edit.removeAssignees());
+        for (Map.Entry<UUID, String> user : added.entrySet()) {
+            if (removed.containsKey(user.getKey())) {
+                throw new IllegalArgumentException("User '" + user.getValue() + "' cannot be both added and removed.");
+            }
+        }
+
+        TaskFieldEdit fieldEdit = new TaskFieldEdit(id, edit.priority(), edit.deadline(), added, removed);
+        if (this.writeBehindBuffer.isEnabled()) {
+            this.writeBehindBuffer.submit(fieldEdit);
+        } else {
+            this.taskRepository.applyEdits(List.of(fieldEdit));
+        }
+
+        TaskDetails edited = TaskWriteBehindBuffer.apply(before, fieldEdit);
+        this.eventPublisher.publishEvent(new TaskChangedEvent(before, edited));
+        return edited;
+    }
+
+    /**
+     * Assigns and unassigns many users to and from many tasks at once, writing the assignments directly rather
+     * than through the assignee collections of the tasks. Whatever the number of pairs, the users are resolved
+     * with a single query, the tasks and their current assignees with two more, and the assignments are
+     * inserted and deleted with multi-row statements. Pairs which are assigned, respectively unassigned,
+     * already are left out. The writes skip the pairs whose task or user was deleted in the meantime, so the
+     * assignees are read back afterwards, with one more query, and only the pairs found written are reported
+     * and announced with an event per task.
+     * @param assignments the (task, user) pairs to be assigned and unassigned.
+     * @return the number of pairs and tasks which changed.
+     * @throws IllegalArgumentException when there are no pairs or too many, a group misses its tasks or users,
+     * or a pair is both assigned and unassigned.
+     * @throws InvalidTaskException when one of the tasks doesn't exist.
+     * @throws InvalidUserException when one of the users doesn't exist.
+     */
+    @Transactional
+    public AssignmentReport changeAssignments(TaskAssignments assignments)
+            throws IllegalArgumentException, InvalidTaskException, InvalidUserException {
+        List<AssignmentGroup> assign = assignments.assign() == null ? List.of() : assignments.assign();
+        List<AssignmentGroup> unassign = assignments.unassign() == null ? List.of() : assignments.unassign();
+
+        // Counted before the pairs are expanded, so that an oversized request is turned down cheaply
+        long pairs = countPairs(assign) + countPairs(unassign);
+        if (pairs == 0) throw new IllegalArgumentException("The assignments do not change anything.");
+        if (pairs > MAX_ASSIGNMENT_PAIRS) {
+            throw new IllegalArgumentException("At most " + MAX_ASSIGNMENT_PAIRS + " assignments can be changed " +
+                    "at once.");
+        }
+
+        Set<String> names = new HashSet<>();
+        for (AssignmentGroup group : assign) names.addAll(group.users());
+        for (AssignmentGroup group : unassign) names.addAll(group.users());
+        Map<String, User> usersByKey = new HashMap<>();
+        for (User user : findAssignees(names)) usersByKey.put(UserNames.normalize(user.getName()), user);
+
+        // User name keys by task id
+        Map<UUID, Set<String>> assigned = expand(assign);
+        Map<UUID, Set<String>> unassigned = expand(unassign);
+        for (Map.Entry<UUID, Set<String>> task : unassigned.entrySet()) {
+            for (String key : task.getValue()) {
+                if (assigned.getOrDefault(task.getKey(), Set.of()).contains(key)) {
+                    throw new IllegalArgumentException("User '" + usersByKey.get(key).getName() + "' cannot be " +
+                            "both assigned to and unassigned from task '" + task.getKey() + "'.");
+                }
+            }
+        }
+
+        Set<UUID> taskIds = new HashSet<>(assigned.keySet());
+        taskIds.addAll(unassigned.keySet());
+        for (UUID taskId : taskIds) this.writeBehindBuffer.flushIfPending(taskId);
+
+        List<TaskSummary> summaries = this.taskRepository.findSummariesByIdIn(taskIds);
+        if (summaries.size() < taskIds.size()) {
+            for (TaskSummary summary : summaries) taskIds.remove(summary.id());
+            throw new InvalidTaskException(taskIds.iterator().next());
+        }
+
+        List<TaskDetails> before = new ArrayList<>();
+        List<TaskFieldEdit> edits = new ArrayList<>();
+        for (TaskDetails task : withAssignees(summaries)) {
+            Set<String> currentKeys = new HashSet<>();
+            for (String name : task.assignees()) currentKeys.add(UserNames.normalize(name));
+
+            Map<UUID, String> added = new LinkedHashMap<>();
+            for (String key : assigned.getOrDefault(task.id(), Set.of())) {
+                User user = usersByKey.get(key);
+                if (!currentKeys.contains(key)) added.put(user.getId(), user.getName());
+            }
+            Map<UUID, String> removed = new LinkedHashMap<>();
+            for (String key : unassigned.getOrDefault(task.id(), Set.of())) {
+                User user = usersByKey.get(key);
+                if (currentKeys.contains(key)) removed.put(user.getId(), user.getName());
+            }
+            if (added.isEmpty() && removed.isEmpty()) continue;
+
+            before.add(task);
+            edits.add(new TaskFieldEdit(task.id(), null, null, added, removed));
+        }
+
+        if (edits.isEmpty()) return new AssignmentReport(0, 0, 0);
+        this.taskRepository.applyEdits(edits);
+
+        // Reads this transaction's own writes, the pairs skipped by them are missing
+        Map<UUID, Set<String>> written = new HashMap<>();
+        for (TaskAssignee assignee : this.taskRepository.findAssigneeNames(edits.stream()
+                .map(TaskFieldEdit::taskId).toList())) {
+            written.computeIfAbsent(assignee.taskId(), taskId -> new HashSet<>())
+                    .add(UserNames.normalize(assignee.name()));
+        }
+
+        int assignedCount = 0;
+        int unassignedCount = 0;
+        int tasksChanged = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            Set<String> keys = written.getOrDefault(edits.get(i).taskId(), Set.of());
+            Map<UUID, String> added = new LinkedHashMap<>(edits.get(i).addedAssignees());
+            added.values().removeIf(name -> !keys.contains(UserNames.normalize(name)));
+            Map<UUID, String> removed = new LinkedHashMap<>(edits.get(i).removedAssignees());
+            removed.values().removeIf(name -> keys.contains(UserNames.normalize(name)));
+            if (added.isEmpty() && removed.isEmpty()) continue;
+
+            TaskFieldEdit applied = new TaskFieldEdit(edits.get(i).taskId(), null, null, added, removed);
+            this.eventPublisher.publishEvent(new TaskChangedEvent(before.get(i),
+                    TaskWriteBehindBuffer.apply(before.get(i), applied)));
+            assignedCount += added.size();
+            unassignedCount += removed.size();
+            tasksChanged++;
+        }
+        return new AssignmentReport(assignedCount, unassignedCount, tasksChanged);
+    }
+
+    /**
+     * Retrieves a page of tasks with their assignee names. Whatever the page size, this costs
+     * the page query, its count query and one query for the assignees of all tasks of the page.
+     * @param page The page index. The first page is 1.
+     * @param size The number of items per page.
+     * @return CustomPage<TaskDetails> - the tasks of the page, number of total pages and number of total elements.
+     * @throws IllegalArgumentException when page and/or size are not positive.
+     */
+    @ReadOnlyTransactional
+    public CustomPage<TaskDetails> getAllTasks(int page, int size) throws IllegalArgumentException {
+        if (page <= 0) throw new IllegalArgumentException("Page must be greater than 0");
+        if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
+
+        Page<TaskSummary> p = this.taskRepository.findAllSummaries(PageRequest.of(page - 1, size));
+        return new CustomPage<>(withPendingEdits(withAssignees(p.getContent())), p.getTotalPages(),
+                p.getTotalElements());
+    }
+
+    /**
+     * Retrieves a page of the tasks assigned to the user, ordered by deadline, then priority.
+     * Tasks without a deadline come last. The page is retrieved by keyset, so every page costs
+     * the same, however many tasks the user has.
+     * @param name the name of the user.
+     * @param after The cursor returned with the previous page, or an empty string for the first page.
+     * @param size The number of items per page.
+     * @return CursorPage<TaskFeedEntry> - the tasks of the page and the cursor of the next page, if there is one.
+     * @throws InvalidUserException in case a user with such a name doesn't exist.
+     * @throws IllegalArgumentException when size is not positive or the cursor is malformed.
+     */
+    @ReadOnlyTransactional
+    public CursorPage<TaskFeedEntry> getUserTasks(String name, String after, int size)
+            throws InvalidUserException, IllegalArgumentException {
+        if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
+
+        FeedPosition position = after.isEmpty() ? null : FeedPosition.decode(after);
+        UUID userId = this.userRepository.findIdByName(name).orElseThrow(() -> new InvalidUserException(name));
+
+        // One extra row is fetched to find out whether there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<TaskFeedEntry> tasks = new ArrayList<>(size + 1);
+
+        if (position == null) {
+            tasks.addAll(this.taskRepository.findFeedWithDeadline(userId, limit));
+        } else if (position.deadline() != null) {
+            tasks.addAll(this.taskRepository.findFeedWithDeadlineAfter(userId, position.deadline(),
+                    position.priority(), position.id(), limit));
+        }
+
+        if (tasks.size() <= size) {
+            Limit remaining = Limit.of(size + 1 - tasks.size());
+
+            if (position == null || position.deadline() != null) {
+                tasks.addAll(this.taskRepository.findFeedWithoutDeadline(userId, remaining));
+            } else {
+                tasks.addAll(this.taskRepository.findFeedWithoutDeadlineAfter(userId, position.priority(),
+                        position.id(), remaining));
+            }
+        }
+
+        String nextCursor = null;
+        if (tasks.size() > size) {
+            tasks = tasks.subList(0, size);
+            nextCursor = FeedPosition.of(tasks.get(size - 1)).encode();
+        }
+
+        return new CursorPage<>(tasks, nextCursor, null);
+    }
+
+    /**
+     * Attaches the assignee names to the given tasks, with a single query for all of them.
+     */
+    private List<TaskDetails> withAssignees(List<TaskSummary> summaries) {
+        if (summaries.isEmpty()) return List.of();
+
+        List<UUID> ids = summaries.stream().map(TaskSummary::id).toList();
+        Map<UUID, List<String>> assigneesByTask = new HashMap<>();
+        for (TaskAssignee assignee : this.taskRepository.findAssigneeNames(ids)) {
+            assigneesByTask.computeIfAbsent(assignee.taskId(), taskId -> new ArrayList<>()).add(assignee.name());
+        }
+
+        return summaries.stream()
+                .map(summary -> new TaskDetails(summary, assigneesByTask.getOrDefault(summary.id(), List.of())))
+                .toList();
+    }
+
+    private List<TaskDetails> withPendingEdits(List<TaskDetails> tasks) {
+        return this.writeBehindBuffer.hasPendingEdits() ? this.writeBehindBuffer.overlay(tasks) : tasks;
+    }
+
+    static void validate(TaskRequest request) throws IllegalArgumentException {
+        if (request.title() == null || request.title().isBlank()) {
+            throw new IllegalArgumentException("Title cannot be empty.");
+        }
+        if (request.priority() == null) {
+            throw new IllegalArgumentException("Priority cannot be empty.");
+        }
+        if (request.startDate() != null && request.deadline() != null
+                && request.startDate().isAfter(request.deadline())) {
+            throw new IllegalArgumentException("Start date cannot be after the deadline.");
+        }
+    }
+
+    private void apply(TaskRequest request, Task task) throws InvalidUserException {
+        // Resolved first, so that an unknown assignee leaves the task untouched
+        Set<User> assignees = findAssignees(request.assignees());
+
+        task.setTitle(request.title());
+        task.setDescription(request.description());
+        task.setStartDate(request.startDate());
+        task.setDeadline(request.deadline());
+        task.setRepeatDate(request.repeatDate());
+        task.setPriority(request.priority());
+        task.setAssignees(assignees);
+    }
+
+    private Set<User> findAssignees(Set<String> names) throws InvalidUserException {
+        if (names == null || names.isEmpty()) return new HashSet<>();
+
+        List<User> users = this.userRepository.findByNameIn(names);
+        Set<String> foundKeys = new HashSet<>();
+        for (User user : users) foundKeys.add(UserNames.normalize(user.getName()));
+
+        for (String name : names) {
+            if (!foundKeys.contains(UserNames.normalize(name))) throw new InvalidUserException(name);
+        }
+
+        return new HashSet<>(users);
+    }
+
+    private Map<UUID, String> assigneeNamesById(Set<String> names) throws InvalidUserException {
+        Map<UUID, String> namesById = new LinkedHashMap<>();
+        for (User user : findAssignees(names)) namesById.put(user.getId(), user.getName());
+        return namesById;
+    }
+
+    private static long countPairs(List<AssignmentGroup> groups) throws IllegalArgumentException {
+        long pairs = 0;
+        for (AssignmentGroup group : groups) {
+            if (group == null || group.taskIds() == null || group.taskIds().isEmpty()
+                    || group.users() == null || group.users().isEmpty()) {
+                throw new IllegalArgumentException("Every assignment group needs tasks and users.");
+            }
+            if (group.taskIds().stream().anyMatch(Objects::isNull)
+                    || group.users().stream().anyMatch(name -> name == null || name.isBlank())) {
+                throw new IllegalArgumentException("Task ids and user names cannot be empty.");
+            }
+            pairs += (long) group.taskIds().size() * group.users().size();
+        }
+        return pairs;
+    }
+
+    private static Map<UUID, Set<String>> expand(List<AssignmentGroup> groups) {
+        Map<UUID, Set<String>> keysByTask = new HashMap<>();
+        for (AssignmentGroup group : groups) {
+            Set<String> keys = new HashSet<>();
+            for (String name : group.users()) keys.add(UserNames.normalize(name));
+            for (UUID taskId : group.taskIds()) keysByTask.computeIfAbsent(taskId, id -> new HashSet<>()).addAll(keys);
+        }
+        return keysByTask;
+    }
+
+    private static boolean isEmpty(Set<String> names) {
+        return names == null || names.isEmpty();
+    }
+
+    /**
+     * Keyset position in a user's task feed.
+     */
+    private record FeedPosition(LocalDate deadline, Priority priority, UUID id) {
+        static FeedPosition of(TaskFeedEntry task) {
+            return new FeedPosition(task.deadline(), task.priority(), task.id());
+        }
+
+        static FeedPosition decode(String cursor) throws IllegalArgumentException {
+            List<String> keys = Cursors.decode(cursor, 3);
+
+            try {
+                return new FeedPosition(keys.get(0) == null ? null : LocalDate.parse(keys.get(0)),
+                        Priority.valueOf(keys.get(1)), UUID.fromString(keys.get(2)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            return Cursors.encode(deadline == null ? null : deadline.toString(), priority.name(), id.toString());
+        }
+    }
+}
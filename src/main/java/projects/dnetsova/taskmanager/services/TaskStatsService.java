@@ -0,0 +1,328 @@
+package projects.dnetsova.taskmanager.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.TaskCountSummary;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
+import projects.dnetsova.taskmanager.models.AssigneeCount;
+import projects.dnetsova.taskmanager.models.PriorityCount;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.models.TaskStats;
+import projects.dnetsova.taskmanager.repositories.TaskCountSummaryRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Task counts per priority and per assignee, kept in memory so that the dashboard never counts the tasks.
+ * <p>
+ * The counters are striped {@link LongAdder}s moved by the {@link TaskChangedEvent}s, {@link TasksImportedEvent}s and
+ * {@link UserChangedEvent}s, so concurrent writes do not contend on them. At startup they are loaded in the
+ * background from the task_count_summary table, which holds one row per priority and per assignee, and the
+ * counters changed since are written back to it every tasks.stats.flush-interval-ms. The table is only built
+ * from the tasks when it is empty.
+ * <p>
+ * Changes missed by the counters are repaired by a verification counting the tasks every
+ * tasks.stats.verify-interval-ms. A difference is only repaired when the next verification finds it again, as a
+ * single one may be a write committed but not counted yet.
+ * <p>
+ * Every instance writes its own counts over the shared summary rows and only counts its own writes, so the
+ * counters are disabled unless tasks.stats.enabled=true, which is only right when a single instance writes tasks
+ * and users.
+ */
+@Service
+public class TaskStatsService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskStatsService.class);
+    private static final String PRIORITY_PREFIX = "priority:";
+    private static final String ASSIGNEE_PREFIX = "assignee:";
+
+    private final TaskRepository taskRepository;
+    private final TaskCountSummaryRepository summaryRepository;
+    private final TaskWriteBehindBuffer writeBehindBuffer;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final boolean enabled;
+
+    private final Map<Priority, LongAdder> byPriority = new EnumMap<>(Priority.class);
+    // Keyed by normalized user name
+    private final ConcurrentMap<String, AssigneeCounter> byAssignee = new ConcurrentHashMap<>();
+    // Summary rows to be written, by name
+    private final Set<String> changedRows = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+    // While the tasks are counted, the changes are part of the count or left to the verification
+    private volatile boolean countingTasks;
+
+    // Differences found by the last verification, by summary row name. Guarded by this
+    private Map<String, Long> suspectedDrift = Map.of();
+
+    @Autowired
+    public TaskStatsService(TaskRepository taskRepository, TaskCountSummaryRepository summaryRepository,
+                            TaskWriteBehindBuffer writeBehindBuffer, TransactionTemplate transactionTemplate,
+                            Clock clock, @Value("${tasks.stats.enabled:false}") boolean enabled) {
+        this.taskRepository = taskRepository;
+        this.summaryRepository = summaryRepository;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.enabled = enabled;
+
+        for (Priority priority : Priority.values()) this.byPriority.put(priority, new LongAdder());
+    }
+
+    /**
+     * Loads the counters in the background. Until they are loaded, the statistics are not served.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!this.enabled) return;
+
+        Thread loader = new Thread(this::load, "task-stats-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Adds the stored counts to the counters, which already hold the changes made since the start. When
+     * nothing is stored yet, the tasks are counted instead and replace the counters, since the count includes
+     * the changes committed before it. The changes received during the count are dropped, the ones it misses
+     * are repaired by the verification.
+     */
+    public void load() {
+        List<TaskCountSummary> rows = this.summaryRepository.findAll();
+
+        if (rows.isEmpty()) {
+            this.countingTasks = true;
+            try {
+                List<PriorityCount> priorities = this.taskRepository.countByPriority();
+                List<AssigneeCount> assignees = this.taskRepository.countByAssignee();
+
+                this.byPriority.values().forEach(LongAdder::reset);
+                this.byAssignee.clear();
+                for (PriorityCount count : priorities) add(count.priority(), count.count());
+                for (AssigneeCount count : assignees) add(count.name(), count.count());
+            } finally {
+                this.countingTasks = false;
+            }
+        } else {
+            for (TaskCountSummary row : rows) {
+                if (row.getName().startsWith(PRIORITY_PREFIX)) {
+                    add(Priority.valueOf(row.getName().substring(PRIORITY_PREFIX.length())), row.getTaskCount());
+                } else {
+                    add(row.getLabel(), row.getTaskCount());
+                }
+            }
+        }
+
+        this.ready = true;
+        LOGGER.info("Loaded the task counters from {}", rows.isEmpty() ? "the tasks" : "the summary table");
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * @return the current counts. Takes time in the number of assignees, not of tasks.
+     * @throws IllegalStateException when the counters are not loaded yet or are disabled.
+     */
+    public TaskStats getStats() throws IllegalStateException {
+        if (!this.enabled) throw new IllegalStateException("Task statistics are disabled.");
+        if (!this.ready) throw new IllegalStateException("Task statistics are not loaded yet.");
+
+        long total = 0;
+        Map<Priority, Long> priorities = new EnumMap<>(Priority.class);
+        for (Map.Entry<Priority, LongAdder> counter : this.byPriority.entrySet()) {
+            long count = counter.getValue().sum();
+            priorities.put(counter.getKey(), count);
+            total += count;
+        }
+
+        Map<String, Long> assignees = new TreeMap<>();
+        for (AssigneeCounter counter : this.byAssignee.values()) {
+            long count = counter.count.sum();
+            if (count > 0) assignees.put(counter.name, count);
+        }
+
+        return new TaskStats(total, priorities, assignees);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (!this.enabled || this.countingTasks) return;
+
+        if (event.before() != null) count(event.before(), -1);
+        if (event.after() != null) count(event.after(), 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTasksImported(TasksImportedEvent event) {
+        if (!this.enabled || this.countingTasks) return;
+
+        for (TaskDetails task : event.tasks()) count(task, 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!this.enabled || this.countingTasks || event.before() == null) return;
+
+        String oldKey = UserNames.normalize(event.before());
+        AssigneeCounter counter = this.byAssignee.remove(oldKey);
+        if (counter == null) return;
+        this.changedRows.add(ASSIGNEE_PREFIX + oldKey);
+
+        // A removed user is unassigned from all tasks, a renamed one keeps them
+        if (event.after() == null) return;
+
+        String newKey = UserNames.normalize(event.after());
+        AssigneeCounter renamed = new AssigneeCounter(event.after());
+        renamed.count.add(counter.count.sum());
+        this.byAssignee.merge(newKey, renamed, (existing, moved) -> {
+            existing.count.add(moved.count.sum());
+            return existing;
+        });
+        this.changedRows.add(ASSIGNEE_PREFIX + newKey);
+    }
+
+    /**
+     * Writes the counts changed since the last flush to the summary table, and on shutdown the ones changed
+     * since the last scheduled flush.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${tasks.stats.flush-interval-ms:60000}",
+            initialDelayString = "${tasks.stats.flush-interval-ms:60000}")
+    public void flush() {
+        if (!this.enabled || !this.ready || this.changedRows.isEmpty()) return;
+
+        List<String> names = new ArrayList<>(this.changedRows);
+        this.changedRows.removeAll(names);
+
+        List<TaskCountSummary> updated = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (String name : names) {
+            long count = currentCount(name);
+            if (count == 0) {
+                deleted.add(name);
+            } else {
+                updated.add(new TaskCountSummary(name, label(name), count, this.clock.instant()));
+            }
+        }
+
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.summaryRepository.saveAll(updated);
+                this.summaryRepository.deleteAllByIdInBatch(deleted);
+            });
+        } catch (RuntimeException e) {
+            this.changedRows.addAll(names);
+            LOGGER.warn("Writing the task counters failed, they are written with the next flush", e);
+        }
+    }
+
+    /**
+     * Counts the tasks and repairs the counters which differ by the same amount as at the last verification.
+     * @return the number of repaired counters.
+     */
+    @Scheduled(fixedDelayString = "${tasks.stats.verify-interval-ms:900000}",
+            initialDelayString = "${tasks.stats.verify-interval-ms:900000}")
+    public synchronized int verify() {
+        if (!this.enabled || !this.ready) return 0;
+        // The buffered edits are counted already but not written yet
+        if (this.writeBehindBuffer.hasPendingEdits()) return 0;
+
+        Map<String, Long> actual = new HashMap<>();
+        Map<String, String> labels = new HashMap<>();
+        for (PriorityCount count : this.taskRepository.countByPriority()) {
+            actual.put(PRIORITY_PREFIX + count.priority().name(), count.count());
+        }
+        for (AssigneeCount count : this.taskRepository.countByAssignee()) {
+            String name = ASSIGNEE_PREFIX + UserNames.normalize(count.name());
+            actual.merge(name, count.count(), Long::sum);
+            labels.put(name, count.name());
+        }
+
+        Set<String> names = new HashSet<>(actual.keySet());
+        for (Priority priority : Priority.values()) names.add(PRIORITY_PREFIX + priority.name());
+        for (String key : this.byAssignee.keySet()) names.add(ASSIGNEE_PREFIX + key);
+
+        Map<String, Long> drift = new HashMap<>();
+        for (String name : names) {
+            long difference = actual.getOrDefault(name, 0L) - currentCount(name);
+            if (difference != 0) drift.put(name, difference);
+        }
+
+        int repaired = 0;
+        for (Map.Entry<String, Long> difference : drift.entrySet()) {
+            String name = difference.getKey();
+            if (!difference.getValue().equals(this.suspectedDrift.get(name))) continue;
+
+            if (name.startsWith(PRIORITY_PREFIX)) {
+                add(Priority.valueOf(name.substring(PRIORITY_PREFIX.length())), difference.getValue());
+            } else {
+                add(labels.getOrDefault(name, label(name)), difference.getValue());
+            }
+            repaired++;
+        }
+
+        if (repaired > 0) LOGGER.warn("Repaired {} task counters which drifted from the tasks", repaired);
+        this.suspectedDrift = drift;
+        return repaired;
+    }
+
+    private void count(TaskDetails task, int delta) {
+        add(task.priority(), delta);
+        for (String assignee : task.assignees()) add(assignee, delta);
+    }
+
+    private void add(Priority priority, long delta) {
+        this.byPriority.get(priority).add(delta);
+        this.changedRows.add(PRIORITY_PREFIX + priority.name());
+    }
+
+    private void add(String assignee, long delta) {
+        String key = UserNames.normalize(assignee);
+        this.byAssignee.computeIfAbsent(key, k -> new AssigneeCounter(assignee)).count.add(delta);
+        this.changedRows.add(ASSIGNEE_PREFIX + key);
+    }
+
+    private long currentCount(String name) {
+        if (name.startsWith(PRIORITY_PREFIX)) {
+            return this.byPriority.get(Priority.valueOf(name.substring(PRIORITY_PREFIX.length()))).sum();
+        }
+
+        AssigneeCounter counter = this.byAssignee.get(name.substring(ASSIGNEE_PREFIX.length()));
+        return counter == null ? 0 : counter.count.sum();
+    }
+
+    private String label(String name) {
+        if (name.startsWith(PRIORITY_PREFIX)) return name.substring(PRIORITY_PREFIX.length());
+
+        AssigneeCounter counter = this.byAssignee.get(name.substring(ASSIGNEE_PREFIX.length()));
+        return counter == null ? name.substring(ASSIGNEE_PREFIX.length()) : counter.name;
+    }
+
+    private static class AssigneeCounter {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private AssigneeCounter(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package projects.dnetsova.taskmanager.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.models.TaskFieldEdit;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer of the partial task edits, enabled with tasks.write-behind.enabled.
+ * <p>
+ * The edits are merged per task in memory and written together with a few multi-row statements (see
+ * {@link TaskRepository#applyEdits}) every tasks.write-behind.flush-interval-ms, or as soon as
+ * tasks.write-behind.max-pending tasks have buffered edits. Twice as many make the editing requests flush
+ * themselves, which bounds the buffer while the database keeps up. An edit is appended to the
+ * {@link TaskEditJournal} before it is acknowledged, and the edits found in the journal at startup are
+ * buffered again, so no acknowledged edit is lost by a crash. A failed flush keeps its edits for the next one.
+ * <p>
+ * The task reads of {@link TaskService} see the buffered edits, including while they are being flushed.
+ * The queries which filter or sort by the edited attributes (the user task feed, the deadline scan, the
+ * export) only see them once flushed. The edits of a journal segment whose deletion failed after a flush
+ * are written again at the next startup.
+ */
+@Service
+public class TaskWriteBehindBuffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskWriteBehindBuffer.class);
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPending;
+    private final TaskEditJournal journal;
+    private final ExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+
+    // Guarded by this
+    private Map<UUID, TaskFieldEdit> pending = new HashMap<>();
+    private Map<UUID, TaskFieldEdit> flushing = Map.of();
+    private final List<Path> unflushedSegments = new ArrayList<>();
+
+    @Autowired
+    public TaskWriteBehindBuffer(TaskRepository taskRepository, TransactionTemplate transactionTemplate,
+                                 @Value("${tasks.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${tasks.write-behind.max-pending:1000}") int maxPending,
+                                 @Value("${tasks.write-behind.journal-dir:data/task-edits}") String journalDir,
+                                 @Value("${tasks.write-behind.journal-fsync:true}") boolean journalFsync)
+            throws IOException {
+        this.taskRepository = taskRepository;
+        // A flush commits on its own, also when it is started from within the transaction of a request
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+
+        if (!enabled) {
+            this.journal = null;
+            this.flusher = null;
+            return;
+        }
+
+        this.journal = new TaskEditJournal(Path.of(journalDir), journalFsync);
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<TaskFieldEdit> recovered = this.journal.recover();
+        for (TaskFieldEdit edit : recovered) this.pending.merge(edit.taskId(), edit, TaskFieldEdit::then);
+        this.unflushedSegments.addAll(this.journal.recoveredSegments());
+        if (!recovered.isEmpty()) {
+            LOGGER.info("Recovered {} task edits of {} tasks from the journal", recovered.size(), this.pending.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public synchronized boolean hasPendingEdits() {
+        return !this.pending.isEmpty() || !this.flushing.isEmpty();
+    }
+
+    /**
+     * Journals and buffers the edit. Returns once the edit is durable.
+     * @throws UncheckedIOException when the edit cannot be journaled.
+     */
+    public void submit(TaskFieldEdit edit) throws UncheckedIOException {
+        long position;
+        int pendingTasks;
+
+        try {
+            // Appended and buffered together, so a flush rotating the journal takes both or neither
+            synchronized (this) {
+                position = this.journal.append(edit);
+                this.pending.merge(edit.taskId(), edit, TaskFieldEdit::then);
+                pendingTasks = this.pending.size();
+            }
+            this.journal.sync(position);
+        } catch (IOException e) {
+            LOGGER.error("Could not journal the edit of the task {}", edit.taskId(), e);
+            throw new UncheckedIOException(e);
+        }
+
+        if (pendingTasks >= 2 * this.maxPending) {
+            flush();
+        } else if (pendingTasks >= this.maxPending && this.flushRequested.compareAndSet(false, true)) {
+            this.flusher.execute(() -> {
+                this.flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * @return the tasks with their buffered edits applied.
+     */
+    public List<TaskDetails> overlay(List<TaskDetails> tasks) {
+        List<TaskDetails> result = new ArrayList<>(tasks.size());
+
+        synchronized (this) {
+            for (TaskDetails task : tasks) {
+                TaskFieldEdit beingFlushed = this.flushing.get(task.id());
+                TaskFieldEdit buffered = this.pending.get(task.id());
+
+                if (beingFlushed != null) task = apply(task, beingFlushed);
+                if (buffered != null) task = apply(task, buffered);
+                result.add(task);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Flushes the buffer if it holds edits of the task, so that they are not written over a later change
+     * of the task made directly.
+     */
+    public void flushIfPending(UUID taskId) {
+        if (!this.enabled) return;
+
+        boolean hasEdits;
+        synchronized (this) {
+            hasEdits = this.pending.containsKey(taskId) || this.flushing.containsKey(taskId);
+        }
+        if (hasEdits) flush();
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.write-behind.flush-interval-ms:1000}",
+            initialDelayString = "${tasks.write-behind.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (this.enabled) flushQuietly();
+    }
+
+    /**
+     * Writes all buffered edits in a transaction of their own, then drops the journal segments holding them.
+     * Edits submitted meanwhile are kept for the next flush.
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            Map<UUID, TaskFieldEdit> batch;
+            List<Path> segments;
+
+            synchronized (this) {
+                if (this.pending.isEmpty() && this.unflushedSegments.isEmpty()) return;
+
+                try {
+                    this.unflushedSegments.add(this.journal.rotate());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                segments = List.copyOf(this.unflushedSegments);
+                batch = this.pending;
+                this.flushing = batch;
+                this.pending = new HashMap<>();
+            }
+
+            try {
+                if (!batch.isEmpty()) {
+                    this.transactionTemplate.executeWithoutResult(status ->
+                            this.taskRepository.applyEdits(batch.values()));
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    // Put back under the edits submitted meanwhile
+                    Map<UUID, TaskFieldEdit> restored = new HashMap<>(batch);
+                    this.pending.forEach((taskId, edit) -> restored.merge(taskId, edit, TaskFieldEdit::then));
+                    this.pending = restored;
+                    this.flushing = Map.of();
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                this.flushing = Map.of();
+                this.unflushedSegments.removeAll(segments);
+            }
+
+            try {
+                this.journal.delete(segments);
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete the flushed task edit journal segments {}", segments, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!this.enabled) return;
+
+        this.flusher.shutdown();
+        flushQuietly();
+        this.journal.close();
+    }
+
+    /**
+     * @return the task with the edit applied.
+     */
+    static TaskDetails apply(TaskDetails task, TaskFieldEdit edit) {
+        Set<String> removedKeys = new HashSet<>();
+        for (String name : edit.removedAssignees().values()) removedKeys.add(UserNames.normalize(name));
+
+        List<String> assignees = new ArrayList<>();
+        Set<String> assigneeKeys = new HashSet<>();
+        for (String name : task.assignees()) {
+            String key = UserNames.normalize(name);
+            if (!removedKeys.contains(key) && assigneeKeys.add(key)) assignees.add(name);
+        }
+        for (String name : edit.addedAssignees().values()) {
+            if (assigneeKeys.add(UserNames.normalize(name))) assignees.add(name);
+        }
+        assignees.sort(null);
+
+        return new TaskDetails(task.id(), task.title(), task.description(), task.startDate(),
+                edit.deadline() != null ? edit.deadline() : task.deadline(), task.repeatDate(),
+                edit.priority() != null ? edit.priority() : task.priority(), assignees);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Flushing the task edits failed, they are kept for the next flush", e);
+        }
+    }
+}
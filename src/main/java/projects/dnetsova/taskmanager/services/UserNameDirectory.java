@@ -0,0 +1,215 @@
+package projects.dnetsova.taskmanager.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.BloomFilter;
+import projects.dnetsova.taskmanager.utils.PackedSortedNames;
+import projects.dnetsova.taskmanager.utils.UserNames;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-process directory of all user names. Answers "does this name exist" and prefix lookups without a
+ * database round trip.
+ * <p>
+ * The names loaded at startup are kept in a compact {@link PackedSortedNames} guarded by a {@link BloomFilter}.
+ * Writes done afterwards by {@link UserService} go to small overlay collections, which are merged into a new
+ * packed snapshot once they grow. Readers never lock.
+ * <p>
+ * Names written to the database by other application instances are not seen, and a name created by another
+ * instance would be rejected as absent. The directory is therefore disabled by default, enable it
+ * (users.directory.enabled=true) only when a single instance writes users.
+ */
+@Component
+public class UserNameDirectory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserNameDirectory.class);
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final int MIN_OVERLAY_SIZE_BEFORE_COMPACTION = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+
+    private volatile Snapshot snapshot = new Snapshot(PackedSortedNames.empty(), new BloomFilter(0, FALSE_POSITIVE_RATE));
+    private volatile boolean ready;
+
+    // Changes made after the snapshot was built, keyed by normalized name
+    private final ConcurrentSkipListMap<String, String> addedNames = new ConcurrentSkipListMap<>();
+    private final Set<String> removedKeys = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public UserNameDirectory(UserRepository userRepository,
+                             @Value("${users.directory.enabled:false}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Loads all user names in the background. Until the load completes, the directory answers
+     * no existence checks and prefix lookups fall back to the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!this.enabled) return;
+
+        Thread loader = new Thread(this::load, "user-name-directory-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Loads all user names, replacing the current snapshot.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<>();
+        String lastName = "";
+
+        List<String> page;
+        do {
+            page = this.userRepository.findUserNamesAfter(lastName, Limit.of(LOAD_PAGE_SIZE));
+            names.addAll(page);
+            if (!page.isEmpty()) lastName = page.get(page.size() - 1);
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        synchronized (this) {
+            this.snapshot = buildSnapshot(names);
+            this.ready = true;
+        }
+
+        LOGGER.info("Loaded {} user names in {} ms, using {} bytes", names.size(),
+                (System.nanoTime() - start) / 1_000_000, this.snapshot.sizeInBytes());
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * @return true only if the directory is loaded and certain that no user with the given name exists.
+     * False means the name may exist and the database has to be asked.
+     */
+    public boolean definitelyAbsent(String name) {
+        if (!this.ready) return false;
+
+        String key = UserNames.normalize(name);
+        if (this.addedNames.containsKey(key)) return false;
+
+        Snapshot current = this.snapshot;
+        return !current.bloomFilter().mightContain(key)
+                || this.removedKeys.contains(key)
+                || !current.names().contains(key);
+    }
+
+    /**
+     * @return up to limit names starting with the given prefix, ignoring case and accents, in name order.
+     * @throws IllegalStateException if the directory is not loaded yet.
+     */
+    public List<String> findByPrefix(String prefix, int limit) throws IllegalStateException {
+        if (!this.ready) throw new IllegalStateException("User name directory is not loaded");
+
+        String keyPrefix = UserNames.normalize(prefix);
+        Snapshot current = this.snapshot;
+        PackedSortedNames names = current.names();
+
+        Iterator<Map.Entry<String, String>> added = this.addedNames.tailMap(keyPrefix).entrySet().iterator();
+        Map.Entry<String, String> nextAdded = added.hasNext() ? added.next() : null;
+        int index = names.lowerBound(keyPrefix);
+        String nextName = index < names.size() ? names.get(index) : null;
+        String nextKey = nextName != null ? UserNames.normalize(nextName) : null;
+
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit) {
+            boolean addedMatches = nextAdded != null && nextAdded.getKey().startsWith(keyPrefix);
+            boolean snapshotMatches = nextKey != null && nextKey.startsWith(keyPrefix);
+            if (!addedMatches && !snapshotMatches) break;
+
+            if (addedMatches && (!snapshotMatches || nextAdded.getKey().compareTo(nextKey) <= 0)) {
+                if (!this.removedKeys.contains(nextAdded.getKey())) result.add(nextAdded.getValue());
+                // the same name may also be in the snapshot if it was added while the snapshot was built
+                if (snapshotMatches && nextAdded.getKey().equals(nextKey)) {
+                    index++;
+                    nextName = index < names.size() ? names.get(index) : null;
+                    nextKey = nextName != null ? UserNames.normalize(nextName) : null;
+                }
+                nextAdded = added.hasNext() ? added.next() : null;
+            } else {
+                if (!this.removedKeys.contains(nextKey)) result.add(nextName);
+                index++;
+                nextName = index < names.size() ? names.get(index) : null;
+                nextKey = nextName != null ? UserNames.normalize(nextName) : null;
+            }
+        }
+
+        return result;
+    }
+
+    public synchronized void added(String name) {
+        String key = UserNames.normalize(name);
+
+        this.snapshot.bloomFilter().add(key);
+        this.addedNames.put(key, name);
+        this.removedKeys.remove(key);
+
+        compactIfNeeded();
+    }
+
+    public synchronized void removed(String name) {
+        String key = UserNames.normalize(name);
+
+        this.removedKeys.add(key);
+        this.addedNames.remove(key);
+
+        compactIfNeeded();
+    }
+
+    public synchronized void renamed(String name, String newName) {
+        removed(name);
+        added(newName);
+    }
+
+    private void compactIfNeeded() {
+        if (!this.ready) return;
+
+        int overlaySize = this.addedNames.size() + this.removedKeys.size();
+        if (overlaySize < Math.max(MIN_OVERLAY_SIZE_BEFORE_COMPACTION, this.snapshot.names().size() / 8)) return;
+
+        PackedSortedNames names = this.snapshot.names();
+        List<String> merged = new ArrayList<>(names.size() + this.addedNames.size());
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            String key = UserNames.normalize(name);
+            if (!this.removedKeys.contains(key) && !this.addedNames.containsKey(key)) merged.add(name);
+        }
+        merged.addAll(this.addedNames.values());
+
+        // Readers may briefly see a name both in the new snapshot and in the overlay, which they tolerate
+        this.snapshot = buildSnapshot(merged);
+        this.addedNames.clear();
+        this.removedKeys.clear();
+    }
+
+    private static Snapshot buildSnapshot(List<String> names) {
+        // Room for growth, so the false positive rate holds until the next compaction
+        BloomFilter bloomFilter = new BloomFilter(names.size() * 2L + MIN_OVERLAY_SIZE_BEFORE_COMPACTION,
+                FALSE_POSITIVE_RATE);
+        for (String name : names) bloomFilter.add(UserNames.normalize(name));
+
+        return new Snapshot(PackedSortedNames.of(names), bloomFilter);
+    }
+
+    private record Snapshot(PackedSortedNames names, BloomFilter bloomFilter) {
+        long sizeInBytes() {
+            return names.sizeInBytes() + bloomFilter.sizeInBytes();
+        }
+    }
+}
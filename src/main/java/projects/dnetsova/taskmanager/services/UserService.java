@@ -1,51 +1,99 @@
 package projects.dnetsova.taskmanager.services;
 
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import projects.dnetsova.taskmanager.configuration.ReadOnlyTransactional;
 import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
 import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
 import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.BulkUserResult;
+import projects.dnetsova.taskmanager.models.CursorPage;
 import projects.dnetsova.taskmanager.models.CustomPage;
 import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.utils.Cursors;
+import projects.dnetsova.taskmanager.utils.UserNames;
 
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Every change of a user done through this service is announced with a {@link UserChangedEvent}.
+ */
 @Service
 public class UserService {
+    private static final long USER_COUNT_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // The length of the name column
+    private static final int MAX_NAME_LENGTH = 255;
+
     private final UserRepository userRepository;
+    private final UserNameDirectory userNameDirectory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Versions of a previous run must not match the ones of this run, they are prefixed with the start time
+    private final String versionEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong changeCounter = new AtomicLong();
+
+    private volatile CachedCount cachedUserCount;
+
+    @Value("${users.bulk.batch-size:1000}")
+    private int bulkBatchSize = 1000;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserNameDirectory userNameDirectory,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.userNameDirectory = userNameDirectory;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Creates a user with the given name and attempts to save it to the database.
-     * If a user with that name already exists, a DataIntegrityViolationException is thrown,
-     * which is caught and rethrown as a DuplicateUserException.
+     * The insert is skipped by the database if the name is already taken, in which case
+     * a DuplicateUserException is thrown.
      * @param name the new user name. Must not be null, empty, or consist solely of whitespace or tabs.
      * @throws DuplicateUserException thrown if a user with the given name already exists
      */
     public void addUser(String name) throws DuplicateUserException {
-        try {
-            User user = new User(name);
-            this.userRepository.saveAndFlush(user);
-        } catch (DataIntegrityViolationException e) {
-            throw new DuplicateUserException(name);
-        }
+        int insertedRows = this.userRepository.insertUserIfAbsent(name);
+
+        if (insertedRows == 0) throw new DuplicateUserException(name);
+
+        this.userNameDirectory.added(name);
+        usersChanged();
+        this.eventPublisher.publishEvent(new UserChangedEvent(null, name));
     }
 
     /**
-     * If a user with the given name is present in the database, this user is deleted,
-     * otherwise, an InvalidUserException is thrown.
+     * If a user with the given name is present in the database, this user is unassigned
+     * from all tasks and deleted, otherwise, an InvalidUserException is thrown.
      * @param name the name of the user to be deleted.
      * @throws InvalidUserException in case a user with the given name doesn't exist.
      */
+    @Transactional
     public void removeUser(String name) throws InvalidUserException {
+        if (this.userNameDirectory.definitelyAbsent(name)) throw new InvalidUserException(name);
+
+        this.userRepository.deleteAssignments(name);
         int deletedRows = this.userRepository.delete(name);
 
         if (deletedRows == 0) throw new InvalidUserException(name);
+
+        this.userNameDirectory.removed(name);
+        usersChanged();
+        this.eventPublisher.publishEvent(new UserChangedEvent(name, null));
     }
 
     /**
@@ -53,21 +101,150 @@ public class UserService {
      * an InvalidUserException is thrown. Otherwise, the user is renamed
      * with the given new name. If the new name already exists,
      * a DuplicateUserException is thrown.
+     * The new name is looked up before the rename, so that a taken name is rejected without a failed
+     * statement. Only a name taken concurrently in between fails the rename.
      * @param name the original user name to be changed.
      * @param newName the new name to which the user will be renamed.
      * @throws InvalidUserException in case a user with such a name doesn't exist.
      * @throws DuplicateUserException if the newName is already taken by another user.
      */
     public void updateUser(String name, String newName) throws InvalidUserException, DuplicateUserException {
-        int updatedRows = 0;
+        if (this.userNameDirectory.definitelyAbsent(name)) throw new InvalidUserException(name);
+
+        // A user may change the case or the accents of its own name
+        boolean ownName = UserNames.normalize(name).equals(UserNames.normalize(newName));
+        if (!ownName && this.userRepository.existsByName(newName)) throw new DuplicateUserException(newName);
+
+        int updatedRows;
 
         try {
             updatedRows = this.userRepository.updateUserName(name, newName);
         } catch (DataIntegrityViolationException e) {
+            // The new name was taken by a concurrent transaction after it was checked
             throw new DuplicateUserException(newName);
         }
 
         if (updatedRows == 0) throw new InvalidUserException(name);
+
+        this.userNameDirectory.renamed(name, newName);
+        usersChanged();
+        this.eventPublisher.publishEvent(new UserChangedEvent(name, newName));
+    }
+
+    /**
+     * Creates a user for every given name. The names are consumed in batches, each of which is
+     * written with a single multi-row insert, so a taken name is reported for that name only
+     * and does not abort the rest of the batch.
+     * @param names the new user names. Blank names and names over 255 characters are rejected.
+     * @return the outcome for every given name, in the same order.
+     */
+    public List<BulkUserResult> addUsers(Iterator<String> names) {
+        return processInBatches(names, this::addUsersBatch);
+    }
+
+    /**
+     * Removes the users with the given names, in batches. A name which does not exist
+     * is reported for that name only.
+     * @param names the names of the users to be deleted.
+     * @return the outcome for every given name, in the same order.
+     */
+    public List<BulkUserResult> removeUsers(Iterator<String> names) {
+        return processInBatches(names, this::removeUsersBatch);
+    }
+
+    private List<BulkUserResult> processInBatches(Iterator<String> names,
+                                                  Function<List<String>, List<BulkUserResult>> batchProcessor) {
+        List<BulkUserResult> results = new ArrayList<>();
+        List<String> batch = new ArrayList<>(this.bulkBatchSize);
+
+        while (names.hasNext()) {
+            batch.add(names.next());
+
+            if (batch.size() == this.bulkBatchSize) {
+                results.addAll(batchProcessor.apply(batch));
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) results.addAll(batchProcessor.apply(batch));
+
+        return results;
+    }
+
+    private List<BulkUserResult> addUsersBatch(List<String> batch) {
+        Map<String, String> distinctNames = distinctValidNames(batch);
+        Set<String> insertedNames = this.userRepository.insertUsersIfAbsent(new ArrayList<>(distinctNames.values()));
+        if (!insertedNames.isEmpty()) usersChanged();
+
+        List<BulkUserResult> results = new ArrayList<>(batch.size());
+        for (String name : batch) {
+            ApiError nameError = nameError(name);
+            if (nameError != null) {
+                results.add(new BulkUserResult(name, nameError));
+            } else if (name.equals(distinctNames.remove(UserNames.normalize(name))) && insertedNames.contains(name)) {
+                this.userNameDirectory.added(name);
+                this.eventPublisher.publishEvent(new UserChangedEvent(null, name));
+                results.add(BulkUserResult.success(name));
+            } else {
+                results.add(new BulkUserResult(name, new ApiError(new DuplicateUserException(name))));
+            }
+        }
+
+        return results;
+    }
+
+    private List<BulkUserResult> removeUsersBatch(List<String> batch) {
+        Map<String, String> distinctNames = distinctValidNames(batch);
+        Set<String> deletedKeys = new HashSet<>();
+        for (String deletedName : this.userRepository.deleteUsersByName(new ArrayList<>(distinctNames.values()))) {
+            this.userNameDirectory.removed(deletedName);
+            this.eventPublisher.publishEvent(new UserChangedEvent(deletedName, null));
+            deletedKeys.add(UserNames.normalize(deletedName));
+        }
+        if (!deletedKeys.isEmpty()) usersChanged();
+
+        List<BulkUserResult> results = new ArrayList<>(batch.size());
+        for (String name : batch) {
+            ApiError nameError = nameError(name);
+            if (nameError != null) {
+                results.add(new BulkUserResult(name, nameError));
+            } else if (deletedKeys.remove(UserNames.normalize(name))) {
+                results.add(BulkUserResult.success(name));
+            } else {
+                results.add(new BulkUserResult(name, new ApiError(new InvalidUserException(name))));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the first occurrence of every valid name, keyed by its normalized form,
+     * as the database would treat the other occurrences as the same user.
+     */
+    private static Map<String, String> distinctValidNames(List<String> names) {
+        Map<String, String> distinctNames = new LinkedHashMap<>();
+
+        for (String name : names) {
+            if (nameError(name) == null) distinctNames.putIfAbsent(UserNames.normalize(name), name);
+        }
+
+        return distinctNames;
+    }
+
+    private static boolean isBlank(String name) {
+        return name == null || name.isBlank();
+    }
+
+    /**
+     * @return the error of a name which cannot be stored, null for a valid one.
+     */
+    private static ApiError nameError(String name) {
+        if (isBlank(name)) return new ApiError("InvalidName", "User name cannot be empty.");
+        if (name.codePointCount(0, name.length()) > MAX_NAME_LENGTH) {
+            return new ApiError("InvalidName", "User name cannot be longer than " + MAX_NAME_LENGTH + " characters.");
+        }
+        return null;
     }
 
     /**
@@ -80,6 +257,7 @@ public class UserService {
      * number of total pages and number of total elements.
      * @throws IllegalArgumentException when page and/or size are not positive.
      */
+    @ReadOnlyTransactional
     public CustomPage<String> getAllUsers(int page, int size) throws IllegalArgumentException {
         if (page <= 0) throw new IllegalArgumentException("Page must be greater than 0");
         if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
@@ -87,4 +265,100 @@ public class UserService {
         Page<String> p = this.userRepository.findAllUserNames(PageRequest.of(page - 1, size));
       return new CustomPage<>(p.getContent(), p.getTotalPages(), p.getTotalElements());
     }
+
+    /**
+     * Retrieves a page of usernames using keyset (seek) pagination. Every call is a single
+     * range scan on the unique name index, regardless of how deep the page is.
+     * @param after The cursor returned with the previous page, or an empty string for the first page.
+     * @param size The number of items per page.
+     * @param withTotal Whether the total number of users should be included. The total is served
+     *                  from a short-lived cache in order to avoid a COUNT query on every call.
+     * @return CursorPage<String> - List of username String objects, the cursor of the next page
+     * (null if there is none) and optionally the total number of users.
+     * @throws IllegalArgumentException when size is not positive or the cursor is malformed.
+     */
+    @ReadOnlyTransactional
+    public CursorPage<String> getUsersAfter(String after, int size, boolean withTotal) throws IllegalArgumentException {
+        if (size <= 0) throw new IllegalArgumentException("Size must be greater than 0");
+
+        String lastName = after.isEmpty() ? "" : Cursors.decode(after, 1).get(0);
+
+        // One extra row is fetched to find out whether there is a next page
+        List<String> names = this.userRepository.findUserNamesAfter(lastName, Limit.of(size + 1));
+
+        String nextCursor = null;
+        if (names.size() > size) {
+            names = names.subList(0, size);
+            nextCursor = Cursors.encode(names.get(size - 1));
+        }
+
+        return new CursorPage<>(names, nextCursor, withTotal ? countUsers() : null);
+    }
+
+    /**
+     * Retrieves the names starting with the given prefix, for type-ahead search. Case and accents
+     * are ignored. The lookup is served from memory by the {@link UserNameDirectory}, the database is
+     * only queried while the directory is still loading.
+     * @param prefix the beginning of the names.
+     * @param limit the maximum number of names to be returned.
+     * @return List of username String objects in name order.
+     * @throws IllegalArgumentException when limit is not positive.
+     */
+    @ReadOnlyTransactional
+    public List<String> searchUsers(String prefix, int limit) throws IllegalArgumentException {
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be greater than 0");
+
+        if (this.userNameDirectory.isReady()) {
+            return this.userNameDirectory.findByPrefix(prefix, limit);
+        }
+
+        return this.userRepository.findByNameStartingWithOrderByNameAsc(prefix, Limit.of(limit))
+                .stream()
+                .map(User::getName)
+                .toList();
+    }
+
+    /**
+     * Returns the version of the users, which changes whenever a user is created, renamed or removed
+     * through this service, and only then. Two reads of the users made at the same version return the
+     * same content, so the version can be used as an ETag. Writes made by other instances are not seen.
+     * @return an opaque version string, unique for the lifetime of this process.
+     */
+    public String getChangeVersion() {
+        return this.versionEpoch + "-" + this.changeCounter.get();
+    }
+
+    /**
+     * Moves to a new version once the change is visible to other transactions, that is right away
+     * outside a transaction and after the commit inside one.
+     */
+    private void usersChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changeCounter.incrementAndGet();
+                }
+            });
+        } else {
+            changeCounter.incrementAndGet();
+        }
+    }
+
+    private long countUsers() {
+        CachedCount cached = this.cachedUserCount;
+        long now = System.nanoTime();
+        // A count loaded at a previous version is stale, the version is read before counting so that a
+        // count racing with a write is never kept for the version which follows the write
+        long version = this.changeCounter.get();
+
+        if (cached == null || cached.version() != version || now - cached.loadedAt() > USER_COUNT_TTL_NANOS) {
+            cached = new CachedCount(this.userRepository.count(), now, version);
+            this.cachedUserCount = cached;
+        }
+
+        return cached.value();
+    }
+
+    private record CachedCount(long value, long loadedAt, long version) {}
 }
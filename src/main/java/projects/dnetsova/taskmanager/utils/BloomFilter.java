@@ -0,0 +1,82 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter for strings. {@link #mightContain(String)} never returns false for an added key,
+ * so a false answer is a definite miss. Keys can not be removed.
+ * Safe for concurrent use.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedKeys the number of keys the filter is sized for.
+     * @param falsePositiveRate the expected rate of false positives once expectedKeys are added.
+     */
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        long keys = Math.max(expectedKeys, 1);
+        long optimalBits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = (int) Math.max(1, Math.round((double) this.bitCount / keys * Math.log(2)));
+    }
+
+    public void add(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            while (((current = this.bits.get(word)) & mask) == 0
+                    && !this.bits.compareAndSet(word, current, current | mask)) {
+                // retry, another bit of the word was set concurrently
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the memory used by the bit array, in bytes.
+     */
+    public long sizeInBytes() {
+        return this.bitCount / 8;
+    }
+
+    private static long hash(String key) {
+        // 64 bit FNV-1a over the UTF-8 bytes, finished with a mixing step to spread the low bits
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        // splitmix64 finalizer
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
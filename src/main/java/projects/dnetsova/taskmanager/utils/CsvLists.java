@@ -0,0 +1,51 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lists of a CSV field, such as the assignees of a task, are joined with ';'. A ';' or '\' within a value
+ * is escaped with a '\', so that a user named "Smith; John" is exported and imported back as one assignee.
+ */
+public final class CsvLists {
+    public static final char SEPARATOR = ';';
+    private static final char ESCAPE = '\\';
+
+    private CsvLists() {}
+
+    public static String join(List<?> values) {
+        StringBuilder joined = new StringBuilder();
+        for (Object value : values) {
+            if (!joined.isEmpty()) joined.append(SEPARATOR);
+
+            String text = String.valueOf(value);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == SEPARATOR || c == ESCAPE) joined.append(ESCAPE);
+                joined.append(c);
+            }
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Splits a field joined by {@link #join}. A '\' at the end of the field is kept as is.
+     */
+    public static List<String> split(String field) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ESCAPE && i + 1 < field.length()) {
+                value.append(field.charAt(++i));
+            } else if (c == SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
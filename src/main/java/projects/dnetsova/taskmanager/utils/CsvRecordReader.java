@@ -0,0 +1,70 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records one at a time. Quoted fields may contain separators, doubled quotes and line breaks.
+ */
+public class CsvRecordReader {
+    private final BufferedReader reader;
+    private final StringBuilder field = new StringBuilder();
+    private boolean endOfInput;
+
+    public CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input. Empty fields are empty strings.
+     * @throws IOException when reading fails or a quoted field is not terminated.
+     */
+    public List<String> next() throws IOException {
+        if (this.endOfInput) return null;
+
+        List<String> fields = new ArrayList<>();
+        boolean quoted = false;
+        boolean recordStarted = false;
+        this.field.setLength(0);
+
+        while (true) {
+            int c = this.reader.read();
+
+            if (c == -1) {
+                this.endOfInput = true;
+                if (quoted) throw new IOException("Unterminated quoted field");
+                if (!recordStarted) return null;
+                fields.add(this.field.toString());
+                return fields;
+            }
+            recordStarted = true;
+
+            if (quoted) {
+                if (c != '"') {
+                    this.field.append((char) c);
+                    continue;
+                }
+
+                this.reader.mark(1);
+                if (this.reader.read() == '"') {
+                    this.field.append('"');
+                } else {
+                    this.reader.reset();
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(this.field.toString());
+                this.field.setLength(0);
+            } else if (c == '\n') {
+                fields.add(this.field.toString());
+                return fields;
+            } else if (c != '\r') {
+                this.field.append((char) c);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes and decodes the opaque cursors used by the keyset paginated endpoints.
+ * A cursor is the list of sort key values of the last returned element, serialized and Base64 (URL safe) encoded,
+ * so clients can not depend on its format.
+ */
+public final class Cursors {
+
+    private Cursors() {}
+
+    public static String encode(String... keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (String key : keys) {
+                out.writeBoolean(key != null);
+                if (key != null) out.writeUTF(key);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param cursor the cursor returned by a previous call of {@link #encode(String...)}.
+     * @param keyCount the number of keys the cursor is expected to contain.
+     * @return the keys encoded in the cursor. Null keys are preserved.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static List<String> decode(String cursor, int keyCount) throws IllegalArgumentException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            List<String> keys = new ArrayList<>(keyCount);
+
+            for (int i = 0; i < keyCount; i++) {
+                keys.add(in.readBoolean() ? in.readUTF() : null);
+            }
+
+            if (in.available() > 0) throw new IllegalArgumentException("Invalid cursor");
+
+            return keys;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
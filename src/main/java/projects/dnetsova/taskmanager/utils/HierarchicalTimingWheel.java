@@ -0,0 +1,188 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck). Level 0 has one bucket per tick, every further level
+ * covers a whole turn of the level below in each of its buckets. A timer is placed on the lowest level
+ * whose span reaches its expiration and moves down one level each time its bucket comes around, so adding
+ * and cancelling a timer are O(1) and advancing the clock costs O(1) amortized per expired timer.
+ * <p>
+ * Time is expressed in milliseconds, rounded down to whole ticks. Not thread safe.
+ */
+public class HierarchicalTimingWheel<T> {
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis the resolution of the wheel.
+     * @param wheelSize the number of buckets of every level.
+     * @param startMillis the current time.
+     */
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMillis / tickMillis;
+        addLevel();
+    }
+
+    /**
+     * Adds a timer.
+     * @param expirationMillis the time at which the timer expires.
+     * @return the timer, which can be cancelled, or null if the expiration is not after the current tick,
+     * in which case the timer is not added and the caller should fire it right away.
+     */
+    public Timer<T> add(long expirationMillis, T value) {
+        long expirationTick = expirationMillis / this.tickMillis;
+        if (expirationTick <= this.currentTick) return null;
+
+        Timer<T> timer = new Timer<>(expirationMillis, expirationTick, value);
+        place(timer);
+        this.size++;
+        return timer;
+    }
+
+    /**
+     * Removes the timer, if it has not expired yet.
+     */
+    public void cancel(Timer<T> timer) {
+        if (timer.bucket != null) {
+            timer.bucket.remove(timer);
+            this.size--;
+        }
+    }
+
+    /**
+     * Moves the clock forward to the given time, handing every expired timer to the given consumer.
+     * Timers expiring on the same tick are handed over in no particular order.
+     */
+    public void advance(long nowMillis, Consumer<Timer<T>> expired) {
+        long targetTick = nowMillis / this.tickMillis;
+
+        while (this.currentTick < targetTick) {
+            this.currentTick++;
+
+            // Higher levels are cascaded first, so their timers can still land in the level 0 bucket of this tick
+            long span = 1;
+            for (int level = 1; level < this.levels.size(); level++) {
+                span *= this.wheelSize;
+                if (this.currentTick % span != 0) break;
+
+                Bucket<T> bucket = this.levels.get(level)[(int) ((this.currentTick / span) % this.wheelSize)];
+                for (Timer<T> timer = bucket.clear(); timer != null; ) {
+                    Timer<T> next = timer.next;
+                    timer.next = null;
+                    timer.previous = null;
+                    place(timer);
+                    timer = next;
+                }
+            }
+
+            Bucket<T> bucket = this.levels.get(0)[(int) (this.currentTick % this.wheelSize)];
+            for (Timer<T> timer = bucket.clear(); timer != null; ) {
+                Timer<T> next = timer.next;
+                timer.next = null;
+                timer.previous = null;
+                this.size--;
+                expired.accept(timer);
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * @return the number of pending timers.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.expirationTick - this.currentTick;
+        int level = 0;
+        long span = 1;
+
+        while (delta >= span * this.wheelSize) {
+            span *= this.wheelSize;
+            level++;
+        }
+
+        while (this.levels.size() <= level) addLevel();
+
+        this.levels.get(level)[(int) ((timer.expirationTick / span) % this.wheelSize)].add(timer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLevel() {
+        Bucket<T>[] buckets = new Bucket[this.wheelSize];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new Bucket<>();
+        this.levels.add(buckets);
+    }
+
+    public static final class Timer<T> {
+        private final long expirationMillis;
+        private final long expirationTick;
+        private final T value;
+        private Bucket<T> bucket;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(long expirationMillis, long expirationTick, T value) {
+            this.expirationMillis = expirationMillis;
+            this.expirationTick = expirationTick;
+            this.value = value;
+        }
+
+        public long expirationMillis() {
+            return expirationMillis;
+        }
+
+        public T value() {
+            return value;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of timers, for O(1) removal.
+     */
+    private static final class Bucket<T> {
+        private Timer<T> head;
+
+        void add(Timer<T> timer) {
+            timer.bucket = this;
+            timer.previous = null;
+            timer.next = this.head;
+            if (this.head != null) this.head.previous = timer;
+            this.head = timer;
+        }
+
+        void remove(Timer<T> timer) {
+            if (timer.previous != null) {
+                timer.previous.next = timer.next;
+            } else {
+                this.head = timer.next;
+            }
+            if (timer.next != null) timer.next.previous = timer.previous;
+
+            timer.bucket = null;
+            timer.previous = null;
+            timer.next = null;
+        }
+
+        /**
+         * Empties the bucket.
+         * @return the first timer of the former content, the rest is reachable through next.
+         */
+        Timer<T> clear() {
+            Timer<T> first = this.head;
+            for (Timer<T> timer = first; timer != null; timer = timer.next) timer.bucket = null;
+            this.head = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable list of user names, sorted by their normalized form (see {@link UserNames#normalize(String)})
+ * and packed as UTF-8 into a single byte array. A name costs its UTF-8 length plus 4 bytes,
+ * instead of the ~50 bytes of overhead of a String held in a collection.
+ */
+public class PackedSortedNames {
+    private static final PackedSortedNames EMPTY = new PackedSortedNames(new byte[0], new int[] {0});
+
+    private final byte[] data;
+    // offsets[i] is the start of the i-th name, offsets[size] is the end of the data
+    private final int[] offsets;
+
+    private PackedSortedNames(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    public static PackedSortedNames empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param names the names to be packed, in any order. Names with the same normalized form must not be repeated.
+     */
+    public static PackedSortedNames of(List<String> names) {
+        String[][] entries = new String[names.size()][];
+        for (int i = 0; i < entries.length; i++) {
+            String name = names.get(i);
+            entries[i] = new String[] {UserNames.normalize(name), name};
+        }
+        Arrays.sort(entries, Comparator.comparing(entry -> entry[0]));
+
+        List<String> sortedNames = new ArrayList<>(entries.length);
+        for (String[] entry : entries) sortedNames.add(entry[1]);
+
+        return ofSorted(sortedNames);
+    }
+
+    /**
+     * @param names names already sorted by their normalized form.
+     */
+    public static PackedSortedNames ofSorted(List<String> names) {
+        byte[][] encoded = new byte[names.size()][];
+        int totalLength = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            totalLength += encoded[i].length;
+        }
+
+        byte[] data = new byte[totalLength];
+        int[] offsets = new int[encoded.length + 1];
+        int position = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            offsets[i] = position;
+            System.arraycopy(encoded[i], 0, data, position, encoded[i].length);
+            position += encoded[i].length;
+        }
+        offsets[encoded.length] = position;
+
+        return new PackedSortedNames(data, offsets);
+    }
+
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    public String get(int index) {
+        return new String(this.data, this.offsets[index], this.offsets[index + 1] - this.offsets[index],
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param key a normalized name.
+     * @return the index of the first name whose normalized form is not less than the key.
+     */
+    public int lowerBound(String key) {
+        int low = 0;
+        int high = size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (UserNames.normalize(get(middle)).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @param key a normalized name.
+     * @return whether a name with the given normalized form is present.
+     */
+    public boolean contains(String key) {
+        int index = lowerBound(key);
+        return index < size() && UserNames.normalize(get(index)).equals(key);
+    }
+
+    /**
+     * @return the memory used by the packed names, in bytes.
+     */
+    public long sizeInBytes() {
+        return this.data.length + 4L * this.offsets.length;
+    }
+}
@@ -0,0 +1,532 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Inverted index over the title and description of tasks, ranking the tasks which contain all terms of a query
+ * with BM25. Title terms count {@value #TITLE_WEIGHT} times as much as description terms.
+ * <p>
+ * Every indexed task gets a dense document number, postings are kept as growing arrays of document numbers in
+ * increasing order and a query intersects them starting from the shortest list, skipping through the longer
+ * ones with galloping search. Assignees have postings of their own, which join the intersection like a term
+ * without being scored. The documents of every priority, and of every period of {@value #DEADLINE_BUCKET_DAYS}
+ * days of deadlines, are kept in bit sets, which a filter combines into the set of the documents it accepts: the
+ * intersection skips to the next accepted document rather than checking and rejecting every match. The deadlines
+ * are also kept in a flat array, for the exact bounds of a range.
+ * <p>
+ * A changed task is re-added under a new document number and its old document is marked deleted. Once the
+ * deleted documents outnumber the live ones the index is compacted.
+ * <p>
+ * Not thread-safe, concurrent readers are fine as long as writes are excluded.
+ */
+public class TaskInvertedIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NO_DEADLINE = Integer.MIN_VALUE;
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 10_000;
+    private static final int DEADLINE_BUCKET_SHIFT = 4;
+    private static final int DEADLINE_BUCKET_DAYS = 1 << DEADLINE_BUCKET_SHIFT;
+    // Combining the bit sets of a wider range costs more than checking the deadline of every match
+    private static final int MAX_DEADLINE_BUCKETS = 32;
+    // How many times fewer tasks than the shortest term list the assignee needs to lead the intersection
+    private static final int ASSIGNEE_LEAD_RATIO = 8;
+
+    private Map<String, Postings> terms = new HashMap<>();
+    private Map<String, Postings> assignees = new HashMap<>();
+    private final Map<UUID, Integer> documentsByTask = new HashMap<>();
+    private BitSet[] priorityDocuments = newPriorityDocuments();
+    private Map<Integer, BitSet> deadlineDocuments = new HashMap<>();
+
+    private UUID[] taskIds = new UUID[1024];
+    private int[] lengths = new int[1024];
+    private int[] deadlines = new int[1024];
+    private byte[] priorities = new byte[1024];
+    private BitSet deleted = new BitSet();
+
+    private int documentCount;
+    private int deletedCount;
+    private long totalLength;
+
+    public record Hit(UUID taskId, float score) {}
+
+    /**
+     * Conditions on the attributes of a task. Null values do not restrict.
+     * @param priorities the accepted priorities.
+     * @param deadlineFrom the earliest accepted deadline, inclusive. Tasks without a deadline do not pass.
+     * @param deadlineTo the latest accepted deadline, inclusive. Tasks without a deadline do not pass.
+     * @param assignee the name of a user the task has to be assigned to.
+     */
+    public record Filter(Set<Priority> priorities, LocalDate deadlineFrom, LocalDate deadlineTo, String assignee) {
+        public static final Filter NONE = new Filter(null, null, null, null);
+    }
+
+    /**
+     * Adds the task, replacing its previous version if it was indexed already.
+     */
+    public void put(UUID taskId, String title, String description, Priority priority, LocalDate deadline,
+                    Collection<String> assigneeNames) {
+        remove(taskId);
+
+        int document = this.documentCount++;
+        ensureCapacity(document + 1);
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = addFrequencies(frequencies, title, TITLE_WEIGHT) + addFrequencies(frequencies, description, 1);
+        for (Map.Entry<String, int[]> term : frequencies.entrySet()) {
+            this.terms.computeIfAbsent(term.getKey(), key -> new Postings()).add(document, term.getValue()[0], length);
+        }
+
+        if (assigneeNames != null) {
+            for (String name : new HashSet<>(assigneeNames.stream().map(UserNames::normalize).toList())) {
+                this.assignees.computeIfAbsent(name, key -> new Postings()).add(document, 1, length);
+            }
+        }
+
+        this.taskIds[document] = taskId;
+        this.lengths[document] = length;
+        this.deadlines[document] = deadline == null ? NO_DEADLINE : (int) deadline.toEpochDay();
+        this.priorities[document] = (byte) priority.ordinal();
+        this.documentsByTask.put(taskId, document);
+        indexAttributes(document);
+        this.totalLength += length;
+    }
+
+    /**
+     * @return whether the task was indexed.
+     */
+    public boolean remove(UUID taskId) {
+        Integer document = this.documentsByTask.remove(taskId);
+        if (document == null) return false;
+
+        this.deleted.set(document);
+        this.deletedCount++;
+        this.priorityDocuments[this.priorities[document]].clear(document);
+        if (this.deadlines[document] != NO_DEADLINE) {
+            int bucket = deadlineBucket(this.deadlines[document]);
+            BitSet bucketDocuments = this.deadlineDocuments.get(bucket);
+            bucketDocuments.clear(document);
+            if (bucketDocuments.isEmpty()) this.deadlineDocuments.remove(bucket);
+        }
+        this.totalLength -= this.lengths[document];
+        this.taskIds[document] = null;
+
+        if (this.deletedCount >= MIN_DELETED_BEFORE_COMPACTION && this.deletedCount > size()) compact();
+        return true;
+    }
+
+    /**
+     * Moves the tasks assigned to a user to the user's new name, for the assignee filter. The new name is not
+     * taken, the names are unique ignoring case and accents like the normalized keys.
+     */
+    public void renameAssignee(String name, String newName) {
+        Postings postings = this.assignees.remove(UserNames.normalize(name));
+        if (postings != null) this.assignees.put(UserNames.normalize(newName), postings);
+    }
+
+    /**
+     * Forgets the assignments of a removed user, for the assignee filter.
+     */
+    public void removeAssignee(String name) {
+        this.assignees.remove(UserNames.normalize(name));
+    }
+
+    /**
+     * @return the number of indexed tasks.
+     */
+    public int size() {
+        return this.documentCount - this.deletedCount;
+    }
+
+    /**
+     * @return up to limit tasks containing all terms of the query and passing the filter, best match first.
+     */
+    public List<Hit> search(String query, Filter filter, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty() || size() == 0) return List.of();
+
+        Postings[] scored = new Postings[queryTerms.size()];
+        for (int i = 0; i < scored.length; i++) {
+            scored[i] = this.terms.get(queryTerms.get(i));
+            if (scored[i] == null) return List.of();
+        }
+
+        BitSet accepted = acceptedDocuments(filter);
+        if (accepted != null && accepted.isEmpty()) return List.of();
+
+        Postings assigned = null;
+        if (filter.assignee() != null) {
+            assigned = this.assignees.get(UserNames.normalize(filter.assignee()));
+            if (assigned == null) return List.of();
+        }
+
+        // The shortest list drives the intersection. The assignee only joins it when the user has far fewer
+        // tasks than the terms, otherwise the user's tasks are one more filter, looked at after the pruning.
+        int shortestTerm = Arrays.stream(scored).mapToInt(postings -> postings.size).min().getAsInt();
+        Postings checked = null;
+        if (assigned != null && assigned.size > shortestTerm / ASSIGNEE_LEAD_RATIO) {
+            if (accepted == null) {
+                checked = assigned;
+            } else {
+                assigned.retainIn(accepted);
+                if (accepted.isEmpty()) return List.of();
+            }
+            assigned = null;
+        }
+
+        Postings[] lists = Arrays.copyOf(scored, scored.length + (assigned == null ? 0 : 1));
+        if (assigned != null) lists[scored.length] = assigned;
+        Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+
+        Postings driver = lists[0];
+
+        // Zero for the assignee list, which only filters
+        float[] idfs = new float[lists.length];
+        for (int l = 0; l < lists.length; l++) idfs[l] = lists[l] == assigned ? 0 : idf(lists[l].size);
+
+        int[] positions = new int[lists.length];
+        int checkedPosition = 0;
+        float averageLength = (float) this.totalLength / size();
+        int deadlineFrom = filter.deadlineFrom() == null ? NO_DEADLINE : (int) filter.deadlineFrom().toEpochDay();
+        int deadlineTo = filter.deadlineTo() == null ? Integer.MAX_VALUE : (int) filter.deadlineTo().toEpochDay();
+        boolean deadlineFiltered = filter.deadlineFrom() != null || filter.deadlineTo() != null;
+
+        PriorityQueue<ScoredDocument> top = new PriorityQueue<>(Math.min(limit, driver.size) + 1);
+        float bound = 0;
+        int blocksEnd = -1;
+
+        candidates:
+        while (positions[0] < driver.size) {
+            int document = driver.documents[positions[0]];
+
+            // Leapfrog: on a mismatch the driver jumps to the document the other list is at
+            for (int l = 1; l < lists.length; l++) {
+                positions[l] = lists[l].advance(positions[l], document);
+                if (positions[l] == lists[l].size) break candidates;
+
+                int other = lists[l].documents[positions[l]];
+                if (other != document) {
+                    positions[0] = driver.advance(positions[0], other);
+                    continue candidates;
+                }
+            }
+
+            // Block-max pruning: once the top is full, skip the blocks which cannot beat its weakest hit, before
+            // the filter is even looked at. The bound holds until a list leaves its block.
+            if (top.size() == limit) {
+                if (document > blocksEnd) {
+                    bound = 0;
+                    blocksEnd = Integer.MAX_VALUE;
+                    for (int l = 0; l < lists.length; l++) {
+                        if (idfs[l] == 0) continue;
+                        bound += idfs[l] * lists[l].blockBound(positions[l], averageLength);
+                        blocksEnd = Math.min(blocksEnd, lists[l].blockLastDocument(positions[l]));
+                    }
+                }
+
+                if (bound <= top.peek().score) {
+                    positions[0] = driver.advance(positions[0], blocksEnd + 1);
+                    continue;
+                }
+            }
+
+            // The filters are intersected last, the driver skipping to the next document they accept
+            if (accepted != null) {
+                int other = accepted.nextSetBit(document);
+                if (other < 0) break;
+                if (other != document) {
+                    positions[0] = driver.advance(positions[0], other);
+                    continue;
+                }
+            }
+            if (checked != null) {
+                checkedPosition = checked.advance(checkedPosition, document);
+                if (checkedPosition == checked.size) break;
+
+                int other = checked.documents[checkedPosition];
+                if (other != document) {
+                    positions[0] = driver.advance(positions[0], other);
+                    continue;
+                }
+            }
+
+            // Deadline buckets only bound a range to the day at its ends
+            if (this.deleted.get(document) || deadlineFiltered && (this.deadlines[document] == NO_DEADLINE
+                    || this.deadlines[document] < deadlineFrom || this.deadlines[document] > deadlineTo)) {
+                positions[0]++;
+                continue;
+            }
+
+            positions[0]++;
+            float norm = norm(this.lengths[document], averageLength);
+            float score = 0;
+            for (int l = 0; l < lists.length; l++) {
+                if (idfs[l] == 0) continue;
+                // The driver's position was already moved past the document
+                int frequency = lists[l].frequencies[l == 0 ? positions[0] - 1 : positions[l]];
+                score += idfs[l] * frequency * (K1 + 1) / (frequency + norm);
+            }
+
+            if (top.size() < limit) {
+                top.add(new ScoredDocument(document, score));
+            } else if (score > top.peek().score) {
+                top.poll();
+                top.add(new ScoredDocument(document, score));
+            }
+        }
+
+        Hit[] hits = new Hit[top.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            ScoredDocument best = top.poll();
+            hits[i] = new Hit(this.taskIds[best.document], best.score);
+        }
+        return Arrays.asList(hits);
+    }
+
+    /**
+     * Splits the text into lowercase terms of letters and digits, with accents removed.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+
+        String normalized = UserNames.normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean partOfToken = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (partOfToken && start < 0) {
+                start = i;
+            } else if (!partOfToken && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static float norm(int length, float averageLength) {
+        return K1 * (1 - B + B * length / averageLength);
+    }
+
+    private static int addFrequencies(Map<String, int[]> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) frequencies.computeIfAbsent(token, key -> new int[1])[0] += weight;
+        return tokens.size() * weight;
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (this.documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * @return the documents with the priorities and in the deadline buckets of the filter, null when the filter
+     * does not restrict them. A range over more than {@value #MAX_DEADLINE_BUCKETS} buckets is left to the checks
+     * of the deadlines.
+     */
+    private BitSet acceptedDocuments(Filter filter) {
+        BitSet accepted = null;
+
+        if (filter.priorities() != null && !filter.priorities().isEmpty()
+                && filter.priorities().size() < Priority.values().length) {
+            accepted = new BitSet(this.documentCount);
+            for (Priority priority : filter.priorities()) accepted.or(this.priorityDocuments[priority.ordinal()]);
+        }
+
+        if (filter.deadlineFrom() != null && filter.deadlineTo() != null) {
+            int firstBucket = deadlineBucket((int) filter.deadlineFrom().toEpochDay());
+            int lastBucket = deadlineBucket((int) filter.deadlineTo().toEpochDay());
+            if (lastBucket < firstBucket) return new BitSet();
+
+            if (lastBucket - firstBucket < MAX_DEADLINE_BUCKETS) {
+                BitSet inRange = new BitSet(this.documentCount);
+                for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                    BitSet bucketDocuments = this.deadlineDocuments.get(bucket);
+                    if (bucketDocuments != null) inRange.or(bucketDocuments);
+                }
+
+                if (accepted == null) {
+                    accepted = inRange;
+                } else {
+                    accepted.and(inRange);
+                }
+            }
+        }
+
+        return accepted;
+    }
+
+    private void indexAttributes(int document) {
+        this.priorityDocuments[this.priorities[document]].set(document);
+        if (this.deadlines[document] != NO_DEADLINE) {
+            this.deadlineDocuments.computeIfAbsent(deadlineBucket(this.deadlines[document]), key -> new BitSet())
+                    .set(document);
+        }
+    }
+
+    private static int deadlineBucket(int epochDay) {
+        return epochDay >> DEADLINE_BUCKET_SHIFT;
+    }
+
+    private static BitSet[] newPriorityDocuments() {
+        BitSet[] documents = new BitSet[Priority.values().length];
+        for (int i = 0; i < documents.length; i++) documents[i] = new BitSet();
+        return documents;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.taskIds.length) return;
+
+        int newCapacity = Math.max(capacity, this.taskIds.length * 2);
+        this.taskIds = Arrays.copyOf(this.taskIds, newCapacity);
+        this.lengths = Arrays.copyOf(this.lengths, newCapacity);
+        this.deadlines = Arrays.copyOf(this.deadlines, newCapacity);
+        this.priorities = Arrays.copyOf(this.priorities, newCapacity);
+    }
+
+    /**
+     * Renumbers the live documents densely and drops the deleted ones from all postings.
+     */
+    private void compact() {
+        int[] newNumbers = new int[this.documentCount];
+        int live = 0;
+        for (int document = 0; document < this.documentCount; document++) {
+            if (this.deleted.get(document)) {
+                newNumbers[document] = -1;
+                continue;
+            }
+
+            newNumbers[document] = live;
+            this.taskIds[live] = this.taskIds[document];
+            this.lengths[live] = this.lengths[document];
+            this.deadlines[live] = this.deadlines[document];
+            this.priorities[live] = this.priorities[document];
+            this.documentsByTask.put(this.taskIds[live], live);
+            live++;
+        }
+        Arrays.fill(this.taskIds, live, this.documentCount, null);
+
+        this.priorityDocuments = newPriorityDocuments();
+        this.deadlineDocuments = new HashMap<>();
+        for (int document = 0; document < live; document++) indexAttributes(document);
+
+        this.terms = compact(this.terms, newNumbers);
+        this.assignees = compact(this.assignees, newNumbers);
+        this.deleted = new BitSet();
+        this.documentCount = live;
+        this.deletedCount = 0;
+    }
+
+    private Map<String, Postings> compact(Map<String, Postings> postingsByKey, int[] newNumbers) {
+        Map<String, Postings> compacted = new HashMap<>();
+
+        for (Map.Entry<String, Postings> entry : postingsByKey.entrySet()) {
+            Postings postings = entry.getValue();
+            Postings live = new Postings();
+            for (int i = 0; i < postings.size; i++) {
+                int document = newNumbers[postings.documents[i]];
+                if (document >= 0) live.add(document, postings.frequencies[i], this.lengths[document]);
+            }
+            if (live.size > 0) compacted.put(entry.getKey(), live);
+        }
+
+        return compacted;
+    }
+
+    private record ScoredDocument(int document, float score) implements Comparable<ScoredDocument> {
+        @Override
+        public int compareTo(ScoredDocument other) {
+            int byScore = Float.compare(this.score, other.score);
+            // On equal scores the older document ranks lower
+            return byScore != 0 ? byScore : Integer.compare(other.document, this.document);
+        }
+    }
+
+    /**
+     * Documents containing a term, in increasing order, with the frequency of the term in each. The postings are
+     * divided in blocks of {@value #BLOCK_SIZE}, for each of which the highest frequency and the shortest document
+     * length are kept: together they bound the score any document of the block can reach.
+     */
+    private static class Postings {
+        private static final int BLOCK_SHIFT = 5;
+        private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int[] blockMaxFrequencies = new int[1];
+        private int[] blockMinLengths = {Integer.MAX_VALUE};
+        private int size;
+
+        void add(int document, int frequency, int length) {
+            if (this.size == this.documents.length) {
+                this.documents = Arrays.copyOf(this.documents, this.size * 2);
+                this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2);
+            }
+
+            int block = this.size >>> BLOCK_SHIFT;
+            if (block == this.blockMaxFrequencies.length) {
+                this.blockMaxFrequencies = Arrays.copyOf(this.blockMaxFrequencies, block * 2);
+                this.blockMinLengths = Arrays.copyOf(this.blockMinLengths, block * 2);
+                Arrays.fill(this.blockMinLengths, block, block * 2, Integer.MAX_VALUE);
+            }
+            this.blockMaxFrequencies[block] = Math.max(this.blockMaxFrequencies[block], frequency);
+            this.blockMinLengths[block] = Math.min(this.blockMinLengths[block], length);
+
+            this.documents[this.size] = document;
+            this.frequencies[this.size] = frequency;
+            this.size++;
+        }
+
+        /**
+         * @return the highest BM25 term score, without idf, of a document in the block of the given position.
+         */
+        float blockBound(int position, float averageLength) {
+            int block = position >>> BLOCK_SHIFT;
+            int frequency = this.blockMaxFrequencies[block];
+            return frequency * (K1 + 1) / (frequency + norm(this.blockMinLengths[block], averageLength));
+        }
+
+        /**
+         * Clears the documents not in this list from the set.
+         */
+        void retainIn(BitSet documents) {
+            long[] words = new long[this.size == 0 ? 0 : (this.documents[this.size - 1] >>> 6) + 1];
+            for (int i = 0; i < this.size; i++) words[this.documents[i] >>> 6] |= 1L << this.documents[i];
+            documents.and(BitSet.valueOf(words));
+        }
+
+        int blockLastDocument(int position) {
+            return this.documents[Math.min(this.size - 1, (position | (BLOCK_SIZE - 1)))];
+        }
+        /**
+         * @return the position of the first document not less than the target, starting at from, or size if
+         * there is none. Gallops ahead and then binary searches, so skipping far costs logarithmic time.
+         */
+        int advance(int from, int target) {
+            if (from >= this.size || this.documents[from] >= target) return from;
+
+            int low = from;
+            int step = 1;
+            int high = from + step;
+            while (high < this.size && this.documents[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            high = Math.min(high, this.size);
+
+            // documents[low] < target, documents[high] >= target or high == size
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if (this.documents[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return high;
+        }
+    }
+}
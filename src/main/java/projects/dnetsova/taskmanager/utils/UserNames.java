@@ -0,0 +1,30 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The users table uses MySQL's default case and accent insensitive collation,
+ * so 'Jose' and 'josé' are the same user name as far as the unique constraint is concerned.
+ * This class approximates that collation for comparisons done in memory.
+ */
+public final class UserNames {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private UserNames() {}
+
+    public static String normalize(String name) {
+        if (isAscii(name)) return name.toLowerCase(Locale.ROOT);
+
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package projects.dnetsova.taskmanager.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversion between UUID and the BINARY(16) representation Hibernate uses for UUID ids,
+ * needed when the id columns are written or read with plain JDBC.
+ */
+public final class UuidBytes {
+
+    private UuidBytes() {}
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
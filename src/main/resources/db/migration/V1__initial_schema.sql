@@ -0,0 +1,50 @@
+-- Schema of the entities, as created by spring.jpa.hibernate.ddl-auto = update.
+--
+-- Applied by Flyway with the fast-startup profile, which starts without comparing the schema to the entities.
+-- A database created by ddl-auto = update is baselined at this version, so this script is not run on it.
+-- Later changes of the entities come as new versions next to this one.
+
+CREATE TABLE users (
+    id BINARY(16) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_name UNIQUE (name)
+) ENGINE = InnoDB;
+
+CREATE TABLE tasks (
+    id BINARY(16) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    start_date DATE,
+    deadline DATE,
+    repeat_date DATE,
+    priority ENUM ('P0', 'P1', 'P2', 'P3', 'P4') NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_tasks_deadline_priority_id_title (deadline, priority, id, title),
+    INDEX idx_tasks_repeat_date_id (repeat_date, id)
+) ENGINE = InnoDB;
+
+CREATE TABLE tasks_users (
+    task_id BINARY(16) NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    PRIMARY KEY (task_id, user_id),
+    INDEX idx_tasks_users_user_task (user_id, task_id),
+    CONSTRAINT fk_tasks_users_task FOREIGN KEY (task_id) REFERENCES tasks (id),
+    CONSTRAINT fk_tasks_users_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE job_checkpoints (
+    name VARCHAR(255) NOT NULL,
+    last_date DATE,
+    last_id BINARY(16),
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
+
+CREATE TABLE task_count_summary (
+    name VARCHAR(255) NOT NULL,
+    label VARCHAR(255) NOT NULL,
+    task_count BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
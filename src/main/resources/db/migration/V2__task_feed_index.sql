@@ -0,0 +1,33 @@
+-- Copies the deadline and the priority of the tasks to their assignments, so that a page of a user's task feed
+-- is a range of idx_tasks_users_user_feed read in order. The application keeps the copies up to date, and the
+-- TaskFeedBackfillService copies them to the existing assignments in small chunks once, rather than here in a single
+-- transaction locking the whole table.
+--
+-- ddl-auto = update adds the same columns and index, and a database it created is baselined at version 1. Every
+-- change is therefore only made when it is missing, MySQL has no ADD COLUMN IF NOT EXISTS.
+
+SET @statement = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE tasks_users ADD COLUMN deadline DATE', 'DO 0')
+                  FROM information_schema.columns
+                  WHERE table_schema = DATABASE() AND table_name = 'tasks_users' AND column_name = 'deadline');
+PREPARE add_deadline FROM @statement;
+EXECUTE add_deadline;
+DEALLOCATE PREPARE add_deadline;
+
+SET @statement = (SELECT IF(COUNT(*) = 0,
+                            'ALTER TABLE tasks_users ADD COLUMN priority ENUM (''P0'', ''P1'', ''P2'', ''P3'', ''P4'')',
+                            'DO 0')
+                  FROM information_schema.columns
+                  WHERE table_schema = DATABASE() AND table_name = 'tasks_users' AND column_name = 'priority');
+PREPARE add_priority FROM @statement;
+EXECUTE add_priority;
+DEALLOCATE PREPARE add_priority;
+
+SET @statement = (SELECT IF(COUNT(*) = 0,
+                            'ALTER TABLE tasks_users ADD INDEX idx_tasks_users_user_feed (user_id, deadline, priority, task_id)',
+                            'DO 0')
+                  FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'tasks_users'
+                    AND index_name = 'idx_tasks_users_user_feed');
+PREPARE add_index FROM @statement;
+EXECUTE add_index;
+DEALLOCATE PREPARE add_index;
@@ -0,0 +1,63 @@
+-- Re-keys existing users and tasks with time-ordered (version 7) UUIDs.
+--
+-- New rows get time-ordered ids from the application, rows created before keep their random ids, which
+-- stay valid. Running this script once, with the application stopped, rewrites the old ids as well so the
+-- primary keys and every index referencing them become dense again.
+--
+-- The new ids are built in SQL from the current time: 48-bit millisecond timestamp, version 7, a 12-bit
+-- sequence within the millisecond (the timestamp moves one millisecond ahead every 4096 rows) and random
+-- bits with the RFC 9562 variant. They are ordered the same way as the ids generated by the application.
+--
+-- Run with: mysql -u <user> -p task_manager_db < time-ordered-ids.sql
+
+SET @base_millis = CAST(UNIX_TIMESTAMP(NOW(3)) * 1000 AS UNSIGNED);
+
+CREATE TABLE user_id_map (
+    old_id BINARY(16) NOT NULL PRIMARY KEY,
+    new_id BINARY(16) NOT NULL UNIQUE
+) ENGINE = InnoDB;
+
+INSERT INTO user_id_map (old_id, new_id)
+SELECT id, UNHEX(CONCAT(
+        LPAD(HEX(@base_millis + (rn DIV 4096)), 12, '0'),
+        '7', LPAD(HEX(rn MOD 4096), 3, '0'),
+        LPAD(HEX((ASCII(RANDOM_BYTES(1)) & 0x3F) | 0x80), 2, '0'),
+        HEX(RANDOM_BYTES(7))))
+FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY name) - 1 AS rn FROM users) numbered;
+
+-- Tasks are numbered after the users, as if they were created later
+SET @base_millis = @base_millis + (SELECT COUNT(*) FROM users) DIV 4096 + 1;
+
+CREATE TABLE task_id_map (
+    old_id BINARY(16) NOT NULL PRIMARY KEY,
+    new_id BINARY(16) NOT NULL UNIQUE
+) ENGINE = InnoDB;
+
+INSERT INTO task_id_map (old_id, new_id)
+SELECT id, UNHEX(CONCAT(
+        LPAD(HEX(@base_millis + (rn DIV 4096)), 12, '0'),
+        '7', LPAD(HEX(rn MOD 4096), 3, '0'),
+        LPAD(HEX((ASCII(RANDOM_BYTES(1)) & 0x3F) | 0x80), 2, '0'),
+        HEX(RANDOM_BYTES(7))))
+FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY deadline, id) - 1 AS rn FROM tasks) numbered;
+
+START TRANSACTION;
+SET FOREIGN_KEY_CHECKS = 0;
+
+-- Old ids are version 4 and new ids version 7, an updated key never collides with one not updated yet
+UPDATE tasks_users tu JOIN task_id_map m ON m.old_id = tu.task_id SET tu.task_id = m.new_id;
+UPDATE tasks_users tu JOIN user_id_map m ON m.old_id = tu.user_id SET tu.user_id = m.new_id;
+UPDATE tasks t JOIN task_id_map m ON m.old_id = t.id SET t.id = m.new_id;
+UPDATE users u JOIN user_id_map m ON m.old_id = u.id SET u.id = m.new_id;
+
+-- Checkpoints hold positions in the old key order
+UPDATE job_checkpoints SET last_date = NULL, last_id = NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
+COMMIT;
+
+DROP TABLE task_id_map;
+DROP TABLE user_id_map;
+
+-- Rebuilds the tables so the clustered and secondary indexes are stored densely
+OPTIMIZE TABLE users, tasks, tasks_users;
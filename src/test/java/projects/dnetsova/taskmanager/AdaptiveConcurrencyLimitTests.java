@@ -0,0 +1,101 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.limits.AdaptiveConcurrencyLimit;
+
+import java.util.concurrent.TimeUnit;
+
+
+public class AdaptiveConcurrencyLimitTests {
+    private static final int WINDOW_SIZE = 50;
+
+    @Test
+    public void tryAcquireMustRejectOverTheLimitUntilAPlaceIsReleased() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, WINDOW_SIZE, 1.5);
+
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertFalse(limit.tryAcquire());
+        Assertions.assertEquals(1, limit.getRejectedCount());
+
+        limit.release(TimeUnit.MILLISECONDS.toNanos(5), false);
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    public void costlyRequestMustTakeItsCostOrRunAlone() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 10, WINDOW_SIZE, 1.5);
+
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertTrue(limit.tryAcquire(3));
+        Assertions.assertFalse(limit.tryAcquire());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(5), false, 3);
+        limit.release(TimeUnit.MILLISECONDS.toNanos(5), false);
+
+        Assertions.assertTrue(limit.tryAcquire(6), "Expected a request over the limit to run alone.");
+        Assertions.assertFalse(limit.tryAcquire());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(5), false, 6);
+        Assertions.assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void limitMustGrowWhileSaturatedAtTheUsualLatency() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, WINDOW_SIZE, 1.5);
+
+        for (int i = 0; i < 20; i++) window(limit, 10, 10);
+
+        Assertions.assertTrue(limit.getLimit() > 10, "Expected the limit to grow, got " + limit.getLimit());
+    }
+
+    @Test
+    public void limitMustShrinkWhenTheLatencyRisesAndStayWithinItsBounds() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 5, 100, WINDOW_SIZE, 1.5);
+        window(limit, 40, 10);
+
+        for (int i = 0; i < 5; i++) window(limit, limit.getLimit(), 100);
+        int shrunk = limit.getLimit();
+        Assertions.assertTrue(shrunk < 40, "Expected the limit to shrink, got " + shrunk);
+
+        for (int i = 0; i < 100; i++) window(limit, limit.getLimit(), 100);
+        Assertions.assertTrue(limit.getLimit() >= 5);
+    }
+
+    @Test
+    public void limitMustNotChangeWhileMostOfItIsUnused() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 5, 100, WINDOW_SIZE, 1.5);
+        window(limit, 10, 10);
+
+        for (int i = 0; i < 5; i++) window(limit, 10, 100);
+
+        Assertions.assertEquals(40, limit.getLimit());
+    }
+
+    @Test
+    public void failedRequestsMustShrinkTheLimitAtOnce() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 5, 100, WINDOW_SIZE, 1.5);
+
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            limit.tryAcquire();
+            limit.release(TimeUnit.MILLISECONDS.toNanos(10), i == 0);
+        }
+
+        Assertions.assertEquals(36, limit.getLimit());
+    }
+
+    /**
+     * Completes a window of requests with the given latency, holding up to inFlight places in the meantime.
+     */
+    private static void window(AdaptiveConcurrencyLimit limit, int inFlight, long latencyMillis) {
+        long latency = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        int held = 0;
+        while (held < inFlight && limit.tryAcquire()) held++;
+
+        for (int i = 0; i < WINDOW_SIZE - held; i++) {
+            limit.release(latency, false);
+            limit.tryAcquire();
+        }
+        for (int i = 0; i < held; i++) limit.release(latency, false);
+    }
+}
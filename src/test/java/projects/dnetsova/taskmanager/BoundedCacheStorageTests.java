@@ -0,0 +1,66 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.cache.BoundedCacheStorage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class BoundedCacheStorageTests {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void putMustEvictTheLeastRecentlyReadEntryWhenFull() {
+        BoundedCacheStorage storage = new BoundedCacheStorage(2, 0, this.now::get);
+
+        storage.putIntoCache("a", 1, null);
+        storage.putIntoCache("b", 2, null);
+        storage.getFromCache("a", null);
+        storage.putIntoCache("c", 3, null);
+
+        Assertions.assertEquals(1, storage.getFromCache("a", null));
+        Assertions.assertNull(storage.getFromCache("b", null), "Expected the entry read least recently to be evicted.");
+        Assertions.assertEquals(3, storage.getFromCache("c", null));
+        Assertions.assertEquals(1, storage.evictionCount());
+    }
+
+    @Test
+    public void getMustDropAnEntryOlderThanTheTimeToLive() {
+        BoundedCacheStorage storage = new BoundedCacheStorage(0, TimeUnit.SECONDS.toNanos(10), this.now::get);
+
+        storage.putIntoCache("a", 1, null);
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Assertions.assertEquals(1, storage.getFromCache("a", null));
+
+        this.now.incrementAndGet();
+        Assertions.assertNull(storage.getFromCache("a", null), "Expected the entry to expire after its time to live.");
+        Assertions.assertEquals(0, storage.size());
+        Assertions.assertEquals(1, storage.expirationCount());
+    }
+
+    @Test
+    public void putMustRestartTheTimeToLiveOfAReplacedEntry() {
+        BoundedCacheStorage storage = new BoundedCacheStorage(0, TimeUnit.SECONDS.toNanos(10), this.now::get);
+
+        storage.putIntoCache("a", 1, null);
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        storage.putIntoCache("a", 2, null);
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+
+        Assertions.assertEquals(2, storage.getFromCache("a", null));
+    }
+
+    @Test
+    public void evictDataMustDropEveryEntry() {
+        BoundedCacheStorage storage = new BoundedCacheStorage(0, 0, this.now::get);
+
+        storage.putIntoCache("a", 1, null);
+        storage.putIntoCache("b", 2, null);
+        storage.evictData();
+
+        Assertions.assertFalse(storage.contains("a"));
+        Assertions.assertEquals(0, storage.size());
+    }
+}
@@ -0,0 +1,198 @@
+package projects.dnetsova.taskmanager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
+import projects.dnetsova.taskmanager.models.ChangeEvent;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.services.ChangeFeedService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+public class ChangeFeedServiceTests {
+    private final ChangeFeedService changeFeedService = new ChangeFeedService(new ObjectMapper(), true, 4, 3, 2,
+            5000, Executors.newSingleThreadExecutor());
+
+    @AfterEach
+    public void close() {
+        this.changeFeedService.close();
+    }
+
+    @Test
+    public void subscriberMustOnlyReceiveTheChangesMadeAfterItSubscribed() throws InterruptedException {
+        this.changeFeedService.onUserChanged(new UserChangedEvent(null, "Fred"));
+        CollectingSink sink = new CollectingSink();
+        this.changeFeedService.subscribe(null, sink);
+
+        this.changeFeedService.onUserChanged(new UserChangedEvent("Fred", "Frederick"));
+        this.changeFeedService.onUserChanged(new UserChangedEvent("Frederick", null));
+
+        List<ChangeEvent> events = sink.take(2);
+        Assertions.assertEquals("user-renamed", events.get(0).type());
+        Assertions.assertEquals("{\"name\":\"Fred\",\"newName\":\"Frederick\"}", events.get(0).data());
+        Assertions.assertEquals("user-removed", events.get(1).type());
+        Assertions.assertTrue(sink.events.isEmpty());
+    }
+
+    @Test
+    public void importedBatchMustBeSentAsOneEvent() throws InterruptedException {
+        CollectingSink sink = new CollectingSink();
+        this.changeFeedService.subscribe(null, sink);
+        List<TaskDetails> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new TaskDetails(UUID.randomUUID(), "Task " + i, null, null, null, null, Priority.P2, List.of()));
+        }
+
+        this.changeFeedService.onTasksImported(new TasksImportedEvent(tasks));
+
+        ChangeEvent event = sink.take(1).get(0);
+        Assertions.assertEquals(ChangeFeedService.TASKS_IMPORTED, event.type());
+        Assertions.assertEquals("{\"count\":10}", event.data());
+    }
+
+    @Test
+    public void subscriberMustBeSentTheMissedChangesWhenItResumesFromTheLastEventId() throws InterruptedException {
+        CollectingSink first = new CollectingSink();
+        ChangeFeedService.Subscription subscription = this.changeFeedService.subscribe(null, first);
+        this.changeFeedService.onUserChanged(new UserChangedEvent(null, "a"));
+        String lastEventId = first.take(1).get(0).id();
+        subscription.cancel();
+
+        this.changeFeedService.onUserChanged(new UserChangedEvent(null, "b"));
+        this.changeFeedService.onUserChanged(new UserChangedEvent(null, "c"));
+        CollectingSink resumed = new CollectingSink();
+        this.changeFeedService.subscribe(lastEventId, resumed);
+
+        List<ChangeEvent> events = resumed.take(2);
+        Assertions.assertEquals("{\"name\":\"b\"}", events.get(0).data());
+        Assertions.assertEquals("{\"name\":\"c\"}", events.get(1).data());
+    }
+
+    @Test
+    public void subscriberMustBeToldToResyncWhenTheMissedChangesAreNotKept() throws InterruptedException {
+        for (String name : List.of("a", "b", "c", "d", "e")) {
+            this.changeFeedService.onUserChanged(new UserChangedEvent(null, name));
+        }
+
+        CollectingSink unknown = new CollectingSink();
+        this.changeFeedService.subscribe("previous-run-17", unknown);
+        ChangeEvent resync = unknown.take(1).get(0);
+        Assertions.assertEquals(ChangeFeedService.RESYNC, resync.type());
+
+        this.changeFeedService.onUserChanged(new UserChangedEvent(null, "f"));
+        Assertions.assertEquals("{\"name\":\"f\"}", unknown.take(1).get(0).data(),
+                "Expected the subscriber to continue with the next change after the resync.");
+
+        CollectingSink lagging = new CollectingSink();
+        String firstKeptId = resync.id().substring(0, resync.id().lastIndexOf('-') + 1) + "2";
+        this.changeFeedService.subscribe(firstKeptId, lagging);
+        Assertions.assertEquals(ChangeFeedService.RESYNC, lagging.take(1).get(0).type(),
+                "Expected a subscriber more events behind than the maximum lag to resync.");
+    }
+
+    @Test
+    public void subscribeMustThrowIllegalStateExceptionWhenThereAreTooManySubscribers() {
+        this.changeFeedService.subscribe(null, new CollectingSink());
+        this.changeFeedService.subscribe(null, new CollectingSink());
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> this.changeFeedService.subscribe(null, new CollectingSink()));
+    }
+
+    @Test
+    public void stalledSubscriberMustBeDroppedWithoutHoldingUpTheOthers() throws InterruptedException {
+        ChangeFeedService feed = new ChangeFeedService(new ObjectMapper(), true, 100, 100, 2, 100,
+                Executors.newFixedThreadPool(1));
+        BlockingSink stalled = new BlockingSink();
+        CollectingSink reading = new CollectingSink();
+        feed.subscribe(null, stalled);
+        feed.subscribe(null, reading);
+
+        try {
+            feed.onUserChanged(new UserChangedEvent(null, "a"));
+            Assertions.assertTrue(stalled.entered.await(5, TimeUnit.SECONDS));
+            feed.onUserChanged(new UserChangedEvent(null, "b"));
+
+            Thread.sleep(200);
+            feed.dropStalledSubscribers();
+
+            List<String> received = new ArrayList<>();
+            while (!received.contains("{\"name\":\"b\"}")) received.add(reading.take(1).get(0).data());
+            Assertions.assertEquals(1, feed.getSubscriberCount());
+        } finally {
+            stalled.released.countDown();
+            feed.close();
+        }
+        Assertions.assertTrue(stalled.closed.await(5, TimeUnit.SECONDS),
+                "Expected the stalled subscriber to be closed once its send returned.");
+    }
+
+    /**
+     * A client which stopped reading, whose send ignores interrupts until released.
+     */
+    private static class BlockingSink implements ChangeFeedService.Sink {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(ChangeEvent event) {
+            this.entered.countDown();
+            while (true) {
+                try {
+                    this.released.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // Ignored, as by a write which does not notice interrupts
+                }
+            }
+        }
+
+        @Override
+        public void sendHeartbeat() {
+        }
+
+        @Override
+        public void close() {
+            this.closed.countDown();
+        }
+    }
+
+    private static class CollectingSink implements ChangeFeedService.Sink {
+        private final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(ChangeEvent event) {
+            this.events.add(event);
+        }
+
+        @Override
+        public void sendHeartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<ChangeEvent> take(int count) throws InterruptedException {
+            List<ChangeEvent> taken = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ChangeEvent event = this.events.poll(5, TimeUnit.SECONDS);
+                Assertions.assertNotNull(event, "Expected " + count + " events, received " + taken.size() + ".");
+                taken.add(event);
+            }
+            return taken;
+        }
+    }
+}
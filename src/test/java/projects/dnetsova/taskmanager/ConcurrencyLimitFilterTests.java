@@ -0,0 +1,86 @@
+package projects.dnetsova.taskmanager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import projects.dnetsova.taskmanager.limits.AdaptiveConcurrencyLimit;
+import projects.dnetsova.taskmanager.limits.ConcurrencyLimitFilter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+public class ConcurrencyLimitFilterTests {
+    private AdaptiveConcurrencyLimit reads;
+    private AdaptiveConcurrencyLimit writes;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    public void createFilter() {
+        reads = new AdaptiveConcurrencyLimit(1, 1, 10, 50, 1.5);
+        writes = new AdaptiveConcurrencyLimit(4, 1, 10, 50, 1.5);
+        filter = new ConcurrencyLimitFilter(reads, writes, List.of("/users/"), Set.of("/users/export"),
+                Map.of("/users/bulk-edit", 3), 503, new ObjectMapper());
+    }
+
+    @Test
+    public void requestOverTheLimitMustBeRejectedWithAnApiError() throws Exception {
+        Assertions.assertTrue(reads.tryAcquire());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (request, r) -> Assertions.fail("Expected the request not to reach the controller.");
+        filter.doFilter(new MockHttpServletRequest("GET", "/users/get"), response, chain);
+
+        Assertions.assertEquals(503, response.getStatus());
+        Assertions.assertEquals("1", response.getHeader("Retry-After"));
+        Assertions.assertEquals("{\"content\":null,\"errors\":[{\"name\":\"ServerOverloaded\"," +
+                "\"description\":\"Too many concurrent reads, retry later.\"}]}", response.getContentAsString());
+    }
+
+    @Test
+    public void readsAndWritesMustHaveSeparateBudgets() throws Exception {
+        Assertions.assertTrue(reads.tryAcquire());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/users/create"), response, (request, r) ->
+                Assertions.assertEquals(1, writes.getInFlight()));
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(0, writes.getInFlight(), "Expected the place to be released after the request.");
+        Assertions.assertEquals(0, writes.getRejectedCount());
+    }
+
+    @Test
+    public void excludedAndOtherPathsMustNotBeLimited() throws Exception {
+        Assertions.assertTrue(reads.tryAcquire());
+
+        for (String path : List.of("/users/export", "/actuator/prometheus")) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", path), response, (request, r) -> { });
+            Assertions.assertEquals(200, response.getStatus(), path);
+        }
+        Assertions.assertEquals(0, reads.getRejectedCount());
+    }
+
+    @Test
+    public void costlyPathMustTakeItsCostOfTheLimit() throws Exception {
+        Assertions.assertTrue(writes.tryAcquire(2));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/users/bulk-edit"), response, (request, r) ->
+                Assertions.fail("Expected the request not to reach the controller."));
+        Assertions.assertEquals(503, response.getStatus());
+
+        writes.release(0, false, 2);
+        response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/users/bulk-edit"), response, (request, r) ->
+                Assertions.assertEquals(3, writes.getInFlight()));
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(0, writes.getInFlight());
+    }
+}
@@ -0,0 +1,167 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.TaskDeadlineEvent;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+import projects.dnetsova.taskmanager.models.TaskDeadline;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.services.DeadlineAlertService;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.*;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class DeadlineAlertServiceTests {
+    private static final LocalDate TODAY = LocalDate.of(2024, 7, 1);
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<MetricsRegistry> metricsRegistryProvider;
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private final MutableClock clock = new MutableClock(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC));
+    private DeadlineAlertService deadlineAlertService;
+
+    @BeforeEach
+    public void createService() {
+        Mockito.lenient().when(taskRepository.findDeadlinesOn(any())).thenReturn(List.of());
+        Mockito.when(metricsRegistryProvider.getIfAvailable()).thenReturn(metricsRegistry);
+        deadlineAlertService = new DeadlineAlertService(taskRepository, eventPublisher, clock,
+                metricsRegistryProvider, true, 2);
+    }
+
+    @AfterEach
+    public void stopService() {
+        deadlineAlertService.stop();
+    }
+
+    @Test
+    public void loadUpcomingDeadlinesMustQueryOnlyTheDaysOfTheHorizon() {
+        deadlineAlertService.loadUpcomingDeadlines();
+
+        verify(taskRepository).findDeadlinesOn(TODAY);
+        verify(taskRepository).findDeadlinesOn(TODAY.plusDays(1));
+        verify(taskRepository).findDeadlinesOn(TODAY.plusDays(2));
+        verifyNoMoreInteractions(taskRepository);
+    }
+
+    @Test
+    public void deadlinesMustBeFiredWhenReachedInPriorityOrder() throws IOException {
+        TaskDeadline low = new TaskDeadline(UUID.randomUUID(), TODAY.plusDays(1), Priority.P3);
+        TaskDeadline high = new TaskDeadline(UUID.randomUUID(), TODAY.plusDays(1), Priority.P0);
+        Mockito.when(taskRepository.findDeadlinesOn(TODAY.plusDays(1))).thenReturn(List.of(low, high));
+
+        deadlineAlertService.loadUpcomingDeadlines();
+        verify(eventPublisher, never()).publishEvent(any(TaskDeadlineEvent.class));
+
+        clock.instant = TODAY.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).plusMillis(1500);
+        deadlineAlertService.tick();
+
+        ArgumentCaptor<TaskDeadlineEvent> fired = ArgumentCaptor.forClass(TaskDeadlineEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(fired.capture());
+        Assertions.assertEquals(List.of(high.id(), low.id()), fired.getAllValues().stream().map(TaskDeadlineEvent::taskId).toList());
+        Assertions.assertEquals(1500, fired.getValue().latenessMillis());
+        StringWriter metrics = new StringWriter();
+        metricsRegistry.writePrometheus(metrics);
+        Assertions.assertTrue(metrics.toString().contains("deadline_alert_lateness_seconds_bucket{le=\"1.5\"} 2\n"),
+                metrics.toString());
+    }
+
+    @Test
+    public void tickerMustKeepTickingAfterTheLoadFails() {
+        Mockito.when(taskRepository.findDeadlinesOn(TODAY.plusDays(3)))
+                .thenThrow(new QueryTimeoutException("Query timed out"))
+                .thenReturn(List.of());
+        deadlineAlertService.start();
+
+        clock.instant = TODAY.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        verify(taskRepository, timeout(5000).times(2)).findDeadlinesOn(TODAY.plusDays(3));
+    }
+
+    @Test
+    public void concurrentLoadsMustQueryEachDayOnce() throws InterruptedException {
+        TaskDeadline deadline = new TaskDeadline(UUID.randomUUID(), TODAY.plusDays(1), Priority.P1);
+        Mockito.when(taskRepository.findDeadlinesOn(TODAY.plusDays(1))).thenReturn(List.of(deadline));
+        Thread[] concurrent = new Thread[1];
+        Mockito.when(taskRepository.findDeadlinesOn(TODAY)).thenAnswer(invocation -> {
+            if (concurrent[0] == null) {
+                concurrent[0] = new Thread(deadlineAlertService::loadUpcomingDeadlines);
+                concurrent[0].start();
+                Thread.sleep(100);
+            }
+            return List.of();
+        });
+
+        deadlineAlertService.loadUpcomingDeadlines();
+        concurrent[0].join();
+
+        verify(taskRepository).findDeadlinesOn(TODAY);
+        verify(taskRepository).findDeadlinesOn(TODAY.plusDays(1));
+        verify(taskRepository).findDeadlinesOn(TODAY.plusDays(2));
+        Assertions.assertEquals(1, deadlineAlertService.pendingCount());
+    }
+
+    @Test
+    public void changedTasksMustBeRescheduled() {
+        deadlineAlertService.loadUpcomingDeadlines();
+        UUID id = UUID.randomUUID();
+        TaskDetails task = new TaskDetails(id, "task", null, null, TODAY.plusDays(2), null, Priority.P1, List.of());
+
+        deadlineAlertService.onTaskChanged(new TaskChangedEvent(null, task));
+        Assertions.assertEquals(1, deadlineAlertService.pendingCount());
+
+        deadlineAlertService.onTaskChanged(new TaskChangedEvent(task, null));
+        Assertions.assertEquals(0, deadlineAlertService.pendingCount());
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package projects.dnetsova.taskmanager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import projects.dnetsova.taskmanager.models.TaskExportRow;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.services.ExportService;
+import projects.dnetsova.taskmanager.utils.CsvLists;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+
+@ExtendWith(MockitoExtension.class)
+public class ExportServiceTests {
+    private static final UUID FIRST_ID = UUID.fromString("0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e");
+    private static final UUID SECOND_ID = UUID.fromString("0190a6f3-0a4d-7b52-9e61-5c8f2b7d1a03");
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    public void createService() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        exportService = new ExportService(taskRepository, userRepository, objectMapper, 1);
+    }
+
+    @Test
+    public void rowsOfATaskMustBeMergedIntoOneRecord() throws IOException {
+        Mockito.when(taskRepository.streamAllForExport()).thenReturn(Stream.of(
+                new TaskExportRow(FIRST_ID, "Release", null, null, LocalDate.of(2024, 7, 5), null, Priority.P1, "George"),
+                new TaskExportRow(FIRST_ID, "Release", null, null, LocalDate.of(2024, 7, 5), null, Priority.P1, "Fred"),
+                new TaskExportRow(SECOND_ID, "Archive", null, null, null, null, Priority.P4, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Assertions.assertEquals(2, exportService.exportTasks(ExportFormat.NDJSON, out));
+
+        Assertions.assertEquals("""
+                {"id":"0190a6f2-5c1e-7cc1-8b6e-3f2d9a1c4b7e","title":"Release","description":null,"startDate":null,\
+                "deadline":"2024-07-05","repeatDate":null,"priority":"P1","assignees":["Fred","George"]}
+                {"id":"0190a6f3-0a4d-7b52-9e61-5c8f2b7d1a03","title":"Archive","description":null,"startDate":null,\
+                "deadline":null,"repeatDate":null,"priority":"P4","assignees":[]}
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void csvValuesMustBeQuotedWhenNeeded() throws IOException {
+        Mockito.when(taskRepository.streamAllForExport()).thenReturn(Stream.of(
+                new TaskExportRow(FIRST_ID, "Say \"hi\", then leave", "line\nbreak", null, null, null, Priority.P0, "Fred")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportTasks(ExportFormat.CSV, out);
+
+        Assertions.assertEquals("id,title,description,startDate,deadline,repeatDate,priority,assignees\r\n" +
+                        FIRST_ID + ",\"Say \"\"hi\"\", then leave\",\"line\nbreak\",,,,P0,Fred\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void csvAssigneesMustEscapeTheSeparator() throws IOException {
+        Mockito.when(taskRepository.streamAllForExport()).thenReturn(Stream.of(
+                new TaskExportRow(FIRST_ID, "Release", null, null, null, null, Priority.P1, "Smith; John"),
+                new TaskExportRow(FIRST_ID, "Release", null, null, null, null, Priority.P1, "C:\\Fred")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportTasks(ExportFormat.CSV, out);
+
+        String field = "C:\\\\Fred;Smith\\; John";
+        Assertions.assertEquals("id,title,description,startDate,deadline,repeatDate,priority,assignees\r\n" +
+                FIRST_ID + ",Release,,,,,P1," + field + "\r\n", out.toString(StandardCharsets.UTF_8));
+        Assertions.assertEquals(List.of("C:\\Fred", "Smith; John"), CsvLists.split(field));
+    }
+
+    @Test
+    public void exportMustBeRefusedOverTheMaximumOfConcurrentExports() {
+        Assertions.assertTrue(exportService.tryStartExport());
+        Assertions.assertFalse(exportService.tryStartExport());
+
+        exportService.endExport();
+        Assertions.assertTrue(exportService.tryStartExport());
+    }
+
+    @Test
+    public void exportMustCloseTheStreamedQuery() throws IOException {
+        boolean[] closed = {false};
+        Mockito.when(userRepository.streamAllUserNames())
+                .thenReturn(Stream.of("Fred", "George").onClose(() -> closed[0] = true));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Assertions.assertEquals(2, exportService.exportUsers(ExportFormat.NDJSON, out));
+
+        Assertions.assertEquals("{\"name\":\"Fred\"}\n{\"name\":\"George\"}\n", out.toString(StandardCharsets.UTF_8));
+        Assertions.assertTrue(closed[0]);
+    }
+}
@@ -0,0 +1,61 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.utils.HierarchicalTimingWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+public class HierarchicalTimingWheelTests {
+
+    @Test
+    public void addMustRejectTimersWhichAreAlreadyDue() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 1000);
+
+        Assertions.assertNull(wheel.add(1005, "due"));
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void advanceMustExpireEveryTimerOnItsTickAcrossAllLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        Random random = new Random(42);
+        List<Long> expirations = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long expiration = 10 + random.nextInt(100_000);
+            expirations.add(expiration);
+            wheel.add(expiration, expiration);
+        }
+
+        List<String> lateTimers = new ArrayList<>();
+        long[] now = {0};
+        int[] expiredCount = {0};
+        while (now[0] <= 100_010) {
+            now[0] += 10;
+            wheel.advance(now[0], timer -> {
+                expiredCount[0]++;
+                if (timer.value() / 10 != now[0] / 10) lateTimers.add(timer.value() + " at " + now[0]);
+            });
+        }
+
+        Assertions.assertEquals(expirations.size(), expiredCount[0]);
+        Assertions.assertEquals(List.of(), lateTimers);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledTimersMustNotExpire() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+        HierarchicalTimingWheel.Timer<String> cancelled = wheel.add(5_000, "cancelled");
+        wheel.add(5_000, "kept");
+        wheel.cancel(cancelled);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(10_000, timer -> expired.add(timer.value()));
+
+        Assertions.assertEquals(List.of("kept"), expired);
+    }
+}
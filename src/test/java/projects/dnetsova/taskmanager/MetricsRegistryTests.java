@@ -0,0 +1,69 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.metrics.LatencyHistogram;
+import projects.dnetsova.taskmanager.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+
+public class MetricsRegistryTests {
+
+    @Test
+    public void histogramMustCountEveryValueInTheFirstBucketReachingIt() {
+        LatencyHistogram histogram = new LatencyHistogram(new double[]{0.001, 0.01});
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.record(TimeUnit.SECONDS.toNanos(2));
+
+        Assertions.assertArrayEquals(new long[]{2, 3, 4}, histogram.cumulativeCounts());
+        Assertions.assertEquals(2.0065, histogram.sumSeconds(), 1e-9);
+    }
+
+    @Test
+    public void timerMustReturnTheSameMeterForTheSameLabels() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        LatencyHistogram first = registry.timer("calls_seconds", "Calls.", "method", "a");
+
+        Assertions.assertSame(first, registry.timer("calls_seconds", "Calls.", "method", "a"));
+        Assertions.assertNotSame(first, registry.timer("calls_seconds", "Calls.", "method", "b"));
+    }
+
+    @Test
+    public void registeringANameWithAnotherTypeMustFail() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls", "Calls.");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.timer("calls", "Calls."));
+    }
+
+    @Test
+    public void writePrometheusMustWriteTheTextExpositionFormat() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.timer("requests_seconds", "Requests.", "uri", "/users/{id}")
+                .record(TimeUnit.MILLISECONDS.toNanos(3));
+        registry.counter("errors_total", "Errors.", "exception", "Duplicate\"User\"").add(2);
+        registry.gauge("pool_active", "Active connections.", () -> 4);
+
+        StringWriter writer = new StringWriter();
+        registry.writePrometheus(writer);
+        String text = writer.toString();
+
+        Assertions.assertTrue(text.contains("# TYPE requests_seconds histogram\n"));
+        Assertions.assertTrue(text.contains("requests_seconds_bucket{uri=\"/users/{id}\",le=\"0.0025\"} 0\n"));
+        Assertions.assertTrue(text.contains("requests_seconds_bucket{uri=\"/users/{id}\",le=\"0.005\"} 1\n"));
+        Assertions.assertTrue(text.contains("requests_seconds_bucket{uri=\"/users/{id}\",le=\"+Inf\"} 1\n"));
+        Assertions.assertTrue(text.contains("requests_seconds_sum{uri=\"/users/{id}\"} 0.003\n"));
+        Assertions.assertTrue(text.contains("requests_seconds_count{uri=\"/users/{id}\"} 1\n"));
+        Assertions.assertTrue(text.contains("# TYPE errors_total counter\n"));
+        Assertions.assertTrue(text.contains("errors_total{exception=\"Duplicate\\\"User\\\"\"} 2\n"));
+        Assertions.assertTrue(text.contains("# HELP pool_active Active connections.\n"));
+        Assertions.assertTrue(text.contains("pool_active 4\n"));
+    }
+}
@@ -0,0 +1,120 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import projects.dnetsova.taskmanager.configuration.ReadWriteRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+
+@ExtendWith(MockitoExtension.class)
+public class ReadWriteRoutingDataSourceTests {
+    private static final String LAG_QUERY = "SHOW REPLICA STATUS";
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    public void createDataSource() {
+        routing = new ReadWriteRoutingDataSource(primary, List.of(
+                new ReadWriteRoutingDataSource.Replica("replica-1", firstReplica),
+                new ReadWriteRoutingDataSource.Replica("replica-2", secondReplica)), LAG_QUERY, 5);
+    }
+
+    @AfterEach
+    public void clearTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readsMustGoToTheHealthyReplicasInTurnAndWritesToThePrimary() throws SQLException {
+        replicaLag(firstReplica, 0L);
+        replicaLag(secondReplica, 2L);
+        routing.checkReplicas();
+
+        Connection write = Mockito.mock(Connection.class);
+        Mockito.when(primary.getConnection()).thenReturn(write);
+        Assertions.assertSame(write, routing.getConnection(), "Expected a connection outside a read-only transaction " +
+                "to come from the primary.");
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        routing.getConnection();
+        routing.getConnection();
+
+        Mockito.verify(firstReplica, Mockito.times(2)).getConnection();
+        Mockito.verify(secondReplica, Mockito.times(2)).getConnection();
+        Assertions.assertEquals(1, routing.getWriteCount());
+        Assertions.assertEquals(1, routing.getReplicas().get(0).getReadCount());
+        Assertions.assertEquals(1, routing.getReplicas().get(1).getReadCount());
+    }
+
+    @Test
+    public void readsMustFallBackToThePrimaryWhenNoReplicaIsHealthyOrUpToDate() throws SQLException {
+        replicaLag(firstReplica, 30L);
+        replicaLag(secondReplica, null);
+        routing.checkReplicas();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        routing.getConnection();
+
+        Mockito.verify(primary).getConnection();
+        Assertions.assertFalse(routing.getReplicas().get(0).isHealthy(), "Expected a lagging replica to be unhealthy.");
+        Assertions.assertFalse(routing.getReplicas().get(1).isHealthy(),
+                "Expected a replica which stopped replicating to be unhealthy.");
+        Assertions.assertEquals(1, routing.getFallbackReadCount());
+    }
+
+    @Test
+    public void replicaMustBeUnhealthyUntilItsHealthCheckSucceeds() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        routing.getConnection();
+        Mockito.verify(primary).getConnection();
+
+        Mockito.when(firstReplica.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        replicaLag(secondReplica, 0L);
+        routing.checkReplicas();
+        Assertions.assertFalse(routing.getReplicas().get(0).isHealthy());
+        Assertions.assertTrue(Double.isNaN(routing.getReplicas().get(0).getLagSeconds()));
+        Assertions.assertTrue(routing.getReplicas().get(1).isHealthy());
+    }
+
+    /**
+     * Makes the replica report the given lag, null when it stopped replicating.
+     */
+    private static void replicaLag(DataSource replica, Long lagSeconds) throws SQLException {
+        Connection connection = Mockito.mock(Connection.class);
+        Statement statement = Mockito.mock(Statement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+
+        Mockito.when(replica.getConnection()).thenReturn(connection);
+        Mockito.when(connection.createStatement()).thenReturn(statement);
+        Mockito.when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        Mockito.when(resultSet.next()).thenReturn(true);
+        Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+        Mockito.when(metaData.getColumnCount()).thenReturn(2);
+        Mockito.when(metaData.getColumnLabel(1)).thenReturn("Replica_IO_State");
+        Mockito.when(metaData.getColumnLabel(2)).thenReturn("Seconds_Behind_Source");
+        Mockito.when(resultSet.getLong(2)).thenReturn(lagSeconds == null ? 0 : lagSeconds);
+        Mockito.when(resultSet.wasNull()).thenReturn(lagSeconds == null);
+    }
+}
@@ -0,0 +1,126 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.JobCheckpoint;
+import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.repositories.JobCheckpointRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.services.RecurringTaskService;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class RecurringTaskServiceTests {
+    private static final LocalDate TODAY = LocalDate.of(2024, 7, 1);
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private RecurringTaskService recurringTaskService;
+
+    @BeforeEach
+    public void createService() {
+        Clock clock = Clock.fixed(TODAY.atTime(3, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        Mockito.lenient().when(taskRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        recurringTaskService = new RecurringTaskService(taskRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), eventPublisher, clock, true, 2);
+    }
+
+    @Test
+    public void dueTaskMustBeClonedWithShiftedDatesAndLoseItsRecurrence() {
+        Task task = task(TODAY.minusDays(7), TODAY.minusDays(5), TODAY);
+        Mockito.when(taskRepository.findDueRecurrences(eq(TODAY), any(Limit.class))).thenReturn(List.of(task.getId()));
+        Mockito.when(taskRepository.findAllForUpdate(List.of(task.getId()))).thenReturn(List.of(task));
+
+        Assertions.assertEquals(1, recurringTaskService.materializeDueRecurrences());
+
+        ArgumentCaptor<List<Task>> saved = ArgumentCaptor.forClass(List.class);
+        verify(taskRepository).saveAll(saved.capture());
+        Task occurrence = saved.getValue().get(0);
+        Assertions.assertEquals(TODAY, occurrence.getStartDate());
+        Assertions.assertEquals(TODAY.plusDays(2), occurrence.getDeadline());
+        Assertions.assertEquals(TODAY.plusDays(7), occurrence.getRepeatDate());
+        Assertions.assertEquals(task.getTitle(), occurrence.getTitle());
+        Assertions.assertNull(task.getRepeatDate());
+        verify(taskRepository).refreshFeedKeys(Collections.singletonList(occurrence.getId()));
+        verify(taskRepository).fetchAssignees(List.of(task.getId()));
+        verify(eventPublisher, times(2)).publishEvent(any(TaskChangedEvent.class));
+    }
+
+    @Test
+    public void taskProcessedConcurrentlyMustBeSkipped() {
+        Task task = task(TODAY.minusDays(7), null, null);
+        Mockito.when(taskRepository.findDueRecurrences(eq(TODAY), any(Limit.class))).thenReturn(List.of(task.getId()));
+        Mockito.when(taskRepository.findAllForUpdate(List.of(task.getId()))).thenReturn(List.of(task));
+
+        recurringTaskService.materializeDueRecurrences();
+
+        verify(taskRepository).saveAll(List.of());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void fullChunkMustBeFollowedByAScanAfterTheCheckpoint() {
+        Task first = task(TODAY.minusDays(1), null, TODAY);
+        Task second = task(TODAY.minusDays(1), null, TODAY);
+        JobCheckpoint checkpoint = new JobCheckpoint("recurring-tasks");
+        Mockito.when(checkpointRepository.findById("recurring-tasks"))
+                .thenReturn(Optional.of(checkpoint));
+        Mockito.when(taskRepository.findDueRecurrences(eq(TODAY), any(Limit.class)))
+                .thenReturn(List.of(first.getId(), second.getId()));
+        Mockito.when(taskRepository.findAllForUpdate(anyCollection())).thenReturn(List.of(first, second));
+        Mockito.when(taskRepository.findDueRecurrencesAfter(eq(TODAY), eq(TODAY), eq(second.getId()), any(Limit.class)))
+                .thenReturn(List.of());
+
+        Assertions.assertEquals(2, recurringTaskService.materializeDueRecurrences());
+
+        verify(taskRepository).findDueRecurrencesAfter(eq(TODAY), eq(TODAY), eq(second.getId()), any(Limit.class));
+        Assertions.assertNull(checkpoint.getLastDate(), "A completed run must reset the checkpoint");
+    }
+
+    private static Task task(LocalDate startDate, LocalDate deadline, LocalDate repeatDate) {
+        Task task = new Task();
+        ReflectionTestUtils.setField(task, "id", UUID.randomUUID());
+        task.setTitle("Weekly report");
+        task.setStartDate(startDate);
+        task.setDeadline(deadline);
+        task.setRepeatDate(repeatDate);
+        task.setPriority(Priority.P2);
+        task.setAssignees(new HashSet<>());
+        return task;
+    }
+}
@@ -0,0 +1,83 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import projects.dnetsova.taskmanager.models.TaskFieldEdit;
+import projects.dnetsova.taskmanager.services.TaskEditJournal;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+public class TaskEditJournalTests {
+    private final UUID taskId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void recoverMustReturnTheEditsAppendedBeforeTheJournalWasReopened() throws IOException {
+        TaskFieldEdit first = new TaskFieldEdit(this.taskId, Priority.P1, null, Map.of(this.userId, "User"), Map.of());
+        TaskFieldEdit second = new TaskFieldEdit(this.taskId, null, LocalDate.of(2024, 7, 5), Map.of(),
+                Map.of(this.userId, "User"));
+
+        try (TaskEditJournal journal = new TaskEditJournal(this.directory, true)) {
+            journal.append(first);
+            journal.rotate();
+            journal.sync(journal.append(second));
+        }
+
+        try (TaskEditJournal journal = new TaskEditJournal(this.directory, true)) {
+            Assertions.assertEquals(List.of(first, second), journal.recover());
+            Assertions.assertEquals(2, journal.recoveredSegments().size());
+
+            journal.delete(journal.recoveredSegments());
+        }
+
+        try (TaskEditJournal journal = new TaskEditJournal(this.directory, true)) {
+            Assertions.assertEquals(List.of(), journal.recover(), "Expected the deleted segments to stay deleted.");
+        }
+    }
+
+    @Test
+    public void recoverMustIgnoreATornRecordAtTheEndOfASegment() throws IOException {
+        TaskFieldEdit edit = new TaskFieldEdit(this.taskId, Priority.P0, null, Map.of(), Map.of());
+
+        try (TaskEditJournal journal = new TaskEditJournal(this.directory, false)) {
+            journal.append(edit);
+        }
+        try (var segments = Files.list(this.directory)) {
+            Path segment = segments.findFirst().orElseThrow();
+            // The length and the first bytes of a record cut short by a crash
+            Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        try (TaskEditJournal journal = new TaskEditJournal(this.directory, false)) {
+            Assertions.assertEquals(List.of(edit), journal.recover());
+        }
+    }
+
+    @Test
+    public void thenMustLetTheLastChangeOfEachAttributeWin() {
+        TaskFieldEdit first = new TaskFieldEdit(this.taskId, Priority.P1, LocalDate.of(2024, 7, 5),
+                Map.of(this.userId, "User"), Map.of());
+        TaskFieldEdit second = new TaskFieldEdit(this.taskId, Priority.P3, null, Map.of(),
+                Map.of(this.userId, "User"));
+
+        TaskFieldEdit merged = first.then(second);
+
+        Assertions.assertEquals(Priority.P3, merged.priority());
+        Assertions.assertEquals(LocalDate.of(2024, 7, 5), merged.deadline());
+        Assertions.assertEquals(Map.of(), merged.addedAssignees());
+        Assertions.assertEquals(Map.of(this.userId, "User"), merged.removedAssignees());
+    }
+}
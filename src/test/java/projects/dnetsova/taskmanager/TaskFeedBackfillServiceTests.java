@@ -0,0 +1,90 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.JobCheckpoint;
+import projects.dnetsova.taskmanager.repositories.JobCheckpointRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.services.TaskFeedBackfillService;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TaskFeedBackfillServiceTests {
+    private static final LocalDate TODAY = LocalDate.of(2024, 7, 1);
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final JobCheckpoint[] stored = new JobCheckpoint[1];
+    private TaskFeedBackfillService taskFeedBackfillService;
+
+    @BeforeEach
+    public void createService() {
+        Clock clock = Clock.fixed(TODAY.atTime(3, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        Mockito.when(checkpointRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored[0]));
+        Mockito.lenient().when(checkpointRepository.save(any(JobCheckpoint.class)))
+                .thenAnswer(invocation -> stored[0] = invocation.getArgument(0));
+        taskFeedBackfillService = new TaskFeedBackfillService(taskRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), clock, 2);
+    }
+
+    @Test
+    public void backfillMustCopyTheTasksInChunksOnlyOnce() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        Mockito.when(taskRepository.findIds(any(Limit.class))).thenReturn(List.of(first, second));
+        Mockito.when(taskRepository.findIdsAfter(eq(second), any(Limit.class))).thenReturn(List.of(third));
+
+        Assertions.assertEquals(3, taskFeedBackfillService.backfill());
+
+        verify(taskRepository).refreshFeedKeys(List.of(first, second));
+        verify(taskRepository).refreshFeedKeys(List.of(third));
+        Assertions.assertEquals(TODAY, stored[0].getLastDate(), "Expected the scan to be marked as completed.");
+
+        Assertions.assertEquals(0, taskFeedBackfillService.backfill());
+        verify(taskRepository).findIds(any(Limit.class));
+        verify(taskRepository).findIdsAfter(any(UUID.class), any(Limit.class));
+        verifyNoMoreInteractions(taskRepository);
+    }
+
+    @Test
+    public void interruptedBackfillMustResumeAfterTheCheckpoint() {
+        UUID last = UUID.randomUUID();
+        stored[0] = new JobCheckpoint("task-feed-backfill");
+        stored[0].moveTo(null, last, TODAY.atStartOfDay().toInstant(ZoneOffset.UTC));
+        Mockito.when(taskRepository.findIdsAfter(eq(last), any(Limit.class))).thenReturn(List.of());
+
+        Assertions.assertEquals(0, taskFeedBackfillService.backfill());
+
+        verify(taskRepository, never()).findIds(any(Limit.class));
+        verify(taskRepository, never()).refreshFeedKeys(any());
+        Assertions.assertEquals(last, stored[0].getLastId());
+        Assertions.assertEquals(TODAY, stored[0].getLastDate());
+    }
+}
@@ -0,0 +1,166 @@
+package projects.dnetsova.taskmanager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.TasksImportedEvent;
+import projects.dnetsova.taskmanager.models.ApiError;
+import projects.dnetsova.taskmanager.models.ImportReport;
+import projects.dnetsova.taskmanager.models.ImportRowError;
+import projects.dnetsova.taskmanager.models.NewTask;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.services.TaskImportService;
+import projects.dnetsova.taskmanager.utils.ExportFormat;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TaskImportServiceTests {
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final List<NewTask> inserted = Collections.synchronizedList(new ArrayList<>());
+    private TaskImportService taskImportService;
+
+    @BeforeEach
+    public void createService() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        taskImportService = new TaskImportService(taskRepository, userRepository,
+                new TransactionTemplate(transactionManager), eventPublisher, objectMapper);
+        ReflectionTestUtils.setField(taskImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(taskImportService, "writerThreads", 2);
+        ReflectionTestUtils.setField(taskImportService, "queueCapacity", 1);
+
+        User fred = new User("Fred");
+        ReflectionTestUtils.setField(fred, "id", UUID.randomUUID());
+        Mockito.lenient().when(userRepository.findByNameIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            return names.stream().anyMatch("fred"::equalsIgnoreCase) ? List.of(fred) : List.of();
+        });
+        Mockito.lenient().doAnswer(invocation -> inserted.addAll(invocation.getArgument(0)))
+                .when(taskRepository).insertTasks(anyList());
+    }
+
+    @Test
+    public void invalidRowsMustBeReportedWithoutStoppingTheImport() throws InterruptedException {
+        String body = """
+                {"title":"Release","deadline":"2024-07-05","priority":"P1","assignees":["fred"]}
+                {"title":"","priority":"P1"}
+                not json
+                {"title":"Review","priority":"P2","assignees":["Nobody"]}
+                {"title":"Archive","priority":"P4"}
+                """;
+
+        ImportReport report = taskImportService.importTasks(ExportFormat.NDJSON, stream(body));
+
+        Assertions.assertTrue(report.finished());
+        Assertions.assertEquals(5, report.rowsRead());
+        Assertions.assertEquals(2, report.tasksImported());
+        Assertions.assertEquals(3, report.rowsFailed());
+        Assertions.assertEquals(List.of(2L, 3L, 4L), report.errors().stream().map(ImportRowError::row).toList());
+        Assertions.assertEquals("InvalidUser", report.errors().get(2).error().name());
+        Assertions.assertEquals(Set.of("Release", "Archive"),
+                inserted.stream().map(task -> task.attributes().title()).collect(Collectors.toSet()));
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void failingBatchMustBeRetriedRowByRow() throws InterruptedException {
+        Mockito.doAnswer(invocation -> {
+            List<NewTask> tasks = invocation.getArgument(0);
+            if (tasks.stream().anyMatch(task -> task.attributes().title().startsWith("Too long"))) {
+                throw new DataIntegrityViolationException("Data too long for column 'title'");
+            }
+            return inserted.addAll(tasks);
+        }).when(taskRepository).insertTasks(anyList());
+        String body = """
+                {"title":"Too long","priority":"P1"}
+                {"title":"Fine","priority":"P1"}
+                """;
+
+        ImportReport report = taskImportService.importTasks(ExportFormat.NDJSON, stream(body));
+
+        Assertions.assertEquals(1, report.tasksImported());
+        Assertions.assertEquals(List.of(new ImportRowError(1, new ApiError(
+                "StorageError", "Data too long for column 'title'"))), report.errors());
+        Assertions.assertEquals("Fine", inserted.get(0).attributes().title());
+        ArgumentCaptor<TasksImportedEvent> event = ArgumentCaptor.forClass(TasksImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        Assertions.assertEquals(List.of("Fine"), event.getValue().tasks().stream().map(TaskDetails::title).toList());
+    }
+
+    @Test
+    public void importMustPublishOneEventPerBatch() throws InterruptedException {
+        String body = """
+                {"title":"Plan","priority":"P1","assignees":["fred"]}
+                {"title":"Build","priority":"P2"}
+                {"title":"Test","priority":"P2"}
+                {"title":"Ship","priority":"P0"}
+                {"title":"Celebrate","priority":"P4"}
+                """;
+
+        taskImportService.importTasks(ExportFormat.NDJSON, stream(body));
+
+        ArgumentCaptor<TasksImportedEvent> events = ArgumentCaptor.forClass(TasksImportedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        Assertions.assertEquals(List.of(1, 2, 2), events.getAllValues().stream()
+                .map(event -> event.tasks().size()).sorted().toList());
+        Assertions.assertTrue(events.getAllValues().stream().flatMap(event -> event.tasks().stream())
+                .anyMatch(task -> task.assignees().equals(List.of("Fred"))));
+    }
+
+    @Test
+    public void csvMustBeReadByHeaderNames() throws InterruptedException {
+        String body = "id,title,description,startDate,deadline,repeatDate,priority,assignees\r\n" +
+                ",\"Plan, then \"\"ship\"\"\",\"two\nlines\",2024-07-01,2024-07-05,,P0,Fred\r\n";
+
+        ImportReport report = taskImportService.importTasks(ExportFormat.CSV, stream(body));
+
+        Assertions.assertEquals(1, report.tasksImported());
+        ArgumentCaptor<List<NewTask>> tasks = ArgumentCaptor.forClass(List.class);
+        verify(taskRepository).insertTasks(tasks.capture());
+        NewTask task = tasks.getValue().get(0);
+        Assertions.assertEquals("Plan, then \"ship\"", task.attributes().title());
+        Assertions.assertEquals("two\nlines", task.attributes().description());
+        Assertions.assertEquals(LocalDate.of(2024, 7, 5), task.attributes().deadline());
+        Assertions.assertEquals(Priority.P0, task.attributes().priority());
+        Assertions.assertEquals(1, task.assigneeIds().size());
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
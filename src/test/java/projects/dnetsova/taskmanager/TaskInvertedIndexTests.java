@@ -0,0 +1,185 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.utils.Priority;
+import projects.dnetsova.taskmanager.utils.TaskInvertedIndex;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+
+public class TaskInvertedIndexTests {
+    private static final UUID RELEASE = UUID.randomUUID();
+    private static final UUID NOTES = UUID.randomUUID();
+    private static final UUID ARCHIVE = UUID.randomUUID();
+
+    private TaskInvertedIndex index;
+
+    @BeforeEach
+    public void createIndex() {
+        index = new TaskInvertedIndex();
+        index.put(RELEASE, "Prepare the release", "Write the release notes and tag the build",
+                Priority.P1, LocalDate.of(2024, 7, 5), List.of("Fred"));
+        index.put(NOTES, "Meeting notes", "Notes about the next release",
+                Priority.P3, null, List.of("George"));
+        index.put(ARCHIVE, "Archive logs", "Move the old logs away", Priority.P4, LocalDate.of(2024, 8, 1), List.of());
+    }
+
+    @Test
+    public void allTermsOfTheQueryMustMatch() {
+        List<UUID> ids = ids(index.search("Release NOTES", TaskInvertedIndex.Filter.NONE, 10));
+
+        Assertions.assertEquals(Set.of(RELEASE, NOTES), Set.copyOf(ids));
+        Assertions.assertTrue(ids(index.search("release logs", TaskInvertedIndex.Filter.NONE, 10)).isEmpty());
+    }
+
+    @Test
+    public void titleMatchMustOutrankDescriptionMatch() {
+        List<TaskInvertedIndex.Hit> hits = index.search("meeting", TaskInvertedIndex.Filter.NONE, 10);
+        Assertions.assertEquals(List.of(NOTES), ids(hits));
+
+        hits = index.search("release", TaskInvertedIndex.Filter.NONE, 10);
+        Assertions.assertEquals(RELEASE, hits.get(0).taskId());
+        Assertions.assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    public void filtersMustRestrictTheResults() {
+        Assertions.assertEquals(List.of(NOTES), ids(index.search("release",
+                new TaskInvertedIndex.Filter(Set.of(Priority.P3), null, null, null), 10)));
+        Assertions.assertEquals(List.of(RELEASE), ids(index.search("release",
+                new TaskInvertedIndex.Filter(null, LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 31), null), 10)));
+        Assertions.assertEquals(List.of(NOTES), ids(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "george"), 10)));
+        Assertions.assertTrue(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "Nobody"), 10).isEmpty());
+    }
+
+    @Test
+    public void assigneeFilterMustFollowRenamedAndRemovedUsers() {
+        index.renameAssignee("Fred", "Frederick");
+
+        Assertions.assertTrue(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "Fred"), 10).isEmpty());
+        Assertions.assertEquals(List.of(RELEASE), ids(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "frederick"), 10)));
+
+        index.removeAssignee("George");
+        Assertions.assertTrue(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "George"), 10).isEmpty());
+    }
+
+    @Test
+    public void accentsAndCaseMustBeIgnored() {
+        index.put(UUID.randomUUID(), "Réunion café", null, Priority.P2, null, List.of());
+
+        Assertions.assertEquals(1, index.search("CAFE reunion", TaskInvertedIndex.Filter.NONE, 10).size());
+    }
+
+    @Test
+    public void replacedAndRemovedTasksMustNotBeFound() {
+        index.put(RELEASE, "Ship the build", null, Priority.P1, null, List.of());
+        index.remove(NOTES);
+
+        Assertions.assertTrue(index.search("release", TaskInvertedIndex.Filter.NONE, 10).isEmpty());
+        Assertions.assertEquals(List.of(RELEASE), ids(index.search("ship", TaskInvertedIndex.Filter.NONE, 10)));
+        Assertions.assertEquals(2, index.size());
+    }
+
+    @Test
+    public void compactionMustKeepTheLiveTasks() {
+        for (int i = 0; i < 25_000; i++) {
+            UUID id = UUID.randomUUID();
+            index.put(id, "Temporary task " + i, null, Priority.P2, null, List.of("Fred"));
+            index.remove(id);
+        }
+
+        Assertions.assertEquals(3, index.size());
+        Assertions.assertEquals(List.of(RELEASE), ids(index.search("release",
+                new TaskInvertedIndex.Filter(null, null, null, "Fred"), 10)));
+        Assertions.assertTrue(index.search("temporary", TaskInvertedIndex.Filter.NONE, 10).isEmpty());
+    }
+
+    @Test
+    public void onlyTheBestHitsUpToTheLimitMustBeReturned() {
+        for (int i = 0; i < 100; i++) {
+            index.put(UUID.randomUUID(), "Report " + i, "report ".repeat(i % 5 + 1), Priority.P2, null, List.of());
+        }
+
+        List<TaskInvertedIndex.Hit> hits = index.search("report", TaskInvertedIndex.Filter.NONE, 5);
+
+        Assertions.assertEquals(5, hits.size());
+        for (int i = 1; i < hits.size(); i++) Assertions.assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+    }
+
+    @Test
+    public void filtersMustMatchTheSameTasksAsCheckingEveryTask() {
+        index = new TaskInvertedIndex();
+        Random random = new Random(7);
+        Map<UUID, Object[]> tasks = new HashMap<>();
+        for (int i = 0; i < 3000; i++) putRandomTask(UUID.randomUUID(), random, tasks);
+        List<UUID> ids = new ArrayList<>(tasks.keySet());
+        // Replaced tasks must only match by their new attributes
+        for (int i = 0; i < 300; i++) putRandomTask(ids.get(random.nextInt(ids.size())), random, tasks);
+        for (int i = 0; i < 100; i++) {
+            UUID removed = ids.remove(random.nextInt(ids.size()));
+            index.remove(removed);
+            tasks.remove(removed);
+        }
+
+        List<TaskInvertedIndex.Filter> filters = List.of(
+                new TaskInvertedIndex.Filter(Set.of(Priority.P0, Priority.P1), null, null, null),
+                // Bucket edges are not day edges
+                new TaskInvertedIndex.Filter(null, LocalDate.of(2024, 3, 3), LocalDate.of(2024, 4, 9), null),
+                // Wider than the buckets combined into the accepted tasks
+                new TaskInvertedIndex.Filter(null, LocalDate.of(2024, 2, 1), LocalDate.of(2025, 11, 30), null),
+                new TaskInvertedIndex.Filter(Set.of(Priority.P2), LocalDate.of(2024, 6, 1), LocalDate.of(2024, 9, 1),
+                        "ginny"),
+                new TaskInvertedIndex.Filter(null, null, LocalDate.of(2024, 5, 1), "Fred"),
+                new TaskInvertedIndex.Filter(Set.of(Priority.P4), null, null, "George"),
+                // Few enough tasks to lead the intersection
+                new TaskInvertedIndex.Filter(null, null, null, "Percy"),
+                new TaskInvertedIndex.Filter(Set.of(Priority.P1, Priority.P3), null, null, "percy"));
+
+        for (TaskInvertedIndex.Filter filter : filters) {
+            Predicate<Object[]> accepts = task -> (filter.priorities() == null || filter.priorities().contains(task[1]))
+                    && (filter.deadlineFrom() == null || task[2] != null
+                    && !((LocalDate) task[2]).isBefore(filter.deadlineFrom()))
+                    && (filter.deadlineTo() == null || task[2] != null
+                    && !((LocalDate) task[2]).isAfter(filter.deadlineTo()))
+                    && (filter.assignee() == null || ((String) task[3]).equalsIgnoreCase(filter.assignee()));
+            Set<UUID> expected = new HashSet<>();
+            tasks.forEach((id, task) -> {
+                if (((String) task[0]).contains("build") && accepts.test(task)) expected.add(id);
+            });
+
+            List<UUID> all = ids(index.search("build", filter, 10_000));
+            Assertions.assertEquals(expected, Set.copyOf(all), filter.toString());
+            // Pruned by the weakest of the top hits, the first hits stay the same
+            Assertions.assertEquals(all.subList(0, Math.min(5, all.size())), ids(index.search("build", filter, 5)),
+                    filter.toString());
+        }
+    }
+
+    /**
+     * Indexes a task of random words and attributes, kept in tasks as title, priority, deadline and assignee.
+     */
+    private void putRandomTask(UUID id, Random random, Map<UUID, Object[]> tasks) {
+        String[] words = {"plan", "build", "test", "ship", "review", "deploy"};
+        String[] users = {"Fred", "George", "Ginny"};
+        String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+        Priority priority = Priority.values()[random.nextInt(Priority.values().length)];
+        LocalDate deadline = random.nextInt(10) == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(random.nextInt(730));
+        String user = random.nextInt(50) == 0 ? "Percy" : users[random.nextInt(users.length)];
+
+        index.put(id, title, "task " + tasks.size(), priority, deadline, List.of(user));
+        tasks.put(id, new Object[]{title, priority, deadline, user});
+    }
+
+    private static List<UUID> ids(List<TaskInvertedIndex.Hit> hits) {
+        return hits.stream().map(TaskInvertedIndex.Hit::taskId).toList();
+    }
+}
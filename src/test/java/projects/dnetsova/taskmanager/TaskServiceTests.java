@@ -0,0 +1,313 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import projects.dnetsova.taskmanager.entities.Task;
+import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.exceptions.InvalidTaskException;
+import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.*;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.services.TaskService;
+import projects.dnetsova.taskmanager.services.TaskWriteBehindBuffer;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TaskServiceTests {
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TaskWriteBehindBuffer writeBehindBuffer;
+
+    @InjectMocks
+    private TaskService taskService;
+
+    private final UUID id = UUID.randomUUID();
+    private final TaskRequest request = new TaskRequest("title", "description", LocalDate.of(2024, 7, 1),
+            LocalDate.of(2024, 7, 5), null, Priority.P1, Set.of("user"));
+
+    @Test
+    public void addTaskMustThrowIllegalArgumentExceptionWhenTitleIsEmpty() {
+        TaskRequest invalidRequest = new TaskRequest(" ", null, null, null, null, Priority.P0, Set.of());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> taskService.addTask(invalidRequest),
+                "Expected IllegalArgumentException to be thrown when the title is empty.");
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void addTaskMustThrowIllegalArgumentExceptionWhenStartDateIsAfterDeadline() {
+        TaskRequest invalidRequest = new TaskRequest("title", null, LocalDate.of(2024, 7, 6),
+                LocalDate.of(2024, 7, 5), null, Priority.P0, Set.of());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> taskService.addTask(invalidRequest),
+                "Expected IllegalArgumentException to be thrown when the start date is after the deadline.");
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void addTaskMustThrowInvalidUserExceptionWhenAnAssigneeDoesNotExist() {
+        Mockito.when(userRepository.findByNameIn(Set.of("user"))).thenReturn(List.of());
+        Assertions.assertThrows(InvalidUserException.class, () -> taskService.addTask(request),
+                "Expected InvalidUserException to be thrown when an assignee does not exist.");
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void addTaskMustSaveTheTaskWithItsAssignees() throws InvalidUserException {
+        Mockito.when(userRepository.findByNameIn(Set.of("user"))).thenReturn(List.of(new User("User")));
+        Mockito.when(taskRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            Task saved = invocation.getArgument(0);
+            ReflectionTestUtils.setField(saved, "id", id);
+            return saved;
+        });
+
+        TaskDetails task = taskService.addTask(request);
+
+        Assertions.assertEquals("title", task.title());
+        Assertions.assertEquals(Priority.P1, task.priority());
+        Assertions.assertEquals(List.of("User"), task.assignees());
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(null, task));
+        verify(taskRepository).refreshFeedKeys(List.of(id));
+    }
+
+    @Test
+    public void getTaskMustThrowInvalidTaskExceptionWhenTaskDoesNotExist() {
+        Mockito.when(taskRepository.findSummaryById(id)).thenReturn(Optional.empty());
+        Assertions.assertThrows(InvalidTaskException.class, () -> taskService.getTask(id),
+                "Expected InvalidTaskException to be thrown when getting a non-existing task.");
+    }
+
+    @Test
+    public void removeTaskMustThrowInvalidTaskExceptionWhenTaskDoesNotExist() {
+        Mockito.when(taskRepository.findSummaryById(id)).thenReturn(Optional.empty());
+        Assertions.assertThrows(InvalidTaskException.class, () -> taskService.removeTask(id),
+                "Expected InvalidTaskException to be thrown when removing a non-existing task.");
+    }
+
+    @Test
+    public void updateTaskMustThrowInvalidTaskExceptionWhenTaskDoesNotExist() {
+        Mockito.when(taskRepository.findById(id)).thenReturn(Optional.empty());
+        Assertions.assertThrows(InvalidTaskException.class, () -> taskService.updateTask(id, request),
+                "Expected InvalidTaskException to be thrown when updating a non-existing task.");
+    }
+
+    @Test
+    public void editTaskMustThrowIllegalArgumentExceptionWhenNothingChanges() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> taskService.editTask(id, new TaskEdit(null, null, Set.of(), null)),
+                "Expected IllegalArgumentException to be thrown when the edit changes nothing.");
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void editTaskMustWriteOnlyTheChangedAttributesWhenWriteBehindIsDisabled()
+            throws InvalidTaskException, InvalidUserException {
+        TaskSummary summary = new TaskSummary(id, "title", null, LocalDate.of(2024, 7, 1),
+                LocalDate.of(2024, 7, 5), null, Priority.P2);
+        Mockito.when(taskRepository.findSummaryById(id)).thenReturn(Optional.of(summary));
+        Mockito.when(taskRepository.findAssigneeNames(List.of(id))).thenReturn(List.of(new TaskAssignee(id, "old")));
+        Mockito.when(userRepository.findByNameIn(Set.of("user"))).thenReturn(List.of(new User("User")));
+
+        TaskDetails edited = taskService.editTask(id, new TaskEdit(Priority.P0, null, Set.of("user"), null));
+
+        Assertions.assertEquals(Priority.P0, edited.priority());
+        Assertions.assertEquals(LocalDate.of(2024, 7, 5), edited.deadline());
+        Assertions.assertEquals(List.of("User", "old"), edited.assignees());
+        verify(taskRepository).applyEdits(List.of(new TaskFieldEdit(id, Priority.P0, null,
+                Collections.singletonMap(null, "User"), Map.of())));
+        verify(writeBehindBuffer, never()).submit(any());
+        verify(eventPublisher).publishEvent(any(TaskChangedEvent.class));
+    }
+
+    @Test
+    public void changeAssignmentsMustWriteOnlyTheChangedPairsWithoutLoadingTheTasks()
+            throws InvalidTaskException, InvalidUserException {
+        UUID otherId = UUID.randomUUID();
+        User fred = userWithId("Fred");
+        User alice = userWithId("Alice");
+        User bob = userWithId("Bob");
+        Mockito.when(userRepository.findByNameIn(Set.of("fred", "Alice", "Bob"))).thenReturn(List.of(fred, alice, bob));
+        Mockito.when(taskRepository.findSummariesByIdIn(Set.of(id, otherId))).thenReturn(List.of(
+                new TaskSummary(id, "title", null, null, null, null, Priority.P1),
+                new TaskSummary(otherId, "other", null, null, null, null, Priority.P2)));
+        Mockito.when(taskRepository.findAssigneeNames(anyCollection())).thenReturn(
+                List.of(new TaskAssignee(id, "Bob"), new TaskAssignee(id, "Fred")),
+                List.of(new TaskAssignee(id, "Alice"), new TaskAssignee(id, "Fred"),
+                        new TaskAssignee(otherId, "Alice"), new TaskAssignee(otherId, "Fred")));
+
+        AssignmentReport report = taskService.changeAssignments(new TaskAssignments(
+                List.of(new AssignmentGroup(Set.of(id, otherId), Set.of("fred", "Alice"))),
+                List.of(new AssignmentGroup(Set.of(id, otherId), Set.of("Bob")))));
+
+        // Fred is assigned to the first task already and Bob to the second one not at all
+        Assertions.assertEquals(new AssignmentReport(3, 1, 2), report);
+        verify(taskRepository).applyEdits(argThat(edits -> Set.copyOf(edits).equals(Set.of(
+                new TaskFieldEdit(id, null, null, Map.of(alice.getId(), "Alice"), Map.of(bob.getId(), "Bob")),
+                new TaskFieldEdit(otherId, null, null, Map.of(fred.getId(), "Fred", alice.getId(), "Alice"),
+                        Map.of())))));
+        verify(userRepository, times(1)).findByNameIn(anyCollection());
+        verify(taskRepository, never()).findById(any());
+        verify(eventPublisher, times(2)).publishEvent(any(TaskChangedEvent.class));
+    }
+
+    @Test
+    public void changeAssignmentsMustReportOnlyThePairsFoundWritten() throws InvalidTaskException, InvalidUserException {
+        User fred = userWithId("Fred");
+        User alice = userWithId("Alice");
+        Mockito.when(userRepository.findByNameIn(Set.of("Fred", "Alice"))).thenReturn(List.of(fred, alice));
+        Mockito.when(taskRepository.findSummariesByIdIn(Set.of(id))).thenReturn(List.of(
+                new TaskSummary(id, "title", null, null, null, null, Priority.P1)));
+        // Alice was removed before her assignment was inserted
+        Mockito.when(taskRepository.findAssigneeNames(anyCollection())).thenReturn(
+                List.of(), List.of(new TaskAssignee(id, "Fred")));
+
+        AssignmentReport report = taskService.changeAssignments(new TaskAssignments(
+                List.of(new AssignmentGroup(Set.of(id), Set.of("Fred", "Alice"))), null));
+
+        Assertions.assertEquals(new AssignmentReport(1, 0, 1), report);
+        verify(eventPublisher).publishEvent(argThat((TaskChangedEvent event) ->
+                event.after().assignees().equals(List.of("Fred"))));
+    }
+
+    @Test
+    public void changeAssignmentsMustRejectAPairWhichIsBothAssignedAndUnassigned() {
+        Mockito.when(userRepository.findByNameIn(Set.of("Fred", "fred"))).thenReturn(List.of(userWithId("Fred")));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> taskService.changeAssignments(
+                new TaskAssignments(List.of(new AssignmentGroup(Set.of(id), Set.of("Fred"))),
+                        List.of(new AssignmentGroup(Set.of(id), Set.of("fred"))))),
+                "Expected IllegalArgumentException to be thrown when a pair is both assigned and unassigned.");
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void changeAssignmentsMustThrowInvalidTaskExceptionWhenATaskDoesNotExist() {
+        UUID otherId = UUID.randomUUID();
+        Mockito.when(userRepository.findByNameIn(Set.of("Fred"))).thenReturn(List.of(userWithId("Fred")));
+        Mockito.when(taskRepository.findSummariesByIdIn(Set.of(id, otherId))).thenReturn(List.of(
+                new TaskSummary(id, "title", null, null, null, null, Priority.P1)));
+
+        Assertions.assertThrows(InvalidTaskException.class, () -> taskService.changeAssignments(
+                new TaskAssignments(List.of(new AssignmentGroup(Set.of(id, otherId), Set.of("Fred"))), null)),
+                "Expected InvalidTaskException to be thrown when assigning a user to a non-existing task.");
+        verify(taskRepository, never()).applyEdits(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void changeAssignmentsMustRejectTooManyPairsBeforeQuerying() {
+        Set<UUID> taskIds = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 1001; i++) {
+            taskIds.add(UUID.randomUUID());
+            names.add("user" + i);
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> taskService.changeAssignments(
+                new TaskAssignments(List.of(new AssignmentGroup(taskIds, names)), null)),
+                "Expected IllegalArgumentException to be thrown when changing more than a million pairs.");
+        verifyNoInteractions(taskRepository, userRepository);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    public void getAllTasksMustMakeOnePageCallAndOneAssigneeCallWhateverThePageSize(int size) {
+        List<TaskSummary> summaries = new ArrayList<>();
+        List<TaskAssignee> assignees = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            TaskSummary summary = new TaskSummary(UUID.randomUUID(), "task" + i, null, null, null, null, Priority.P2);
+            summaries.add(summary);
+            assignees.add(new TaskAssignee(summary.id(), "user"));
+            assignees.add(new TaskAssignee(summary.id(), "user2"));
+        }
+
+        Mockito.when(taskRepository.findAllSummaries(PageRequest.of(0, size)))
+                .thenReturn(new PageImpl<>(summaries, PageRequest.of(0, size), size));
+        Mockito.when(taskRepository.findAssigneeNames(anyCollection())).thenReturn(assignees);
+
+        CustomPage<TaskDetails> page = taskService.getAllTasks(1, size);
+
+        Assertions.assertEquals(size, page.elements().size());
+        page.elements().forEach(task -> Assertions.assertEquals(List.of("user", "user2"), task.assignees()));
+        // Repository calls, not SQL statements: Spring Data issues the page and its count query for the first one
+        verify(taskRepository, times(1)).findAllSummaries(PageRequest.of(0, size));
+        verify(taskRepository, times(1)).findAssigneeNames(anyCollection());
+        verifyNoMoreInteractions(taskRepository);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void getAllTasksMustThrowIllegalArgumentExceptionWhenPageIsNotPositive() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> taskService.getAllTasks(0, 10),
+                "Expected IllegalArgumentException to be thrown when page is negative or zero.");
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void getUserTasksMustThrowInvalidUserExceptionWhenUserDoesNotExist() {
+        Mockito.when(userRepository.findIdByName("user")).thenReturn(Optional.empty());
+        Assertions.assertThrows(InvalidUserException.class, () -> taskService.getUserTasks("user", "", 10),
+                "Expected InvalidUserException to be thrown when getting the tasks of a non-existing user.");
+    }
+
+    @Test
+    public void getUserTasksMustContinueWithTasksWithoutDeadlineAndResumeFromTheCursor() throws InvalidUserException {
+        UUID userId = UUID.randomUUID();
+        TaskFeedEntry withDeadline = new TaskFeedEntry(UUID.randomUUID(), "task", LocalDate.of(2024, 7, 5), Priority.P1);
+        TaskFeedEntry withoutDeadline = new TaskFeedEntry(UUID.randomUUID(), "task2", null, Priority.P0);
+        TaskFeedEntry last = new TaskFeedEntry(UUID.randomUUID(), "task3", null, Priority.P3);
+
+        Mockito.when(userRepository.findIdByName("user")).thenReturn(Optional.of(userId));
+        Mockito.when(taskRepository.findFeedWithDeadline(userId, Limit.of(3))).thenReturn(List.of(withDeadline));
+        Mockito.when(taskRepository.findFeedWithoutDeadline(userId, Limit.of(2)))
+                .thenReturn(List.of(withoutDeadline, last));
+
+        CursorPage<TaskFeedEntry> firstPage = taskService.getUserTasks("user", "", 2);
+
+        Assertions.assertEquals(List.of(withDeadline, withoutDeadline), firstPage.elements());
+        Assertions.assertNotNull(firstPage.nextCursor());
+
+        Mockito.when(taskRepository.findFeedWithoutDeadlineAfter(userId, Priority.P0, withoutDeadline.id(), Limit.of(3)))
+                .thenReturn(List.of(last));
+
+        CursorPage<TaskFeedEntry> secondPage = taskService.getUserTasks("user", firstPage.nextCursor(), 2);
+
+        Assertions.assertEquals(List.of(last), secondPage.elements());
+        Assertions.assertNull(secondPage.nextCursor());
+        verify(taskRepository, never()).findFeedWithDeadlineAfter(any(), any(), any(), any(), any());
+    }
+
+    private static User userWithId(String name) {
+        User user = new User(name);
+        ReflectionTestUtils.setField(user, "id", UUID.randomUUID());
+        return user;
+    }
+}
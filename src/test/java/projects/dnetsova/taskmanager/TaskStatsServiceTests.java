@@ -0,0 +1,151 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import projects.dnetsova.taskmanager.entities.TaskCountSummary;
+import projects.dnetsova.taskmanager.events.TaskChangedEvent;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
+import projects.dnetsova.taskmanager.models.AssigneeCount;
+import projects.dnetsova.taskmanager.models.PriorityCount;
+import projects.dnetsova.taskmanager.models.TaskDetails;
+import projects.dnetsova.taskmanager.models.TaskStats;
+import projects.dnetsova.taskmanager.repositories.TaskCountSummaryRepository;
+import projects.dnetsova.taskmanager.repositories.TaskRepository;
+import projects.dnetsova.taskmanager.services.TaskStatsService;
+import projects.dnetsova.taskmanager.services.TaskWriteBehindBuffer;
+import projects.dnetsova.taskmanager.utils.Priority;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TaskStatsServiceTests {
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private TaskCountSummaryRepository summaryRepository;
+
+    @Mock
+    private TaskWriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TaskStatsService taskStatsService;
+
+    @BeforeEach
+    public void createService() {
+        Clock clock = Clock.fixed(Instant.parse("2024-07-01T12:00:00Z"), ZoneOffset.UTC);
+        taskStatsService = new TaskStatsService(taskRepository, summaryRepository, writeBehindBuffer,
+                new TransactionTemplate(transactionManager), clock, true);
+    }
+
+    @Test
+    public void getStatsMustThrowIllegalStateExceptionUntilTheCountersAreLoaded() {
+        Assertions.assertThrows(IllegalStateException.class, () -> taskStatsService.getStats());
+    }
+
+    @Test
+    public void loadMustCountTheTasksOnlyWhenNoSummaryIsStored() {
+        Mockito.when(summaryRepository.findAll()).thenReturn(List.of(
+                new TaskCountSummary("priority:P1", "P1", 4, Instant.EPOCH),
+                new TaskCountSummary("assignee:fred", "Fred", 3, Instant.EPOCH)));
+
+        taskStatsService.load();
+
+        TaskStats stats = taskStatsService.getStats();
+        Assertions.assertEquals(4, stats.total());
+        Assertions.assertEquals(4, stats.byPriority().get(Priority.P1));
+        Assertions.assertEquals(Map.of("Fred", 3L), stats.byAssignee());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void countOfTheTasksMustReplaceTheChangesReceivedBeforeIt() {
+        // Committed before the count, which includes the task
+        taskStatsService.onTaskChanged(new TaskChangedEvent(null, task(Priority.P2, "Fred")));
+
+        load(List.of(new PriorityCount(Priority.P2, 1L)), List.of(new AssigneeCount("Fred", 1L)));
+
+        TaskStats stats = taskStatsService.getStats();
+        Assertions.assertEquals(1, stats.total());
+        Assertions.assertEquals(Map.of("Fred", 1L), stats.byAssignee());
+    }
+
+    @Test
+    public void countersMustFollowTheTaskAndUserChanges() {
+        load(List.of(new PriorityCount(Priority.P2, 1L)), List.of(new AssigneeCount("Fred", 1L)));
+        TaskDetails task = task(Priority.P2, "Fred");
+
+        taskStatsService.onTaskChanged(new TaskChangedEvent(task, task(Priority.P0, "Fred", "Maria")));
+        taskStatsService.onUserChanged(new UserChangedEvent("Fred", "Frederick"));
+        taskStatsService.onUserChanged(new UserChangedEvent("Maria", null));
+
+        TaskStats stats = taskStatsService.getStats();
+        Assertions.assertEquals(1, stats.total());
+        Assertions.assertEquals(0, stats.byPriority().get(Priority.P2));
+        Assertions.assertEquals(1, stats.byPriority().get(Priority.P0));
+        Assertions.assertEquals(Map.of("Frederick", 1L), stats.byAssignee());
+    }
+
+    @Test
+    public void verifyMustRepairOnlyADifferenceFoundTwiceInARow() {
+        load(List.of(new PriorityCount(Priority.P2, 2L)), List.of());
+        Mockito.when(taskRepository.countByPriority()).thenReturn(List.of(new PriorityCount(Priority.P2, 3L)));
+        Mockito.when(taskRepository.countByAssignee()).thenReturn(List.of(new AssigneeCount("Fred", 1L)));
+
+        Assertions.assertEquals(0, taskStatsService.verify(), "Expected a first difference not to be repaired.");
+        Assertions.assertEquals(2, taskStatsService.verify());
+
+        TaskStats stats = taskStatsService.getStats();
+        Assertions.assertEquals(3, stats.byPriority().get(Priority.P2));
+        Assertions.assertEquals(Map.of("Fred", 1L), stats.byAssignee());
+        Assertions.assertEquals(0, taskStatsService.verify());
+    }
+
+    @Test
+    public void flushMustWriteTheChangedCountersAndDeleteTheEmptyOnes() {
+        load(List.of(new PriorityCount(Priority.P2, 1L)), List.of(new AssigneeCount("Fred", 1L)));
+        taskStatsService.flush();
+        reset(summaryRepository);
+
+        taskStatsService.onTaskChanged(new TaskChangedEvent(task(Priority.P2, "Fred"), null));
+        taskStatsService.onTaskChanged(new TaskChangedEvent(null, task(Priority.P1)));
+        taskStatsService.flush();
+
+        ArgumentCaptor<List<TaskCountSummary>> saved = ArgumentCaptor.forClass(List.class);
+        verify(summaryRepository).saveAll(saved.capture());
+        Assertions.assertEquals(List.of("priority:P1"), saved.getValue().stream().map(TaskCountSummary::getName).toList());
+        ArgumentCaptor<List<String>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(summaryRepository).deleteAllByIdInBatch(deleted.capture());
+        Assertions.assertEquals(2, deleted.getValue().size());
+        Assertions.assertTrue(deleted.getValue().containsAll(List.of("priority:P2", "assignee:fred")));
+    }
+
+    private void load(List<PriorityCount> priorities, List<AssigneeCount> assignees) {
+        Mockito.when(summaryRepository.findAll()).thenReturn(List.of());
+        Mockito.when(taskRepository.countByPriority()).thenReturn(priorities);
+        Mockito.when(taskRepository.countByAssignee()).thenReturn(assignees);
+        taskStatsService.load();
+    }
+
+    private static TaskDetails task(Priority priority, String... assignees) {
+        return new TaskDetails(UUID.randomUUID(), "title", null, null, null, null, priority, List.of(assignees));
+    }
+}
@@ -0,0 +1,35 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import projects.dnetsova.taskmanager.utils.TimeOrderedUuids;
+import projects.dnetsova.taskmanager.utils.UuidBytes;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+
+public class TimeOrderedUuidsTests {
+
+    @Test
+    public void uuidMustBeVersion7WithTheCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuids.next();
+
+        Assertions.assertEquals(7, uuid.version());
+        Assertions.assertEquals(2, uuid.variant());
+        Assertions.assertTrue(TimeOrderedUuids.timestampMillis(uuid) >= before);
+    }
+
+    @Test
+    public void storedBytesMustFollowTheGenerationOrder() {
+        byte[] previous = UuidBytes.toBytes(TimeOrderedUuids.next());
+
+        // Far more ids than the counter holds for a single millisecond
+        for (int i = 0; i < 100_000; i++) {
+            byte[] next = UuidBytes.toBytes(TimeOrderedUuids.next());
+            Assertions.assertTrue(Arrays.compareUnsigned(previous, next) < 0);
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package projects.dnetsova.taskmanager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.services.UserNameDirectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+
+@ExtendWith(MockitoExtension.class)
+public class UserNameDirectoryTests {
+    @Mock
+    private UserRepository userRepository;
+
+    private UserNameDirectory userNameDirectory;
+
+    @BeforeEach
+    public void loadDirectory() {
+        Mockito.when(userRepository.findUserNamesAfter(eq(""), any(Limit.class)))
+                .thenReturn(List.of("Ina", "Ivaylo", "Ivo", "Fred"));
+
+        userNameDirectory = new UserNameDirectory(userRepository, true);
+        userNameDirectory.load();
+    }
+
+    @Test
+    public void definitelyAbsentMustBeFalseForLoadedNamesIgnoringCaseAndAccents() {
+        Assertions.assertTrue(userNameDirectory.isReady());
+        Assertions.assertFalse(userNameDirectory.definitelyAbsent("Fred"));
+        Assertions.assertFalse(userNameDirectory.definitelyAbsent("fréd"));
+        Assertions.assertTrue(userNameDirectory.definitelyAbsent("Bob"));
+    }
+
+    @Test
+    public void definitelyAbsentMustFollowWrites() {
+        userNameDirectory.added("Bob");
+        userNameDirectory.removed("Fred");
+
+        Assertions.assertFalse(userNameDirectory.definitelyAbsent("Bob"));
+        Assertions.assertTrue(userNameDirectory.definitelyAbsent("Fred"));
+
+        userNameDirectory.renamed("Bob", "Fred");
+
+        Assertions.assertTrue(userNameDirectory.definitelyAbsent("Bob"));
+        Assertions.assertFalse(userNameDirectory.definitelyAbsent("Fred"));
+    }
+
+    @Test
+    public void findByPrefixMustMergeLoadedAndWrittenNamesInOrder() {
+        userNameDirectory.added("Iva");
+        userNameDirectory.removed("Ivaylo");
+
+        Assertions.assertEquals(List.of("Ina", "Iva", "Ivo"), userNameDirectory.findByPrefix("i", 10));
+        Assertions.assertEquals(List.of("Iva", "Ivo"), userNameDirectory.findByPrefix("IV", 10));
+        Assertions.assertEquals(List.of("Ina"), userNameDirectory.findByPrefix("i", 1));
+    }
+
+    @Test
+    public void findByPrefixMustStayCorrectAfterCompaction() {
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String name = String.format("user%05d", i);
+            added.add(name);
+            userNameDirectory.added(name);
+        }
+
+        Assertions.assertEquals(added.subList(0, 3), userNameDirectory.findByPrefix("user", 3));
+        Assertions.assertEquals(List.of("Ina", "Ivaylo", "Ivo"), userNameDirectory.findByPrefix("I", 10));
+        Assertions.assertFalse(userNameDirectory.definitelyAbsent("user09999"));
+    }
+}
@@ -7,22 +7,30 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import projects.dnetsova.taskmanager.entities.User;
+import projects.dnetsova.taskmanager.events.UserChangedEvent;
 import projects.dnetsova.taskmanager.exceptions.DuplicateUserException;
 import projects.dnetsova.taskmanager.exceptions.InvalidUserException;
+import projects.dnetsova.taskmanager.models.BulkUserResult;
+import projects.dnetsova.taskmanager.models.CursorPage;
 import projects.dnetsova.taskmanager.models.CustomPage;
 import projects.dnetsova.taskmanager.repositories.UserRepository;
+import projects.dnetsova.taskmanager.services.UserNameDirectory;
 import projects.dnetsova.taskmanager.services.UserService;
+import projects.dnetsova.taskmanager.utils.Cursors;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 
@@ -31,27 +39,64 @@ public class UserServiceTests {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserNameDirectory userNameDirectory;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
 
     private final String name = "user";
     private final String newName = "newUser";
-    private final User user = new User(name);
 
     @Test
     public void addUserMustThrowDuplicateUserExceptionWhenUserNameExists() {
-        Mockito.when(userRepository.saveAndFlush(this.user)).thenThrow(DataIntegrityViolationException.class);
+        Mockito.when(userRepository.insertUserIfAbsent(this.name)).thenReturn(0);
         Assertions.assertThrows(DuplicateUserException.class, () -> userService.addUser(this.name),
                 "Expected DuplicateUserException to be thrown when adding a user with an existing name.");
-        verify(userRepository).saveAndFlush(this.user);
+        verify(userRepository).insertUserIfAbsent(this.name);
     }
 
     @Test
     public void addUserMustSaveUserInTheDatabase() throws DuplicateUserException {
+        Mockito.when(userRepository.insertUserIfAbsent(this.name)).thenReturn(1);
         userService.addUser(this.name);
-        verify(userRepository).saveAndFlush(this.user);
+        verify(userRepository).insertUserIfAbsent(this.name);
+
+    }
+
+    @Test
+    public void changeVersionMustChangeAfterASuccessfulWriteOnly() throws DuplicateUserException {
+        String initialVersion = userService.getChangeVersion();
+
+        Mockito.when(userRepository.insertUserIfAbsent(this.name)).thenReturn(0);
+        Assertions.assertThrows(DuplicateUserException.class, () -> userService.addUser(this.name));
+        Assertions.assertEquals(initialVersion, userService.getChangeVersion(),
+                "Expected the version to be kept when the user is rejected.");
 
+        Mockito.when(userRepository.insertUserIfAbsent(this.newName)).thenReturn(1);
+        userService.addUser(this.newName);
+        Assertions.assertNotEquals(initialVersion, userService.getChangeVersion(),
+                "Expected a new version after a user is created.");
+    }
+
+    @Test
+    public void getUsersAfterMustCountAgainAfterAWrite() throws DuplicateUserException {
+        Mockito.when(userRepository.findUserNamesAfter("", Limit.of(2))).thenReturn(List.of(this.name));
+        Mockito.when(userRepository.count()).thenReturn(1L, 2L);
+
+        Assertions.assertEquals(1L, userService.getUsersAfter("", 1, true).totalElementsCount());
+        Assertions.assertEquals(1L, userService.getUsersAfter("", 1, true).totalElementsCount());
+
+        Mockito.when(userRepository.insertUserIfAbsent(this.newName)).thenReturn(1);
+        userService.addUser(this.newName);
+
+        Assertions.assertEquals(2L, userService.getUsersAfter("", 1, true).totalElementsCount(),
+                "Expected the cached total to be dropped with the previous version.");
+        verify(userRepository, times(2)).count();
     }
 
     @Test
@@ -78,7 +123,22 @@ public class UserServiceTests {
     }
 
     @Test
-    public void updateUserMustThrowDuplicateUserExceptionWhenTheGivenNewUserNameIsTaken() {
+    public void updateUserMustThrowDuplicateUserExceptionWithoutRenamingWhenTheNewNameIsTaken() {
+        Mockito.when(userRepository.existsByName(this.newName)).thenReturn(true);
+        Assertions.assertThrows(DuplicateUserException.class, () -> userService.updateUser(this.name, this.newName),
+                "Expected DuplicateUserException to be thrown when updating a user with an existing name.");
+        verify(userRepository, never()).updateUserName(any(), any());
+    }
+
+    @Test
+    public void updateUserMustAllowChangingTheCaseOfTheOwnName() throws InvalidUserException, DuplicateUserException {
+        Mockito.when(userRepository.updateUserName(this.name, "User")).thenReturn(1);
+        userService.updateUser(this.name, "User");
+        verify(userRepository, never()).existsByName(any());
+    }
+
+    @Test
+    public void updateUserMustThrowDuplicateUserExceptionWhenTheNewNameIsTakenConcurrently() {
         Mockito.when(userRepository.updateUserName(this.name, newName)).thenThrow(DataIntegrityViolationException.class);
         Assertions.assertThrows(DuplicateUserException.class, () -> userService.updateUser(this.name, this.newName),
                 "Expected DuplicateUserException to be thrown when updating a user with an existing name.");
@@ -130,4 +190,109 @@ public class UserServiceTests {
         Assertions.assertEquals("user2", resultCustomPage.elements().get(1));
         Assertions.assertEquals("user3", resultCustomPage.elements().get(2));
     }
+
+    @Test
+    public void getUsersAfterMustThrowIllegalArgumentExceptionWhenCursorIsMalformed() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> userService.getUsersAfter("not a cursor", 10, false),
+                "Expected IllegalArgumentException to be thrown when the cursor is malformed.");
+        verify(userRepository, never()).findUserNamesAfter(any(String.class), any(Limit.class));
+    }
+
+    @Test
+    public void getUsersAfterMustSeekAfterTheCursorAndReturnTheNextCursor() {
+        Mockito.when(userRepository.findUserNamesAfter("user", Limit.of(3)))
+                .thenReturn(Arrays.asList("user2", "user3", "user4"));
+
+        CursorPage<String> resultPage = userService.getUsersAfter(Cursors.encode("user"), 2, false);
+
+        Assertions.assertEquals(List.of("user2", "user3"), resultPage.elements());
+        Assertions.assertEquals(Cursors.encode("user3"), resultPage.nextCursor());
+        Assertions.assertNull(resultPage.totalElementsCount());
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    public void getUsersAfterMustNotReturnCursorOnTheLastPage() {
+        Mockito.when(userRepository.findUserNamesAfter("", Limit.of(3))).thenReturn(List.of("user"));
+
+        CursorPage<String> resultPage = userService.getUsersAfter("", 2, false);
+
+        Assertions.assertEquals(List.of("user"), resultPage.elements());
+        Assertions.assertNull(resultPage.nextCursor());
+    }
+
+    @Test
+    public void getUsersAfterMustServeTheTotalFromCache() {
+        Mockito.when(userRepository.findUserNamesAfter("", Limit.of(3))).thenReturn(List.of("user"));
+        Mockito.when(userRepository.count()).thenReturn(1L);
+
+        Assertions.assertEquals(1L, userService.getUsersAfter("", 2, true).totalElementsCount());
+        Assertions.assertEquals(1L, userService.getUsersAfter("", 2, true).totalElementsCount());
+        verify(userRepository, times(1)).count();
+    }
+
+    @Test
+    public void addUsersMustReportDuplicateEmptyAndTooLongNamesPerName() {
+        Mockito.when(userRepository.insertUsersIfAbsent(List.of("user", "taken")))
+                .thenReturn(Set.of("user"));
+
+        List<BulkUserResult> results = userService.addUsers(List.of("user", "taken", " ", "USER", "x".repeat(256))
+                .iterator());
+
+        Assertions.assertEquals(5, results.size());
+        Assertions.assertNull(results.get(0).error());
+        Assertions.assertEquals("DuplicateUser", results.get(1).error().name());
+        Assertions.assertEquals("InvalidName", results.get(2).error().name());
+        Assertions.assertEquals("DuplicateUser", results.get(3).error().name());
+        // Rejected up front rather than left for the database to truncate
+        Assertions.assertEquals("InvalidName", results.get(4).error().name());
+        verify(userRepository).insertUsersIfAbsent(List.of("user", "taken"));
+    }
+
+    @Test
+    public void removeUsersMustReportMissingNamesPerName() {
+        Mockito.when(userRepository.deleteUsersByName(List.of("user", "missing")))
+                .thenReturn(Set.of("User"));
+
+        List<BulkUserResult> results = userService.removeUsers(List.of("user", "missing").iterator());
+
+        Assertions.assertNull(results.get(0).error());
+        Assertions.assertEquals("InvalidUser", results.get(1).error().name());
+    }
+
+    @Test
+    public void removeUserMustNotQueryTheDatabaseWhenTheNameIsDefinitelyAbsent() {
+        Mockito.when(userNameDirectory.definitelyAbsent(this.name)).thenReturn(true);
+        Assertions.assertThrows(InvalidUserException.class, () -> userService.removeUser(this.name),
+                "Expected InvalidUserException to be thrown when the directory knows the name does not exist.");
+        verify(userRepository, never()).delete(this.name);
+    }
+
+    @Test
+    public void updateUserMustKeepTheDirectoryCurrent() throws InvalidUserException, DuplicateUserException {
+        Mockito.when(userRepository.updateUserName(this.name, newName)).thenReturn(1);
+        userService.updateUser(this.name, newName);
+        verify(userNameDirectory).renamed(this.name, newName);
+    }
+
+    @Test
+    public void updateUserMustPublishTheRenameOnlyWhenItSucceeds() throws InvalidUserException, DuplicateUserException {
+        Mockito.when(userRepository.existsByName(newName)).thenReturn(true, false);
+        Mockito.when(userRepository.updateUserName(this.name, newName)).thenReturn(1);
+
+        Assertions.assertThrows(DuplicateUserException.class, () -> userService.updateUser(this.name, newName));
+        verify(eventPublisher, never()).publishEvent(any());
+
+        userService.updateUser(this.name, newName);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(this.name, newName));
+    }
+
+    @Test
+    public void searchUsersMustBeServedByTheDirectoryWhenItIsLoaded() {
+        Mockito.when(userNameDirectory.isReady()).thenReturn(true);
+        Mockito.when(userNameDirectory.findByPrefix("us", 5)).thenReturn(List.of("user", "user2"));
+
+        Assertions.assertEquals(List.of("user", "user2"), userService.searchUsers("us", 5));
+        verify(userRepository, never()).findByNameStartingWithOrderByNameAsc(any(String.class), any(Limit.class));
+    }
 }